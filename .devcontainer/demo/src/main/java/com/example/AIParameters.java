@@ -0,0 +1,217 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * The tunable numbers behind {@link AIPlayer}'s decisions: hand strength cut-offs, action
+ * frequencies and pot-odds limits. Every value lies between 0 and 1.
+ *
+ * A parameter set is an immutable vector indexed by the constants below, so an optimizer
+ * can treat it as a point in the unit cube. It is stored as a properties file keyed by
+ * parameter name; names missing from a file keep their default value.
+ */
+public final class AIParameters {
+    /** Strength needed to call an all-in that covers our stack. */
+    public static final int SHORT_STACK_CALL = 0;
+    /** Pre-flop strength of a premium hand. */
+    public static final int PREFLOP_PREMIUM = 1;
+    /** How often a premium hand raises rather than moving all-in. */
+    public static final int PREFLOP_PREMIUM_RAISE = 2;
+    /** Pre-flop strength of a strong hand. */
+    public static final int PREFLOP_STRONG = 3;
+    /** How often a strong hand opens with a raise. */
+    public static final int PREFLOP_STRONG_OPEN = 4;
+    /** How often a strong hand re-raises a bet. */
+    public static final int PREFLOP_STRONG_RERAISE = 5;
+    /** Pre-flop strength of a playable hand. */
+    public static final int PREFLOP_PLAYABLE = 6;
+    /** How often a playable hand opens with a raise. */
+    public static final int PREFLOP_PLAYABLE_OPEN = 7;
+    /** The worst pot odds at which a playable hand calls. */
+    public static final int PREFLOP_PLAYABLE_ODDS = 8;
+    /** The worst pot odds at which a playable hand calls a loose opponent. */
+    public static final int PREFLOP_PLAYABLE_LOOSE_ODDS = 9;
+    /** Post-flop strength of a very strong hand. */
+    public static final int POSTFLOP_NUTS = 10;
+    /** How often a very strong hand checks on a dry board. */
+    public static final int POSTFLOP_NUTS_SLOWPLAY = 11;
+    /** How often a very strong hand raises rather than moving all-in. */
+    public static final int POSTFLOP_NUTS_RAISE = 12;
+    /** Post-flop strength of a strong hand. */
+    public static final int POSTFLOP_STRONG = 13;
+    /** How often a strong hand bets when checked to. */
+    public static final int POSTFLOP_STRONG_BET = 14;
+    /** How often a strong hand raises a bet. */
+    public static final int POSTFLOP_STRONG_RAISE = 15;
+    /** Post-flop strength of a medium hand. */
+    public static final int POSTFLOP_MEDIUM = 16;
+    /** How often a medium hand bets when checked to. */
+    public static final int POSTFLOP_MEDIUM_BET = 17;
+    /** The worst pot odds at which a medium hand always calls. */
+    public static final int POSTFLOP_MEDIUM_ODDS = 18;
+    /** How often a medium hand calls a bet with worse odds. */
+    public static final int POSTFLOP_MEDIUM_CALL = 19;
+    /** How often a medium hand calls a bet with worse odds from an aggressive opponent. */
+    public static final int POSTFLOP_MEDIUM_CALL_AGGRESSIVE = 20;
+    /** How often a medium hand calls a bet with worse odds from a passive opponent. */
+    public static final int POSTFLOP_MEDIUM_CALL_PASSIVE = 21;
+    /** How often a weak hand bluffs. */
+    public static final int POSTFLOP_BLUFF = 22;
+    /** How often a weak hand bluffs a flop against a player who folds to continuation bets. */
+    public static final int POSTFLOP_BLUFF_CBET = 23;
+    /** The number of parameters. */
+    public static final int COUNT = 24;
+    /** System property naming the parameter file the console and GUI games play with. */
+    public static final String FILE_PROPERTY = "poker.ai.parameters";
+
+    private static final String[] NAMES = {
+        "short.stack.call",
+        "preflop.premium", "preflop.premium.raise",
+        "preflop.strong", "preflop.strong.open", "preflop.strong.reraise",
+        "preflop.playable", "preflop.playable.open", "preflop.playable.odds", "preflop.playable.loose.odds",
+        "postflop.nuts", "postflop.nuts.slowplay", "postflop.nuts.raise",
+        "postflop.strong", "postflop.strong.bet", "postflop.strong.raise",
+        "postflop.medium", "postflop.medium.bet", "postflop.medium.odds", "postflop.medium.call",
+        "postflop.medium.call.aggressive", "postflop.medium.call.passive",
+        "postflop.bluff", "postflop.bluff.cbet"
+    };
+
+    private static final double[] DEFAULTS = {
+        0.65,
+        0.75, 0.7,
+        0.63, 0.8, 0.6,
+        0.5, 0.2, 0.25, 0.35,
+        0.9, 0.2, 0.4,
+        0.75, 0.8, 0.4,
+        0.55, 0.4, 0.3, 0.3,
+        0.6, 0.1,
+        0.05, 0.3
+    };
+
+    private static final AIParameters DEFAULT = new AIParameters(DEFAULTS.clone());
+
+    private final double[] values;
+
+    private AIParameters(double[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Gets the hand-tuned parameters AIPlayer has always used.
+     *
+     * @return The default parameters
+     */
+    public static AIParameters defaults() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates parameters from a vector, clamping every value into [0, 1].
+     *
+     * @param values The values, indexed by parameter
+     * @return The parameters
+     */
+    public static AIParameters of(double[] values) {
+        if (values.length != COUNT) {
+            throw new IllegalArgumentException("Expected " + COUNT + " parameters, got " + values.length);
+        }
+        double[] clamped = new double[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            clamped[i] = Math.max(0, Math.min(1, values[i]));
+        }
+        return new AIParameters(clamped);
+    }
+
+    public double get(int parameter) {
+        return values[parameter];
+    }
+
+    public static String getName(int parameter) {
+        return NAMES[parameter];
+    }
+
+    /**
+     * Gets a copy of the parameter vector.
+     *
+     * @return The values, indexed by parameter
+     */
+    public double[] toArray() {
+        return values.clone();
+    }
+
+    /**
+     * Reads the parameter file named by the {@value #FILE_PROPERTY} system property, such
+     * as one written by {@link com.example.sim.ParameterSearch}.
+     *
+     * @return The parameters, or the defaults if the property is not set
+     * @throws IOException If the file cannot be read
+     */
+    public static AIParameters configured() throws IOException {
+        String file = System.getProperty(FILE_PROPERTY);
+        return file != null ? load(Paths.get(file)) : defaults();
+    }
+
+    /**
+     * Reads parameters from a properties file.
+     *
+     * @param file The file
+     * @return The parameters
+     * @throws IOException If the file cannot be read or holds a value that is not a number
+     */
+    public static AIParameters load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        double[] loaded = DEFAULTS.clone();
+        for (int i = 0; i < COUNT; i++) {
+            String value = properties.getProperty(NAMES[i]);
+            if (value != null) {
+                try {
+                    loaded[i] = Double.parseDouble(value.trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad value for " + NAMES[i] + ": " + value, e);
+                }
+            }
+        }
+        return of(loaded);
+    }
+
+    /**
+     * Writes the parameters to a properties file.
+     *
+     * @param file The file
+     * @param comment A comment for the file header, or null
+     * @throws IOException If the file cannot be written
+     */
+    public void save(Path file, String comment) throws IOException {
+        // Properties.store writes keys in hash order; keep them in parameter order instead
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (comment != null) {
+                writer.write("# " + comment + System.lineSeparator());
+            }
+            for (int i = 0; i < COUNT; i++) {
+                writer.write(NAMES[i] + "=" + String.format(Locale.ROOT, "%.4f", values[i]) + System.lineSeparator());
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof AIParameters && Arrays.equals(values, ((AIParameters) other).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+}
@@ -1,5 +1,13 @@
 package com.example;
 
+import com.example.ai.AnytimeDecision;
+import com.example.ai.DecisionService;
+import com.example.ai.OpponentStats;
+import com.example.eval.BoardRanking;
+import com.example.eval.BoardTexture;
+import com.example.eval.HandPotential;
+import com.example.eval.PreflopEquity;
+
 import java.util.List;
 import java.util.Random;
 
@@ -8,9 +16,15 @@ import java.util.Random;
  * This AI makes decisions based on basic poker strategy.
  */
 public class AIPlayer implements Player {
+    // Hands observed before opponent statistics are trusted
+    private static final int MIN_OPPONENT_HANDS = 30;
+    
     private String name;
     private int chipCount;
     private Random random;
+    private OpponentStats opponentStats;
+    private int opponentId = -1;
+    private final AIParameters params;
     
     /**
      * Creates a new AI player with a given name and chip count.
@@ -19,9 +33,48 @@ public class AIPlayer implements Player {
      * @param initialChips The AI player's initial chip count
      */
     public AIPlayer(String name, int initialChips) {
+        this(name, initialChips, new Random(), AIParameters.defaults());
+    }
+    
+    /**
+     * Creates a new AI player with its own tuning.
+     * 
+     * @param name The AI player's name
+     * @param initialChips The AI player's initial chip count
+     * @param params The thresholds and frequencies the AI plays by
+     */
+    public AIPlayer(String name, int initialChips, AIParameters params) {
+        this(name, initialChips, new Random(), params);
+    }
+    
+    /**
+     * Creates a new AI player whose random choices are repeatable.
+     * 
+     * @param name The AI player's name
+     * @param initialChips The AI player's initial chip count
+     * @param seed Seed for the AI's random choices
+     */
+    public AIPlayer(String name, int initialChips, long seed) {
+        this(name, initialChips, new Random(seed), AIParameters.defaults());
+    }
+    
+    /**
+     * Creates a new AI player with repeatable random choices and its own tuning.
+     * 
+     * @param name The AI player's name
+     * @param initialChips The AI player's initial chip count
+     * @param seed Seed for the AI's random choices
+     * @param params The thresholds and frequencies the AI plays by
+     */
+    public AIPlayer(String name, int initialChips, long seed, AIParameters params) {
+        this(name, initialChips, new Random(seed), params);
+    }
+    
+    private AIPlayer(String name, int initialChips, Random random, AIParameters params) {
         this.name = name;
         this.chipCount = initialChips;
-        this.random = new Random();
+        this.random = random;
+        this.params = params;
     }
     
     @Override
@@ -50,18 +103,75 @@ public class AIPlayer implements Player {
         return true;
     }
     
+    /**
+     * Lets the AI adapt to the tendencies of its main opponent once enough of that
+     * opponent's hands have been seen.
+     * 
+     * @param stats The statistics, usually filled in by a {@link com.example.ai.StatsCollector}
+     * @param opponentName The opponent's name
+     */
+    public void setOpponentStats(OpponentStats stats, String opponentName) {
+        this.opponentStats = stats;
+        this.opponentId = stats.register(opponentName);
+    }
+    
     @Override
     public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount) {
-        // Analyze hand strength (0-10 scale)
-        int handStrength = evaluateHandStrength(hand, communityCards);
+        // Analyze effective hand strength (0-1 scale)
+        double handStrength = evaluateHandStrength(hand, communityCards);
+        return chooseAction(handStrength, communityCards, currentBet, potAmount);
+    }
+    
+    /**
+     * Decides by a deadline. After the flop the effective hand strength is computed on
+     * the shared {@link DecisionService}; if it is not ready in time, the decision uses the
+     * current hand strength, which is cheap.
+     */
+    @Override
+    public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount,
+                                  long deadlineNanos) {
+        if (communityCards.isEmpty()) {
+            return getAction(hand, communityCards, currentBet, potAmount);
+        }
+        int card1 = hand.get(0).getIndex();
+        int card2 = hand.get(1).getIndex();
+        long board = boardMask(communityCards);
+        double currentStrength = BoardRanking.of(board).strength(card1, card2);
         
+        AnytimeDecision decision = new AnytimeDecision() {
+            private volatile double handStrength = currentStrength;
+            
+            @Override
+            public void improve(long deadline) {
+                handStrength = HandPotential.compute(card1, card2, board).getEffectiveStrength();
+            }
+            
+            @Override
+            public PlayerAction best() {
+                return chooseAction(handStrength, communityCards, currentBet, potAmount);
+            }
+        };
+        return DecisionService.shared().decide(decision, deadlineNanos);
+    }
+    
+    /**
+     * Chooses an action for a hand of the given strength.
+     * 
+     * @param handStrength The hand strength, from 0 to 1
+     * @param communityCards The community cards
+     * @param currentBet The amount to call
+     * @param potAmount The pot
+     * @return The action
+     */
+    private PlayerAction chooseAction(double handStrength, List<Card> communityCards, int currentBet, int potAmount) {
         // Calculate pot odds and implied odds
         double potOdds = (double)currentBet / (potAmount + currentBet);
+        OpponentStats.Snapshot opponent = opponentSnapshot();
         
         // Check if we have enough chips to make the bet
         if (currentBet > chipCount) {
             // Can only fold or go all-in
-            if (handStrength >= 5) {
+            if (handStrength >= params.get(AIParameters.SHORT_STACK_CALL)) {
                 return PlayerAction.ALL_IN; // Good enough hand to go all-in
             } else {
                 return PlayerAction.FOLD;   // Not worth the all-in
@@ -70,27 +180,29 @@ public class AIPlayer implements Player {
         
         // Betting strategy based on game stage and hand strength
         boolean preFlop = communityCards.isEmpty();
-        boolean earlyGame = chipCount > 500; // More than half of starting chips
         
         // Pre-flop strategy
         if (preFlop) {
-            if (handStrength >= 9) {
+            if (handStrength >= params.get(AIParameters.PREFLOP_PREMIUM)) {
                 // Premium hand: raise or go all-in to build pot
-                return random.nextDouble() < 0.7 ? PlayerAction.RAISE : PlayerAction.ALL_IN;
-            } else if (handStrength >= 7) {
+                return random.nextDouble() < params.get(AIParameters.PREFLOP_PREMIUM_RAISE) ? PlayerAction.RAISE : PlayerAction.ALL_IN;
+            } else if (handStrength >= params.get(AIParameters.PREFLOP_STRONG)) {
                 // Strong starting hand: raise or call
                 if (currentBet == 0) {
-                    return random.nextDouble() < 0.8 ? PlayerAction.RAISE : PlayerAction.CHECK;
+                    return random.nextDouble() < params.get(AIParameters.PREFLOP_STRONG_OPEN) ? PlayerAction.RAISE : PlayerAction.CHECK;
                 } else {
-                    return random.nextDouble() < 0.6 ? PlayerAction.RAISE : PlayerAction.CALL;
+                    return random.nextDouble() < params.get(AIParameters.PREFLOP_STRONG_RERAISE) ? PlayerAction.RAISE : PlayerAction.CALL;
                 }
-            } else if (handStrength >= 4) {
+            } else if (handStrength >= params.get(AIParameters.PREFLOP_PLAYABLE)) {
                 // Playable hand: call or check, occasionally raise
                 if (currentBet == 0) {
-                    return random.nextDouble() < 0.2 ? PlayerAction.RAISE : PlayerAction.CHECK;
+                    return random.nextDouble() < params.get(AIParameters.PREFLOP_PLAYABLE_OPEN) ? PlayerAction.RAISE : PlayerAction.CHECK;
                 } else {
-                    // Only call if the bet is reasonable
-                    if (potOdds < 0.25) {
+                    // Only call if the bet is reasonable; loose opponents raise with more
+                    boolean loose = opponent != null && opponent.getVpip() > 0.5;
+                    double limit = params.get(loose ? AIParameters.PREFLOP_PLAYABLE_LOOSE_ODDS
+                                                   : AIParameters.PREFLOP_PLAYABLE_ODDS);
+                    if (potOdds < limit) {
                         return PlayerAction.CALL;
                     } else {
                         return PlayerAction.FOLD;
@@ -108,41 +220,59 @@ public class AIPlayer implements Player {
         // Post-flop strategy
         else {
             // Made hand (very strong)
-            if (handStrength >= 8) {
-                // Slow play 20% of the time to trap opponents
-                if (random.nextDouble() < 0.2 && currentBet == 0) {
+            if (handStrength >= params.get(AIParameters.POSTFLOP_NUTS)) {
+                // Slow play some of the time to trap opponents, but not where a free card
+                // could complete a flush or straight
+                boolean wet = BoardTexture.isWet(BoardTexture.analyze(communityCards));
+                if (!wet && random.nextDouble() < params.get(AIParameters.POSTFLOP_NUTS_SLOWPLAY) && currentBet == 0) {
                     return PlayerAction.CHECK;
-                } else if (random.nextDouble() < 0.4) {
+                } else if (random.nextDouble() < params.get(AIParameters.POSTFLOP_NUTS_RAISE)) {
                     return PlayerAction.RAISE;
                 } else {
                     return PlayerAction.ALL_IN;
                 }
             } 
             // Strong hand
-            else if (handStrength >= 6) {
+            else if (handStrength >= params.get(AIParameters.POSTFLOP_STRONG)) {
                 if (currentBet == 0) {
-                    return random.nextDouble() < 0.8 ? PlayerAction.RAISE : PlayerAction.CHECK;
+                    return random.nextDouble() < params.get(AIParameters.POSTFLOP_STRONG_BET) ? PlayerAction.RAISE : PlayerAction.CHECK;
                 } else {
-                    return random.nextDouble() < 0.4 ? PlayerAction.RAISE : PlayerAction.CALL;
+                    return random.nextDouble() < params.get(AIParameters.POSTFLOP_STRONG_RAISE) ? PlayerAction.RAISE : PlayerAction.CALL;
                 }
             } 
             // Medium hand
-            else if (handStrength >= 4) {
+            else if (handStrength >= params.get(AIParameters.POSTFLOP_MEDIUM)) {
                 if (currentBet == 0) {
-                    return random.nextDouble() < 0.4 ? PlayerAction.RAISE : PlayerAction.CHECK;
+                    return random.nextDouble() < params.get(AIParameters.POSTFLOP_MEDIUM_BET) ? PlayerAction.RAISE : PlayerAction.CHECK;
                 } else {
                     // Call if the pot odds are good
-                    if (potOdds < 0.3) {
+                    if (potOdds < params.get(AIParameters.POSTFLOP_MEDIUM_ODDS)) {
                         return PlayerAction.CALL;
                     } else {
-                        return random.nextDouble() < 0.3 ? PlayerAction.CALL : PlayerAction.FOLD;
+                        // Call down maniacs more often, and passive players' bets less
+                        double callRate = params.get(AIParameters.POSTFLOP_MEDIUM_CALL);
+                        if (opponent != null) {
+                            double aggression = opponent.getAggressionFactor();
+                            if (aggression > 3) {
+                                callRate = params.get(AIParameters.POSTFLOP_MEDIUM_CALL_AGGRESSIVE);
+                            } else if (aggression < 1) {
+                                callRate = params.get(AIParameters.POSTFLOP_MEDIUM_CALL_PASSIVE);
+                            }
+                        }
+                        return random.nextDouble() < callRate ? PlayerAction.CALL : PlayerAction.FOLD;
                     }
                 }
             } 
             // Weak hand
             else {
-                // Occasionally bluff with weak hands
-                if (random.nextDouble() < 0.05) {
+                // Occasionally bluff with weak hands, often on flops against players
+                // who give up to continuation bets
+                double bluffRate = params.get(AIParameters.POSTFLOP_BLUFF);
+                if (opponent != null && currentBet == 0 && communityCards.size() == 3
+                        && opponent.get(OpponentStats.CBETS_FACED) >= 10 && opponent.getFoldToCbet() > 0.6) {
+                    bluffRate = params.get(AIParameters.POSTFLOP_BLUFF_CBET);
+                }
+                if (random.nextDouble() < bluffRate) {
                     return PlayerAction.RAISE; // Bluff!
                 } else if (currentBet == 0) {
                     return PlayerAction.CHECK;
@@ -153,43 +283,44 @@ public class AIPlayer implements Player {
         }
     }
     
+    /**
+     * Gets the opponent's statistics if there are enough of them to act on.
+     * 
+     * @return The snapshot, or null
+     */
+    private OpponentStats.Snapshot opponentSnapshot() {
+        if (opponentStats == null) {
+            return null;
+        }
+        OpponentStats.Snapshot snapshot = opponentStats.snapshot(opponentId);
+        return snapshot.getHands() >= MIN_OPPONENT_HANDS ? snapshot : null;
+    }
+    
     /**
      * Evaluates the strength of a poker hand for AI decision making.
-     * Uses the GameEngine's evaluation logic and adapts it to a 0-10 scale.
+     * Pre-flop this is the hand's equity against a random hand; after the flop it is the
+     * effective hand strength, which credits draws with their chance to improve and
+     * discounts made hands that are likely to be outdrawn.
      * 
      * @param hand The player's private cards
      * @param communityCards The community cards
-     * @return A value from 0 to 10 indicating hand strength (higher is better)
+     * @return A value from 0 to 1 indicating hand strength (higher is better)
      */
-    private int evaluateHandStrength(List<Card> hand, List<Card> communityCards) {
-        // Create a temporary GameEngine to use its hand evaluation logic
-        GameEngine tempEngine = new GameEngine();
-        
-        // Use the proper hand evaluation from GameEngine
-        int handScore = tempEngine.calculateHandScoreForAI(hand, communityCards);
+    private double evaluateHandStrength(List<Card> hand, List<Card> communityCards) {
+        int card1 = hand.get(0).getIndex();
+        int card2 = hand.get(1).getIndex();
+        if (communityCards.isEmpty()) {
+            return PreflopEquity.equity(card1, card2);
+        }
         
-        // Convert the score to a 0-10 scale based on hand type
-        if (handScore >= 9000000) {
-            return 10; // Royal Flush
-        } else if (handScore >= 8000000) {
-            return 9;  // Straight Flush
-        } else if (handScore >= 7000000) {
-            return 8;  // Four of a Kind
-        } else if (handScore >= 6000000) {
-            return 7;  // Full House
-        } else if (handScore >= 5000000) {
-            return 6;  // Flush
-        } else if (handScore >= 4000000) {
-            return 5;  // Straight
-        } else if (handScore >= 3000000) {
-            return 4;  // Three of a Kind
-        } else if (handScore >= 2000000) {
-            return 3;  // Two Pair
-        } else if (handScore >= 1000000) {
-            return 2;  // One Pair
-        } else {
-            // High Card - scale from 0-1 based on the high card
-            return handScore > 0 ? 1 : 0;
+        return HandPotential.compute(card1, card2, boardMask(communityCards)).getEffectiveStrength();
+    }
+    
+    private static long boardMask(List<Card> communityCards) {
+        long board = 0L;
+        for (Card card : communityCards) {
+            board |= 1L << card.getIndex();
         }
+        return board;
     }
 }
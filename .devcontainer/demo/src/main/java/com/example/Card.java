@@ -1,6 +1,20 @@
 package com.example;
 
 public class Card {
+    /** Number of distinct cards in a standard deck. */
+    public static final int DECK_SIZE = 52;
+    
+    private static final Card[] BY_INDEX = new Card[DECK_SIZE];
+    
+    static {
+        for (Suit suit : Suit.values()) {
+            for (int rank = 1; rank <= 13; rank++) {
+                Card card = new Card(rank, suit);
+                BY_INDEX[card.getIndex()] = card;
+            }
+        }
+    }
+    
     private Suit suit;
     private int rank;
 
@@ -32,6 +46,29 @@ public class Card {
         }
     }
     
+    /**
+     * Gets the compact index of this card, used by array-based code such as
+     * {@link com.example.sim.TableState}.
+     * The index is suit * 13 + rank position, where rank positions run from
+     * 0 (deuce) to 12 (ace), so each suit occupies 13 consecutive bits of a card mask.
+     * 
+     * @return A value from 0 to 51
+     */
+    public int getIndex() {
+        int rankPosition = (rank == 1) ? 12 : rank - 2;
+        return suit.ordinal() * 13 + rankPosition;
+    }
+    
+    /**
+     * Gets the shared card instance for a compact index.
+     * 
+     * @param index A card index as returned by {@link #getIndex()}
+     * @return The card with that index
+     */
+    public static Card fromIndex(int index) {
+        return BY_INDEX[index];
+    }
+    
     @Override
     public String toString() {
         return getRankName() + " of " + suit;
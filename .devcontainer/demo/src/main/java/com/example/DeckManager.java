@@ -95,6 +95,15 @@ public class DeckManager {
         return deck.getCards().size();
     }
     
+    /**
+     * Gets the cards still in the deck. The last card in the list is the next one drawn.
+     * 
+     * @return Unmodifiable view of the remaining cards
+     */
+    public List<Card> getRemainingCards() {
+        return Collections.unmodifiableList(deck.getCards());
+    }
+    
     /**
      * Gets the current discard pile.
      * 
@@ -1,11 +1,21 @@
 package com.example;
 
+import com.example.Player.PlayerAction;
+import com.example.history.HandLog;
+import com.example.sim.TableListener;
+import com.example.sim.TableState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 /**
  * GameEngine class that manages the poker game flow, rules, and player interactions.
  */
 public class GameEngine {
+    // Runouts enumerated when valuing an all-in before sampling instead (pre-flop only)
+    private static final int ALL_IN_RUNOUTS = 5000;
+    
     private DeckManager deckManager;
     private List<Player> players;
     private int currentPlayerIndex = 0;
@@ -21,10 +31,21 @@ public class GameEngine {
     
     // Betting related fields
     private int currentBetAmount;
+    // Chips each player has put in on the current street, and in the whole hand
     private Map<Player, Integer> playerBets;
+    private Map<Player, Integer> handBets;
     private List<Player> activePlayers;
     private List<Player> allInPlayers;
     private List<Player> foldedPlayers;
+    // Players who still have to act before the betting round closes, as in TableState
+    private int pendingPlayers;
+    private boolean bettingOpen;
+    // Bets and raises made in the current betting round, not counting the blinds
+    private int streetRaises;
+    
+    // Receives the events of every hand while a hand log is attached
+    private HandLog.Writer handLog;
+    private final List<TableListener> listeners = new ArrayList<>();
     
     /**
      * Enum representing the various states of the poker game.
@@ -52,6 +73,7 @@ public class GameEngine {
         this.bigBlindAmount = 10;  // Default big blind
         this.potAmount = 0;
         this.playerBets = new HashMap<>();
+        this.handBets = new HashMap<>();
         this.activePlayers = new ArrayList<>();
         this.allInPlayers = new ArrayList<>();
         this.foldedPlayers = new ArrayList<>();
@@ -108,11 +130,28 @@ public class GameEngine {
      * @return true if the game started successfully
      */
     public boolean startNewRound() {
-        if (players.size() < 2 || gameState != GameState.WAITING_FOR_PLAYERS) {
+        if (gameState != GameState.WAITING_FOR_PLAYERS && gameState != GameState.GAME_OVER) {
+            return false;
+        }
+        int withChips = 0;
+        for (Player player : players) {
+            if (player.getChipCount() > 0) {
+                withChips++;
+            }
+        }
+        if (withChips < 2) {
             return false;
         }
         
-        // Reset game state
+        // Return the last hand's cards and reset game state
+        for (List<Card> hand : playerHands.values()) {
+            for (Card card : hand) {
+                deckManager.discardCard(card);
+            }
+        }
+        for (Card card : communityCards) {
+            deckManager.discardCard(card);
+        }
         deckManager.resetAndShuffle();
         playerHands.clear();
         communityCards.clear();
@@ -121,6 +160,7 @@ public class GameEngine {
         // Reset betting-related fields
         currentBetAmount = 0;
         playerBets.clear();
+        handBets.clear();
         activePlayers.clear();
         allInPlayers.clear();
         foldedPlayers.clear();
@@ -132,18 +172,26 @@ public class GameEngine {
             dealerIndex = (dealerIndex + 1) % players.size();
         }
         
-        // Set blinds
-        smallBlindIndex = (dealerIndex + 1) % players.size();
-        bigBlindIndex = (dealerIndex + 2) % players.size();
-        
         // Deal cards to players
         dealPlayerCards();
+        logHandStart();
         
         // Collect blinds
         collectBlinds();
         
-        currentPlayerIndex = (bigBlindIndex + 1) % players.size();
+        // The player after the big blind opens the betting
         gameState = GameState.PRE_FLOP;
+        pendingPlayers = activePlayers.size();
+        streetRaises = 0;
+        currentPlayerIndex = nextActiveSeat(bigBlindIndex);
+        bettingOpen = true;
+        closeRoundIfDone();
+        if (!listeners.isEmpty()) {
+            TableState state = snapshot();
+            for (TableListener listener : listeners) {
+                listener.handStarted(state);
+            }
+        }
         
         return true;
     }
@@ -169,12 +217,21 @@ public class GameEngine {
         // Reset betting tracking for new round
         currentBetAmount = 0;
         playerBets.clear();
+        handBets.clear();
         activePlayers.clear();
         allInPlayers.clear();
         foldedPlayers.clear();
         
-        // Add all players to active players list
-        activePlayers.addAll(players);
+        // Players without chips sit the hand out
+        for (Player player : players) {
+            if (player.getChipCount() > 0) {
+                activePlayers.add(player);
+            } else {
+                foldedPlayers.add(player);
+            }
+        }
+        smallBlindIndex = nextSeatInHand(dealerIndex);
+        bigBlindIndex = nextSeatInHand(smallBlindIndex);
         
         // Get small blind player
         Player smallBlindPlayer = players.get(smallBlindIndex);
@@ -182,12 +239,14 @@ public class GameEngine {
         
         // Collect small blind
         smallBlindPlayer.removeChips(smallBlindActual);
-        potAmount += smallBlindActual;
-        playerBets.put(smallBlindPlayer, smallBlindActual);
+        commit(smallBlindPlayer, smallBlindActual);
+        if (logging()) {
+            handLog.blind(smallBlindIndex, smallBlindActual);
+        }
         System.out.println(smallBlindPlayer.getName() + " posts small blind: " + smallBlindActual);
         
         // Check if player is all-in
-        if (smallBlindActual == smallBlindPlayer.getChipCount()) {
+        if (smallBlindPlayer.getChipCount() == 0) {
             allInPlayers.add(smallBlindPlayer);
             activePlayers.remove(smallBlindPlayer);
             System.out.println(smallBlindPlayer.getName() + " is ALL-IN");
@@ -199,15 +258,14 @@ public class GameEngine {
         
         // Collect big blind
         bigBlindPlayer.removeChips(bigBlindActual);
-        potAmount += bigBlindActual;
-        playerBets.put(bigBlindPlayer, bigBlindActual);
+        commit(bigBlindPlayer, bigBlindActual);
+        if (logging()) {
+            handLog.blind(bigBlindIndex, bigBlindActual);
+        }
         System.out.println(bigBlindPlayer.getName() + " posts big blind: " + bigBlindActual);
         
-        // Set current bet to the big blind
-        currentBetAmount = bigBlindActual;
-        
         // Check if player is all-in
-        if (bigBlindActual == bigBlindPlayer.getChipCount()) {
+        if (bigBlindPlayer.getChipCount() == 0) {
             allInPlayers.add(bigBlindPlayer);
             activePlayers.remove(bigBlindPlayer);
             System.out.println(bigBlindPlayer.getName() + " is ALL-IN");
@@ -218,6 +276,15 @@ public class GameEngine {
      * Draws community cards based on the current game state.
      */
     public void dealCommunityCards() {
+        // Each street's betting starts from nothing
+        if (gameState == GameState.PRE_FLOP || gameState == GameState.FLOP || gameState == GameState.TURN) {
+            currentBetAmount = 0;
+            playerBets.clear();
+            pendingPlayers = activePlayers.size();
+            streetRaises = 0;
+            currentPlayerIndex = nextActiveSeat(dealerIndex);
+            bettingOpen = true;
+        }
         switch (gameState) {
             case PRE_FLOP:
                 // Deal the flop (3 cards)
@@ -225,27 +292,37 @@ public class GameEngine {
                     communityCards.add(deckManager.drawCard());
                 }
                 gameState = GameState.FLOP;
+                logStreet(0);
+                notifyBoard();
                 break;
                 
             case FLOP:
                 // Deal the turn (1 card)
                 communityCards.add(deckManager.drawCard());
                 gameState = GameState.TURN;
+                logStreet(3);
+                notifyBoard();
                 break;
                 
             case TURN:
                 // Deal the river (1 card)
                 communityCards.add(deckManager.drawCard());
                 gameState = GameState.RIVER;
+                logStreet(4);
+                notifyBoard();
                 break;
                 
             case RIVER:
                 gameState = GameState.SHOWDOWN;
+                bettingOpen = false;
                 break;
                 
             default:
                 // Do nothing for other states
         }
+        if (bettingOpen) {
+            closeRoundIfDone();
+        }
     }
     
     /**
@@ -302,45 +379,80 @@ public class GameEngine {
     }
     
     /**
-     * Evaluates player hands and determines the winner.
+     * Evaluates player hands and pays out the pot, including side pots and split pots.
+     * Only players still in the hand show their cards; if everyone else folded, the last
+     * player collects the pot without a showdown.
      * 
-     * @return The winning player, or null in case of a tie
+     * @return The player who collected the most chips, or null in case of a tie
      */
     public Player evaluateWinner() {
-        if (gameState != GameState.SHOWDOWN) {
+        boolean uncontested = gameState != GameState.WAITING_FOR_PLAYERS && gameState != GameState.GAME_OVER
+            && players.size() - foldedPlayers.size() <= 1;
+        if (gameState != GameState.SHOWDOWN && !uncontested) {
             return null;
         }
         
         // Map to store each player's hand result
         Map<Player, HandResult> playerResults = new HashMap<>();
-        Player winner = null;
-        int highestScore = -1;
-        
-        for (Player player : players) {
-            List<Card> hand = playerHands.get(player);
-            if (hand == null) continue;
-            
-            // Calculate hand score according to standard poker hand rankings
-            int score = calculateHandScore(hand, communityCards);
-            
-            // Determine hand type based on score
-            HandType handType = determineHandType(score);
-            
-            // Store player's result
-            playerResults.put(player, new HandResult(player, score, handType));
-            
-            if (score > highestScore) {
-                highestScore = score;
-                winner = player;
+        int[] payouts = new int[players.size()];
+        if (uncontested) {
+            for (int i = 0; i < players.size(); i++) {
+                if (!foldedPlayers.contains(players.get(i))) {
+                    payouts[i] = potAmount;
+                }
             }
+        } else {
+            for (Player player : players) {
+                List<Card> hand = playerHands.get(player);
+                if (hand == null || foldedPlayers.contains(player)) continue;
+                
+                // Calculate hand score according to standard poker hand rankings
+                int score = calculateHandScore(hand, communityCards);
+                
+                // Store player's result
+                playerResults.put(player, new HandResult(player, score, determineHandType(score)));
+                if (logging()) {
+                    handLog.showdown(players.indexOf(player), hand.get(0).getIndex(), hand.get(1).getIndex());
+                }
+            }
+            snapshot().settle(payouts);
         }
         
         gameState = GameState.GAME_OVER;
+        bettingOpen = false;
         
-        // Add pot to winner's chips
+        // Add each share of the pot to its winner's chips
+        Player winner = null;
+        int best = 0;
+        int[] deltas = new int[players.size()];
+        for (int i = 0; i < players.size(); i++) {
+            deltas[i] = payouts[i] - handBets.getOrDefault(players.get(i), 0);
+            if (payouts[i] == 0) {
+                continue;
+            }
+            Player player = players.get(i);
+            player.addChips(payouts[i]);
+            if (logging()) {
+                handLog.payout(i, payouts[i]);
+            }
+            if (payouts[i] > best) {
+                best = payouts[i];
+                winner = player;
+            } else if (payouts[i] == best) {
+                winner = null;
+            }
+        }
         if (winner != null) {
-            winner.addChips(potAmount);
-            System.out.println("\nWinner: " + winner.getName() + " with " + playerResults.get(winner).getHandType().getDisplayName());
+            HandResult result = playerResults.get(winner);
+            System.out.println("\nWinner: " + winner.getName()
+                + (result != null ? " with " + result.getHandType().getDisplayName() : " (everyone else folded)"));
+        }
+        logHandEnd();
+        if (!listeners.isEmpty()) {
+            TableState state = snapshot();
+            for (TableListener listener : listeners) {
+                listener.handEnded(state, deltas);
+            }
         }
         
         return winner;
@@ -733,17 +845,9 @@ public class GameEngine {
             return false; // Bet too low
         }
         
-        // Update the player's bet
-        playerBets.put(player, playerBet + amount);
-        potAmount += amount;
-        
-        // Update current bet amount (highest bet on the table)
-        currentBetAmount = 0;
-        for (int bet : playerBets.values()) {
-            if (bet > currentBetAmount) {
-                currentBetAmount = bet;
-            }
-        }
+        // Update the player's bet and the highest bet on the table
+        boolean raise = playerBet + amount > currentBetAmount;
+        recordAction(player, raise ? PlayerAction.RAISE : PlayerAction.CALL, amount);
         
         return true;
     }
@@ -764,8 +868,7 @@ public class GameEngine {
             return false;
         }
         
-        foldedPlayers.add(player);
-        activePlayers.remove(player);
+        recordAction(player, PlayerAction.FOLD, 0);
         
         return true;
     }
@@ -790,18 +893,349 @@ public class GameEngine {
         int callAmount = currentBetAmount - playerBet;
         
         if (callAmount <= 0) {
+            recordAction(player, PlayerAction.CHECK, 0);
             return true; // No need to call, bet is covered
         }
         
         // Here we would also check if the player has enough chips to call
         
         // Update the player's bet
-        playerBets.put(player, playerBet + callAmount);
-        potAmount += callAmount;
+        recordAction(player, PlayerAction.CALL, callAmount);
         
         return true;
     }
     
+    /**
+     * Writes every hand from the next one on to a hand log, or stops logging.
+     * 
+     * @param log The log, or null to stop
+     */
+    public void setHandLog(HandLog log) {
+        this.handLog = log != null ? log.writer() : null;
+    }
+    
+    /**
+     * Sends the events of every hand from the next one on to a listener, with the table
+     * as a {@link TableState} snapshot, as {@link com.example.sim.TableSimulator} does.
+     * 
+     * @param listener The listener
+     */
+    public void addListener(TableListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(TableListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Records an action for game loops that take the chips from the player themselves.
+     * The chips go into the pot and the player's bets, a fold or an emptied stack takes
+     * the player out of the betting, and the action is written to the hand log and sent
+     * to the listeners. The turn then passes on by the same rules as {@link TableState}:
+     * a bet or raise makes every other player act again, and the round closes once
+     * nobody is left to act.
+     * 
+     * @param player The player who acted
+     * @param action The action the player took
+     * @param chips The chips the action put into the pot
+     */
+    public void recordAction(Player player, PlayerAction action, int chips) {
+        int previousBet = currentBetAmount;
+        int toCall = Math.min(previousBet - playerBets.getOrDefault(player, 0), player.getChipCount() + chips);
+        int potBefore = potAmount;
+        if (action == PlayerAction.FOLD) {
+            foldedPlayers.add(player);
+            activePlayers.remove(player);
+        } else if (chips > 0) {
+            commit(player, chips);
+            if (player.getChipCount() == 0 && !allInPlayers.contains(player)) {
+                allInPlayers.add(player);
+                activePlayers.remove(player);
+            }
+        }
+        log(player, action, chips);
+        
+        boolean reopened = action != PlayerAction.FOLD && (currentBetAmount > previousBet
+            || (action == PlayerAction.RAISE && activePlayers.contains(player)));
+        if (reopened) {
+            pendingPlayers = activePlayers.contains(player) ? activePlayers.size() - 1 : activePlayers.size();
+            streetRaises++;
+        } else {
+            pendingPlayers--;
+        }
+        if (!closeRoundIfDone()) {
+            currentPlayerIndex = nextActiveSeat(players.indexOf(player));
+        }
+        if (!listeners.isEmpty()) {
+            TableState state = snapshot();
+            int seat = players.indexOf(player);
+            for (TableListener listener : listeners) {
+                listener.actionTaken(state, seat, action, toCall, potBefore);
+            }
+        }
+    }
+    
+    /**
+     * Closes the betting round if nobody else needs to act.
+     * 
+     * @return true if the round is closed
+     */
+    private boolean closeRoundIfDone() {
+        int active = activePlayers.size();
+        boolean closed = players.size() - foldedPlayers.size() <= 1 || pendingPlayers <= 0 || active == 0;
+        if (!closed && active == 1) {
+            // A lone player with chips left only has to act when facing a bet
+            closed = playerBets.getOrDefault(activePlayers.get(0), 0) >= currentBetAmount;
+        }
+        if (closed) {
+            bettingOpen = false;
+        }
+        return closed;
+    }
+    
+    private int nextActiveSeat(int from) {
+        for (int i = 1; i <= players.size(); i++) {
+            int seat = Math.floorMod(from + i, players.size());
+            if (activePlayers.contains(players.get(seat))) {
+                return seat;
+            }
+        }
+        return Math.floorMod(from + 1, players.size());
+    }
+    
+    private int nextSeatInHand(int from) {
+        for (int i = 1; i <= players.size(); i++) {
+            int seat = Math.floorMod(from + i, players.size());
+            if (!foldedPlayers.contains(players.get(seat))) {
+                return seat;
+            }
+        }
+        return Math.floorMod(from + 1, players.size());
+    }
+    
+    /**
+     * Gets the player whose turn it is in the current betting round.
+     * 
+     * @return The player to act, or null if the betting round is over
+     */
+    public Player getPlayerToAct() {
+        return bettingOpen ? players.get(currentPlayerIndex) : null;
+    }
+    
+    /**
+     * Checks whether the current betting round is over, so the next street can be dealt.
+     * 
+     * @return true if nobody has to act any more on this street
+     */
+    public boolean isBettingRoundOver() {
+        return !bettingOpen;
+    }
+    
+    /**
+     * Checks whether the hand is over, either because everyone else folded or because
+     * it has reached the showdown.
+     * 
+     * @return true if no more cards or bets are needed
+     */
+    public boolean isHandOver() {
+        return players.size() - foldedPlayers.size() <= 1 || gameState == GameState.SHOWDOWN
+            || gameState == GameState.GAME_OVER;
+    }
+    
+    /**
+     * Gets the chips a player has put in on the current street.
+     * 
+     * @param player The player
+     * @return The player's bet on this street
+     */
+    public int getPlayerBet(Player player) {
+        return playerBets.getOrDefault(player, 0);
+    }
+    
+    /**
+     * Checks whether a player has folded or is sitting the hand out.
+     * 
+     * @param player The player
+     * @return true if the player is out of the hand
+     */
+    public boolean hasFolded(Player player) {
+        return foldedPlayers.contains(player);
+    }
+    
+    /**
+     * Adds chips a player has put in to the pot, the player's bets and the highest bet.
+     */
+    private void commit(Player player, int chips) {
+        int bet = playerBets.getOrDefault(player, 0) + chips;
+        playerBets.put(player, bet);
+        handBets.merge(player, chips, Integer::sum);
+        potAmount += chips;
+        currentBetAmount = Math.max(currentBetAmount, bet);
+    }
+    
+    private void log(Player player, PlayerAction action, int chips) {
+        if (logging()) {
+            handLog.action(players.indexOf(player), action, chips);
+        }
+    }
+    
+    private boolean logging() {
+        return handLog != null && handLog.isInHand();
+    }
+    
+    private void logHandStart() {
+        if (handLog == null) {
+            return;
+        }
+        int[] stacks = new int[players.size()];
+        for (int i = 0; i < stacks.length; i++) {
+            stacks[i] = players.get(i).getChipCount();
+        }
+        handLog.startHand(dealerIndex, smallBlindAmount, bigBlindAmount, stacks);
+        for (int i = 0; i < stacks.length; i++) {
+            List<Card> hand = playerHands.get(players.get(i));
+            handLog.holeCards(i, hand.get(0).getIndex(), hand.get(1).getIndex());
+        }
+    }
+    
+    /**
+     * Logs the board cards dealt from the given position on.
+     */
+    private void logStreet(int from) {
+        if (!logging()) {
+            return;
+        }
+        int[] board = new int[communityCards.size()];
+        for (int i = 0; i < board.length; i++) {
+            board[i] = communityCards.get(i).getIndex();
+        }
+        handLog.street(gameState, board, from, board.length);
+    }
+    
+    private void notifyBoard() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        long board = 0L;
+        for (Card card : communityCards) {
+            board |= 1L << card.getIndex();
+        }
+        TableState state = snapshot();
+        for (TableListener listener : listeners) {
+            listener.boardDealt(state, board);
+        }
+    }
+    
+    private void logHandEnd() {
+        if (!logging()) {
+            return;
+        }
+        try {
+            handLog.endHand();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write hand", e);
+        }
+    }
+    
+    /**
+     * Copies the current table into a compact {@link TableState}.
+     * The snapshot is independent of this engine and cheap to fork, so search-based
+     * AIs can explore many continuations without touching the live game.
+     * 
+     * @return A snapshot of the current table
+     */
+    public TableState snapshot() {
+        int seats = players.size();
+        TableState state = new TableState(seats, smallBlindAmount, bigBlindAmount, bigBlindAmount * 2);
+        
+        int[] stacks = new int[seats];
+        int[] bets = new int[seats];
+        int[] contributed = new int[seats];
+        int[] statuses = new int[seats];
+        int[] holeCards = new int[seats * 2];
+        for (int i = 0; i < seats; i++) {
+            Player player = players.get(i);
+            stacks[i] = player.getChipCount();
+            bets[i] = playerBets.getOrDefault(player, 0);
+            contributed[i] = handBets.getOrDefault(player, 0);
+            if (foldedPlayers.contains(player)) {
+                statuses[i] = TableState.FOLDED;
+            } else if (allInPlayers.contains(player)) {
+                statuses[i] = TableState.ALL_IN;
+            } else {
+                statuses[i] = TableState.ACTIVE;
+            }
+            
+            List<Card> hand = playerHands.get(player);
+            for (int c = 0; c < 2; c++) {
+                boolean dealt = hand != null && hand.size() > c;
+                holeCards[i * 2 + c] = dealt ? hand.get(c).getIndex() : TableState.NO_CARD;
+            }
+        }
+        
+        int[] board = new int[5];
+        for (int i = 0; i < communityCards.size(); i++) {
+            board[i] = communityCards.get(i).getIndex();
+        }
+        
+        // The deck manager draws from the end of its list, so reverse it into dealing order
+        List<Card> remaining = deckManager.getRemainingCards();
+        int[] undealt = new int[remaining.size()];
+        for (int i = 0; i < undealt.length; i++) {
+            undealt[i] = remaining.get(remaining.size() - 1 - i).getIndex();
+        }
+        
+        state.load(Math.max(dealerIndex, 0), currentPlayerIndex, potAmount, currentBetAmount, gameState,
+                   stacks, bets, contributed, statuses, holeCards, board, communityCards.size(),
+                   undealt, undealt.length, pendingPlayers, streetRaises);
+        return state;
+    }
+    
+    /**
+     * Checks whether the betting is over because every player still in the hand, except
+     * at most one who has matched the bet, is all-in. The rest of the board then only
+     * needs to be dealt.
+     * 
+     * @return true if an all-in has been called
+     */
+    public boolean isAllInAndCalled() {
+        int live = 0;
+        int canAct = 0;
+        for (Player player : players) {
+            if (foldedPlayers.contains(player)) {
+                continue;
+            }
+            live++;
+            if (!allInPlayers.contains(player)) {
+                canAct++;
+                if (playerBets.getOrDefault(player, 0) < currentBetAmount) {
+                    return false;
+                }
+            }
+        }
+        return live >= 2 && canAct <= 1 && !allInPlayers.isEmpty();
+    }
+    
+    /**
+     * Gets what each player still in the hand collects from the pot on average over every
+     * possible rest of the board, for an all-in that has been called. Runouts are
+     * enumerated from the flop on and sampled pre-flop.
+     * 
+     * @return The expected payout of each player still in the hand
+     */
+    public Map<Player, Double> getAllInEquity() {
+        double[] expected = new double[players.size()];
+        snapshot().expectedPayouts(communityCards.size(), ALL_IN_RUNOUTS, new Random(), expected);
+        Map<Player, Double> equity = new LinkedHashMap<>();
+        for (int i = 0; i < players.size(); i++) {
+            if (!foldedPlayers.contains(players.get(i))) {
+                equity.put(players.get(i), expected[i]);
+            }
+        }
+        return equity;
+    }
+    
     /**
      * Checks if all players have either folded or gone all-in.
      * 
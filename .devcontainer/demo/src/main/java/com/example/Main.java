@@ -1,8 +1,14 @@
 package com.example;
 
 import com.example.Player.PlayerAction;
-import java.util.ArrayList;
-import java.util.HashMap;
+import com.example.ai.MCTSPlayer;
+import com.example.ai.OpponentStats;
+import com.example.ai.StatsCollector;
+import com.example.history.HandLog;
+import com.example.ledger.ChipLedger;
+import com.example.ledger.LedgerPlayer;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
@@ -13,15 +19,56 @@ import java.util.Scanner;
 public class Main {
     private static GameEngine gameEngine;
     private static Scanner scanner = new Scanner(System.in);
+    private static ChipLedger ledger;
+    // The rule-based AI's tuning, from the file named by AIParameters.FILE_PROPERTY
+    private static AIParameters aiParameters = AIParameters.defaults();
+    // What the AI has seen of its opponents this session
+    private static final OpponentStats opponentStats = new OpponentStats(8);
+    // Thinking time per AI decision; human players are not held to it
+    private static final long DECISION_MILLIS = 1000;
     
+    /**
+     * Runs the console game.
+     * Usage: Main [handLogDirectory [ledgerDirectory]]. The AI plays with the parameter
+     * file named by the {@value AIParameters#FILE_PROPERTY} system property, if set.
+     */
     public static void main(String[] args) {
         System.out.println("Welcome to Poker Clone!");
         
         // Initialize the game engine with default blinds
         gameEngine = new GameEngine();
         
+        // Keep a history of every hand if asked to; each hand is synced as it ends
+        HandLog handLog = null;
+        if (args.length > 0) {
+            try {
+                handLog = new HandLog(Paths.get(args[0]), HandLog.DEFAULT_SEGMENT_BYTES, HandLog.SyncPolicy.HAND);
+                gameEngine.setHandLog(handLog);
+                System.out.println("Logging hands to " + args[0]);
+            } catch (IOException e) {
+                System.out.println("Could not open hand log: " + e.getMessage());
+            }
+        }
+        
+        // Keep every player's chips in a ledger if asked to, so balances carry over between games
+        if (args.length > 1) {
+            try {
+                ledger = new ChipLedger(Paths.get(args[1]));
+                System.out.println("Recording chips in " + args[1]);
+            } catch (IOException e) {
+                System.out.println("Could not open chip ledger: " + e.getMessage());
+            }
+        }
+        
+        try {
+            aiParameters = AIParameters.configured();
+        } catch (IOException e) {
+            System.out.println("Could not read AI parameters, using the defaults: " + e.getMessage());
+        }
+        
         // Add some players
         addPlayers();
+        gameEngine.addListener(new StatsCollector(opponentStats, gameEngine.getPlayers()));
         
         // Start a round
         if (gameEngine.startNewRound()) {
@@ -30,6 +77,36 @@ public class Main {
         } else {
             System.out.println("Failed to start new round. Need at least 2 players.");
         }
+        
+        if (handLog != null) {
+            try {
+                handLog.close();
+            } catch (IOException e) {
+                System.out.println("Could not close hand log: " + e.getMessage());
+            }
+        }
+        if (ledger != null) {
+            try {
+                ledger.checkpoint();
+                ledger.close();
+            } catch (IOException e) {
+                System.out.println("Could not close chip ledger: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Adds a player to the game, recording its chips in the ledger if there is one.
+     */
+    private static void addPlayer(Player player) {
+        if (ledger != null) {
+            try {
+                player = new LedgerPlayer(player, ledger);
+            } catch (IOException e) {
+                System.out.println("Could not record chips for " + player.getName() + ": " + e.getMessage());
+            }
+        }
+        gameEngine.addPlayer(player);
     }
     
     /**
@@ -39,31 +116,40 @@ public class Main {
         System.out.println("\nGame setup:");
         System.out.println("1: Play against AI");
         System.out.println("2: Two human players");
+        System.out.println("3: Play against search AI");
         
         int choice;
         do {
-            System.out.print("Enter your choice (1-2): ");
+            System.out.print("Enter your choice (1-3): ");
             while (!scanner.hasNextInt()) {
-                System.out.print("Invalid input. Enter a number (1-2): ");
+                System.out.print("Invalid input. Enter a number (1-3): ");
                 scanner.next();
             }
             choice = scanner.nextInt();
-        } while (choice < 1 || choice > 2);
+        } while (choice < 1 || choice > 3);
         
         // Default amount of chips
         final int STARTING_CHIPS = 1000;
         
-        if (choice == 1) {
+        if (choice == 1 || choice == 3) {
             // Human vs AI setup
             System.out.print("Enter your name: ");
             scanner.nextLine(); // Consume the newline
             String playerName = scanner.nextLine();
             
             Player humanPlayer = new HumanPlayer(playerName, STARTING_CHIPS);
-            Player aiPlayer = new AIPlayer("AI Opponent", STARTING_CHIPS);
+            Player aiPlayer;
+            if (choice == 3) {
+                aiPlayer = new MCTSPlayer("AI Opponent", STARTING_CHIPS);
+            } else {
+                // The AI adapts to the human's tendencies once it has seen enough hands
+                AIPlayer adaptive = new AIPlayer("AI Opponent", STARTING_CHIPS, aiParameters);
+                adaptive.setOpponentStats(opponentStats, playerName);
+                aiPlayer = adaptive;
+            }
             
-            gameEngine.addPlayer(humanPlayer);
-            gameEngine.addPlayer(aiPlayer);
+            addPlayer(humanPlayer);
+            addPlayer(aiPlayer);
             
             System.out.println("Game setup complete: " + playerName + " vs AI Opponent");
             System.out.println("Each player starts with " + STARTING_CHIPS + " chips.");
@@ -82,8 +168,8 @@ public class Main {
             Player player1 = new HumanPlayer(player1Name, STARTING_CHIPS);
             Player player2 = new HumanPlayer(player2Name, STARTING_CHIPS);
             
-            gameEngine.addPlayer(player1);
-            gameEngine.addPlayer(player2);
+            addPlayer(player1);
+            addPlayer(player2);
             
             System.out.println("Game setup complete: " + player1Name + " vs " + player2Name);
             System.out.println("Each player starts with " + STARTING_CHIPS + " chips.");
@@ -119,42 +205,73 @@ public class Main {
         System.out.println("\n--- Pre-flop ---");
         System.out.println("Each player receives 2 private cards.");
         playBettingRound();
+        showAllInEquity(gameEngine);
         
         // Flop
-        gameEngine.dealCommunityCards(); // Deal the flop (3 cards)
-        System.out.println("\n--- Flop ---");
-        System.out.println("The first three community cards are dealt.");
-        displayCommunityCards();
-        playBettingRound();
+        if (!gameEngine.isHandOver()) {
+            gameEngine.dealCommunityCards(); // Deal the flop (3 cards)
+            System.out.println("\n--- Flop ---");
+            System.out.println("The first three community cards are dealt.");
+            displayCommunityCards();
+            playBettingRound();
+            showAllInEquity(gameEngine);
+        }
         
         // Turn
-        gameEngine.dealCommunityCards(); // Deal the turn (1 card)
-        System.out.println("\n--- Turn ---");
-        System.out.println("The fourth community card is dealt.");
-        displayCommunityCards();
-        playBettingRound();
+        if (!gameEngine.isHandOver()) {
+            gameEngine.dealCommunityCards(); // Deal the turn (1 card)
+            System.out.println("\n--- Turn ---");
+            System.out.println("The fourth community card is dealt.");
+            displayCommunityCards();
+            playBettingRound();
+            showAllInEquity(gameEngine);
+        }
         
         // River
-        gameEngine.dealCommunityCards(); // Deal the river (1 card)
-        System.out.println("\n--- River ---");
-        System.out.println("The fifth and final community card is dealt.");
-        displayCommunityCards();
-        playBettingRound();
-        
-        // Move to showdown
-        gameEngine.dealCommunityCards(); // This just changes state to SHOWDOWN
+        if (!gameEngine.isHandOver()) {
+            gameEngine.dealCommunityCards(); // Deal the river (1 card)
+            System.out.println("\n--- River ---");
+            System.out.println("The fifth and final community card is dealt.");
+            displayCommunityCards();
+            playBettingRound();
+        }
         
-        // Showdown
-        System.out.println("\n--- Showdown ---");
-        System.out.println("All players reveal their cards.");
-        displayCommunityCards();
-        showPlayerCards();
+        if (gameEngine.isHandOver()) {
+            // Everyone else folded, so nobody shows their cards
+            System.out.println("\nOnly one player remains in the hand.");
+        } else {
+            // Move to showdown
+            gameEngine.dealCommunityCards(); // This just changes state to SHOWDOWN
+            
+            // Showdown
+            System.out.println("\n--- Showdown ---");
+            System.out.println("The players still in the hand reveal their cards.");
+            displayCommunityCards();
+            showPlayerCards();
+        }
         evaluateWinners();
         
         // Ask to play another round
         playAnotherRound();
     }
     
+    /**
+     * Shows each player's share of the pot when everyone left is all-in and called,
+     * before the rest of the board is dealt.
+     */
+    static void showAllInEquity(GameEngine gameEngine) {
+        if (!gameEngine.isAllInAndCalled()) {
+            return;
+        }
+        int pot = gameEngine.getPotAmount();
+        System.out.println("All in! Expected share of the pot before the rest of the board:");
+        for (Map.Entry<Player, Double> entry : gameEngine.getAllInEquity().entrySet()) {
+            double expected = entry.getValue();
+            System.out.printf("  %s: %.1f%% (%.0f chips)%n", entry.getKey().getName(),
+                              pot > 0 ? 100.0 * expected / pot : 0, expected);
+        }
+    }
+    
     /**
      * Evaluates winners and distributes the pot.
      */
@@ -164,7 +281,6 @@ public class Main {
         
         if (winner == null) {
             System.out.println("\nIt's a tie! The pot is split.");
-            // In a real implementation, split the pot evenly
         }
         // Winner announcement is now handled in the GameEngine.evaluateWinner method
         
@@ -206,30 +322,12 @@ public class Main {
     private static void playBettingRound() {
         System.out.println("\n--- Betting Round ---");
         
-        // Initialize variables for tracking betting
-        int lastRaisePlayerIndex = -1;
-        List<Player> activePlayers = new ArrayList<>(gameEngine.getPlayers());
-        List<Player> foldedPlayers = new ArrayList<>();
-        Map<Player, Integer> playerBets = new HashMap<>();
-        
-        // Track highest bet of the round
-        int highestBet = 0;
-        
-        // Continue betting until all active players have either called or folded
-        int currentIndex = 0;
-        Player currentPlayer;
-        boolean bettingComplete = false;
-        
-        while (!bettingComplete) {
-            if (activePlayers.size() <= 1) {
-                // Only one player left - they win by default
-                System.out.println("Only one active player remains.");
-                break;
-            }
-            
+        // The engine decides who acts next and when the round is over, by the table rules
+        while (!gameEngine.isBettingRoundOver()) {
             // Get the current player
-            currentPlayer = activePlayers.get(currentIndex);
-            int playerBet = playerBets.getOrDefault(currentPlayer, 0);
+            Player currentPlayer = gameEngine.getPlayerToAct();
+            int highestBet = gameEngine.getCurrentBetAmount();
+            int playerBet = gameEngine.getPlayerBet(currentPlayer);
             int toCall = highestBet - playerBet;
             
             // Display betting information
@@ -248,23 +346,20 @@ public class Main {
             List<Card> community = gameEngine.getCommunityCards();
             
             // Get player action
-            PlayerAction action = currentPlayer.getAction(hand, community, toCall, gameEngine.getPotAmount());
+            long deadline = System.nanoTime() + DECISION_MILLIS * 1_000_000L;
+            PlayerAction action = currentPlayer.getAction(hand, community, toCall, gameEngine.getPotAmount(), deadline);
+            int chipsBefore = currentPlayer.getChipCount();
             
             // Process the action
             switch (action) {
                 case FOLD:
                     System.out.println(currentPlayer.getName() + " folds.");
-                    foldedPlayers.add(currentPlayer);
-                    activePlayers.remove(currentPlayer);
-                    currentIndex--; // Adjust for the removed player
                     break;
                     
                 case CHECK:
                     if (toCall > 0) {
                         System.out.println("Cannot check when there's a bet. Treating as FOLD.");
-                        foldedPlayers.add(currentPlayer);
-                        activePlayers.remove(currentPlayer);
-                        currentIndex--;
+                        action = PlayerAction.FOLD;
                     } else {
                         System.out.println(currentPlayer.getName() + " checks.");
                     }
@@ -282,8 +377,6 @@ public class Main {
                         }
                         
                         currentPlayer.removeChips(callAmount);
-                        gameEngine.addToPot(callAmount);
-                        playerBets.put(currentPlayer, playerBet + callAmount);
                     } else {
                         // Treated as a check
                         System.out.println(currentPlayer.getName() + " checks.");
@@ -292,11 +385,13 @@ public class Main {
                     
                 case RAISE:
                     // Ask for raise amount
-                    int minRaise = toCall + 20; // Minimum raise
+                    int minRaise = Math.min(toCall + 20, currentPlayer.getChipCount()); // Minimum raise
                     int raiseAmount = minRaise;
                     
                     // If this is a human player, get custom raise amount
-                    if (currentPlayer instanceof HumanPlayer) {
+                    Player decider = currentPlayer instanceof LedgerPlayer
+                        ? ((LedgerPlayer) currentPlayer).getPlayer() : currentPlayer;
+                    if (decider instanceof HumanPlayer) {
                         System.out.println("Minimum raise: " + minRaise);
                         System.out.print("Enter raise amount: ");
                         
@@ -324,43 +419,17 @@ public class Main {
                     // Process the raise
                     System.out.println(currentPlayer.getName() + " raises to " + raiseAmount + " chips.");
                     currentPlayer.removeChips(raiseAmount);
-                    gameEngine.addToPot(raiseAmount);
-                    playerBets.put(currentPlayer, playerBet + raiseAmount);
-                    highestBet = playerBet + raiseAmount;
-                    lastRaisePlayerIndex = activePlayers.indexOf(currentPlayer);
                     break;
                     
                 case ALL_IN:
                     int allInAmount = currentPlayer.getChipCount();
                     System.out.println(currentPlayer.getName() + " goes ALL IN with " + allInAmount + " chips!");
                     currentPlayer.removeChips(allInAmount);
-                    gameEngine.addToPot(allInAmount);
-                    
-                    int newBet = playerBet + allInAmount;
-                    playerBets.put(currentPlayer, newBet);
-                    
-                    if (newBet > highestBet) {
-                        highestBet = newBet;
-                        lastRaisePlayerIndex = activePlayers.indexOf(currentPlayer);
-                    }
                     break;
             }
             
-            // Move to the next player
-            currentIndex = (currentIndex + 1) % activePlayers.size();
-            
-            // Check if betting is complete
-            if (lastRaisePlayerIndex == -1) {
-                // No one has raised, betting is complete when we've gone around the table once
-                if (currentIndex == 0) {
-                    bettingComplete = true;
-                }
-            } else {
-                // Someone has raised, betting is complete when we come back to that player
-                if (currentIndex == (lastRaisePlayerIndex + 1) % activePlayers.size()) {
-                    bettingComplete = true;
-                }
-            }
+            // The engine puts the chips in the pot and tracks who has folded or is all-in
+            gameEngine.recordAction(currentPlayer, action, chipsBefore - currentPlayer.getChipCount());
             
             // Pause briefly to let players see the action
             try {
@@ -393,11 +462,14 @@ public class Main {
     }
     
     /**
-     * Shows all players' cards at showdown.
+     * Shows the cards of the players still in the hand at showdown.
      */
     private static void showPlayerCards() {
         System.out.println("\nPlayer Cards:");
         for (Player player : gameEngine.getPlayers()) {
+            if (gameEngine.hasFolded(player)) {
+                continue;
+            }
             System.out.println(player.getName() + ":");
             for (Card card : gameEngine.getPlayerHand(player)) {
                 System.out.println("  " + card.toString());
@@ -45,7 +45,23 @@ public interface Player {
      * @return The player's decision
      */
     PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount);
-    
+
+    /**
+     * Player decides what action to take, answering by a deadline. Players whose
+     * decisions are cheap can keep the default, which ignores the deadline.
+     *
+     * @param hand The player's current hand
+     * @param communityCards The community cards on the table
+     * @param currentBet The current bet amount to call
+     * @param potAmount The current pot amount
+     * @param deadlineNanos When the decision is due, on the {@link System#nanoTime()} clock
+     * @return The player's decision
+     */
+    default PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount,
+                                   long deadlineNanos) {
+        return getAction(hand, communityCards, currentBet, potAmount);
+    }
+
     /**
      * Enum representing possible player actions in poker.
      */
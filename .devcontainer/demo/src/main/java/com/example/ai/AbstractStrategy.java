@@ -0,0 +1,33 @@
+package com.example.ai;
+
+/**
+ * A strategy for the abstracted heads-up game: action probabilities indexed by street,
+ * street-local betting sequence (see {@link BettingSequences}) and card bucket.
+ */
+public interface AbstractStrategy {
+    /**
+     * Gets the card abstraction the strategy was built for.
+     *
+     * @return The card abstraction
+     */
+    CardAbstraction getAbstraction();
+    
+    /**
+     * Gets the amount a raise adds on top of the call in the abstracted game.
+     *
+     * @return The raise increment
+     */
+    int getRaiseIncrement();
+    
+    /**
+     * Fills in the probability of each abstract action slot.
+     * Slots outside {@code legalMask} get probability zero and the rest sum to one.
+     *
+     * @param street The street, from 0 (pre-flop) to 3 (river)
+     * @param sequence The betting sequence id on this street
+     * @param bucket The card bucket
+     * @param legalMask Bit mask of the legal abstract action slots
+     * @param probabilities Receives {@link BettingSequences#ACTION_COUNT} probabilities
+     */
+    void getStrategy(int street, int sequence, int bucket, int legalMask, double[] probabilities);
+}
@@ -0,0 +1,27 @@
+package com.example.ai;
+
+import com.example.Player.PlayerAction;
+
+/**
+ * A decision that always has an answer and improves it the longer it runs.
+ *
+ * {@link DecisionService#decide} runs {@link #improve} on its executor and takes
+ * {@link #best} when the work finishes or the deadline hits, whichever comes first, so
+ * {@code best} must be safe to call from another thread while {@code improve} is running.
+ */
+public interface AnytimeDecision {
+    /**
+     * Works on the decision until it is done or the deadline passes. Long-running work
+     * should also stop when the thread is interrupted.
+     *
+     * @param deadlineNanos The deadline, on the {@link System#nanoTime()} clock
+     */
+    void improve(long deadlineNanos);
+
+    /**
+     * Gets the best action found so far.
+     *
+     * @return The action, never null
+     */
+    PlayerAction best();
+}
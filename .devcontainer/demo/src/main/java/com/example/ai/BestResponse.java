@@ -0,0 +1,185 @@
+package com.example.ai;
+
+import com.example.AIPlayer;
+import com.example.eval.Combos;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes best responses and exploitability in the river subgame of a {@link RiverSolver}.
+ *
+ * A best response is the most a player could win against a fixed strategy that is known
+ * in full. It is found with one walk of the tree per responder: at the responder's nodes
+ * each hand simply takes its best action, and at the other player's nodes the opponent
+ * reach is split by the fixed strategy. Reach and values are 1326-float vectors, and
+ * subtrees are walked in parallel on the fork/join pool.
+ *
+ * Exploitability is the average over both seats of what a best response wins beyond the
+ * equilibrium share, so zero means the strategy cannot be beaten. Any {@link com.example.Player}
+ * can be measured by wrapping it in a {@link PlayerRiverStrategy}.
+ */
+public class BestResponse {
+    private static final int PARALLEL_THRESHOLD = 4;
+
+    private final RiverSolver game;
+
+    /**
+     * Creates a best-response calculator for a river subgame.
+     *
+     * @param game The subgame, which supplies the tree, the board and both ranges
+     */
+    public BestResponse(RiverSolver game) {
+        this.game = game;
+    }
+
+    /**
+     * Computes what a best-responding player wins on average against a fixed strategy
+     * playing the other seat.
+     *
+     * @param responder The best-responding player, 0 (out of position) or 1
+     * @param fixed The strategy of the other player
+     * @return The responder's expected gain, in chips per hand
+     */
+    public double value(int responder, RiverStrategy fixed) {
+        float[] values = ForkJoinPool.commonPool().invoke(
+                new Walk(game.getRoot(), responder, fixed, game.range(1 - responder)));
+        float[] range = game.range(responder);
+        double total = 0;
+        for (int combo = 0; combo < Combos.COUNT; combo++) {
+            total += range[combo] * values[combo];
+        }
+        double weight = game.pairWeight();
+        return weight > 0 ? total / weight : 0;
+    }
+
+    /**
+     * Computes the exploitability of a strategy that plays both seats.
+     *
+     * @param strategy The strategy to measure
+     * @return The exploitability, in chips per hand
+     */
+    public double exploitability(RiverStrategy strategy) {
+        double total = value(0, strategy) + value(1, strategy);
+        return Math.max(0, (total - game.getPot()) / 2);
+    }
+
+    /**
+     * Converts chips per hand into milli-big-blinds per hand.
+     *
+     * @param chips A value in chips per hand
+     * @param bigBlind The big blind amount
+     * @return The value in mbb/hand
+     */
+    public static double toMilliBigBlinds(double chips, int bigBlind) {
+        return chips * 1000.0 / bigBlind;
+    }
+
+    /**
+     * Walks the subtree below a node, returning each of the responder's hands'
+     * best-response value (weighted by the opponent's reach).
+     */
+    private final class Walk extends RecursiveTask<float[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int node;
+        private final int responder;
+        private final RiverStrategy fixed;
+        private final float[] oppReach;
+
+        Walk(int node, int responder, RiverStrategy fixed, float[] oppReach) {
+            this.node = node;
+            this.responder = responder;
+            this.fixed = fixed;
+            this.oppReach = oppReach;
+        }
+
+        @Override
+        protected float[] compute() {
+            float[] values = new float[Combos.COUNT];
+            if (game.isTerminal(node)) {
+                game.terminalValues(node, responder, oppReach, values);
+                return values;
+            }
+
+            int count = game.getActionCount(node);
+            boolean responding = game.getPlayer(node) == responder;
+            Walk[] walks = new Walk[count];
+            if (responding) {
+                for (int a = 0; a < count; a++) {
+                    walks[a] = new Walk(game.getChild(node, a), responder, fixed, oppReach);
+                }
+            } else {
+                // Split the opponent's reach by the fixed strategy
+                float[][] reach = new float[count][Combos.COUNT];
+                double[] probabilities = new double[count];
+                for (int combo = 0; combo < Combos.COUNT; combo++) {
+                    if (oppReach[combo] == 0f) {
+                        continue;
+                    }
+                    fixed.getStrategy(node, combo, probabilities);
+                    for (int a = 0; a < count; a++) {
+                        reach[a][combo] = (float) (oppReach[combo] * probabilities[a]);
+                    }
+                }
+                for (int a = 0; a < count; a++) {
+                    walks[a] = new Walk(game.getChild(node, a), responder, fixed, reach[a]);
+                }
+            }
+
+            float[][] childValues = new float[count][];
+            if (game.subtreeSize(node) >= PARALLEL_THRESHOLD) {
+                for (int a = 1; a < count; a++) {
+                    walks[a].fork();
+                }
+                childValues[0] = walks[0].compute();
+                for (int a = 1; a < count; a++) {
+                    childValues[a] = walks[a].join();
+                }
+            } else {
+                for (int a = 0; a < count; a++) {
+                    childValues[a] = walks[a].compute();
+                }
+            }
+
+            for (int combo = 0; combo < Combos.COUNT; combo++) {
+                float value = responding ? -Float.MAX_VALUE : 0f;
+                for (int a = 0; a < count; a++) {
+                    value = responding ? Math.max(value, childValues[a][combo]) : value + childValues[a][combo];
+                }
+                values[combo] = value;
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Measures the river exploitability of {@link AIPlayer} over random boards with
+     * full ranges, a pot of 10 big blinds and 20 big blinds behind.
+     * Usage: BestResponse [boards] [samples]
+     */
+    public static void main(String[] args) {
+        int boards = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int samples = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int bigBlind = 10;
+        Random random = new Random(32);
+        float[] range = new float[Combos.COUNT];
+        Arrays.fill(range, 1f);
+
+        double total = 0;
+        for (int i = 0; i < boards; i++) {
+            long board = 0L;
+            while (Long.bitCount(board) < 5) {
+                board |= 1L << random.nextInt(52);
+            }
+            RiverSolver game = new RiverSolver(board, 10 * bigBlind, 20 * bigBlind, range, range);
+            PlayerRiverStrategy profile = new PlayerRiverStrategy(game,
+                    () -> new AIPlayer("Profiled", 20 * bigBlind), samples);
+            total += new BestResponse(game).exploitability(profile);
+        }
+        System.out.printf("AIPlayer river exploitability: %.0f mbb/hand over %d boards%n",
+                          toMilliBigBlinds(total / boards, bigBlind), boards);
+    }
+}
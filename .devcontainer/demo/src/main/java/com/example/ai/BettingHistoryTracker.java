@@ -0,0 +1,105 @@
+package com.example.ai;
+
+import com.example.Card;
+
+import java.util.List;
+
+/**
+ * Reconstructs the street-local betting sequence of {@link BettingSequences} from what
+ * a {@link com.example.Player} sees when asked to act: its cards, the board and the
+ * amount to call, plus the actions it chose itself.
+ *
+ * The game is heads-up, as in {@link CFRTrainer} and the table rules it trains on: the
+ * small blind is the seat after the dealer and acts first on every street, pre-flop
+ * starting at the root with the blinds already in. Opponent actions are inferred. Facing more than the blind means the opponent
+ * raised (or moved all-in when the bet covers our stack). Facing no bet when the
+ * opponent has already acted on the street means they checked or limped.
+ */
+class BettingHistoryTracker {
+    private final int bigBlind;
+    private long handMask = -1L;
+    private int boardSize = -1;
+    private int sequence;
+    // Whether we acted on this street, and whether we are the small blind, who acts first
+    private boolean acted;
+    private boolean actsFirst;
+    
+    /**
+     * Creates a tracker for a game with the given big blind.
+     *
+     * @param bigBlind The big blind amount
+     */
+    BettingHistoryTracker(int bigBlind) {
+        this.bigBlind = bigBlind;
+    }
+    
+    /**
+     * Updates the tracked sequence for a new decision and returns it.
+     *
+     * @param hand The player's hole cards
+     * @param communityCards The board
+     * @param toCall The amount to call
+     * @param chips The player's remaining chips
+     * @return The sequence id before our action
+     */
+    int observe(List<Card> hand, List<Card> communityCards, int toCall, int chips) {
+        long mask = 0L;
+        for (Card card : hand) {
+            mask |= 1L << card.getIndex();
+        }
+        if (mask != handMask || communityCards.size() != boardSize) {
+            handMask = mask;
+            boardSize = communityCards.size();
+            sequence = BettingSequences.ROOT;
+            acted = false;
+        }
+        
+        boolean opponentActed;
+        if (boardSize == 0 && !acted) {
+            // The small blind faces less than a big blind to call; anything else means
+            // we are the big blind and the small blind has limped or raised
+            boolean smallBlind = toCall > 0 && toCall < bigBlind;
+            actsFirst = smallBlind;
+            opponentActed = !actsFirst;
+        } else {
+            opponentActed = acted || !actsFirst;
+        }
+        
+        if (toCall > 0 && opponentActed) {
+            advance(toCall >= chips ? BettingSequences.ALL_IN : BettingSequences.RAISE);
+        } else if (toCall == 0 && opponentActed && !acted) {
+            advance(BettingSequences.CALL);
+        }
+        return sequence;
+    }
+    
+    /**
+     * Records the abstract action we chose.
+     *
+     * @param action An abstract action slot
+     */
+    void record(int action) {
+        advance(action);
+        acted = true;
+    }
+    
+    private void advance(int action) {
+        int next = BettingSequences.child(sequence, action);
+        if (next == BettingSequences.NONE && action == BettingSequences.ALL_IN) {
+            next = BettingSequences.child(sequence, BettingSequences.RAISE);
+        }
+        if (next != BettingSequences.NONE) {
+            sequence = next;
+        }
+    }
+    
+    /**
+     * Gets the street number used by the strategy tables from the number of board cards.
+     *
+     * @param boardSize The number of community cards
+     * @return The street, from 0 (pre-flop) to 3 (river)
+     */
+    static int street(int boardSize) {
+        return boardSize == 0 ? 0 : boardSize - 2;
+    }
+}
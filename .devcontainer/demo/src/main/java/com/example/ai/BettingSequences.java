@@ -0,0 +1,126 @@
+package com.example.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Numbers every betting sequence that can occur within one street of a heads-up hand.
+ *
+ * Strategy tables are keyed by street, sequence id and card bucket, so the sequence id
+ * only describes the current street (earlier streets are forgotten). Within a street
+ * each player either passes (check or call), raises by the table's raise increment, or
+ * moves all-in; raises are capped at {@link #MAX_RAISES} per street. A pass closes the
+ * street unless it is the first action, and nobody can re-raise an all-in.
+ */
+public final class BettingSequences {
+    /** Abstract action slot: fold. */
+    public static final int FOLD = 0;
+    /** Abstract action slot: check or call. */
+    public static final int CALL = 1;
+    /** Abstract action slot: raise by the raise increment. */
+    public static final int RAISE = 2;
+    /** Abstract action slot: move all-in. */
+    public static final int ALL_IN = 3;
+    /** Number of abstract action slots. */
+    public static final int ACTION_COUNT = 4;
+
+    /** Raises (including all-ins) allowed per street. */
+    public static final int MAX_RAISES = 3;
+
+    /** Sequence id at the start of every street. */
+    public static final int ROOT = 0;
+    /** Child id of an action that ends the street or is not allowed. */
+    public static final int NONE = -1;
+
+    private static final int[] CHILDREN;
+    private static final int[] DEPTH;
+    private static final int COUNT;
+
+    static {
+        List<int[]> children = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        children.add(null);
+        depths.add(0);
+        build(ROOT, 0, 0, false, children, depths);
+
+        COUNT = children.size();
+        CHILDREN = new int[COUNT * ACTION_COUNT];
+        DEPTH = new int[COUNT];
+        for (int id = 0; id < COUNT; id++) {
+            System.arraycopy(children.get(id), 0, CHILDREN, id * ACTION_COUNT, ACTION_COUNT);
+            DEPTH[id] = depths.get(id);
+        }
+    }
+
+    private BettingSequences() {
+    }
+
+    private static void build(int id, int depth, int raises, boolean facingAllIn,
+                              List<int[]> children, List<Integer> depths) {
+        int[] next = { NONE, NONE, NONE, NONE };
+        children.set(id, next);
+
+        // A pass continues the street only as the very first action
+        if (depth == 0) {
+            next[CALL] = add(depth + 1, children, depths);
+            build(next[CALL], depth + 1, raises, false, children, depths);
+        }
+        if (!facingAllIn && raises < MAX_RAISES) {
+            next[RAISE] = add(depth + 1, children, depths);
+            build(next[RAISE], depth + 1, raises + 1, false, children, depths);
+        }
+        if (!facingAllIn) {
+            next[ALL_IN] = add(depth + 1, children, depths);
+            build(next[ALL_IN], depth + 1, raises + 1, true, children, depths);
+        }
+    }
+
+    private static int add(int depth, List<int[]> children, List<Integer> depths) {
+        children.add(null);
+        depths.add(depth);
+        return children.size() - 1;
+    }
+
+    /**
+     * Gets the number of distinct sequence ids.
+     *
+     * @return The sequence count
+     */
+    public static int count() {
+        return COUNT;
+    }
+
+    /**
+     * Gets the sequence reached by taking an action.
+     *
+     * @param sequence The current sequence id
+     * @param action An abstract action slot
+     * @return The next sequence id, or {@link #NONE} if the action ends the street or is not allowed
+     */
+    public static int child(int sequence, int action) {
+        return CHILDREN[sequence * ACTION_COUNT + action];
+    }
+
+    /**
+     * Gets the number of actions taken on the street so far.
+     * Players alternate, so even depths belong to the first player to act.
+     *
+     * @param sequence The sequence id
+     * @return The number of actions in the sequence
+     */
+    public static int depth(int sequence) {
+        return DEPTH[sequence];
+    }
+
+    /**
+     * Checks whether an action is allowed by the abstraction after a sequence.
+     * Passing is always allowed; it simply ends the street when there is no child.
+     *
+     * @param sequence The sequence id
+     * @param action An abstract action slot
+     * @return true if the action can be taken
+     */
+    public static boolean allows(int sequence, int action) {
+        return action == FOLD || action == CALL || child(sequence, action) != NONE;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.ai;
+
+import com.example.eval.PreflopEquity;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Card abstraction read from bucket tables written by {@link BucketGenerator}.
+ *
+ * Each street's table is memory-mapped, so a lookup costs one canonicalization and one
+ * hash probe. A directory without a pre-flop table falls back to the 169 starting hand
+ * classes, which is what clustering pre-flop hands would give anyway.
+ *
+ * {@link CFRTrainer#main} trains on these tables when given their directory. A
+ * {@link StrategyPlayer} then plays the exported strategy through a {@link StrategyStore}
+ * opened with the same directory's abstraction, so it looks up its buckets in the mapped
+ * files at every decision.
+ */
+public class BucketFileAbstraction implements CardAbstraction {
+    private final BucketTable[] tables;
+
+    private BucketFileAbstraction(BucketTable[] tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Opens the bucket tables in a directory.
+     *
+     * @param directory A directory holding one table per post-flop street
+     * @return The abstraction
+     * @throws IOException If a post-flop table is missing or cannot be read
+     */
+    public static BucketFileAbstraction open(Path directory) throws IOException {
+        BucketTable[] tables = new BucketTable[4];
+        for (int street = 0; street < 4; street++) {
+            Path file = directory.resolve(BucketGenerator.fileName(street));
+            if (street == 0 && !Files.exists(file)) {
+                continue;
+            }
+            tables[street] = BucketTable.open(file);
+            if (tables[street].getStreet() != street) {
+                throw new IOException(file + " holds street " + tables[street].getStreet());
+            }
+        }
+        return new BucketFileAbstraction(tables);
+    }
+
+    @Override
+    public int bucketCount(int street) {
+        return tables[street] == null ? PreflopEquity.CLASS_COUNT : tables[street].getBucketCount();
+    }
+
+    @Override
+    public int bucket(int street, int card1, int card2, long board) {
+        if (tables[street] == null) {
+            return PreflopEquity.classIndex(card1, card2);
+        }
+        int bucket = tables[street].bucket(card1, card2, board);
+        if (bucket < 0) {
+            throw new IllegalArgumentException("Hand is missing from the street " + street + " bucket table");
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,516 @@
+package com.example.ai;
+
+import com.example.Card;
+import com.example.eval.Combos;
+import com.example.eval.HandEvaluator;
+import com.example.eval.HandIsomorphism;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds the bucket table of one street by clustering equity distributions.
+ *
+ * Every hand is described by a histogram of its equity against a random opponent hand
+ * once the board is complete: each sampled runout of the missing board cards adds one
+ * entry, so hands with the same average equity but different draw profiles (a made pair
+ * versus a flush draw) end up far apart. On the river the histogram is a single spike.
+ *
+ * The pipeline runs in three parallel passes:
+ * <ol>
+ *   <li>histograms of randomly dealt hands are clustered with k-means (k-means++ seeding),
+ *       using either squared L2 distance on the histograms or earth mover's distance,
+ *       which for one-dimensional histograms is the L1 distance between their cumulative
+ *       forms (use EMD on the river, where L2 cannot tell spikes apart);</li>
+ *   <li>the canonical hands of the street are counted to size the table;</li>
+ *   <li>every canonical hand is assigned to its nearest centroid and stored.</li>
+ * </ol>
+ */
+public final class BucketGenerator {
+    /** Distance used to compare histograms. */
+    public enum Metric { L2, EMD }
+
+    /** Equity histogram resolution. */
+    public static final int HISTOGRAM_BINS = 50;
+
+    private static final int OPPONENTS_PER_ROLLOUT = 50;
+    private static final int MAX_ITERATIONS = 100;
+    private static final int[] BOARD_CARDS = { 0, 3, 4, 5 };
+    private static final String[] FILE_NAMES = { "preflop.bkt", "flop.bkt", "turn.bkt", "river.bkt" };
+
+    private final int street;
+    private final int buckets;
+    private final Metric metric;
+    private final int samples;
+    private final int rollouts;
+    private final int threads;
+    private final long seed;
+
+    /**
+     * Creates a generator.
+     *
+     * @param street The street, from 0 (pre-flop) to 3 (river)
+     * @param buckets The number of buckets (clusters)
+     * @param metric The histogram distance
+     * @param samples The number of random hands used to fit the clusters
+     * @param rollouts The number of sampled board runouts per histogram
+     * @param threads The number of worker threads
+     * @param seed The random seed, so that runs can be reproduced
+     */
+    public BucketGenerator(int street, int buckets, Metric metric, int samples, int rollouts, int threads, long seed) {
+        if (street < 0 || street > 3) {
+            throw new IllegalArgumentException("Street must be from 0 to 3");
+        }
+        if (buckets < 1 || buckets > 65536 || buckets > samples) {
+            throw new IllegalArgumentException("Bucket count must be between 1 and min(65536, samples)");
+        }
+        this.street = street;
+        this.buckets = buckets;
+        this.metric = metric;
+        this.samples = samples;
+        this.rollouts = rollouts;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    /**
+     * Gets the name of a street's table file inside an abstraction directory.
+     *
+     * @param street The street, from 0 (pre-flop) to 3 (river)
+     * @return The file name
+     */
+    public static String fileName(int street) {
+        return FILE_NAMES[street];
+    }
+
+    /**
+     * Runs the whole pipeline and writes the street's table.
+     *
+     * @param file The table file to write
+     * @return The number of canonical hands stored
+     * @throws Exception If a worker fails or the file cannot be written
+     */
+    public long generate(Path file) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            float[][] centroids = cluster(pool);
+            long count = countCanonical(pool);
+            BucketTable table = BucketTable.create(file, street, buckets, count);
+            assign(pool, centroids, table);
+            table.finish(file);
+            return table.getEntryCount();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Fits the bucket centroids to the histograms of randomly dealt hands.
+     */
+    private float[][] cluster(ExecutorService pool) throws Exception {
+        final float[][] points = new float[samples][HISTOGRAM_BINS];
+        parallel(pool, samples, threads * 4, (from, to) -> {
+            Random random = new Random(seed + from);
+            int[] deck = new int[Card.DECK_SIZE];
+            int[] scratch = new int[Card.DECK_SIZE];
+            for (int i = from; i < to; i++) {
+                // Deal two hole cards and the street's board from a shuffled deck
+                for (int c = 0; c < Card.DECK_SIZE; c++) {
+                    deck[c] = c;
+                }
+                int dealt = 2 + BOARD_CARDS[street];
+                for (int c = 0; c < dealt; c++) {
+                    int j = c + random.nextInt(Card.DECK_SIZE - c);
+                    int tmp = deck[c];
+                    deck[c] = deck[j];
+                    deck[j] = tmp;
+                }
+                long board = 0L;
+                for (int c = 2; c < dealt; c++) {
+                    board |= 1L << deck[c];
+                }
+                histogram(deck[0], deck[1], board, random, scratch, points[i]);
+            }
+            return null;
+        });
+
+        float[][] centroids = seedCentroids(pool, points);
+        int[] assignment = new int[samples];
+        Arrays.fill(assignment, -1);
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            final float[][] current = centroids;
+            List<Partial> partials = parallel(pool, samples, threads, (from, to) -> {
+                Partial partial = new Partial(buckets);
+                for (int i = from; i < to; i++) {
+                    int nearest = nearest(current, points[i]);
+                    if (nearest != assignment[i]) {
+                        assignment[i] = nearest;
+                        partial.changed++;
+                    }
+                    partial.counts[nearest]++;
+                    double[] sum = partial.sums[nearest];
+                    for (int b = 0; b < HISTOGRAM_BINS; b++) {
+                        sum[b] += points[i][b];
+                    }
+                }
+                return partial;
+            });
+
+            Partial total = new Partial(buckets);
+            for (Partial partial : partials) {
+                total.merge(partial);
+            }
+            centroids = new float[buckets][];
+            for (int k = 0; k < buckets; k++) {
+                // An empty cluster keeps its old centroid
+                if (total.counts[k] == 0) {
+                    centroids[k] = current[k];
+                    continue;
+                }
+                centroids[k] = new float[HISTOGRAM_BINS];
+                for (int b = 0; b < HISTOGRAM_BINS; b++) {
+                    centroids[k][b] = (float) (total.sums[k][b] / total.counts[k]);
+                }
+            }
+            if (total.changed <= samples / 1000) {
+                break;
+            }
+        }
+        return centroids;
+    }
+
+    /**
+     * Picks initial centroids with k-means++: each new centroid is a sample point chosen
+     * with probability proportional to its squared distance from the nearest centroid so far.
+     */
+    private float[][] seedCentroids(ExecutorService pool, float[][] points) throws Exception {
+        Random random = new Random(seed);
+        float[][] centroids = new float[buckets][];
+        double[] nearest = new double[samples];
+        Arrays.fill(nearest, Double.MAX_VALUE);
+        centroids[0] = points[random.nextInt(samples)];
+
+        for (int k = 1; k < buckets; k++) {
+            final float[] latest = centroids[k - 1];
+            List<Double> totals = parallel(pool, samples, threads * 4, (from, to) -> {
+                double sum = 0;
+                for (int i = from; i < to; i++) {
+                    double d = distance(latest, points[i]);
+                    if (metric == Metric.EMD) {
+                        d *= d;
+                    }
+                    if (d < nearest[i]) {
+                        nearest[i] = d;
+                    }
+                    sum += nearest[i];
+                }
+                return sum;
+            });
+
+            double total = 0;
+            for (double sum : totals) {
+                total += sum;
+            }
+            double target = random.nextDouble() * total;
+            int chosen = samples - 1;
+            for (int i = 0; i < samples; i++) {
+                target -= nearest[i];
+                if (target < 0) {
+                    chosen = i;
+                    break;
+                }
+            }
+            centroids[k] = points[chosen];
+        }
+        return centroids;
+    }
+
+    /**
+     * Counts the canonical hands of the street.
+     */
+    private long countCanonical(ExecutorService pool) throws Exception {
+        List<Long> counts = parallel(pool, Combos.COUNT, Combos.COUNT, (from, to) -> {
+            long[] count = new long[1];
+            for (int combo = from; combo < to; combo++) {
+                int card1 = Combos.low(combo);
+                int card2 = Combos.high(combo);
+                forEachBoard(card1, card2, board -> count[0]++);
+            }
+            return count[0];
+        });
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Assigns every canonical hand of the street to its nearest centroid.
+     */
+    private void assign(ExecutorService pool, float[][] centroids, BucketTable table) throws Exception {
+        parallel(pool, Combos.COUNT, Combos.COUNT, (from, to) -> {
+            int[] deck = new int[Card.DECK_SIZE];
+            float[] features = new float[HISTOGRAM_BINS];
+            for (int combo = from; combo < to; combo++) {
+                int card1 = Combos.low(combo);
+                int card2 = Combos.high(combo);
+                Random random = new Random(seed ^ ((long) combo << 32));
+                forEachBoard(card1, card2, board -> {
+                    histogram(card1, card2, board, random, deck, features);
+                    table.put(HandIsomorphism.canonicalKey(card1, card2, board), nearest(centroids, features));
+                });
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Computes the equity histogram of a hand (cumulative when using EMD).
+     *
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @param board A mask of the board cards
+     * @param random The random source for runouts and opponent hands
+     * @param deck Scratch space for the undealt cards
+     * @param out Receives {@link #HISTOGRAM_BINS} values summing to 1
+     */
+    void histogram(int card1, int card2, long board, Random random, int[] deck, float[] out) {
+        Arrays.fill(out, 0f);
+        long dead = board | (1L << card1) | (1L << card2);
+        int deckSize = 0;
+        for (int card = 0; card < Card.DECK_SIZE; card++) {
+            if ((dead & (1L << card)) == 0) {
+                deck[deckSize++] = card;
+            }
+        }
+
+        int missing = 5 - Long.bitCount(board);
+        if (missing == 0) {
+            out[bin(riverStrength(card1, card2, board))] = 1f;
+        } else {
+            float weight = 1f / rollouts;
+            for (int rollout = 0; rollout < rollouts; rollout++) {
+                // Partial shuffle for the missing board cards
+                long fullBoard = board;
+                for (int i = 0; i < missing; i++) {
+                    int j = i + random.nextInt(deckSize - i);
+                    int tmp = deck[i];
+                    deck[i] = deck[j];
+                    deck[j] = tmp;
+                    fullBoard |= 1L << deck[i];
+                }
+
+                int ours = HandEvaluator.evaluate(card1, card2, fullBoard);
+                int left = deckSize - missing;
+                double points = 0;
+                for (int opponent = 0; opponent < OPPONENTS_PER_ROLLOUT; opponent++) {
+                    int a = missing + random.nextInt(left);
+                    int b = missing + random.nextInt(left - 1);
+                    if (b >= a) {
+                        b++;
+                    }
+                    int theirs = HandEvaluator.evaluate(deck[a], deck[b], fullBoard);
+                    if (ours > theirs) {
+                        points += 1.0;
+                    } else if (ours == theirs) {
+                        points += 0.5;
+                    }
+                }
+                out[bin(points / OPPONENTS_PER_ROLLOUT)] += weight;
+            }
+        }
+
+        if (metric == Metric.EMD) {
+            for (int b = 1; b < HISTOGRAM_BINS; b++) {
+                out[b] += out[b - 1];
+            }
+        }
+    }
+
+    /**
+     * Computes river hand strength by enumerating opponent hands. This matches
+     * {@link HandStrengthAbstraction#handStrength} but bypasses the shared board ranking
+     * cache: the generator visits every board once, which would only evict the rankings
+     * live players are using.
+     */
+    static double riverStrength(int card1, int card2, long board) {
+        long dead = board | (1L << card1) | (1L << card2);
+        int ours = HandEvaluator.evaluate(card1, card2, board);
+        double points = 0;
+        int opponents = 0;
+        for (int combo = 0; combo < Combos.COUNT; combo++) {
+            if ((Combos.mask(combo) & dead) != 0) {
+                continue;
+            }
+            int theirs = HandEvaluator.evaluate(board | Combos.mask(combo));
+            if (ours > theirs) {
+                points += 1.0;
+            } else if (ours == theirs) {
+                points += 0.5;
+            }
+            opponents++;
+        }
+        return points / opponents;
+    }
+
+    private static int bin(double equity) {
+        return Math.min(HISTOGRAM_BINS - 1, (int) (equity * HISTOGRAM_BINS));
+    }
+
+    private int nearest(float[][] centroids, float[] point) {
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        for (int k = 0; k < centroids.length; k++) {
+            double d = distance(centroids[k], point);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Squared L2 distance between histograms, or L1 distance between cumulative
+     * histograms for EMD.
+     */
+    private double distance(float[] a, float[] b) {
+        double sum = 0;
+        if (metric == Metric.EMD) {
+            for (int i = 0; i < HISTOGRAM_BINS; i++) {
+                sum += Math.abs(a[i] - b[i]);
+            }
+        } else {
+            for (int i = 0; i < HISTOGRAM_BINS; i++) {
+                double d = a[i] - b[i];
+                sum += d * d;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Calls a visitor with every board that makes a canonical hand with the given hole
+     * cards. Boards are enumerated in increasing card order, so each set appears once.
+     */
+    private void forEachBoard(int card1, int card2, BoardVisitor visitor) {
+        long dead = (1L << card1) | (1L << card2);
+        int boardCards = BOARD_CARDS[street];
+        if (boardCards == 0) {
+            if (HandIsomorphism.isCanonical(card1, card2, 0L)) {
+                visitor.visit(0L);
+            }
+            return;
+        }
+        forEachBoard(card1, card2, dead, 0, boardCards, 0L, visitor);
+    }
+
+    private void forEachBoard(int card1, int card2, long dead, int start, int remaining, long board,
+                              BoardVisitor visitor) {
+        for (int card = start; card <= Card.DECK_SIZE - remaining; card++) {
+            if ((dead & (1L << card)) != 0) {
+                continue;
+            }
+            long next = board | (1L << card);
+            if (remaining > 1) {
+                forEachBoard(card1, card2, dead, card + 1, remaining - 1, next, visitor);
+            } else if (HandIsomorphism.isCanonical(card1, card2, next)) {
+                visitor.visit(next);
+            }
+        }
+    }
+
+    /**
+     * Splits {@code [0, n)} into ranges and runs them on the pool.
+     *
+     * @return The result of every range, in order
+     */
+    private static <T> List<T> parallel(ExecutorService pool, int n, int chunks, RangeTask<T> task) throws Exception {
+        List<Future<T>> futures = new ArrayList<>();
+        chunks = Math.max(1, Math.min(chunks, n));
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int from = (int) ((long) n * chunk / chunks);
+            final int to = (int) ((long) n * (chunk + 1) / chunks);
+            futures.add(pool.submit((Callable<T>) () -> task.run(from, to)));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        return results;
+    }
+
+    private interface RangeTask<T> {
+        T run(int from, int to) throws Exception;
+    }
+
+    private interface BoardVisitor {
+        void visit(long board);
+    }
+
+    /**
+     * Per-range cluster sums for one k-means iteration.
+     */
+    private static final class Partial {
+        final double[][] sums;
+        final int[] counts;
+        int changed;
+
+        Partial(int buckets) {
+            sums = new double[buckets][HISTOGRAM_BINS];
+            counts = new int[buckets];
+        }
+
+        void merge(Partial other) {
+            for (int k = 0; k < counts.length; k++) {
+                counts[k] += other.counts[k];
+                for (int b = 0; b < HISTOGRAM_BINS; b++) {
+                    sums[k][b] += other.sums[k][b];
+                }
+            }
+            changed += other.changed;
+        }
+    }
+
+    /**
+     * Generates one street's table from the command line.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: BucketGenerator <directory> <street 0-3> <buckets> [samples] [rollouts] [l2|emd] [threads]");
+            return;
+        }
+        Path directory = Paths.get(args[0]);
+        int street = Integer.parseInt(args[1]);
+        int buckets = Integer.parseInt(args[2]);
+        int samples = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+        int rollouts = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+        Metric metric = args.length > 5 ? Metric.valueOf(args[5].toUpperCase()) : Metric.EMD;
+        int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+
+        Files.createDirectories(directory);
+        Path file = directory.resolve(fileName(street));
+        long start = System.nanoTime();
+        long entries = new BucketGenerator(street, buckets, metric, samples, rollouts, threads, 29L).generate(file);
+        System.out.printf("Wrote %d canonical hands in %d buckets to %s (%.1f s)%n", entries, buckets, file,
+                          (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.ai;
+
+import com.example.eval.HandIsomorphism;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory-mapped file assigning a bucket to every canonical hand of one street.
+ *
+ * The file is an open-addressing hash table keyed by {@link HandIsomorphism#canonicalKey}:
+ * a 64-byte header, then the key slots (8 bytes each), then the bucket slots (2 bytes
+ * each). The slot count is a power of two kept under a 0.7 load factor, so a lookup is
+ * one hash and a short linear probe straight into the page cache, with nothing loaded
+ * onto the Java heap.
+ *
+ * Large tables are split into equal partitions picked by the top bits of the hash, and a
+ * probe wraps around within its partition. Each partition has its own lock, so the
+ * threads of {@link BucketGenerator} rarely wait for each other's writes. Tables are
+ * written once and are read-only afterwards.
+ */
+public final class BucketTable {
+    private static final int MAGIC = 0x424B5431; // "BKT1"
+    private static final int HEADER_BYTES = 64;
+    private static final int SEGMENT_SHIFT = 27;
+    private static final int SEGMENT_SLOTS = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SLOTS - 1;
+    private static final double MAX_LOAD = 0.7;
+    // Partitions are filled unevenly, so a partition is only full well above the sizing load
+    private static final double PARTITION_FULL = 0.9;
+    private static final int MAX_PARTITION_BITS = 6;
+    private static final long MIN_PARTITION_SLOTS = 1L << 16;
+
+    private final int street;
+    private final int bucketCount;
+    private final long capacity;
+    private final int partitionBits;
+    private final long partitionMask;
+    private final LongBuffer[] keys;
+    private final ShortBuffer[] buckets;
+    private final MappedByteBuffer[] mapped;
+    private final long[] entries;
+    private final Object[] locks;
+
+    private BucketTable(int street, int bucketCount, long capacity, int partitionBits, long entries,
+                        LongBuffer[] keys, ShortBuffer[] buckets, MappedByteBuffer[] mapped) {
+        this.street = street;
+        this.bucketCount = bucketCount;
+        this.capacity = capacity;
+        this.partitionBits = partitionBits;
+        this.partitionMask = (capacity >>> partitionBits) - 1;
+        this.entries = new long[1 << partitionBits];
+        this.entries[0] = entries;
+        this.locks = new Object[1 << partitionBits];
+        for (int partition = 0; partition < locks.length; partition++) {
+            locks[partition] = new Object();
+        }
+        this.keys = keys;
+        this.buckets = buckets;
+        this.mapped = mapped;
+    }
+
+    /**
+     * Creates an empty table file sized for the given number of hands.
+     *
+     * @param file The file to create (an existing file is overwritten)
+     * @param street The street, from 0 (pre-flop) to 3 (river)
+     * @param bucketCount The number of buckets, at most 65536
+     * @param expectedEntries The number of canonical hands that will be stored
+     * @return A writable table
+     * @throws IOException If the file cannot be created
+     */
+    public static BucketTable create(Path file, int street, int bucketCount, long expectedEntries) throws IOException {
+        if (bucketCount < 1 || bucketCount > 65536) {
+            throw new IllegalArgumentException("Bucket count must be between 1 and 65536");
+        }
+        long capacity = Long.highestOneBit(Math.max(16L, (long) (expectedEntries / MAX_LOAD)) * 2 - 1);
+        int partitionBits = 0;
+        while (partitionBits < MAX_PARTITION_BITS && (capacity >>> (partitionBits + 1)) >= MIN_PARTITION_SLOTS) {
+            partitionBits++;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(street).putInt(bucketCount).putInt(partitionBits).putLong(capacity)
+                  .putLong(0L);
+            header.clear();
+            channel.write(header, 0);
+            return map(channel, FileChannel.MapMode.READ_WRITE, street, bucketCount, capacity, partitionBits, 0L);
+        }
+    }
+
+    /**
+     * Opens a table file for lookups.
+     *
+     * @param file The table file
+     * @return A read-only table
+     * @throws IOException If the file cannot be read or is not a bucket table
+     */
+    public static BucketTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Not a bucket table: " + file);
+            }
+            int street = header.getInt();
+            int bucketCount = header.getInt();
+            int partitionBits = header.getInt();
+            long capacity = header.getLong();
+            long entries = header.getLong();
+            if (partitionBits < 0 || partitionBits > MAX_PARTITION_BITS) {
+                throw new IOException("Bad partition count in bucket table " + file);
+            }
+            return map(channel, FileChannel.MapMode.READ_ONLY, street, bucketCount, capacity, partitionBits, entries);
+        }
+    }
+
+    private static BucketTable map(FileChannel channel, FileChannel.MapMode mode, int street, int bucketCount,
+                                   long capacity, int partitionBits, long entries) throws IOException {
+        int count = (int) ((capacity + SEGMENT_SLOTS - 1) >>> SEGMENT_SHIFT);
+        LongBuffer[] keys = new LongBuffer[count];
+        ShortBuffer[] buckets = new ShortBuffer[count];
+        MappedByteBuffer[] mapped = new MappedByteBuffer[count * 2];
+        long bucketBase = HEADER_BYTES + capacity * 8;
+        for (int i = 0; i < count; i++) {
+            long slots = Math.min(SEGMENT_SLOTS, capacity - (long) i * SEGMENT_SLOTS);
+            mapped[i * 2] = channel.map(mode, HEADER_BYTES + (long) i * SEGMENT_SLOTS * 8, slots * 8);
+            mapped[i * 2].order(ByteOrder.LITTLE_ENDIAN);
+            keys[i] = mapped[i * 2].asLongBuffer();
+            mapped[i * 2 + 1] = channel.map(mode, bucketBase + (long) i * SEGMENT_SLOTS * 2, slots * 2);
+            mapped[i * 2 + 1].order(ByteOrder.LITTLE_ENDIAN);
+            buckets[i] = mapped[i * 2 + 1].asShortBuffer();
+        }
+        return new BucketTable(street, bucketCount, capacity, partitionBits, entries, keys, buckets, mapped);
+    }
+
+    public int getStreet() {
+        return street;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    public long getEntryCount() {
+        long total = 0;
+        for (int partition = 0; partition < entries.length; partition++) {
+            synchronized (locks[partition]) {
+                total += entries[partition];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Looks up the bucket of a hand.
+     *
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @param board A mask of the board cards
+     * @return The bucket, or -1 if the hand is not in the table
+     */
+    public int bucket(int card1, int card2, long board) {
+        return bucket(HandIsomorphism.canonicalKey(card1, card2, board));
+    }
+
+    /**
+     * Looks up the bucket of a canonical key.
+     *
+     * @param key A key from {@link HandIsomorphism#canonicalKey}
+     * @return The bucket, or -1 if the key is not in the table
+     */
+    public int bucket(long key) {
+        long hash = hash(key);
+        long base = partitionBase(partition(hash));
+        for (long probe = hash & partitionMask; ; probe = (probe + 1) & partitionMask) {
+            long slot = base + probe;
+            long stored = keys[(int) (slot >>> SEGMENT_SHIFT)].get((int) (slot & SEGMENT_MASK));
+            if (stored == key) {
+                return buckets[(int) (slot >>> SEGMENT_SHIFT)].get((int) (slot & SEGMENT_MASK)) & 0xFFFF;
+            }
+            if (stored == 0L) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Stores the bucket of a canonical key. Safe to call from several threads; only
+     * writes to the same partition wait for each other.
+     *
+     * @param key A key from {@link HandIsomorphism#canonicalKey}
+     * @param bucket The bucket, from 0 to {@code getBucketCount() - 1}
+     */
+    public void put(long key, int bucket) {
+        long hash = hash(key);
+        int partition = partition(hash);
+        long base = partitionBase(partition);
+        // Slots are written with absolute puts, which touch no shared buffer state
+        synchronized (locks[partition]) {
+            for (long probe = hash & partitionMask; ; probe = (probe + 1) & partitionMask) {
+                long slot = base + probe;
+                int segment = (int) (slot >>> SEGMENT_SHIFT);
+                int offset = (int) (slot & SEGMENT_MASK);
+                long stored = keys[segment].get(offset);
+                if (stored == 0L || stored == key) {
+                    if (stored == 0L) {
+                        if (entries[partition] + 1 > (partitionMask + 1) * PARTITION_FULL) {
+                            throw new IllegalStateException("Bucket table is full");
+                        }
+                        keys[segment].put(offset, key);
+                        entries[partition]++;
+                    }
+                    buckets[segment].put(offset, (short) bucket);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the entry count into the header and flushes a table created with
+     * {@link #create} to disk.
+     *
+     * @param file The file the table was created from
+     * @throws IOException If the file cannot be written
+     */
+    public void finish(Path file) throws IOException {
+        for (MappedByteBuffer buffer : mapped) {
+            buffer.force();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            count.putLong(getEntryCount()).flip();
+            channel.write(count, 24);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Picks the partition of a hash from its top bits; the slot within it comes from the
+     * low bits.
+     */
+    private int partition(long hash) {
+        return partitionBits == 0 ? 0 : (int) (hash >>> (64 - partitionBits));
+    }
+
+    private long partitionBase(int partition) {
+        return partition * (partitionMask + 1);
+    }
+
+    /**
+     * Spreads a key over the slots (the finalizer of MurmurHash3).
+     */
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,519 @@
+package com.example.ai;
+
+import com.example.GameEngine.GameState;
+import com.example.Player.PlayerAction;
+import com.example.sim.TableState;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trains a heads-up strategy with Monte Carlo counterfactual regret minimization.
+ *
+ * The game is the project's own table rules ({@link TableState}) seen through a card
+ * abstraction and the street-local betting sequences of {@link BettingSequences}.
+ * Each iteration deals a random hand and walks the tree with external sampling: every
+ * action of the traversing player is explored, opponent actions are sampled. Regrets
+ * are floored at zero (regret matching+) and the average strategy is weighted linearly
+ * by iteration.
+ *
+ * The average-strategy sums are floats, which resolve an added weight only to 24 bits of
+ * the sum already held. Under linear weighting a weight is about 2/n of the sum after n
+ * visits to an information set, so past roughly 2^24 visits the average would stop
+ * moving. To keep 8 bits of every weight, an information set's sums are halved whenever
+ * its next weight would fall below 2^-16 of their total, which leaves its average strategy
+ * as it was. The average is therefore linear for an information set's first 2^17
+ * or so visits; after that the older visits are halved about every 2^15 visits. The
+ * preflop information sets, visited most often, reach this after about 2^17 iterations
+ * per preflop bucket.
+ *
+ * Regret and average-strategy tables are float arrays held off the Java heap. When the
+ * trainer is opened on a directory the tables are memory-mapped files, and
+ * {@link #checkpoint()} makes a consistent on-disk copy that {@link #open} resumes from.
+ * After a crash the mapped tables may also hold some updates made after the last
+ * checkpoint; sampled CFR tolerates that, it only shifts the averaging weights slightly.
+ */
+public class CFRTrainer implements AbstractStrategy {
+    private static final String REGRET_FILE = "regrets.f32";
+    private static final String STRATEGY_FILE = "strategy.f32";
+    private static final String STATE_FILE = "trainer.properties";
+    private static final int STREETS = 4;
+    private static final int MAX_DEPTH = 64;
+    // Largest average-strategy total per iteration weight; keeps 8 bits of each weight added
+    private static final double SUM_LIMIT = 1 << 16;
+
+    private final CardAbstraction abstraction;
+    private final int stack;
+    private final int smallBlind;
+    private final int bigBlind;
+    private final int maxBuckets;
+    private final Path directory;
+    private final OffHeapFloatArray regrets;
+    private final OffHeapFloatArray strategy;
+    private final AtomicLong iterations;
+
+    // Workers hold the read lock for one iteration; checkpoints take the write lock
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates a trainer whose tables live in direct memory.
+     *
+     * @param abstraction The card abstraction
+     * @param stack The starting stack of both players, in chips
+     * @param smallBlind The small blind amount
+     * @param bigBlind The big blind amount
+     */
+    public CFRTrainer(CardAbstraction abstraction, int stack, int smallBlind, int bigBlind) {
+        this.abstraction = abstraction;
+        this.stack = stack;
+        this.smallBlind = smallBlind;
+        this.bigBlind = bigBlind;
+        this.maxBuckets = maxBuckets(abstraction);
+        this.directory = null;
+        this.regrets = OffHeapFloatArray.allocate(tableLength());
+        this.strategy = OffHeapFloatArray.allocate(tableLength());
+        this.iterations = new AtomicLong();
+    }
+
+    private CFRTrainer(CardAbstraction abstraction, int stack, int smallBlind, int bigBlind,
+                       Path directory, long completedIterations) throws IOException {
+        this.abstraction = abstraction;
+        this.stack = stack;
+        this.smallBlind = smallBlind;
+        this.bigBlind = bigBlind;
+        this.maxBuckets = maxBuckets(abstraction);
+        this.directory = directory;
+        this.regrets = OffHeapFloatArray.map(directory.resolve(REGRET_FILE), tableLength());
+        this.strategy = OffHeapFloatArray.map(directory.resolve(STRATEGY_FILE), tableLength());
+        this.iterations = new AtomicLong(completedIterations);
+    }
+
+    /**
+     * Opens a trainer whose tables are memory-mapped files in a directory.
+     * If the directory holds a checkpoint, training resumes from it; the game settings
+     * and bucket counts must match those the checkpoint was made with.
+     *
+     * @param directory The checkpoint directory
+     * @param abstraction The card abstraction
+     * @param stack The starting stack of both players, in chips
+     * @param smallBlind The small blind amount
+     * @param bigBlind The big blind amount
+     * @return The trainer
+     * @throws IOException If the tables cannot be mapped or the checkpoint does not match
+     */
+    public static CFRTrainer open(Path directory, CardAbstraction abstraction,
+                                  int stack, int smallBlind, int bigBlind) throws IOException {
+        Files.createDirectories(directory);
+        long completed = 0;
+        Path stateFile = directory.resolve(STATE_FILE);
+        if (Files.exists(stateFile)) {
+            Properties state = new Properties();
+            try (InputStream in = Files.newInputStream(stateFile)) {
+                state.load(in);
+            }
+            String expected = describe(abstraction, stack, smallBlind, bigBlind);
+            if (!expected.equals(state.getProperty("game"))) {
+                throw new IOException("Checkpoint in " + directory + " was made for a different game: "
+                        + state.getProperty("game"));
+            }
+            completed = Long.parseLong(state.getProperty("iterations", "0"));
+        }
+        return new CFRTrainer(abstraction, stack, smallBlind, bigBlind, directory, completed);
+    }
+
+    /**
+     * Runs training iterations on several threads until the total iteration count
+     * reaches the target, checkpointing at a fixed interval when backed by a directory.
+     *
+     * @param targetIterations The total number of iterations to reach
+     * @param threads The number of worker threads
+     * @param checkpointIntervalMillis Time between checkpoints, or 0 to only checkpoint at the end
+     * @throws IOException If a checkpoint cannot be written
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public void train(long targetIterations, int threads, long checkpointIntervalMillis)
+            throws IOException, InterruptedException {
+        Thread[] workers = new Thread[threads];
+        Random seeds = new Random();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(seeds.nextLong(), targetIterations);
+            workers[i] = new Thread(worker, "cfr-worker-" + i);
+            workers[i].start();
+        }
+
+        try {
+            for (Thread worker : workers) {
+                while (worker.isAlive()) {
+                    long wait = checkpointIntervalMillis > 0 ? checkpointIntervalMillis : 1000;
+                    worker.join(wait);
+                    if (worker.isAlive() && checkpointIntervalMillis > 0) {
+                        checkpoint();
+                    }
+                }
+            }
+        } finally {
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+        }
+        checkpoint();
+    }
+
+    /**
+     * Writes a consistent checkpoint: flushes both tables and then atomically replaces
+     * the iteration count. Does nothing for a trainer held in direct memory.
+     *
+     * @throws IOException If the checkpoint cannot be written
+     */
+    public void checkpoint() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        checkpointLock.writeLock().lock();
+        try {
+            regrets.force();
+            strategy.force();
+
+            Properties state = new Properties();
+            state.setProperty("game", describe(abstraction, stack, smallBlind, bigBlind));
+            state.setProperty("iterations", Long.toString(iterations.get()));
+            Path temp = directory.resolve(STATE_FILE + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                state.store(out, "CFR trainer checkpoint");
+            }
+            Files.move(temp, directory.resolve(STATE_FILE),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    public long getIterations() {
+        return iterations.get();
+    }
+
+    @Override
+    public CardAbstraction getAbstraction() {
+        return abstraction;
+    }
+
+    @Override
+    public int getRaiseIncrement() {
+        return bigBlind * 2;
+    }
+
+    /**
+     * Gets the trained (average) strategy, which is what converges towards equilibrium.
+     */
+    @Override
+    public void getStrategy(int street, int sequence, int bucket, int legalMask, double[] probabilities) {
+        normalize(strategy, index(street, sequence, bucket), legalMask, probabilities);
+    }
+
+    /**
+     * Gets the index of the first action slot of an information set in the tables.
+     */
+    long index(int street, int sequence, int bucket) {
+        long infoSet = ((long) street * BettingSequences.count() + sequence) * maxBuckets + bucket;
+        return infoSet * BettingSequences.ACTION_COUNT;
+    }
+
+    private long tableLength() {
+        return (long) STREETS * BettingSequences.count() * maxBuckets * BettingSequences.ACTION_COUNT;
+    }
+
+    /**
+     * Normalizes the positive entries of a table row over the legal actions,
+     * falling back to a uniform distribution when none are positive.
+     */
+    private static void normalize(OffHeapFloatArray table, long base, int legalMask, double[] out) {
+        double total = 0;
+        for (int a = 0; a < BettingSequences.ACTION_COUNT; a++) {
+            out[a] = 0;
+            if ((legalMask & (1 << a)) != 0) {
+                out[a] = Math.max(0f, table.get(base + a));
+                total += out[a];
+            }
+        }
+        int legalCount = Integer.bitCount(legalMask);
+        for (int a = 0; a < BettingSequences.ACTION_COUNT; a++) {
+            if ((legalMask & (1 << a)) != 0) {
+                out[a] = total > 0 ? out[a] / total : 1.0 / legalCount;
+            }
+        }
+    }
+
+    /**
+     * Gets the legal abstract action slots for the player to act.
+     */
+    static int legalMask(TableState state, int sequence, int raiseIncrement) {
+        int seat = state.getToAct();
+        int toCall = state.getToCall(seat);
+        int chips = state.getStack(seat);
+
+        int mask = 1 << BettingSequences.CALL;
+        if (toCall > 0) {
+            mask |= 1 << BettingSequences.FOLD;
+        }
+        boolean opponentCanAct = false;
+        for (int other = 0; other < state.getSeatCount(); other++) {
+            if (other != seat && state.getStatus(other) == TableState.ACTIVE) {
+                opponentCanAct = true;
+            }
+        }
+        if (opponentCanAct && chips > toCall) {
+            if (BettingSequences.child(sequence, BettingSequences.ALL_IN) != BettingSequences.NONE) {
+                mask |= 1 << BettingSequences.ALL_IN;
+            }
+            if (chips > toCall + raiseIncrement
+                    && BettingSequences.child(sequence, BettingSequences.RAISE) != BettingSequences.NONE) {
+                mask |= 1 << BettingSequences.RAISE;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Converts an abstract action slot into the engine action for a given amount to call.
+     */
+    static PlayerAction toPlayerAction(int action, int toCall) {
+        switch (action) {
+            case BettingSequences.FOLD:
+                return PlayerAction.FOLD;
+            case BettingSequences.RAISE:
+                return PlayerAction.RAISE;
+            case BettingSequences.ALL_IN:
+                return PlayerAction.ALL_IN;
+            default:
+                return toCall > 0 ? PlayerAction.CALL : PlayerAction.CHECK;
+        }
+    }
+
+    /**
+     * Gets the street number used by the strategy tables (0 = pre-flop, 3 = river).
+     */
+    static int streetIndex(GameState street) {
+        switch (street) {
+            case FLOP:
+                return 1;
+            case TURN:
+                return 2;
+            case RIVER:
+                return 3;
+            default:
+                return 0;
+        }
+    }
+
+    private static int maxBuckets(CardAbstraction abstraction) {
+        int max = 0;
+        for (int street = 0; street < STREETS; street++) {
+            max = Math.max(max, abstraction.bucketCount(street));
+        }
+        return max;
+    }
+
+    private static String describe(CardAbstraction abstraction, int stack, int smallBlind, int bigBlind) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(abstraction.getClass().getSimpleName());
+        for (int street = 0; street < STREETS; street++) {
+            sb.append(street == 0 ? ":" : "/").append(abstraction.bucketCount(street));
+        }
+        sb.append(" stack=").append(stack).append(" blinds=").append(smallBlind).append('/').append(bigBlind);
+        return sb.toString();
+    }
+
+    /**
+     * Runs iterations on one thread with its own table buffer and random numbers.
+     */
+    private final class Worker implements Runnable {
+        private final Random random;
+        private final long targetIterations;
+        private final TableState state = new TableState(2, smallBlind, bigBlind, bigBlind * 2);
+        private final int[] deck = new int[52];
+        private final int[] stacks = { stack, stack };
+        private final int[] payouts = new int[2];
+        private final int[][] buckets = new int[2][STREETS];
+        private final double[][] strategies = new double[MAX_DEPTH][BettingSequences.ACTION_COUNT];
+        private final double[][] values = new double[MAX_DEPTH][BettingSequences.ACTION_COUNT];
+        private double weight;
+
+        Worker(long seed, long targetIterations) {
+            this.random = new Random(seed);
+            this.targetIterations = targetIterations;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                checkpointLock.readLock().lock();
+                try {
+                    long iteration = iterations.incrementAndGet();
+                    if (iteration > targetIterations) {
+                        iterations.decrementAndGet();
+                        return;
+                    }
+                    weight = iteration;
+                    TableState.shuffleDeck(deck, random);
+                    state.startHand(random.nextInt(2), stacks, deck);
+                    for (int[] row : buckets) {
+                        Arrays.fill(row, -1);
+                    }
+                    walk((int) (iteration & 1), BettingSequences.ROOT, 0);
+                } finally {
+                    checkpointLock.readLock().unlock();
+                }
+            }
+        }
+
+        private double walk(int traverser, int sequence, int depth) {
+            if (state.isHandOver()) {
+                state.settle(payouts);
+                return state.getStack(traverser) + payouts[traverser] - stack;
+            }
+
+            int seat = state.getToAct();
+            int street = streetIndex(state.getStreet());
+            int legal = legalMask(state, sequence, bigBlind * 2);
+            long base = index(street, sequence, bucket(seat, street));
+            double[] sigma = strategies[depth];
+            normalize(regrets, base, legal, sigma);
+
+            if (seat != traverser) {
+                // External sampling: add to the average strategy, then sample one action
+                rescale(base, legal);
+                for (int a = 0; a < BettingSequences.ACTION_COUNT; a++) {
+                    if ((legal & (1 << a)) != 0) {
+                        strategy.add(base + a, (float) (weight * sigma[a]));
+                    }
+                }
+                return step(traverser, sequence, depth, sample(sigma));
+            }
+
+            double[] actionValues = values[depth];
+            double nodeValue = 0;
+            for (int a = 0; a < BettingSequences.ACTION_COUNT; a++) {
+                if ((legal & (1 << a)) != 0) {
+                    actionValues[a] = step(traverser, sequence, depth, a);
+                    nodeValue += sigma[a] * actionValues[a];
+                }
+            }
+            for (int a = 0; a < BettingSequences.ACTION_COUNT; a++) {
+                if ((legal & (1 << a)) != 0) {
+                    float regret = regrets.get(base + a) + (float) (actionValues[a] - nodeValue);
+                    regrets.set(base + a, Math.max(0f, regret));
+                }
+            }
+            return nodeValue;
+        }
+
+        /**
+         * Halves an information set's average-strategy sums once the iteration weight has
+         * become too small a part of them to be added accurately.
+         */
+        private void rescale(long base, int legal) {
+            double total = 0;
+            for (int a = 0; a < BettingSequences.ACTION_COUNT; a++) {
+                if ((legal & (1 << a)) != 0) {
+                    total += strategy.get(base + a);
+                }
+            }
+            if (total > weight * SUM_LIMIT) {
+                for (int a = 0; a < BettingSequences.ACTION_COUNT; a++) {
+                    strategy.set(base + a, strategy.get(base + a) * 0.5f);
+                }
+            }
+        }
+
+        private double step(int traverser, int sequence, int depth, int action) {
+            GameState before = state.getStreet();
+            int toCall = state.getToCall(state.getToAct());
+            state.apply(toPlayerAction(action, toCall));
+
+            int next = BettingSequences.ROOT;
+            if (state.getStreet() == before) {
+                next = BettingSequences.child(sequence, action);
+                if (next == BettingSequences.NONE) {
+                    next = sequence;
+                }
+            }
+            double value = walk(traverser, next, depth + 1);
+            state.undo();
+            return value;
+        }
+
+        private int bucket(int seat, int street) {
+            int bucket = buckets[seat][street];
+            if (bucket < 0) {
+                long board = 0L;
+                for (int i = 0; i < state.getBoardCount(); i++) {
+                    board |= 1L << state.getBoardCard(i);
+                }
+                bucket = abstraction.bucket(street, state.getHoleCard(seat, 0), state.getHoleCard(seat, 1), board);
+                buckets[seat][street] = bucket;
+            }
+            return bucket;
+        }
+
+        private int sample(double[] sigma) {
+            double pick = random.nextDouble();
+            int last = BettingSequences.CALL;
+            for (int a = 0; a < BettingSequences.ACTION_COUNT; a++) {
+                if (sigma[a] > 0) {
+                    last = a;
+                    pick -= sigma[a];
+                    if (pick <= 0) {
+                        return a;
+                    }
+                }
+            }
+            return last;
+        }
+    }
+
+    /**
+     * Trains a strategy from the command line and exports it as a {@link StrategyTable}.
+     * The card abstraction is either a number of hand-strength buckets or a directory of
+     * bucket tables written by {@link BucketGenerator}, read through a
+     * {@link BucketFileAbstraction}.
+     * Usage: CFRTrainer &lt;directory&gt; &lt;iterations&gt; [threads] [buckets|bucketDirectory]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: CFRTrainer <directory> <iterations> [threads] [buckets|bucketDirectory]");
+            return;
+        }
+        Path directory = Paths.get(args[0]);
+        long target = Long.parseLong(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        String buckets = args.length > 3 ? args[3] : "32";
+        CardAbstraction abstraction = buckets.matches("\\d+")
+                ? new HandStrengthAbstraction(Integer.parseInt(buckets))
+                : BucketFileAbstraction.open(Paths.get(buckets));
+
+        CFRTrainer trainer = open(directory, abstraction, 1000, 5, 10);
+        System.out.println("Resuming at iteration " + trainer.getIterations());
+        long start = System.nanoTime();
+        long startIterations = trainer.getIterations();
+        trainer.train(target, threads, TimeUnit.MINUTES.toMillis(5));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Reached iteration %d (%.0f iterations/s)%n", trainer.getIterations(),
+                          (trainer.getIterations() - startIterations) / seconds);
+
+        Path exported = directory.resolve("strategy.u8");
+        StrategyTable.write(exported, trainer);
+        System.out.println("Exported strategy to " + exported);
+    }
+}
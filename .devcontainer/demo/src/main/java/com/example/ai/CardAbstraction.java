@@ -0,0 +1,28 @@
+package com.example.ai;
+
+/**
+ * Maps a player's private cards and the board onto a small number of buckets,
+ * so that strategy tables can be shared between strategically similar hands.
+ *
+ * Streets are numbered 0 (pre-flop) to 3 (river).
+ */
+public interface CardAbstraction {
+    /**
+     * Gets the number of buckets used on a street.
+     *
+     * @param street The street, from 0 (pre-flop) to 3 (river)
+     * @return The bucket count
+     */
+    int bucketCount(int street);
+    
+    /**
+     * Gets the bucket of a hand.
+     *
+     * @param street The street, from 0 (pre-flop) to 3 (river)
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @param board A mask of the board cards dealt so far
+     * @return A bucket from 0 to {@code bucketCount(street) - 1}
+     */
+    int bucket(int street, int card1, int card2, long board);
+}
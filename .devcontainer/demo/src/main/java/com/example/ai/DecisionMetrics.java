@@ -0,0 +1,105 @@
+package com.example.ai;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency counters for deadline-bound decisions, safe to update from many threads.
+ *
+ * A decision is late when its answer is returned after the deadline; the time past the
+ * deadline is its overrun. A decision times out when its work had to be abandoned at the
+ * deadline and the best answer so far was used instead, and it is rejected when the
+ * executor was full and it never ran.
+ */
+public class DecisionMetrics {
+    private final LongAdder decisions = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder late = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final LongAdder totalOverrun = new LongAdder();
+    private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxOverrun = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one decision.
+     *
+     * @param startNanos When the decision was requested
+     * @param deadlineNanos The decision's deadline
+     * @param endNanos When the answer was returned
+     * @param timedOut Whether the work was abandoned at the deadline
+     */
+    public void record(long startNanos, long deadlineNanos, long endNanos, boolean timedOut) {
+        long latency = endNanos - startNanos;
+        decisions.increment();
+        totalLatency.add(latency);
+        maxLatency.accumulate(latency);
+        if (timedOut) {
+            timeouts.increment();
+        }
+        long overrun = endNanos - deadlineNanos;
+        if (overrun > 0) {
+            late.increment();
+            totalOverrun.add(overrun);
+            maxOverrun.accumulate(overrun);
+        }
+    }
+
+    /**
+     * Records a decision the executor had no room for.
+     */
+    public void recordRejection() {
+        rejections.increment();
+    }
+
+    public long getDecisions() {
+        return decisions.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    public long getLateDecisions() {
+        return late.sum();
+    }
+
+    /**
+     * Gets the mean time from request to answer.
+     *
+     * @return The mean latency in milliseconds
+     */
+    public double getMeanLatencyMillis() {
+        long count = decisions.sum();
+        return count > 0 ? totalLatency.sum() / (count * 1e6) : 0;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatency.get() / 1e6;
+    }
+
+    public double getMaxOverrunMillis() {
+        return maxOverrun.get() / 1e6;
+    }
+
+    /**
+     * Gets the mean time past the deadline of the late decisions.
+     *
+     * @return The mean overrun in milliseconds
+     */
+    public double getMeanOverrunMillis() {
+        long count = late.sum();
+        return count > 0 ? totalOverrun.sum() / (count * 1e6) : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d decisions, mean %.2f ms, max %.2f ms, %d timed out, %d late (max %.2f ms over), %d rejected",
+                             getDecisions(), getMeanLatencyMillis(), getMaxLatencyMillis(), getTimeouts(),
+                             getLateDecisions(), getMaxOverrunMillis(), getRejections());
+    }
+}
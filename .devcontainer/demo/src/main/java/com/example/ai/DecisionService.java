@@ -0,0 +1,121 @@
+package com.example.ai;
+
+import com.example.Player.PlayerAction;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs expensive AI decisions on a bounded executor shared by every table, so each one
+ * answers by its deadline whatever AI is seated.
+ *
+ * The executor has a fixed number of threads and a bounded queue; work that does not fit
+ * is rejected rather than queued without limit, and the caller falls back to the best
+ * answer it already has. Every decision is recorded in the service's
+ * {@link DecisionMetrics}.
+ */
+public class DecisionService {
+    private static final int QUEUE_PER_THREAD = 64;
+
+    private static final DecisionService SHARED = new DecisionService(Runtime.getRuntime().availableProcessors());
+
+    private final ThreadPoolExecutor executor;
+    private final DecisionMetrics metrics = new DecisionMetrics();
+
+    /**
+     * Creates a service with its own executor.
+     *
+     * @param threads The number of worker threads
+     */
+    public DecisionService(int threads) {
+        int count = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(count, count, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(count * QUEUE_PER_THREAD), runnable -> {
+                    Thread thread = new Thread(runnable, "ai-decision");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Gets the service shared by all players, with one thread per core.
+     *
+     * @return The shared service
+     */
+    public static DecisionService shared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs a decision until it finishes or its deadline hits, then returns its best answer.
+     * If the executor is full the decision does not run and its current answer is used.
+     *
+     * @param decision The decision
+     * @param deadlineNanos The deadline, on the {@link System#nanoTime()} clock
+     * @return The best action found in time
+     */
+    public PlayerAction decide(AnytimeDecision decision, long deadlineNanos) {
+        long start = System.nanoTime();
+        Future<Boolean> work;
+        try {
+            work = executor.submit(() -> {
+                decision.improve(deadlineNanos);
+                return Boolean.TRUE;
+            });
+        } catch (RejectedExecutionException e) {
+            metrics.recordRejection();
+            PlayerAction action = decision.best();
+            metrics.record(start, deadlineNanos, System.nanoTime(), true);
+            return action;
+        }
+
+        boolean timedOut = resultBy(work, deadlineNanos) == null;
+        if (timedOut) {
+            work.cancel(true);
+        }
+        PlayerAction action = decision.best();
+        metrics.record(start, deadlineNanos, System.nanoTime(), timedOut);
+        return action;
+    }
+
+    /**
+     * Submits a task to the executor.
+     *
+     * @param task The task
+     * @return The task's future
+     * @throws RejectedExecutionException If the executor queue is full
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Waits for a task's result until a deadline.
+     *
+     * @param work The task's future
+     * @param deadlineNanos The deadline, on the {@link System#nanoTime()} clock
+     * @return The result, or null if the task did not finish in time
+     */
+    public static <T> T resultBy(Future<T> work, long deadlineNanos) {
+        try {
+            return work.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Decision failed", e.getCause());
+        }
+    }
+
+    public DecisionMetrics getMetrics() {
+        return metrics;
+    }
+}
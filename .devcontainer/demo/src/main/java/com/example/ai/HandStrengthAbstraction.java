@@ -0,0 +1,51 @@
+package com.example.ai;
+
+import com.example.eval.BoardRanking;
+import com.example.eval.PreflopEquity;
+
+/**
+ * Card abstraction based on current hand strength.
+ *
+ * Pre-flop every starting hand class gets its own bucket. After the flop a hand is
+ * bucketed by the fraction of opponent hands it currently beats, looked up in the
+ * board's shared {@link BoardRanking}.
+ */
+public class HandStrengthAbstraction implements CardAbstraction {
+    private final int postflopBuckets;
+    
+    /**
+     * Creates an abstraction with the given number of post-flop buckets.
+     *
+     * @param postflopBuckets Buckets per street from the flop on
+     */
+    public HandStrengthAbstraction(int postflopBuckets) {
+        this.postflopBuckets = postflopBuckets;
+    }
+    
+    @Override
+    public int bucketCount(int street) {
+        return street == 0 ? PreflopEquity.CLASS_COUNT : postflopBuckets;
+    }
+    
+    @Override
+    public int bucket(int street, int card1, int card2, long board) {
+        if (street == 0) {
+            return PreflopEquity.classIndex(card1, card2);
+        }
+        double strength = handStrength(card1, card2, board);
+        return Math.min(postflopBuckets - 1, (int) (strength * postflopBuckets));
+    }
+    
+    /**
+     * Computes the fraction of opponent hands that a hand beats on the current board,
+     * with ties counted as half.
+     *
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @param board A mask of the board cards
+     * @return The hand strength, from 0 to 1
+     */
+    public static double handStrength(int card1, int card2, long board) {
+        return BoardRanking.of(board).strength(card1, card2);
+    }
+}
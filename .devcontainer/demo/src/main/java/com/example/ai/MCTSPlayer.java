@@ -0,0 +1,373 @@
+package com.example.ai;
+
+import com.example.Card;
+import com.example.GameEngine.GameState;
+import com.example.Player;
+import com.example.sim.TableState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * AI player that chooses its action with information-set Monte Carlo tree search.
+ *
+ * Each decision rebuilds the current spot as a heads-up {@link TableState} seen from
+ * this player's seat, then searches it until the time budget runs out. Every iteration
+ * samples the opponent's hole cards and the rest of the board (a determinization),
+ * walks a tree of action sequences shared by all samples, finishes the hand with a
+ * random rollout and scores the showdown with the fast hand evaluator.
+ *
+ * Search runs with root parallelism on the shared {@link DecisionService}: every worker
+ * grows its own tree and the root visit counts are summed before the most visited action
+ * is played. Workers that cannot start or finish by the deadline are left out.
+ */
+public class MCTSPlayer implements Player {
+    /** Default thinking time per decision, in milliseconds. */
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 250;
+
+    private static final int MAX_RAISES_PER_STREET = 3;
+    // Workers stop this long before the deadline so their trees can be merged in time
+    private static final long MERGE_MARGIN_NANOS = 2_000_000L;
+    private static final double EXPLORATION = 1.4;
+    private static final PlayerAction[] ACTIONS = PlayerAction.values();
+
+    // Relative weights of the rollout policy, indexed by action ordinal
+    private static final double[] ROLLOUT_WEIGHTS = { 1.0, 4.0, 3.0, 1.5, 0.25 };
+
+    private String name;
+    private int chipCount;
+    private long timeBudgetMillis;
+    private int threads;
+    private Random random;
+
+    /**
+     * Creates a new search AI with the default time budget, using every available core.
+     *
+     * @param name The AI player's name
+     * @param initialChips The AI player's initial chip count
+     */
+    public MCTSPlayer(String name, int initialChips) {
+        this(name, initialChips, DEFAULT_TIME_BUDGET_MILLIS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new search AI.
+     *
+     * @param name The AI player's name
+     * @param initialChips The AI player's initial chip count
+     * @param timeBudgetMillis The thinking time per decision, in milliseconds
+     * @param threads The number of parallel search trees
+     */
+    public MCTSPlayer(String name, int initialChips, long timeBudgetMillis, int threads) {
+        this.name = name;
+        this.chipCount = initialChips;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.threads = Math.max(1, threads);
+        this.random = new Random();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getChipCount() {
+        return chipCount;
+    }
+
+    @Override
+    public void addChips(int amount) {
+        if (amount > 0) {
+            chipCount += amount;
+        }
+    }
+
+    @Override
+    public boolean removeChips(int amount) {
+        if (amount <= 0 || amount > chipCount) {
+            return false;
+        }
+        chipCount -= amount;
+        return true;
+    }
+
+    @Override
+    public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount) {
+        return getAction(hand, communityCards, currentBet, potAmount,
+                         System.nanoTime() + timeBudgetMillis * 1_000_000L);
+    }
+
+    /**
+     * Searches until the deadline or the end of the time budget, whichever comes first.
+     */
+    @Override
+    public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount,
+                                  long deadlineNanos) {
+        if (chipCount == 0) {
+            return currentBet > 0 ? PlayerAction.CALL : PlayerAction.CHECK;
+        }
+
+        long start = System.nanoTime();
+        long deadline = Math.min(deadlineNanos, start + timeBudgetMillis * 1_000_000L);
+        TableState root = buildRoot(hand, communityCards, currentBet, potAmount);
+        DecisionService service = DecisionService.shared();
+        long searchDeadline = deadline - Math.min(MERGE_MARGIN_NANOS, (deadline - start) / 10);
+
+        // Root parallelism: independent trees, merged by visit count
+        List<Future<int[]>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            try {
+                results.add(service.submit(new SearchWorker(root, random.nextLong(), searchDeadline)));
+            } catch (RejectedExecutionException e) {
+                service.getMetrics().recordRejection();
+            }
+        }
+        int[] visits = new int[ACTIONS.length];
+        boolean timedOut = false;
+        for (Future<int[]> result : results) {
+            int[] counts = DecisionService.resultBy(result, deadline);
+            if (counts == null) {
+                timedOut = true;
+                continue;
+            }
+            for (int a = 0; a < visits.length; a++) {
+                visits[a] += counts[a];
+            }
+        }
+
+        int legal = legalActions(root);
+        PlayerAction best = (legal & (1 << PlayerAction.CALL.ordinal())) != 0 ? PlayerAction.CALL : PlayerAction.CHECK;
+        for (int a = 0; a < visits.length; a++) {
+            if ((legal & (1 << a)) != 0 && visits[a] > visits[best.ordinal()]) {
+                best = ACTIONS[a];
+            }
+        }
+        service.getMetrics().record(start, deadline, System.nanoTime(), timedOut);
+        return best;
+    }
+
+    /**
+     * Rebuilds the spot as a heads-up table seen from this player's seat (seat 0).
+     * The opponent is assumed to have a stack as deep as ours and to have acted first,
+     * so only we still need to act this betting round.
+     */
+    private TableState buildRoot(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount) {
+        TableState root = new TableState(2);
+
+        int[] holeCards = { hand.get(0).getIndex(), hand.get(1).getIndex(), TableState.NO_CARD, TableState.NO_CARD };
+        long known = (1L << holeCards[0]) | (1L << holeCards[1]);
+        int[] board = new int[5];
+        for (int i = 0; i < communityCards.size(); i++) {
+            board[i] = communityCards.get(i).getIndex();
+            known |= 1L << board[i];
+        }
+        int[] undealt = new int[Card.DECK_SIZE];
+        int undealtCount = 0;
+        for (int card = 0; card < Card.DECK_SIZE; card++) {
+            if ((known & (1L << card)) == 0) {
+                undealt[undealtCount++] = card;
+            }
+        }
+
+        GameState street;
+        switch (communityCards.size()) {
+            case 0:
+                street = GameState.PRE_FLOP;
+                break;
+            case 3:
+                street = GameState.FLOP;
+                break;
+            case 4:
+                street = GameState.TURN;
+                break;
+            default:
+                street = GameState.RIVER;
+        }
+
+        int[] stacks = { chipCount, Math.max(chipCount, currentBet) };
+        int[] bets = { 0, currentBet };
+        int[] statuses = { TableState.ACTIVE, TableState.ACTIVE };
+        root.load(0, 0, potAmount, currentBet, street, stacks, bets, bets, statuses, holeCards,
+                  board, communityCards.size(), undealt, undealtCount, 1, 0);
+        return root;
+    }
+
+    /**
+     * Gets the actions the search considers in a spot, as a bit mask of action ordinals.
+     * Raises are capped per street to keep the tree finite.
+     */
+    static int legalActions(TableState state) {
+        int seat = state.getToAct();
+        int toCall = state.getToCall(seat);
+        int stack = state.getStack(seat);
+
+        int mask;
+        if (toCall > 0) {
+            mask = (1 << PlayerAction.FOLD.ordinal()) | (1 << PlayerAction.CALL.ordinal());
+        } else {
+            mask = 1 << PlayerAction.CHECK.ordinal();
+        }
+
+        boolean opponentCanAct = false;
+        for (int other = 0; other < state.getSeatCount(); other++) {
+            if (other != seat && state.getStatus(other) == TableState.ACTIVE) {
+                opponentCanAct = true;
+            }
+        }
+        if (opponentCanAct && stack > toCall) {
+            mask |= 1 << PlayerAction.ALL_IN.ordinal();
+            if (stack > toCall + state.getRaiseIncrement() && state.getRaiseCount() < MAX_RAISES_PER_STREET) {
+                mask |= 1 << PlayerAction.RAISE.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Node of a search tree. Statistics are kept from the point of view of the seat that
+     * chose the action leading into the node.
+     */
+    private static final class Node {
+        final int actor;
+        final int action;
+        final Node[] children = new Node[ACTIONS.length];
+        int expanded;
+        int visits;
+        double totalValue;
+
+        Node(int actor, int action) {
+            this.actor = actor;
+            this.action = action;
+        }
+
+        Node select(int legal) {
+            Node best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            double logVisits = Math.log(Math.max(1, visits));
+            for (int a = 0; a < children.length; a++) {
+                Node child = children[a];
+                if (child == null || (legal & (1 << a)) == 0) {
+                    continue;
+                }
+                double score = child.totalValue / child.visits
+                        + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Grows one search tree until the deadline and reports the root visit counts.
+     */
+    private static final class SearchWorker implements Callable<int[]> {
+        private static final int MAX_DEPTH = 64;
+
+        private final TableState root;
+        private final long seed;
+        private final long deadline;
+
+        SearchWorker(TableState root, long seed, long deadline) {
+            this.root = root;
+            this.seed = seed;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int[] call() {
+            Random rng = new Random(seed);
+            TableState state = root.fork();
+            Node rootNode = new Node(-1, -1);
+            Node[] path = new Node[MAX_DEPTH];
+            int[] payouts = new int[state.getSeatCount()];
+            double scale = Math.max(1, root.getStack(0) + root.getPot());
+
+            do {
+                state.restore(root);
+                state.redealUnknown(rng);
+
+                // Selection and expansion
+                Node node = rootNode;
+                int depth = 0;
+                while (!state.isHandOver() && depth < MAX_DEPTH) {
+                    int legal = legalActions(state);
+                    int untried = legal & ~node.expanded;
+                    Node next;
+                    if (untried != 0) {
+                        int action = randomBit(untried, rng);
+                        next = new Node(state.getToAct(), action);
+                        node.children[action] = next;
+                        node.expanded |= 1 << action;
+                        state.apply(ACTIONS[action]);
+                        path[depth++] = next;
+                        break;
+                    }
+                    next = node.select(legal);
+                    state.apply(ACTIONS[next.action]);
+                    path[depth++] = next;
+                    node = next;
+                }
+
+                rollout(state, rng);
+                state.settle(payouts);
+
+                // Backpropagation
+                rootNode.visits++;
+                for (int i = 0; i < depth; i++) {
+                    Node visited = path[i];
+                    int seat = visited.actor;
+                    int net = state.getStack(seat) + payouts[seat] - root.getStack(seat);
+                    visited.visits++;
+                    visited.totalValue += net / scale;
+                }
+            } while (System.nanoTime() < deadline);
+
+            int[] counts = new int[ACTIONS.length];
+            for (int a = 0; a < counts.length; a++) {
+                Node child = rootNode.children[a];
+                counts[a] = child == null ? 0 : child.visits;
+            }
+            return counts;
+        }
+
+        private static void rollout(TableState state, Random rng) {
+            while (!state.isHandOver()) {
+                int legal = legalActions(state);
+                double total = 0;
+                for (int a = 0; a < ROLLOUT_WEIGHTS.length; a++) {
+                    if ((legal & (1 << a)) != 0) {
+                        total += ROLLOUT_WEIGHTS[a];
+                    }
+                }
+                double pick = rng.nextDouble() * total;
+                int chosen = Integer.numberOfTrailingZeros(legal);
+                for (int a = 0; a < ROLLOUT_WEIGHTS.length; a++) {
+                    if ((legal & (1 << a)) != 0) {
+                        pick -= ROLLOUT_WEIGHTS[a];
+                        if (pick <= 0) {
+                            chosen = a;
+                            break;
+                        }
+                    }
+                }
+                state.apply(ACTIONS[chosen]);
+            }
+        }
+
+        private static int randomBit(int mask, Random rng) {
+            int pick = rng.nextInt(Integer.bitCount(mask));
+            while (pick-- > 0) {
+                mask &= mask - 1;
+            }
+            return Integer.numberOfTrailingZeros(mask);
+        }
+    }
+}
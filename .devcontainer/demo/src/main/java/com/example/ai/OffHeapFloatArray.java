@@ -0,0 +1,118 @@
+package com.example.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A long-indexed array of floats stored outside the Java heap.
+ *
+ * The array is split into segments of at most {@link #SEGMENT_FLOATS} floats, each
+ * backed by a direct buffer or by a memory-mapped region of a file. File-backed arrays
+ * persist their contents: reopening the same file picks up where the last run left off,
+ * and {@link #force()} flushes dirty pages to disk.
+ *
+ * Reads and writes are not synchronized. Trainers that share an array between threads
+ * accept occasional lost updates in exchange for lock-free access.
+ */
+public final class OffHeapFloatArray {
+    /** Floats per segment (256 MB of data). */
+    public static final int SEGMENT_FLOATS = 1 << 26;
+
+    private static final int SEGMENT_SHIFT = 26;
+    private static final int SEGMENT_MASK = SEGMENT_FLOATS - 1;
+
+    private final long length;
+    private final FloatBuffer[] segments;
+    private final MappedByteBuffer[] mapped;
+
+    private OffHeapFloatArray(long length, FloatBuffer[] segments, MappedByteBuffer[] mapped) {
+        this.length = length;
+        this.segments = segments;
+        this.mapped = mapped;
+    }
+
+    /**
+     * Allocates a zero-filled array in direct memory.
+     *
+     * @param length The number of floats
+     * @return The new array
+     */
+    public static OffHeapFloatArray allocate(long length) {
+        int count = segmentCount(length);
+        FloatBuffer[] segments = new FloatBuffer[count];
+        for (int i = 0; i < count; i++) {
+            int floats = segmentLength(length, i);
+            segments[i] = ByteBuffer.allocateDirect(floats * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+        return new OffHeapFloatArray(length, segments, null);
+    }
+
+    /**
+     * Maps an array onto a file, creating or extending the file as needed.
+     * Existing contents of the file are kept.
+     *
+     * @param file The backing file
+     * @param length The number of floats
+     * @return The mapped array
+     * @throws IOException If the file cannot be mapped
+     */
+    public static OffHeapFloatArray map(Path file, long length) throws IOException {
+        int count = segmentCount(length);
+        FloatBuffer[] segments = new FloatBuffer[count];
+        MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < count; i++) {
+                long offset = (long) i * SEGMENT_FLOATS * 4;
+                int floats = segmentLength(length, i);
+                mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset, floats * 4L);
+                mapped[i].order(ByteOrder.LITTLE_ENDIAN);
+                segments[i] = mapped[i].asFloatBuffer();
+            }
+        }
+        return new OffHeapFloatArray(length, segments, mapped);
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public float get(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    public void set(long index, float value) {
+        segments[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), value);
+    }
+
+    public void add(long index, float delta) {
+        FloatBuffer segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+        int offset = (int) (index & SEGMENT_MASK);
+        segment.put(offset, segment.get(offset) + delta);
+    }
+
+    /**
+     * Flushes a file-backed array to disk. Does nothing for direct memory.
+     */
+    public void force() {
+        if (mapped != null) {
+            for (MappedByteBuffer buffer : mapped) {
+                buffer.force();
+            }
+        }
+    }
+
+    private static int segmentCount(long length) {
+        return (int) ((length + SEGMENT_FLOATS - 1) >>> SEGMENT_SHIFT);
+    }
+
+    private static int segmentLength(long length, int segment) {
+        return (int) Math.min(SEGMENT_FLOATS, length - (long) segment * SEGMENT_FLOATS);
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.ai;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Long-running per-player statistics: VPIP, PFR, 3-bet, aggression factor, fold to
+ * continuation bet and went to showdown.
+ *
+ * Players are registered once by name and get a dense id; after that every counter is a
+ * slot in one flat array, {@code id * FIELDS + field}, so counting an action never boxes
+ * or hashes. Counters are written by a single thread, normally the table thread through a
+ * {@link StatsCollector}, without locks. Each player has a sequence number that is odd
+ * while the writer updates that player's counters; {@link #snapshot(int)} retries until it
+ * reads the same even sequence before and after copying, so a snapshot never mixes two
+ * updates. To follow several tables, give each its own instance.
+ */
+public class OpponentStats {
+    /** Hands dealt in. */
+    public static final int HANDS = 0;
+    /** Hands where the player put money in pre-flop voluntarily. */
+    public static final int VPIP = 1;
+    /** Hands where the player raised pre-flop. */
+    public static final int PFR = 2;
+    /** Times the player could re-raise a single pre-flop raise. */
+    public static final int THREE_BET_CHANCES = 3;
+    /** Times the player re-raised a single pre-flop raise. */
+    public static final int THREE_BETS = 4;
+    /** Post-flop bets and raises. */
+    public static final int AGGRESSIVE = 5;
+    /** Post-flop calls. */
+    public static final int CALLS = 6;
+    /** Times the player faced a continuation bet. */
+    public static final int CBETS_FACED = 7;
+    /** Times the player folded to a continuation bet. */
+    public static final int CBET_FOLDS = 8;
+    /** Hands where the player saw the flop. */
+    public static final int SAW_FLOP = 9;
+    /** Hands where the player saw the flop and went to showdown. */
+    public static final int SHOWDOWNS = 10;
+    /** The number of counters per player. */
+    public static final int FIELDS = 11;
+
+    private static final String[] FIELD_NAMES = {
+        "hands", "vpip", "pfr", "three_bet_chances", "three_bets", "aggressive", "calls",
+        "cbets_faced", "cbet_folds", "saw_flop", "showdowns"
+    };
+
+    private final int capacity;
+    private final AtomicLongArray counters;
+    private final AtomicLongArray sequences;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Creates an empty statistics table.
+     *
+     * @param capacity The most players that can be registered
+     */
+    public OpponentStats(int capacity) {
+        this.capacity = capacity;
+        this.counters = new AtomicLongArray(capacity * FIELDS);
+        this.sequences = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Gets the id of a player, registering the player on first use.
+     *
+     * @param name The player's name
+     * @return The player id
+     */
+    public synchronized int register(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            if (names.size() == capacity) {
+                throw new IllegalStateException("Statistics table is full");
+            }
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of a registered player.
+     *
+     * @param name The player's name
+     * @return The player id, or -1 if the player is unknown
+     */
+    public synchronized int getId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public synchronized String getName(int id) {
+        return names.get(id);
+    }
+
+    public synchronized int getPlayerCount() {
+        return names.size();
+    }
+
+    /**
+     * Starts updating a player's counters. Only the writer thread may call this.
+     *
+     * @param id The player id
+     */
+    void begin(int id) {
+        // A volatile write, so no counter store can move above it
+        sequences.set(id, sequences.get(id) + 1);
+    }
+
+    /**
+     * Adds one to a counter between {@link #begin} and {@link #end}.
+     *
+     * @param id The player id
+     * @param field The counter
+     */
+    void increment(int id, int field) {
+        int slot = id * FIELDS + field;
+        counters.lazySet(slot, counters.get(slot) + 1);
+    }
+
+    /**
+     * Finishes updating a player's counters, publishing them to readers.
+     *
+     * @param id The player id
+     */
+    void end(int id) {
+        sequences.lazySet(id, sequences.get(id) + 1);
+    }
+
+    /**
+     * Adds one to a single counter of a player.
+     *
+     * @param id The player id
+     * @param field The counter
+     */
+    void count(int id, int field) {
+        begin(id);
+        increment(id, field);
+        end(id);
+    }
+
+    /**
+     * Adds the counters of other statistics to these, matching players by name and
+     * registering those not seen before. Only the writer thread may call this, and the
+     * other statistics must no longer be written.
+     *
+     * @param other The statistics to add
+     */
+    public void add(OpponentStats other) {
+        for (int otherId = 0; otherId < other.getPlayerCount(); otherId++) {
+            int id = register(other.getName(otherId));
+            Snapshot snapshot = other.snapshot(otherId);
+            begin(id);
+            for (int field = 0; field < FIELDS; field++) {
+                int slot = id * FIELDS + field;
+                counters.lazySet(slot, counters.get(slot) + snapshot.get(field));
+            }
+            end(id);
+        }
+    }
+
+    /**
+     * Reads a consistent copy of a player's counters. Safe from any thread.
+     *
+     * @param id The player id
+     * @return The snapshot
+     */
+    public Snapshot snapshot(int id) {
+        long[] values = new long[FIELDS];
+        while (true) {
+            long before = sequences.get(id);
+            if ((before & 1) == 0) {
+                for (int field = 0; field < FIELDS; field++) {
+                    values[field] = counters.get(id * FIELDS + field);
+                }
+                if (sequences.get(id) == before) {
+                    return new Snapshot(values);
+                }
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Writes one CSV row per player with the raw counters and the derived rates.
+     *
+     * @param out The destination, which is left open
+     * @throws IOException If writing fails
+     */
+    public void writeCsv(Writer out) throws IOException {
+        StringBuilder line = new StringBuilder("player");
+        for (String field : FIELD_NAMES) {
+            line.append(',').append(field);
+        }
+        line.append(",vpip_rate,pfr_rate,three_bet_rate,aggression_factor,fold_to_cbet,wtsd\n");
+        out.write(line.toString());
+
+        int players = getPlayerCount();
+        for (int id = 0; id < players; id++) {
+            Snapshot snapshot = snapshot(id);
+            line.setLength(0);
+            line.append(getName(id).replace(",", " "));
+            for (int field = 0; field < FIELDS; field++) {
+                line.append(',').append(snapshot.get(field));
+            }
+            line.append(String.format(Locale.ROOT, ",%.4f,%.4f,%.4f,%.4f,%.4f,%.4f%n",
+                                      snapshot.getVpip(), snapshot.getPfr(), snapshot.getThreeBet(),
+                                      snapshot.getAggressionFactor(), snapshot.getFoldToCbet(),
+                                      snapshot.getWentToShowdown()));
+            out.write(line.toString());
+        }
+    }
+
+    /**
+     * An immutable copy of one player's counters, with the usual rates derived from them.
+     * Rates with no opportunities yet are 0.
+     */
+    public static final class Snapshot {
+        private final long[] values;
+
+        private Snapshot(long[] values) {
+            this.values = values;
+        }
+
+        /**
+         * Gets a raw counter.
+         *
+         * @param field One of the field constants
+         * @return The count
+         */
+        public long get(int field) {
+            return values[field];
+        }
+
+        public long getHands() {
+            return values[HANDS];
+        }
+
+        public double getVpip() {
+            return rate(VPIP, HANDS);
+        }
+
+        public double getPfr() {
+            return rate(PFR, HANDS);
+        }
+
+        public double getThreeBet() {
+            return rate(THREE_BETS, THREE_BET_CHANCES);
+        }
+
+        /**
+         * Gets the post-flop aggression factor, bets and raises per call.
+         *
+         * @return The aggression factor, or the bet and raise count if the player never called
+         */
+        public double getAggressionFactor() {
+            return values[CALLS] > 0 ? (double) values[AGGRESSIVE] / values[CALLS] : values[AGGRESSIVE];
+        }
+
+        public double getFoldToCbet() {
+            return rate(CBET_FOLDS, CBETS_FACED);
+        }
+
+        public double getWentToShowdown() {
+            return rate(SHOWDOWNS, SAW_FLOP);
+        }
+
+        private double rate(int count, int chances) {
+            return values[chances] > 0 ? (double) values[count] / values[chances] : 0;
+        }
+    }
+}
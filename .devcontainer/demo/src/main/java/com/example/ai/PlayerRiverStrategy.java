@@ -0,0 +1,158 @@
+package com.example.ai;
+
+import com.example.Card;
+import com.example.Player;
+import com.example.Player.PlayerAction;
+import com.example.eval.Combos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * The river strategy of an arbitrary {@link Player}, found by asking it what it would do
+ * with every hand at every decision node of a {@link RiverSolver} tree.
+ *
+ * Each hand is queried several times so that randomized players are measured by their
+ * action frequencies. Engine actions map onto the tree's actions: a raise becomes the
+ * smallest bet or raise and an all-in the largest. Before each query the player's chip
+ * count is set to what it would have behind at that node.
+ *
+ * Combos are profiled in parallel, each worker with its own player from the factory,
+ * since players are not thread-safe.
+ */
+public class PlayerRiverStrategy implements RiverStrategy {
+    private final float[][] tables;
+
+    /**
+     * Profiles a player over a river tree.
+     *
+     * @param game The river subgame
+     * @param players Creates the player to profile, once per worker
+     * @param samples The number of queries per hand and node
+     */
+    public PlayerRiverStrategy(RiverSolver game, Supplier<Player> players, int samples) {
+        List<Integer> decisions = new ArrayList<>();
+        collect(game, game.getRoot(), decisions);
+        int nodeCount = 0;
+        for (int node : decisions) {
+            nodeCount = Math.max(nodeCount, node + 1);
+        }
+        this.tables = new float[nodeCount][];
+        for (int node : decisions) {
+            tables[node] = new float[game.getActionCount(node) * Combos.COUNT];
+        }
+
+        List<Card> board = new ArrayList<>();
+        for (int card = 0; card < Card.DECK_SIZE; card++) {
+            if ((game.getBoard() & (1L << card)) != 0) {
+                board.add(Card.fromIndex(card));
+            }
+        }
+        List<Card> community = Collections.unmodifiableList(board);
+
+        int chunks = ForkJoinPool.commonPool().getParallelism() * 4;
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int from = Combos.COUNT * chunk / chunks;
+            final int to = Combos.COUNT * (chunk + 1) / chunks;
+            tasks.add(ForkJoinPool.commonPool().submit(
+                    () -> profile(game, players.get(), samples, decisions, community, from, to)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    private void profile(RiverSolver game, Player player, int samples, List<Integer> decisions,
+                         List<Card> community, int from, int to) {
+        for (int combo = from; combo < to; combo++) {
+            if ((Combos.mask(combo) & game.getBoard()) != 0) {
+                continue;
+            }
+            List<Card> hand = Collections.unmodifiableList(
+                    Arrays.asList(Card.fromIndex(Combos.low(combo)), Card.fromIndex(Combos.high(combo))));
+            for (int node : decisions) {
+                int seat = game.getPlayer(node);
+                int mine = game.getCommitted(node, seat);
+                int toCall = game.getCommitted(node, 1 - seat) - mine;
+                int pot = game.getPot() + game.getCommitted(node, 0) + game.getCommitted(node, 1);
+                setChips(player, game.getStack() - mine);
+
+                float[] table = tables[node];
+                for (int sample = 0; sample < samples; sample++) {
+                    PlayerAction action = player.getAction(hand, community, toCall, pot);
+                    table[toTreeAction(game, node, action) * Combos.COUNT + combo] += 1f / samples;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void getStrategy(int node, int combo, double[] probabilities) {
+        float[] table = tables[node];
+        int count = table.length / Combos.COUNT;
+        for (int a = 0; a < count; a++) {
+            probabilities[a] = table[a * Combos.COUNT + combo];
+        }
+    }
+
+    /**
+     * Maps an engine action onto an action of a tree node.
+     */
+    static int toTreeAction(RiverSolver game, int node, PlayerAction action) {
+        int passive = -1;
+        int fold = -1;
+        int smallest = -1;
+        int largest = -1;
+        for (int a = 0; a < game.getActionCount(node); a++) {
+            int kind = game.getActionKind(node, a);
+            if (kind == RiverSolver.CHECK || kind == RiverSolver.CALL) {
+                passive = a;
+            } else if (kind == RiverSolver.FOLD) {
+                fold = a;
+            } else {
+                if (smallest < 0) {
+                    smallest = a;
+                }
+                largest = a;
+            }
+        }
+        if (action == null) {
+            return fold >= 0 ? fold : passive;
+        }
+        switch (action) {
+            case FOLD:
+                return fold >= 0 ? fold : passive;
+            case RAISE:
+                return smallest >= 0 ? smallest : passive;
+            case ALL_IN:
+                return largest >= 0 ? largest : passive;
+            default:
+                return passive;
+        }
+    }
+
+    private static void setChips(Player player, int chips) {
+        int difference = chips - player.getChipCount();
+        if (difference > 0) {
+            player.addChips(difference);
+        } else if (difference < 0) {
+            player.removeChips(-difference);
+        }
+    }
+
+    private static void collect(RiverSolver game, int node, List<Integer> decisions) {
+        if (game.isTerminal(node)) {
+            return;
+        }
+        decisions.add(node);
+        for (int a = 0; a < game.getActionCount(node); a++) {
+            collect(game, game.getChild(node, a), decisions);
+        }
+    }
+}
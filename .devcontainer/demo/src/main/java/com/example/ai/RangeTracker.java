@@ -0,0 +1,231 @@
+package com.example.ai;
+
+import com.example.Player.PlayerAction;
+import com.example.eval.BoardRanking;
+import com.example.eval.Combos;
+import com.example.eval.PreflopEquity;
+import com.example.sim.TableListener;
+import com.example.sim.TableState;
+
+import java.util.Arrays;
+
+/**
+ * Tracks the range of hole cards every seat can hold, from the actions it takes.
+ *
+ * Each seat has a vector of 1326 weights indexed by {@link Combos}, reset to uniform at the
+ * start of a hand. Board cards zero the combos that use them as they are turned over. Each
+ * action multiplies the actor's weights by the likelihood of that action for every combo,
+ * modelled as a quadratic in the combo's strength on the current board: aggression comes
+ * from strong hands, checks from weak ones, calls from the middle and up, and the bigger
+ * the bet faced the less the weakest hands call. The strength vector is built once per
+ * board, so an update is one branch-free multiply over the vector.
+ *
+ * The tracker only uses public information, so one instance can serve every seat at a
+ * table; register it with {@link com.example.sim.TableSimulator#addListener}. Equity
+ * queries run against the board's shared {@link BoardRanking}, which compares a hand with
+ * a whole weighted range in one pass.
+ */
+public class RangeTracker implements TableListener {
+    // Weights are rescaled once they sum to less than this, to keep them out of the subnormals
+    private static final float RESCALE_BELOW = 1e-6f;
+    // An action makes a combo less likely but never rules it out, or makes its weight negative
+    private static final float MIN_LIKELIHOOD = 0.01f;
+    private static final float[] PREFLOP_STRENGTH = new float[Combos.COUNT];
+    private static final int[][] CARD_COMBOS = new int[52][51];
+
+    static {
+        int[] filled = new int[52];
+        for (int combo = 0; combo < Combos.COUNT; combo++) {
+            int low = Combos.low(combo);
+            int high = Combos.high(combo);
+            PREFLOP_STRENGTH[combo] = (float) PreflopEquity.equity(low, high);
+            CARD_COMBOS[low][filled[low]++] = combo;
+            CARD_COMBOS[high][filled[high]++] = combo;
+        }
+    }
+
+    private final float[][] weights;
+    private final float[] strength = new float[Combos.COUNT];
+    private long board;
+
+    /**
+     * Creates a tracker for a table.
+     *
+     * @param seats The number of seats
+     */
+    public RangeTracker(int seats) {
+        this.weights = new float[seats][Combos.COUNT];
+        reset();
+    }
+
+    /**
+     * Starts a new hand: every seat may hold any combo again and the board is empty.
+     */
+    public void reset() {
+        for (float[] range : weights) {
+            Arrays.fill(range, 1f);
+        }
+        board = 0L;
+        System.arraycopy(PREFLOP_STRENGTH, 0, strength, 0, Combos.COUNT);
+    }
+
+    /**
+     * Removes cards that no seat can hold, such as new board cards.
+     *
+     * @param cards A mask of the dead cards
+     */
+    public void removeCards(long cards) {
+        long remaining = cards;
+        while (remaining != 0) {
+            int[] combos = CARD_COMBOS[Long.numberOfTrailingZeros(remaining)];
+            remaining &= remaining - 1;
+            for (float[] range : weights) {
+                for (int combo : combos) {
+                    range[combo] = 0f;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves to a new board, removing its cards from every range.
+     *
+     * @param board A mask of all the board cards so far
+     */
+    public void setBoard(long board) {
+        removeCards(board & ~this.board);
+        this.board = board;
+        if (Long.bitCount(board) < 3) {
+            return;
+        }
+        // Strength against a random hand: share of the live combos beaten, ties counting half
+        float[] uniform = new float[Combos.COUNT];
+        Arrays.fill(uniform, 1f);
+        float[] live = new float[Combos.COUNT];
+        BoardRanking ranking = BoardRanking.of(board);
+        ranking.showdown(uniform, 1f, 0.5f, 0f, strength);
+        ranking.liveWeights(uniform, 1f, live);
+        for (int combo = 0; combo < Combos.COUNT; combo++) {
+            strength[combo] = live[combo] > 0 ? strength[combo] / live[combo] : 0f;
+        }
+    }
+
+    /**
+     * Updates a seat's range with an action it took.
+     *
+     * @param seat The seat that acted
+     * @param action The action taken
+     * @param toCall The amount the seat had to call
+     * @param pot The pot before the action
+     */
+    public void observe(int seat, PlayerAction action, int toCall, int pot) {
+        float pressure = toCall > 0 ? (float) toCall / (pot + toCall) : 0f;
+        float a;
+        float b;
+        float c;
+        switch (action) {
+            case RAISE:
+                a = 0.1f;
+                b = 0f;
+                c = 0.9f;
+                break;
+            case ALL_IN:
+                a = 0.05f;
+                b = 0f;
+                c = 0.95f;
+                break;
+            case CALL:
+                // Fewer weak hands call as the bet grows
+                a = 0.2f * (1f - 2f * pressure) + 0.02f;
+                b = 1.6f;
+                c = -0.8f;
+                break;
+            case CHECK:
+                a = 1f;
+                b = -0.6f;
+                c = 0f;
+                break;
+            default:
+                // A folded range no longer matters
+                return;
+        }
+
+        float[] range = weights[seat];
+        float total = 0f;
+        for (int combo = 0; combo < Combos.COUNT; combo++) {
+            float s = strength[combo];
+            range[combo] *= Math.max(MIN_LIKELIHOOD, a + s * (b + s * c));
+            total += range[combo];
+        }
+        if (total > 0f && total < RESCALE_BELOW) {
+            float scale = 1f / total;
+            for (int combo = 0; combo < Combos.COUNT; combo++) {
+                range[combo] *= scale;
+            }
+        }
+    }
+
+    /**
+     * Gets a copy of a seat's range weights, which are relative and not normalized.
+     *
+     * @param seat The seat
+     * @return The weights, indexed by combo
+     */
+    public float[] getWeights(int seat) {
+        return weights[seat].clone();
+    }
+
+    /**
+     * Gets the share of a seat's range that a hand beats on the current board, ties
+     * counting half. Combos that share a card with the hand are left out.
+     *
+     * @param seat The opponent's seat
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @return The strength against the range, from 0 to 1
+     */
+    public double strength(int seat, int card1, int card2) {
+        float[] values = new float[Combos.COUNT];
+        strengths(seat, values);
+        return values[Combos.index(card1, card2)];
+    }
+
+    /**
+     * Fills in the strength against a seat's range of every hand on the current board.
+     *
+     * @param seat The opponent's seat
+     * @param out Receives the strength of every combo, 0 for combos using a board card
+     */
+    public void strengths(int seat, float[] out) {
+        if (Long.bitCount(board) < 3) {
+            throw new IllegalStateException("Range equity needs a flop");
+        }
+        float[] live = new float[Combos.COUNT];
+        BoardRanking ranking = BoardRanking.of(board);
+        Arrays.fill(out, 0f);
+        ranking.showdown(weights[seat], 1f, 0.5f, 0f, out);
+        ranking.liveWeights(weights[seat], 1f, live);
+        for (int combo = 0; combo < Combos.COUNT; combo++) {
+            out[combo] = live[combo] > 0 ? out[combo] / live[combo] : 0f;
+        }
+    }
+
+    public long getBoard() {
+        return board;
+    }
+
+    @Override
+    public void handStarted(TableState state) {
+        reset();
+    }
+
+    @Override
+    public void boardDealt(TableState state, long board) {
+        setBoard(board);
+    }
+
+    @Override
+    public void actionTaken(TableState state, int seat, PlayerAction action, int toCall, int pot) {
+        observe(seat, action, toCall, pot);
+    }
+}
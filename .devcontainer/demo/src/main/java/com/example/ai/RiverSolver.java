@@ -0,0 +1,503 @@
+package com.example.ai;
+
+import com.example.eval.Combos;
+import com.example.eval.BoardRanking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Solves a heads-up river spot for both players' whole ranges at once.
+ *
+ * Each range is a vector of 1326 weights indexed by {@link Combos}, and the solver
+ * keeps one regret and one average-strategy vector per decision node, so a single
+ * tree walk updates every hand in the range. The walk is vector CFR+ (regrets floored
+ * at zero, linearly weighted averaging, alternating updates), and independent subtrees
+ * are walked in parallel on the fork/join pool.
+ *
+ * Showdown values never compare hands pairwise: the board's shared {@link BoardRanking}
+ * sums the opponent's reach over weaker (or stronger) hands in one linear pass over its
+ * sorted combos, corrected per card for combos that clash with ours.
+ *
+ * Payoffs are chips gained relative to the start of the river, so the pot already in the
+ * middle is shared between the two players and the game is constant-sum.
+ * Player 0 is out of position and acts first.
+ */
+public class RiverSolver implements RiverStrategy {
+    /** Action kind: check. */
+    public static final int CHECK = 0;
+    /** Action kind: bet into an unopened river. */
+    public static final int BET = 1;
+    /** Action kind: call. */
+    public static final int CALL = 2;
+    /** Action kind: fold. */
+    public static final int FOLD = 3;
+    /** Action kind: raise. */
+    public static final int RAISE = 4;
+
+    private static final double[] BET_FRACTIONS = { 0.5, 1.0 };
+    private static final double[] RAISE_FRACTIONS = { 1.0 };
+    private static final int MAX_RAISES = 2;
+    private static final int CHECK_INTERVAL = 25;
+    private static final int PARALLEL_THRESHOLD = 4;
+
+    private static final int DECISION = 0;
+    private static final int FOLDED = 1;
+    private static final int SHOWDOWN = 2;
+
+    private final long board;
+    private final int pot;
+    private final int stack;
+    private final float[][] ranges;
+    private final BoardRanking ranking;
+    private final List<Node> nodes;
+    private int iterations;
+
+    /**
+     * Builds the betting tree of a river spot.
+     *
+     * @param board A mask of the five board cards
+     * @param pot The pot at the start of the river
+     * @param stack The effective stack behind at the start of the river
+     * @param oopRange The first player's range weights, indexed by combo
+     * @param ipRange The second player's range weights, indexed by combo
+     */
+    public RiverSolver(long board, int pot, int stack, float[] oopRange, float[] ipRange) {
+        if (Long.bitCount(board) != 5) {
+            throw new IllegalArgumentException("River board must have five cards");
+        }
+        this.board = board;
+        this.pot = pot;
+        this.stack = stack;
+        this.ranges = new float[][] { oopRange.clone(), ipRange.clone() };
+        this.ranking = BoardRanking.of(board);
+
+        // Drop combos that use a board card
+        for (int combo = 0; combo < Combos.COUNT; combo++) {
+            if ((Combos.mask(combo) & board) != 0) {
+                ranges[0][combo] = 0f;
+                ranges[1][combo] = 0f;
+            }
+        }
+
+        this.nodes = new ArrayList<>();
+        build(0, 0, 0, 0);
+    }
+
+    /**
+     * Adds a decision node for a player and the subtree below it.
+     *
+     * @return The node id
+     */
+    private int build(int player, int committed0, int committed1, int raises) {
+        Node node = new Node(DECISION, committed0, committed1);
+        node.player = player;
+        int id = nodes.size();
+        nodes.add(node);
+
+        int mine = player == 0 ? committed0 : committed1;
+        int theirs = player == 0 ? committed1 : committed0;
+        int toCall = theirs - mine;
+        int remaining = stack - mine;
+        int potNow = pot + committed0 + committed1;
+        List<int[]> actions = new ArrayList<>();
+
+        if (toCall == 0) {
+            // Checking behind ends the river; checking first passes the action
+            int child = player == 1 ? terminal(SHOWDOWN, -1, committed0, committed1)
+                                    : build(1, committed0, committed1, raises);
+            actions.add(new int[] { CHECK, mine, child });
+            addRaises(actions, BET, BET_FRACTIONS, player, mine, theirs, potNow, remaining, raises);
+        } else {
+            actions.add(new int[] { FOLD, mine, terminal(FOLDED, player, committed0, committed1) });
+            actions.add(new int[] { CALL, theirs, terminal(SHOWDOWN, -1, Math.max(committed0, committed1),
+                                                           Math.max(committed0, committed1)) });
+            if (raises < MAX_RAISES) {
+                addRaises(actions, RAISE, RAISE_FRACTIONS, player, mine, theirs, potNow + toCall, remaining, raises);
+            }
+        }
+
+        int count = actions.size();
+        node.kinds = new int[count];
+        node.amounts = new int[count];
+        node.children = new int[count];
+        for (int a = 0; a < count; a++) {
+            node.kinds[a] = actions.get(a)[0];
+            node.amounts[a] = actions.get(a)[1];
+            node.children[a] = actions.get(a)[2];
+            node.size += nodes.get(node.children[a]).size;
+        }
+        node.regrets = new float[count * Combos.COUNT];
+        node.strategySum = new float[count * Combos.COUNT];
+        return id;
+    }
+
+    /**
+     * Adds the sized bets or raises, plus an all-in, skipping sizes that would put the
+     * player all-in anyway or that repeat an earlier size.
+     */
+    private void addRaises(List<int[]> actions, int kind, double[] fractions, int player,
+                           int mine, int theirs, int potAfterCall, int remaining, int raises) {
+        int allIn = mine + remaining;
+        if (allIn <= theirs) {
+            return;
+        }
+        int last = -1;
+        for (double fraction : fractions) {
+            int to = theirs + (int) Math.max(1, Math.round(fraction * potAfterCall));
+            if (to >= allIn || to == last) {
+                continue;
+            }
+            last = to;
+            actions.add(new int[] { kind, to, buildAfter(player, to, theirs, raises + 1) });
+        }
+        actions.add(new int[] { kind, allIn, buildAfter(player, allIn, theirs, raises + 1) });
+    }
+
+    private int buildAfter(int player, int mine, int theirs, int raises) {
+        return player == 0 ? build(1, mine, theirs, raises) : build(0, theirs, mine, raises);
+    }
+
+    private int terminal(int type, int folder, int committed0, int committed1) {
+        Node node = new Node(type, committed0, committed1);
+        node.player = folder;
+        nodes.add(node);
+        return nodes.size() - 1;
+    }
+
+    /**
+     * Runs CFR+ iterations until the exploitability falls to a fraction of the pot or the
+     * time budget runs out, whichever comes first.
+     *
+     * Measuring the exploitability is a best-response walk, which costs about as much as
+     * an iteration, so the budget is kept by timing both: the strategy is measured once up
+     * front, and a batch of iterations only starts while there is time for it and for the
+     * measurement that follows it. The returned value therefore always describes the
+     * final strategy.
+     *
+     * @param timeBudgetMillis The maximum time to spend
+     * @param targetFraction The target exploitability as a fraction of the pot
+     * @return The exploitability reached, in chips
+     */
+    public double solve(long timeBudgetMillis, double targetFraction) {
+        long started = System.nanoTime();
+        long deadline = started + timeBudgetMillis * 1000000L;
+        double exploitability = getExploitability();
+        long checkNanos = System.nanoTime() - started;
+        long iterationNanos = 0;
+        while (exploitability > targetFraction * pot) {
+            int done = 0;
+            while (done < CHECK_INTERVAL && System.nanoTime() + iterationNanos + checkNanos < deadline) {
+                started = System.nanoTime();
+                iterate();
+                iterationNanos = System.nanoTime() - started;
+                done++;
+            }
+            if (done == 0) {
+                break;
+            }
+            started = System.nanoTime();
+            exploitability = getExploitability();
+            checkNanos = System.nanoTime() - started;
+        }
+        return exploitability;
+    }
+
+    /**
+     * Runs one iteration: a CFR+ walk for each player in turn.
+     */
+    public void iterate() {
+        iterations++;
+        for (int traverser = 0; traverser < 2; traverser++) {
+            ForkJoinPool.commonPool().invoke(
+                    new Walk(0, traverser, ranges[traverser], ranges[1 - traverser]));
+        }
+    }
+
+    /**
+     * Measures how far the average strategies are from equilibrium: the mean of what
+     * each player would gain by switching to a best response.
+     *
+     * @return The exploitability, in chips
+     */
+    public double getExploitability() {
+        return new BestResponse(this).exploitability(this);
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public long getBoard() {
+        return board;
+    }
+
+    public int getPot() {
+        return pot;
+    }
+
+    public int getStack() {
+        return stack;
+    }
+
+    /** @return The id of the root decision node */
+    public int getRoot() {
+        return 0;
+    }
+
+    /**
+     * @param node A node id
+     * @return true if the hand is over at this node
+     */
+    public boolean isTerminal(int node) {
+        return nodes.get(node).type != DECISION;
+    }
+
+    /**
+     * @param node A decision node id
+     * @return The player to act, 0 (out of position) or 1
+     */
+    public int getPlayer(int node) {
+        return nodes.get(node).player;
+    }
+
+    /**
+     * @param node A decision node id
+     * @return The number of actions available
+     */
+    public int getActionCount(int node) {
+        return nodes.get(node).children.length;
+    }
+
+    /**
+     * @param node A decision node id
+     * @param action An action number
+     * @return The action kind, such as {@link #CHECK} or {@link #RAISE}
+     */
+    public int getActionKind(int node, int action) {
+        return nodes.get(node).kinds[action];
+    }
+
+    /**
+     * @param node A decision node id
+     * @param action An action number
+     * @return The acting player's total river contribution after the action
+     */
+    public int getActionAmount(int node, int action) {
+        return nodes.get(node).amounts[action];
+    }
+
+    /**
+     * @param node A decision node id
+     * @param action An action number
+     * @return The id of the node the action leads to
+     */
+    public int getChild(int node, int action) {
+        return nodes.get(node).children[action];
+    }
+
+    /**
+     * @param node A node id
+     * @param player A player, 0 or 1
+     * @return The chips the player has put in on the river when the node is reached
+     */
+    public int getCommitted(int node, int player) {
+        return nodes.get(node).committed[player];
+    }
+
+    /**
+     * Gets a player's range, with combos that clash with the board set to zero.
+     * The array is shared, not copied.
+     */
+    float[] range(int player) {
+        return ranges[player];
+    }
+
+    /**
+     * Gets the number of nodes in the subtree below a node, itself included.
+     */
+    int subtreeSize(int node) {
+        return nodes.get(node).size;
+    }
+
+    /**
+     * Gets the average strategy of one hand at a decision node.
+     *
+     * @param node A decision node id
+     * @param combo The acting player's combo
+     * @param probabilities Receives one probability per action
+     */
+    @Override
+    public void getStrategy(int node, int combo, double[] probabilities) {
+        Node n = nodes.get(node);
+        int count = n.children.length;
+        double total = 0;
+        for (int a = 0; a < count; a++) {
+            total += n.strategySum[a * Combos.COUNT + combo];
+        }
+        for (int a = 0; a < count; a++) {
+            probabilities[a] = total > 0 ? n.strategySum[a * Combos.COUNT + combo] / total : 1.0 / count;
+        }
+    }
+
+    /**
+     * Gets the current strategy of every hand at a node by regret matching.
+     */
+    private static float[] strategy(Node node) {
+        int count = node.children.length;
+        float[] table = node.regrets;
+        float[] result = new float[count * Combos.COUNT];
+        for (int combo = 0; combo < Combos.COUNT; combo++) {
+            float total = 0;
+            for (int a = 0; a < count; a++) {
+                total += Math.max(0f, table[a * Combos.COUNT + combo]);
+            }
+            for (int a = 0; a < count; a++) {
+                result[a * Combos.COUNT + combo] = total > 0
+                        ? Math.max(0f, table[a * Combos.COUNT + combo]) / total : 1f / count;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Walks the subtree below a node for one player, returning each of that player's
+     * hands' counterfactual value (weighted by the opponent's reach).
+     */
+    private final class Walk extends RecursiveTask<float[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int nodeId;
+        private final int traverser;
+        private final float[] ownReach;
+        private final float[] oppReach;
+
+        Walk(int nodeId, int traverser, float[] ownReach, float[] oppReach) {
+            this.nodeId = nodeId;
+            this.traverser = traverser;
+            this.ownReach = ownReach;
+            this.oppReach = oppReach;
+        }
+
+        @Override
+        protected float[] compute() {
+            Node node = nodes.get(nodeId);
+            float[] values = new float[Combos.COUNT];
+            if (node.type != DECISION) {
+                terminalValues(nodeId, traverser, oppReach, values);
+                return values;
+            }
+
+            int count = node.children.length;
+            boolean acting = node.player == traverser;
+            float[] sigma = strategy(node);
+
+            // Reach of each child: the acting player's reach scales by the strategy
+            Walk[] walks = new Walk[count];
+            for (int a = 0; a < count; a++) {
+                float[] scaled = new float[Combos.COUNT];
+                float[] reach = acting ? ownReach : oppReach;
+                for (int combo = 0; combo < Combos.COUNT; combo++) {
+                    scaled[combo] = reach[combo] * sigma[a * Combos.COUNT + combo];
+                }
+                walks[a] = acting ? new Walk(node.children[a], traverser, scaled, oppReach)
+                                  : new Walk(node.children[a], traverser, ownReach, scaled);
+            }
+            float[][] childValues = new float[count][];
+            if (node.size >= PARALLEL_THRESHOLD) {
+                for (int a = 1; a < count; a++) {
+                    walks[a].fork();
+                }
+                childValues[0] = walks[0].compute();
+                for (int a = 1; a < count; a++) {
+                    childValues[a] = walks[a].join();
+                }
+            } else {
+                for (int a = 0; a < count; a++) {
+                    childValues[a] = walks[a].compute();
+                }
+            }
+
+            if (!acting) {
+                for (int a = 0; a < count; a++) {
+                    for (int combo = 0; combo < Combos.COUNT; combo++) {
+                        values[combo] += childValues[a][combo];
+                    }
+                }
+                return values;
+            }
+
+            for (int a = 0; a < count; a++) {
+                for (int combo = 0; combo < Combos.COUNT; combo++) {
+                    values[combo] += sigma[a * Combos.COUNT + combo] * childValues[a][combo];
+                }
+            }
+            int weight = iterations;
+            for (int a = 0; a < count; a++) {
+                int base = a * Combos.COUNT;
+                for (int combo = 0; combo < Combos.COUNT; combo++) {
+                    float regret = node.regrets[base + combo] + childValues[a][combo] - values[combo];
+                    node.regrets[base + combo] = Math.max(0f, regret);
+                    node.strategySum[base + combo] += weight * ownReach[combo] * sigma[base + combo];
+                }
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Fills in a player's counterfactual values at a terminal node.
+     *
+     * @param node A terminal node id
+     * @param traverser The player whose values are computed
+     * @param oppReach The opponent's reach for every combo
+     * @param out Receives the value of every combo
+     */
+    void terminalValues(int node, int traverser, float[] oppReach, float[] out) {
+        Node n = nodes.get(node);
+        if (n.type == FOLDED) {
+            int folder = n.player;
+            float payoff = folder == traverser ? -n.committed[traverser] : pot + n.committed[folder];
+            ranking.liveWeights(oppReach, payoff, out);
+        } else {
+            ranking.showdown(oppReach, pot + n.committed[1 - traverser], pot / 2f, -n.committed[traverser], out);
+        }
+    }
+
+    /**
+     * Gets the total weight of hand pairs from the two ranges that do not share a card,
+     * which normalizes counterfactual values into chips per hand.
+     */
+    double pairWeight() {
+        float[] pairs = new float[Combos.COUNT];
+        ranking.liveWeights(ranges[1], 1f, pairs);
+        double weight = 0;
+        for (int combo = 0; combo < Combos.COUNT; combo++) {
+            weight += ranges[0][combo] * pairs[combo];
+        }
+        return weight;
+    }
+
+    /**
+     * A node of the river betting tree. Decision nodes carry one regret and one
+     * average-strategy entry per action and combo, action-major.
+     */
+    private static final class Node {
+        final int type;
+        final int[] committed;
+        int player;
+        int size = 1;
+        int[] kinds;
+        int[] amounts;
+        int[] children;
+        float[] regrets;
+        float[] strategySum;
+
+        Node(int type, int committed0, int committed1) {
+            this.type = type;
+            this.committed = new int[] { committed0, committed1 };
+        }
+    }
+}
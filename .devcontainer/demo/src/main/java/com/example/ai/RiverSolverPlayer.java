@@ -0,0 +1,204 @@
+package com.example.ai;
+
+import com.example.Card;
+import com.example.GameEngine.GameState;
+import com.example.Player;
+import com.example.eval.Combos;
+import com.example.sim.TableListener;
+import com.example.sim.TableState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * AI player that solves heads-up rivers with a {@link RiverSolver} and plays every other
+ * spot with another player.
+ *
+ * The player follows the table as a {@link TableListener}; {@link com.example.sim.TableSimulator}
+ * registers it automatically. When a river is dealt with two players left who can both
+ * still bet, the player notes the pot, the effective stack and who acts first, and records
+ * the river actions as they are taken. At its first river decision it solves the spot within
+ * its time budget, then follows the recorded actions down the tree and samples its action
+ * from the average strategy. Engine raises map onto the tree's smallest bet or raise and
+ * all-ins onto its largest, so tree amounts only approximate the chips actually bet.
+ *
+ * The ranges come from a {@link RangeTracker} that follows the same events, as they stand
+ * when the river is dealt. Without table events every decision goes to the other player.
+ */
+public class RiverSolverPlayer implements Player, TableListener {
+    /** Default solving time per river, in milliseconds. */
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 200;
+
+    // Exploitability the solver stops at, as a fraction of the pot
+    private static final double TARGET_EXPLOITABILITY = 0.01;
+    // Kept back from a decision deadline for walking the tree and answering
+    private static final long ANSWER_MARGIN_NANOS = 2_000_000L;
+
+    private final Player fallback;
+    private final long budgetMillis;
+    private final Random random;
+    private final List<PlayerAction> riverActions = new ArrayList<>();
+
+    private TableState state;
+    private RangeTracker ranges;
+    private float[][] riverRanges;
+    private boolean riverSpot;
+    private long board;
+    private int pot;
+    private int stack;
+    private int firstSeat;
+    private RiverSolver game;
+
+    /**
+     * Creates a river-solving player.
+     *
+     * @param fallback The player that makes every decision except those on a heads-up river
+     * @param budgetMillis The time allowed to solve a river
+     * @param seed Seed for sampling actions from the solved strategy
+     */
+    public RiverSolverPlayer(Player fallback, long budgetMillis, long seed) {
+        this.fallback = fallback;
+        this.budgetMillis = budgetMillis;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public String getName() {
+        return fallback.getName();
+    }
+
+    @Override
+    public int getChipCount() {
+        return fallback.getChipCount();
+    }
+
+    @Override
+    public void addChips(int amount) {
+        fallback.addChips(amount);
+    }
+
+    @Override
+    public boolean removeChips(int amount) {
+        return fallback.removeChips(amount);
+    }
+
+    @Override
+    public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount) {
+        PlayerAction action = solvedAction(hand, currentBet, budgetMillis);
+        return action != null ? action : fallback.getAction(hand, communityCards, currentBet, potAmount);
+    }
+
+    @Override
+    public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount,
+                                  long deadlineNanos) {
+        long remaining = (deadlineNanos - System.nanoTime() - ANSWER_MARGIN_NANOS) / 1000000L;
+        PlayerAction action = solvedAction(hand, currentBet, Math.min(budgetMillis, Math.max(0, remaining)));
+        return action != null ? action
+                              : fallback.getAction(hand, communityCards, currentBet, potAmount, deadlineNanos);
+    }
+
+    /**
+     * Plays the solved river strategy.
+     *
+     * @return The action, or null if this is not a heads-up river the tree can follow
+     */
+    private PlayerAction solvedAction(List<Card> hand, int toCall, long millis) {
+        if (!riverSpot || state.getStreet() != GameState.RIVER) {
+            return null;
+        }
+        if (game == null) {
+            game = new RiverSolver(board, pot, stack, riverRanges[0], riverRanges[1]);
+            game.solve(millis, TARGET_EXPLOITABILITY);
+        }
+
+        int node = game.getRoot();
+        for (PlayerAction taken : riverActions) {
+            if (game.isTerminal(node)) {
+                return null;
+            }
+            node = game.getChild(node, PlayerRiverStrategy.toTreeAction(game, node, taken));
+        }
+        int player = state.getToAct() == firstSeat ? 0 : 1;
+        if (game.isTerminal(node) || game.getPlayer(node) != player) {
+            return null;
+        }
+
+        double[] probabilities = new double[game.getActionCount(node)];
+        game.getStrategy(node, Combos.index(hand.get(0).getIndex(), hand.get(1).getIndex()), probabilities);
+        int action = probabilities.length - 1;
+        double pick = random.nextDouble();
+        for (int a = 0; a < probabilities.length; a++) {
+            pick -= probabilities[a];
+            if (pick < 0) {
+                action = a;
+                break;
+            }
+        }
+        return toPlayerAction(game.getActionKind(node, action), game.getActionAmount(node, action), toCall);
+    }
+
+    private PlayerAction toPlayerAction(int kind, int amount, int toCall) {
+        switch (kind) {
+            case RiverSolver.FOLD:
+                return toCall > 0 ? PlayerAction.FOLD : PlayerAction.CHECK;
+            case RiverSolver.CALL:
+                return toCall >= getChipCount() ? PlayerAction.ALL_IN : PlayerAction.CALL;
+            case RiverSolver.BET:
+            case RiverSolver.RAISE:
+                return amount >= stack ? PlayerAction.ALL_IN : PlayerAction.RAISE;
+            default:
+                return toCall > 0 ? PlayerAction.CALL : PlayerAction.CHECK;
+        }
+    }
+
+    @Override
+    public void handStarted(TableState state) {
+        this.state = state;
+        if (ranges == null) {
+            ranges = new RangeTracker(state.getSeatCount());
+        }
+        ranges.handStarted(state);
+        riverSpot = false;
+        riverActions.clear();
+        game = null;
+    }
+
+    @Override
+    public void boardDealt(TableState state, long board) {
+        ranges.boardDealt(state, board);
+        if (state.getBoardCount() != 5 || state.getStreet() != GameState.RIVER) {
+            return;
+        }
+        // Heads-up with both players able to bet; the solver has no side pots
+        int live = 0;
+        int other = -1;
+        for (int seat = 0; seat < state.getSeatCount(); seat++) {
+            int status = state.getStatus(seat);
+            if (status == TableState.ACTIVE || status == TableState.ALL_IN) {
+                live++;
+                if (seat != state.getToAct()) {
+                    other = seat;
+                }
+            }
+        }
+        if (live != 2 || state.getStatus(state.getToAct()) != TableState.ACTIVE
+                || state.getStatus(other) != TableState.ACTIVE) {
+            return;
+        }
+        this.riverSpot = true;
+        this.board = board;
+        this.pot = state.getPot();
+        this.firstSeat = state.getToAct();
+        this.stack = Math.min(state.getStack(firstSeat), state.getStack(other));
+        this.riverRanges = new float[][] { ranges.getWeights(firstSeat), ranges.getWeights(other) };
+    }
+
+    @Override
+    public void actionTaken(TableState state, int seat, PlayerAction action, int toCall, int pot) {
+        ranges.actionTaken(state, seat, action, toCall, pot);
+        if (riverSpot && state.getBoardCount() == 5) {
+            riverActions.add(action);
+        }
+    }
+}
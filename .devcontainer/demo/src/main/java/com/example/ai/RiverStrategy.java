@@ -0,0 +1,16 @@
+package com.example.ai;
+
+/**
+ * A strategy for the river subgame tree of a {@link RiverSolver}: action probabilities
+ * for every decision node and hand.
+ */
+public interface RiverStrategy {
+    /**
+     * Fills in the probability of each action at a decision node.
+     *
+     * @param node A decision node id of the tree
+     * @param combo The acting player's combo
+     * @param probabilities Receives one probability per action of the node
+     */
+    void getStrategy(int node, int combo, double[] probabilities);
+}
@@ -0,0 +1,151 @@
+package com.example.ai;
+
+import com.example.GameEngine.GameState;
+import com.example.Player;
+import com.example.Player.PlayerAction;
+import com.example.sim.TableListener;
+import com.example.sim.TableState;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Feeds {@link OpponentStats} from the events of one table.
+ *
+ * An action counts as aggressive when it raises the number of raises on the street, so
+ * capped raises that become calls and short all-ins are classified by what they did at
+ * the table. A continuation bet is the pre-flop raiser's bet into an unopened flop; the
+ * players who act after it before anyone raises have faced it. Register the collector
+ * with {@link com.example.sim.TableSimulator#addListener} on the table thread, which is
+ * then the only writer of the statistics.
+ */
+public class StatsCollector implements TableListener {
+    private final OpponentStats stats;
+    private final int[] ids;
+    private final boolean[] voluntary;
+    private final boolean[] raisedPreflop;
+    private final boolean[] sawFlop;
+
+    private int street;
+    private int raises;
+    private int preflopAggressor;
+    private boolean flopOpened;
+    private boolean cbetPending;
+
+    /**
+     * Creates a collector for a table.
+     *
+     * @param stats The statistics to update
+     * @param players The players, in seat order; they are registered by name
+     */
+    public StatsCollector(OpponentStats stats, List<Player> players) {
+        this.stats = stats;
+        this.ids = new int[players.size()];
+        for (int seat = 0; seat < ids.length; seat++) {
+            ids[seat] = stats.register(players.get(seat).getName());
+        }
+        this.voluntary = new boolean[ids.length];
+        this.raisedPreflop = new boolean[ids.length];
+        this.sawFlop = new boolean[ids.length];
+    }
+
+    @Override
+    public void handStarted(TableState state) {
+        Arrays.fill(voluntary, false);
+        Arrays.fill(raisedPreflop, false);
+        Arrays.fill(sawFlop, false);
+        street = state.getStreet().ordinal();
+        raises = state.getRaiseCount();
+        preflopAggressor = -1;
+        flopOpened = false;
+        cbetPending = false;
+        for (int seat = 0; seat < ids.length; seat++) {
+            if (state.getHoleCard(seat, 0) != TableState.NO_CARD) {
+                stats.count(ids[seat], OpponentStats.HANDS);
+            }
+        }
+    }
+
+    @Override
+    public void boardDealt(TableState state, long board) {
+        if (Long.bitCount(board) != 3) {
+            return;
+        }
+        for (int seat = 0; seat < ids.length; seat++) {
+            if (state.getHoleCard(seat, 0) != TableState.NO_CARD && state.getStatus(seat) != TableState.FOLDED) {
+                sawFlop[seat] = true;
+                stats.count(ids[seat], OpponentStats.SAW_FLOP);
+            }
+        }
+    }
+
+    @Override
+    public void actionTaken(TableState state, int seat, PlayerAction action, int toCall, int pot) {
+        // An action that closes the street leaves the state on the next one
+        boolean sameStreet = state.getStreet().ordinal() == street;
+        boolean aggressive = sameStreet && state.getRaiseCount() > raises;
+        boolean called = !aggressive && toCall > 0 && action != PlayerAction.FOLD;
+        int id = ids[seat];
+
+        stats.begin(id);
+        if (street == GameState.PRE_FLOP.ordinal()) {
+            if ((aggressive || called) && !voluntary[seat]) {
+                voluntary[seat] = true;
+                stats.increment(id, OpponentStats.VPIP);
+            }
+            if (aggressive && !raisedPreflop[seat]) {
+                raisedPreflop[seat] = true;
+                stats.increment(id, OpponentStats.PFR);
+            }
+            if (raises == 1) {
+                stats.increment(id, OpponentStats.THREE_BET_CHANCES);
+                if (aggressive) {
+                    stats.increment(id, OpponentStats.THREE_BETS);
+                }
+            }
+            if (aggressive) {
+                preflopAggressor = seat;
+            }
+        } else {
+            if (aggressive) {
+                stats.increment(id, OpponentStats.AGGRESSIVE);
+            } else if (called) {
+                stats.increment(id, OpponentStats.CALLS);
+            }
+            if (street == GameState.FLOP.ordinal()) {
+                if (cbetPending) {
+                    stats.increment(id, OpponentStats.CBETS_FACED);
+                    if (action == PlayerAction.FOLD) {
+                        stats.increment(id, OpponentStats.CBET_FOLDS);
+                    }
+                }
+                if (aggressive) {
+                    cbetPending = !flopOpened && seat == preflopAggressor;
+                    flopOpened = true;
+                }
+            }
+        }
+        stats.end(id);
+
+        street = state.getStreet().ordinal();
+        raises = state.getRaiseCount();
+    }
+
+    @Override
+    public void handEnded(TableState state, int[] deltas) {
+        int remaining = 0;
+        for (int seat = 0; seat < ids.length; seat++) {
+            if (state.getHoleCard(seat, 0) != TableState.NO_CARD && state.getStatus(seat) != TableState.FOLDED) {
+                remaining++;
+            }
+        }
+        if (remaining < 2) {
+            return;
+        }
+        for (int seat = 0; seat < ids.length; seat++) {
+            if (sawFlop[seat] && state.getStatus(seat) != TableState.FOLDED) {
+                stats.count(ids[seat], OpponentStats.SHOWDOWNS);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.ai;
+
+import com.example.Card;
+import com.example.Player;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * AI player that plays a precomputed {@link AbstractStrategy}, such as the average
+ * strategy of a {@link CFRTrainer}.
+ *
+ * Each decision maps the spot onto the abstracted game: the street from the number of
+ * board cards, the betting sequence from a {@link BettingHistoryTracker}, and the card
+ * bucket from the strategy's card abstraction. The action is then sampled from the
+ * strategy's probabilities.
+ */
+public class StrategyPlayer implements Player {
+    private String name;
+    private int chipCount;
+    private AbstractStrategy strategy;
+    private Random random;
+    private BettingHistoryTracker tracker;
+    private double[] probabilities;
+    
+    /**
+     * Creates a new strategy-driven AI player.
+     * 
+     * @param name The AI player's name
+     * @param initialChips The AI player's initial chip count
+     * @param strategy The strategy to play
+     * @param bigBlind The big blind of the game, used to tell posted blinds from raises
+     */
+    public StrategyPlayer(String name, int initialChips, AbstractStrategy strategy, int bigBlind) {
+        this.name = name;
+        this.chipCount = initialChips;
+        this.strategy = strategy;
+        this.random = new Random();
+        this.tracker = new BettingHistoryTracker(bigBlind);
+        this.probabilities = new double[BettingSequences.ACTION_COUNT];
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public int getChipCount() {
+        return chipCount;
+    }
+    
+    @Override
+    public void addChips(int amount) {
+        if (amount > 0) {
+            chipCount += amount;
+        }
+    }
+    
+    @Override
+    public boolean removeChips(int amount) {
+        if (amount <= 0 || amount > chipCount) {
+            return false;
+        }
+        chipCount -= amount;
+        return true;
+    }
+    
+    @Override
+    public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount) {
+        int street = BettingHistoryTracker.street(communityCards.size());
+        int sequence = tracker.observe(hand, communityCards, currentBet, chipCount);
+        
+        long board = 0L;
+        for (Card card : communityCards) {
+            board |= 1L << card.getIndex();
+        }
+        int bucket = strategy.getAbstraction().bucket(street, hand.get(0).getIndex(), hand.get(1).getIndex(), board);
+        
+        int legal = 1 << BettingSequences.CALL;
+        if (currentBet > 0) {
+            legal |= 1 << BettingSequences.FOLD;
+        }
+        if (chipCount > currentBet && BettingSequences.allows(sequence, BettingSequences.ALL_IN)) {
+            legal |= 1 << BettingSequences.ALL_IN;
+        }
+        if (chipCount > currentBet + strategy.getRaiseIncrement()
+                && BettingSequences.allows(sequence, BettingSequences.RAISE)) {
+            legal |= 1 << BettingSequences.RAISE;
+        }
+        
+        strategy.getStrategy(street, sequence, bucket, legal, probabilities);
+        int action = BettingSequences.CALL;
+        double pick = random.nextDouble();
+        for (int a = 0; a < probabilities.length; a++) {
+            if (probabilities[a] > 0) {
+                action = a;
+                pick -= probabilities[a];
+                if (pick <= 0) {
+                    break;
+                }
+            }
+        }
+        
+        tracker.record(action);
+        return CFRTrainer.toPlayerAction(action, currentBet);
+    }
+}
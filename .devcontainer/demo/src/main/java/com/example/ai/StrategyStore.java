@@ -0,0 +1,59 @@
+package com.example.ai;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A strategy served from a {@link StrategyTable} file that can be replaced while games
+ * are running.
+ *
+ * Players hold the store rather than the table. {@link #reload()} maps the new file
+ * first and then swaps a single reference, so each decision sees either the old table or
+ * the new one in full and no table ever waits for the swap. The old mapping is released
+ * by the garbage collector once no decision is still reading it.
+ */
+public class StrategyStore implements AbstractStrategy {
+    private final Path file;
+    private final CardAbstraction abstraction;
+    private final AtomicReference<StrategyTable> current;
+
+    /**
+     * Opens a store on a strategy file.
+     *
+     * @param file The strategy file
+     * @param abstraction The card abstraction the strategy was trained with
+     * @throws IOException If the file cannot be opened
+     */
+    public StrategyStore(Path file, CardAbstraction abstraction) throws IOException {
+        this.file = file;
+        this.abstraction = abstraction;
+        this.current = new AtomicReference<>(StrategyTable.open(file, abstraction));
+    }
+
+    /**
+     * Maps the strategy file again and swaps it in. Call this after a new file has been
+     * moved into place, for example by {@link StrategyTable#write}. If the new file cannot
+     * be opened the current table stays in use.
+     *
+     * @throws IOException If the new file cannot be opened
+     */
+    public void reload() throws IOException {
+        current.set(StrategyTable.open(file, abstraction));
+    }
+
+    @Override
+    public CardAbstraction getAbstraction() {
+        return abstraction;
+    }
+
+    @Override
+    public int getRaiseIncrement() {
+        return current.get().getRaiseIncrement();
+    }
+
+    @Override
+    public void getStrategy(int street, int sequence, int bucket, int legalMask, double[] probabilities) {
+        current.get().getStrategy(street, sequence, bucket, legalMask, probabilities);
+    }
+}
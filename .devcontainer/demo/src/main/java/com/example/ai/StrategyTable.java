@@ -0,0 +1,170 @@
+package com.example.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A trained strategy stored as a compact, memory-mapped file.
+ *
+ * Each information set is one 4-byte row holding the probability of every abstract
+ * action slot quantized to 8 bits (0 to 255). Rows are laid out street by street, then
+ * by bucket and betting sequence id, so a decision reads a single int straight from the
+ * page cache: nothing is parsed at startup and nothing lands on the Java heap.
+ *
+ * The file does not record the card abstraction, only its bucket counts, which are
+ * checked against the abstraction supplied when the table is opened.
+ */
+public final class StrategyTable implements AbstractStrategy {
+    private static final int MAGIC = 0x53544731; // "STG1"
+    private static final int HEADER_BYTES = 64;
+    private static final int STREETS = 4;
+    private static final int ALL_ACTIONS = (1 << BettingSequences.ACTION_COUNT) - 1;
+
+    private final CardAbstraction abstraction;
+    private final int raiseIncrement;
+    private final int sequenceCount;
+    private final int[] streetOffsets;
+    private final MappedByteBuffer rows;
+
+    private StrategyTable(CardAbstraction abstraction, int raiseIncrement, int sequenceCount,
+                          int[] streetOffsets, MappedByteBuffer rows) {
+        this.abstraction = abstraction;
+        this.raiseIncrement = raiseIncrement;
+        this.sequenceCount = sequenceCount;
+        this.streetOffsets = streetOffsets;
+        this.rows = rows;
+    }
+
+    /**
+     * Maps a strategy file.
+     *
+     * @param file The strategy file
+     * @param abstraction The card abstraction the strategy was trained with
+     * @return The table
+     * @throws IOException If the file cannot be read or does not match the abstraction
+     */
+    public static StrategyTable open(Path file, CardAbstraction abstraction) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Not a strategy file: " + file);
+            }
+            int actionCount = header.getInt();
+            int sequenceCount = header.getInt();
+            int raiseIncrement = header.getInt();
+            if (actionCount != BettingSequences.ACTION_COUNT || sequenceCount != BettingSequences.count()) {
+                throw new IOException(file + " was written for a different betting abstraction");
+            }
+
+            int[] offsets = new int[STREETS];
+            long size = 0;
+            for (int street = 0; street < STREETS; street++) {
+                int buckets = header.getInt();
+                if (buckets != abstraction.bucketCount(street)) {
+                    throw new IOException(file + " has " + buckets + " buckets on street " + street
+                            + ", the abstraction has " + abstraction.bucketCount(street));
+                }
+                offsets[street] = (int) size;
+                size += (long) buckets * sequenceCount * BettingSequences.ACTION_COUNT;
+            }
+            MappedByteBuffer rows = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, size);
+            rows.order(ByteOrder.LITTLE_ENDIAN);
+            return new StrategyTable(abstraction, raiseIncrement, sequenceCount, offsets, rows);
+        }
+    }
+
+    /**
+     * Quantizes a strategy and writes it to a file. The file is written under a temporary
+     * name and moved into place, so readers never map a partly written table.
+     *
+     * @param file The file to write
+     * @param strategy The strategy to export, such as a {@link CFRTrainer}
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Path file, AbstractStrategy strategy) throws IOException {
+        CardAbstraction abstraction = strategy.getAbstraction();
+        int sequenceCount = BettingSequences.count();
+        long size = 0;
+        for (int street = 0; street < STREETS; street++) {
+            size += (long) abstraction.bucketCount(street) * sequenceCount * BettingSequences.ACTION_COUNT;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Strategy is too large for a single mapping");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(BettingSequences.ACTION_COUNT).putInt(sequenceCount)
+              .putInt(strategy.getRaiseIncrement());
+        for (int street = 0; street < STREETS; street++) {
+            header.putInt(abstraction.bucketCount(street));
+        }
+        header.clear();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(header, 0);
+            MappedByteBuffer rows = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES, size);
+            double[] probabilities = new double[BettingSequences.ACTION_COUNT];
+            for (int street = 0; street < STREETS; street++) {
+                for (int bucket = 0; bucket < abstraction.bucketCount(street); bucket++) {
+                    for (int sequence = 0; sequence < sequenceCount; sequence++) {
+                        strategy.getStrategy(street, sequence, bucket, ALL_ACTIONS, probabilities);
+                        for (int a = 0; a < BettingSequences.ACTION_COUNT; a++) {
+                            rows.put((byte) quantize(probabilities[a]));
+                        }
+                    }
+                }
+            }
+            rows.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Quantizes a probability to 8 bits. Actions with any weight keep at least 1, so
+     * they still get played when the larger actions are illegal at decision time.
+     */
+    private static int quantize(double probability) {
+        return probability > 0 ? Math.max(1, (int) Math.round(probability * 255)) : 0;
+    }
+
+    @Override
+    public CardAbstraction getAbstraction() {
+        return abstraction;
+    }
+
+    @Override
+    public int getRaiseIncrement() {
+        return raiseIncrement;
+    }
+
+    @Override
+    public void getStrategy(int street, int sequence, int bucket, int legalMask, double[] probabilities) {
+        int row = rows.getInt(streetOffsets[street]
+                + (bucket * sequenceCount + sequence) * BettingSequences.ACTION_COUNT);
+
+        // Byte a of the little-endian row is the weight of action slot a
+        int total = 0;
+        for (int a = 0; a < BettingSequences.ACTION_COUNT; a++) {
+            int weight = (legalMask & (1 << a)) != 0 ? (row >>> (8 * a)) & 0xFF : 0;
+            probabilities[a] = weight;
+            total += weight;
+        }
+        int legalCount = Integer.bitCount(legalMask);
+        for (int a = 0; a < BettingSequences.ACTION_COUNT; a++) {
+            if ((legalMask & (1 << a)) != 0) {
+                probabilities[a] = total > 0 ? probabilities[a] / total : 1.0 / legalCount;
+            }
+        }
+    }
+}
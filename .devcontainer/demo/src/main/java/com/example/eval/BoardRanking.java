@@ -0,0 +1,296 @@
+package com.example.eval;
+
+import com.example.Card;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The showdown score of every hole-card combo on one board, sorted once so that relative
+ * strength questions become binary searches.
+ *
+ * Besides the sorted scores of all live combos (those not using a board card), the
+ * ranking keeps, for each card, the sorted scores of the live combos holding that card.
+ * Opponent hands that clash with our own cards are removed by subtracting the counts for
+ * our two cards and adding back our own combo, which sits in both.
+ *
+ * Rankings are shared: {@link #of(long)} caches them by board mask, so every seat and
+ * every decision on the same board reuses one instance. Instances are immutable.
+ */
+public final class BoardRanking {
+    private static final int CACHED_BOARDS = 1024;
+
+    private static final Map<Long, BoardRanking> CACHE = new LinkedHashMap<Long, BoardRanking>(CACHED_BOARDS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BoardRanking> eldest) {
+            return size() > CACHED_BOARDS;
+        }
+    };
+
+    private final long board;
+    private final int[] scores;
+    private final int[] sortedCombos;
+    private final int[] sortedScores;
+    private final int[][] cardScores;
+
+    private BoardRanking(long board) {
+        this.board = board;
+        this.scores = new int[Combos.COUNT];
+
+        long[] keys = new long[Combos.COUNT];
+        int live = 0;
+        int[] perCard = new int[Card.DECK_SIZE];
+        for (int combo = 0; combo < Combos.COUNT; combo++) {
+            if ((Combos.mask(combo) & board) != 0) {
+                continue;
+            }
+            scores[combo] = HandEvaluator.evaluate(board | Combos.mask(combo));
+            keys[live++] = ((long) scores[combo] << 11) | combo;
+            perCard[Combos.low(combo)]++;
+            perCard[Combos.high(combo)]++;
+        }
+        Arrays.sort(keys, 0, live);
+
+        this.sortedCombos = new int[live];
+        this.sortedScores = new int[live];
+        this.cardScores = new int[Card.DECK_SIZE][];
+        for (int card = 0; card < Card.DECK_SIZE; card++) {
+            cardScores[card] = new int[perCard[card]];
+        }
+        int[] filled = new int[Card.DECK_SIZE];
+        for (int i = 0; i < live; i++) {
+            int combo = (int) (keys[i] & 0x7FF);
+            int score = (int) (keys[i] >>> 11);
+            sortedCombos[i] = combo;
+            sortedScores[i] = score;
+            cardScores[Combos.low(combo)][filled[Combos.low(combo)]++] = score;
+            cardScores[Combos.high(combo)][filled[Combos.high(combo)]++] = score;
+        }
+    }
+
+    /**
+     * Gets the ranking of a board, computing it on first use.
+     *
+     * @param board A mask of three to five board cards
+     * @return The shared ranking
+     */
+    public static BoardRanking of(long board) {
+        BoardRanking ranking;
+        synchronized (CACHE) {
+            ranking = CACHE.get(board);
+        }
+        if (ranking == null) {
+            // Built outside the lock; a concurrent duplicate is harmless
+            ranking = new BoardRanking(board);
+            synchronized (CACHE) {
+                CACHE.put(board, ranking);
+            }
+        }
+        return ranking;
+    }
+
+    /**
+     * Gets a ranking from the cache without computing it.
+     *
+     * @param board A board mask
+     * @return The ranking, or null if it is not cached
+     */
+    public static BoardRanking cached(long board) {
+        synchronized (CACHE) {
+            return CACHE.get(board);
+        }
+    }
+
+    public long getBoard() {
+        return board;
+    }
+
+    /**
+     * Gets the number of combos that do not use a board card.
+     *
+     * @return The live combo count
+     */
+    public int getComboCount() {
+        return sortedCombos.length;
+    }
+
+    /**
+     * Gets the showdown score of a combo, as returned by {@link HandEvaluator}.
+     *
+     * @param combo The combo number
+     * @return The score, or 0 if the combo uses a board card
+     */
+    public int getScore(int combo) {
+        return scores[combo];
+    }
+
+    /**
+     * Gets a live combo by its position in ascending score order.
+     *
+     * @param position The position, from 0 (weakest) to {@code getComboCount() - 1}
+     * @return The combo number
+     */
+    public int getSortedCombo(int position) {
+        return sortedCombos[position];
+    }
+
+    /**
+     * Gets the fraction of opponent combos a hand beats, ties counting half. Combos that
+     * share a card with the hand are left out.
+     *
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @return The relative strength, from 0 to 1
+     */
+    public double strength(int card1, int card2) {
+        int score = scores[Combos.index(card1, card2)];
+        int below = below(sortedScores, score) - below(cardScores[card1], score) - below(cardScores[card2], score);
+        int notAbove = below(sortedScores, score + 1) - below(cardScores[card1], score + 1)
+                - below(cardScores[card2], score + 1) + 1;
+        // Adding our own combo back once leaves it out, as it was in all three counts
+        int tied = notAbove - below;
+        int opponents = sortedScores.length - cardScores[card1].length - cardScores[card2].length + 1;
+        return opponents > 0 ? (below + tied / 2.0) / opponents : 0;
+    }
+
+    /**
+     * Gets how many opponent combos beat a hand, so 0 means the hand is the nuts.
+     * Combos that share a card with the hand are left out.
+     *
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @return The number of better opponent combos
+     */
+    public int nutRank(int card1, int card2) {
+        int score = scores[Combos.index(card1, card2)];
+        int above = sortedScores.length - below(sortedScores, score + 1);
+        return above - (cardScores[card1].length - below(cardScores[card1], score + 1))
+                - (cardScores[card2].length - below(cardScores[card2], score + 1));
+    }
+
+    /**
+     * Fills in, for every live combo, the weight of an opponent range that does not share
+     * a card with it, times a payoff.
+     *
+     * @param range The opponent weights, indexed by combo; combos using a board card are ignored
+     * @param payoff The factor applied to the weight
+     * @param out Receives a value for every live combo; other entries are left alone
+     */
+    public void liveWeights(float[] range, float payoff, float[] out) {
+        float total = 0;
+        float[] perCard = new float[Card.DECK_SIZE];
+        for (int combo : sortedCombos) {
+            float weight = range[combo];
+            total += weight;
+            perCard[Combos.low(combo)] += weight;
+            perCard[Combos.high(combo)] += weight;
+        }
+        for (int combo : sortedCombos) {
+            float live = total - perCard[Combos.low(combo)] - perCard[Combos.high(combo)] + range[combo];
+            out[combo] = payoff * live;
+        }
+    }
+
+    /**
+     * Fills in, for every live combo, its showdown payoff against an opponent range: the
+     * weight of the opponent combos it beats times {@code win}, of those it ties times
+     * {@code tie} and of those it loses to times {@code lose}. Opponent combos that share a
+     * card with the hand are left out.
+     *
+     * Hands are never compared pairwise. One pass up the sorted combos sums the weight each
+     * hand beats, one pass down sums the weight it loses to, both corrected per card for
+     * clashing combos, and ties take the rest of the non-clashing weight.
+     *
+     * @param range The opponent weights, indexed by combo; combos using a board card are ignored
+     * @param win The payoff per unit of beaten weight
+     * @param tie The payoff per unit of tied weight
+     * @param lose The payoff per unit of weight that wins against the hand
+     * @param out Receives a value for every live combo; other entries are left alone
+     */
+    public void showdown(float[] range, float win, float tie, float lose, float[] out) {
+        float total = 0;
+        float[] perCard = new float[Card.DECK_SIZE];
+        for (int combo : sortedCombos) {
+            float weight = range[combo];
+            total += weight;
+            perCard[Combos.low(combo)] += weight;
+            perCard[Combos.high(combo)] += weight;
+        }
+
+        float below = 0;
+        float[] belowPerCard = new float[Card.DECK_SIZE];
+        for (int start = 0, end; start < sortedCombos.length; start = end) {
+            end = groupEnd(start);
+            for (int i = start; i < end; i++) {
+                int combo = sortedCombos[i];
+                float beaten = below - belowPerCard[Combos.low(combo)] - belowPerCard[Combos.high(combo)];
+                out[combo] = (win - tie) * beaten;
+            }
+            for (int i = start; i < end; i++) {
+                int combo = sortedCombos[i];
+                below += range[combo];
+                belowPerCard[Combos.low(combo)] += range[combo];
+                belowPerCard[Combos.high(combo)] += range[combo];
+            }
+        }
+
+        float above = 0;
+        float[] abovePerCard = new float[Card.DECK_SIZE];
+        for (int end = sortedCombos.length, start; end > 0; end = start) {
+            start = groupStart(end);
+            for (int i = start; i < end; i++) {
+                int combo = sortedCombos[i];
+                float losing = above - abovePerCard[Combos.low(combo)] - abovePerCard[Combos.high(combo)];
+                float live = total - perCard[Combos.low(combo)] - perCard[Combos.high(combo)] + range[combo];
+                out[combo] += (lose - tie) * losing + tie * live;
+            }
+            for (int i = start; i < end; i++) {
+                int combo = sortedCombos[i];
+                above += range[combo];
+                abovePerCard[Combos.low(combo)] += range[combo];
+                abovePerCard[Combos.high(combo)] += range[combo];
+            }
+        }
+    }
+
+    /**
+     * Gets the score array itself, indexed by combo, for hot loops in this package.
+     */
+    int[] scores() {
+        return scores;
+    }
+
+    private int groupEnd(int start) {
+        int end = start + 1;
+        while (end < sortedScores.length && sortedScores[end] == sortedScores[start]) {
+            end++;
+        }
+        return end;
+    }
+
+    private int groupStart(int end) {
+        int start = end - 1;
+        while (start > 0 && sortedScores[start - 1] == sortedScores[end - 1]) {
+            start--;
+        }
+        return start;
+    }
+
+    /**
+     * Counts the entries of a sorted array that are less than a score.
+     */
+    private static int below(int[] sorted, int score) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
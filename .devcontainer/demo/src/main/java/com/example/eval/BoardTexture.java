@@ -0,0 +1,188 @@
+package com.example.eval;
+
+import com.example.Card;
+
+import java.util.List;
+
+/**
+ * Classifies the texture of a board: how suited, connected and paired it is.
+ *
+ * {@link #analyze(long)} packs every feature into one int, so a texture costs a few table
+ * lookups and bit operations and never allocates. Rank features come from a table indexed
+ * by the 13-bit mask of ranks on the board; suit and pairing features from bit counts on
+ * the per-suit rank masks. The static accessors decode a packed texture and can be used
+ * by any player or by analytics code that stores textures as plain ints.
+ *
+ * Packed layout, from the lowest bits: card count (3 bits), most cards of one suit
+ * (3 bits), most board ranks inside any five-rank straight window (3 bits), number of
+ * paired ranks (3 bits), trips flag (1 bit), highest rank (4 bits), distinct suits (3 bits).
+ */
+public final class BoardTexture {
+    private static final int RANK_MASK = 0x1FFF;
+
+    private static final int CARDS_SHIFT = 0;
+    private static final int SUITED_SHIFT = 3;
+    private static final int WINDOW_SHIFT = 6;
+    private static final int PAIRS_SHIFT = 9;
+    private static final int TRIPS_SHIFT = 12;
+    private static final int HIGH_SHIFT = 13;
+    private static final int SUITS_SHIFT = 17;
+
+    // Most ranks in any straight window (ace also low), per 13-bit rank mask
+    private static final byte[] WINDOW = new byte[1 << 13];
+
+    static {
+        for (int mask = 0; mask < WINDOW.length; mask++) {
+            int withLowAce = (mask << 1) | ((mask >>> 12) & 1);
+            int best = 0;
+            for (int start = 0; start <= 9; start++) {
+                best = Math.max(best, Integer.bitCount((withLowAce >>> start) & 0x1F));
+            }
+            WINDOW[mask] = (byte) best;
+        }
+    }
+
+    private BoardTexture() {
+    }
+
+    /**
+     * Analyzes a board.
+     *
+     * @param board A mask of the board cards
+     * @return The packed texture
+     */
+    public static int analyze(long board) {
+        int s0 = (int) (board & RANK_MASK);
+        int s1 = (int) ((board >>> 13) & RANK_MASK);
+        int s2 = (int) ((board >>> 26) & RANK_MASK);
+        int s3 = (int) ((board >>> 39) & RANK_MASK);
+
+        int maxSuited = Math.max(Math.max(Integer.bitCount(s0), Integer.bitCount(s1)),
+                                 Math.max(Integer.bitCount(s2), Integer.bitCount(s3)));
+        int suits = (s0 != 0 ? 1 : 0) + (s1 != 0 ? 1 : 0) + (s2 != 0 ? 1 : 0) + (s3 != 0 ? 1 : 0);
+
+        // Bit-sliced rank counts: ranks held by at least two, and at least three, suits
+        int ranks = s0 | s1 | s2 | s3;
+        int twice = (s0 & s1) | (s0 & s2) | (s0 & s3) | (s1 & s2) | (s1 & s3) | (s2 & s3);
+        int thrice = (s0 & s1 & s2) | (s0 & s1 & s3) | (s0 & s2 & s3) | (s1 & s2 & s3);
+        int high = ranks == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(ranks);
+
+        return (Long.bitCount(board) << CARDS_SHIFT)
+                | (maxSuited << SUITED_SHIFT)
+                | (WINDOW[ranks] << WINDOW_SHIFT)
+                | (Integer.bitCount(twice) << PAIRS_SHIFT)
+                | ((thrice != 0 ? 1 : 0) << TRIPS_SHIFT)
+                | (high << HIGH_SHIFT)
+                | (suits << SUITS_SHIFT);
+    }
+
+    /**
+     * Analyzes a board given as cards.
+     *
+     * @param communityCards The board cards
+     * @return The packed texture
+     */
+    public static int analyze(List<Card> communityCards) {
+        long board = 0L;
+        for (int i = 0; i < communityCards.size(); i++) {
+            board |= 1L << communityCards.get(i).getIndex();
+        }
+        return analyze(board);
+    }
+
+    public static int cardCount(int texture) {
+        return (texture >>> CARDS_SHIFT) & 7;
+    }
+
+    /**
+     * @param texture A packed texture
+     * @return The most board cards of any one suit
+     */
+    public static int maxSuited(int texture) {
+        return (texture >>> SUITED_SHIFT) & 7;
+    }
+
+    /**
+     * @param texture A packed texture
+     * @return The most board ranks that fit in one five-rank straight window
+     */
+    public static int connectivity(int texture) {
+        return (texture >>> WINDOW_SHIFT) & 7;
+    }
+
+    /**
+     * @param texture A packed texture
+     * @return The number of ranks that appear more than once
+     */
+    public static int pairedRanks(int texture) {
+        return (texture >>> PAIRS_SHIFT) & 7;
+    }
+
+    /**
+     * @param texture A packed texture
+     * @return The highest rank on the board, from 0 (deuce) to 12 (ace)
+     */
+    public static int highRank(int texture) {
+        return (texture >>> HIGH_SHIFT) & 0xF;
+    }
+
+    public static boolean isPaired(int texture) {
+        return pairedRanks(texture) > 0;
+    }
+
+    public static boolean hasTrips(int texture) {
+        return ((texture >>> TRIPS_SHIFT) & 1) != 0;
+    }
+
+    public static boolean isMonotone(int texture) {
+        return ((texture >>> SUITS_SHIFT) & 7) == 1;
+    }
+
+    public static boolean isRainbow(int texture) {
+        return ((texture >>> SUITS_SHIFT) & 7) == Math.min(4, cardCount(texture));
+    }
+
+    /**
+     * @param texture A packed texture
+     * @return true if a player can already hold a flush
+     */
+    public static boolean isFlushPossible(int texture) {
+        return maxSuited(texture) >= 3;
+    }
+
+    /**
+     * @param texture A packed texture
+     * @return true if cards to come can still complete a flush that is not yet possible
+     */
+    public static boolean isFlushDrawPossible(int texture) {
+        return cardCount(texture) < 5 && maxSuited(texture) == 2;
+    }
+
+    /**
+     * @param texture A packed texture
+     * @return true if a player can already hold a straight
+     */
+    public static boolean isStraightPossible(int texture) {
+        return connectivity(texture) >= 3;
+    }
+
+    /**
+     * @param texture A packed texture
+     * @return true if cards to come can still complete a straight that is not yet possible
+     */
+    public static boolean isStraightDrawPossible(int texture) {
+        return cardCount(texture) < 5 && connectivity(texture) == 2;
+    }
+
+    /**
+     * Checks whether a board is wet: a flush or straight is already possible, or both
+     * draws are live at once.
+     *
+     * @param texture A packed texture
+     * @return true if the board favours drawing and coordinated hands
+     */
+    public static boolean isWet(int texture) {
+        return isFlushPossible(texture) || isStraightPossible(texture)
+                || (isFlushDrawPossible(texture) && isStraightDrawPossible(texture));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.eval;
+
+import com.example.Card;
+
+/**
+ * Numbers the 1326 two-card combinations, so that ranges and per-hand values can be
+ * stored in flat arrays indexed by combo.
+ *
+ * Combos are ordered by their lower card, then their higher card: combo 0 is the two
+ * lowest card indexes and combo 1325 the two highest.
+ */
+public final class Combos {
+    /** Number of two-card combinations. */
+    public static final int COUNT = 1326;
+
+    private static final int[] LOW = new int[COUNT];
+    private static final int[] HIGH = new int[COUNT];
+    private static final long[] MASKS = new long[COUNT];
+    private static final short[] INDEX = new short[Card.DECK_SIZE * Card.DECK_SIZE];
+
+    static {
+        int combo = 0;
+        for (int low = 0; low < Card.DECK_SIZE; low++) {
+            for (int high = low + 1; high < Card.DECK_SIZE; high++) {
+                LOW[combo] = low;
+                HIGH[combo] = high;
+                MASKS[combo] = (1L << low) | (1L << high);
+                INDEX[low * Card.DECK_SIZE + high] = (short) combo;
+                INDEX[high * Card.DECK_SIZE + low] = (short) combo;
+                combo++;
+            }
+        }
+    }
+
+    private Combos() {
+    }
+
+    /**
+     * Gets the combo number of two distinct cards, in either order.
+     *
+     * @param card1 The first card index
+     * @param card2 The second card index
+     * @return The combo number, from 0 to 1325
+     */
+    public static int index(int card1, int card2) {
+        return INDEX[card1 * Card.DECK_SIZE + card2];
+    }
+
+    /**
+     * Gets the lower card index of a combo.
+     *
+     * @param combo The combo number
+     * @return The lower card index
+     */
+    public static int low(int combo) {
+        return LOW[combo];
+    }
+
+    /**
+     * Gets the higher card index of a combo.
+     *
+     * @param combo The combo number
+     * @return The higher card index
+     */
+    public static int high(int combo) {
+        return HIGH[combo];
+    }
+
+    /**
+     * Gets the card mask of a combo.
+     *
+     * @param combo The combo number
+     * @return A mask with the combo's two card bits set
+     */
+    public static long mask(int combo) {
+        return MASKS[combo];
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.eval;
+
+import com.example.Card;
+import com.example.GameEngine.HandType;
+
+import java.util.List;
+
+/**
+ * Fast, allocation-free poker hand evaluator working on 52-bit card masks.
+ *
+ * Cards are identified by {@link Card#getIndex()}, so bit {@code suit * 13 + rank}
+ * of a mask is set when the card is present, and each suit occupies 13 consecutive bits.
+ * Scores are comparable across hands of up to seven cards: a higher score wins and equal
+ * scores split. The score packs the hand category into the top bits and up to five rank
+ * positions (0 = deuce, 12 = ace) as 4-bit nibbles below it.
+ */
+public final class HandEvaluator {
+    public static final int HIGH_CARD = 0;
+    public static final int ONE_PAIR = 1;
+    public static final int TWO_PAIR = 2;
+    public static final int THREE_OF_A_KIND = 3;
+    public static final int STRAIGHT = 4;
+    public static final int FLUSH = 5;
+    public static final int FULL_HOUSE = 6;
+    public static final int FOUR_OF_A_KIND = 7;
+    public static final int STRAIGHT_FLUSH = 8;
+
+    private static final int CATEGORY_SHIFT = 20;
+    private static final int RANK_MASK = 0x1FFF;
+    private static final int ACE = 12;
+
+    /** Highest rank position of the best straight in a 13-bit rank mask, or -1. */
+    private static final byte[] STRAIGHT_HIGH = new byte[1 << 13];
+
+    static {
+        for (int mask = 0; mask < STRAIGHT_HIGH.length; mask++) {
+            STRAIGHT_HIGH[mask] = (byte) findStraight(mask);
+        }
+    }
+
+    private HandEvaluator() {
+    }
+
+    /**
+     * Evaluates the best hand that can be made from the given cards.
+     *
+     * @param cards A mask of up to seven cards
+     * @return The hand score (higher is better)
+     */
+    public static int evaluate(long cards) {
+        int clubs = (int) (cards & RANK_MASK);
+        int diamonds = (int) ((cards >>> 13) & RANK_MASK);
+        int hearts = (int) ((cards >>> 26) & RANK_MASK);
+        int spades = (int) ((cards >>> 39) & RANK_MASK);
+
+        // With seven cards or fewer a flush rules out quads and full houses
+        int flushSuit = flushRanks(clubs, diamonds, hearts, spades);
+        if (flushSuit != 0) {
+            int straightFlush = STRAIGHT_HIGH[flushSuit];
+            if (straightFlush >= 0) {
+                return (STRAIGHT_FLUSH << CATEGORY_SHIFT) | (straightFlush << 16);
+            }
+            return (FLUSH << CATEGORY_SHIFT) | topRanks(flushSuit, 5);
+        }
+
+        // Bit-sliced sum of the four suit masks gives a 3-bit count for every rank
+        int sumCD = clubs ^ diamonds;
+        int carryCD = clubs & diamonds;
+        int sumHS = hearts ^ spades;
+        int carryHS = hearts & spades;
+        int bit0 = sumCD ^ sumHS;
+        int carry0 = sumCD & sumHS;
+        int bit1 = carryCD ^ carryHS ^ carry0;
+        int bit2 = (carryCD & carryHS) | (carryCD & carry0) | (carryHS & carry0);
+
+        int ranks = clubs | diamonds | hearts | spades;
+        int quads = bit2;
+        int trips = bit1 & bit0;
+        int pairs = bit1 & ~bit0;
+
+        if (quads != 0) {
+            int quad = highest(quads);
+            return (FOUR_OF_A_KIND << CATEGORY_SHIFT) | (quad << 16)
+                    | (highest(ranks & ~(1 << quad)) << 12);
+        }
+
+        if (trips != 0) {
+            int trip = highest(trips);
+            int rest = pairs | (trips & ~(1 << trip));
+            if (rest != 0) {
+                return (FULL_HOUSE << CATEGORY_SHIFT) | (trip << 16) | (highest(rest) << 12);
+            }
+        }
+
+        int straight = STRAIGHT_HIGH[ranks];
+        if (straight >= 0) {
+            return (STRAIGHT << CATEGORY_SHIFT) | (straight << 16);
+        }
+
+        if (trips != 0) {
+            int trip = highest(trips);
+            return (THREE_OF_A_KIND << CATEGORY_SHIFT) | (trip << 16)
+                    | (topRanks(ranks & ~(1 << trip), 2) >>> 4);
+        }
+
+        if (Integer.bitCount(pairs) >= 2) {
+            int high = highest(pairs);
+            int low = highest(pairs & ~(1 << high));
+            int kicker = highest(ranks & ~((1 << high) | (1 << low)));
+            return (TWO_PAIR << CATEGORY_SHIFT) | (high << 16) | (low << 12) | (kicker << 8);
+        }
+
+        if (pairs != 0) {
+            int pair = highest(pairs);
+            return (ONE_PAIR << CATEGORY_SHIFT) | (pair << 16)
+                    | (topRanks(ranks & ~(1 << pair), 3) >>> 4);
+        }
+
+        return (HIGH_CARD << CATEGORY_SHIFT) | topRanks(ranks, 5);
+    }
+
+    /**
+     * Evaluates two hole cards together with a board.
+     *
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @param board A mask of the board cards
+     * @return The hand score (higher is better)
+     */
+    public static int evaluate(int card1, int card2, long board) {
+        return evaluate(board | (1L << card1) | (1L << card2));
+    }
+
+    /**
+     * Evaluates a player's cards together with the community cards.
+     *
+     * @param playerCards The player's private cards
+     * @param communityCards The community cards
+     * @return The hand score (higher is better)
+     */
+    public static int evaluate(List<Card> playerCards, List<Card> communityCards) {
+        return evaluate(mask(playerCards) | mask(communityCards));
+    }
+
+    /**
+     * Builds a card mask from a list of cards.
+     *
+     * @param cards The cards
+     * @return A mask with one bit set per card
+     */
+    public static long mask(List<Card> cards) {
+        long mask = 0L;
+        for (int i = 0; i < cards.size(); i++) {
+            mask |= 1L << cards.get(i).getIndex();
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the hand category of a score, from {@link #HIGH_CARD} to {@link #STRAIGHT_FLUSH}.
+     *
+     * @param score A score returned by {@link #evaluate(long)}
+     * @return The hand category
+     */
+    public static int category(int score) {
+        return score >>> CATEGORY_SHIFT;
+    }
+
+    /**
+     * Converts a score into the {@link HandType} used by the game engine.
+     *
+     * @param score A score returned by {@link #evaluate(long)}
+     * @return The matching hand type
+     */
+    public static HandType handType(int score) {
+        switch (category(score)) {
+            case STRAIGHT_FLUSH:
+                return ((score >>> 16) & 0xF) == ACE ? HandType.ROYAL_FLUSH : HandType.STRAIGHT_FLUSH;
+            case FOUR_OF_A_KIND:
+                return HandType.FOUR_OF_A_KIND;
+            case FULL_HOUSE:
+                return HandType.FULL_HOUSE;
+            case FLUSH:
+                return HandType.FLUSH;
+            case STRAIGHT:
+                return HandType.STRAIGHT;
+            case THREE_OF_A_KIND:
+                return HandType.THREE_OF_A_KIND;
+            case TWO_PAIR:
+                return HandType.TWO_PAIR;
+            case ONE_PAIR:
+                return HandType.ONE_PAIR;
+            default:
+                return HandType.HIGH_CARD;
+        }
+    }
+
+    private static int flushRanks(int clubs, int diamonds, int hearts, int spades) {
+        if (Integer.bitCount(clubs) >= 5) {
+            return clubs;
+        }
+        if (Integer.bitCount(diamonds) >= 5) {
+            return diamonds;
+        }
+        if (Integer.bitCount(hearts) >= 5) {
+            return hearts;
+        }
+        if (Integer.bitCount(spades) >= 5) {
+            return spades;
+        }
+        return 0;
+    }
+
+    private static int highest(int mask) {
+        return 31 - Integer.numberOfLeadingZeros(mask);
+    }
+
+    /**
+     * Packs the highest {@code count} ranks of a mask into nibbles, starting at bit 16.
+     */
+    private static int topRanks(int mask, int count) {
+        int packed = 0;
+        int shift = 16;
+        for (int i = 0; i < count && mask != 0; i++) {
+            int rank = highest(mask);
+            packed |= rank << shift;
+            mask &= ~(1 << rank);
+            shift -= 4;
+        }
+        return packed;
+    }
+
+    private static int findStraight(int mask) {
+        for (int high = ACE; high >= 4; high--) {
+            int window = 0x1F << (high - 4);
+            if ((mask & window) == window) {
+                return high;
+            }
+        }
+        // Five-high straight with the ace played low
+        int wheel = (1 << ACE) | 0xF;
+        return (mask & wheel) == wheel ? 3 : -1;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.eval;
+
+/**
+ * Canonical form of a hand under suit isomorphism.
+ *
+ * Two hands that differ only by a renaming of suits (for example A♥K♥ on Q♥7♣2♦ and
+ * A♠K♠ on Q♠7♦2♣) play identically, so strategy and bucket tables store one entry per
+ * class. The canonical form renames suits in decreasing order of their (hole ranks,
+ * board ranks) pattern, which also makes it cheap to test whether a hand is already the
+ * representative of its class.
+ *
+ * A canonical key packs the renamed board mask into the low 52 bits and the two renamed
+ * hole cards into the top 12 bits, lower card first. Keys are never zero.
+ */
+public final class HandIsomorphism {
+    private static final int RANK_MASK = 0x1FFF;
+
+    private HandIsomorphism() {
+    }
+
+    /**
+     * Computes the canonical key of two hole cards and a board.
+     *
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @param board A mask of the board cards
+     * @return The canonical key
+     */
+    public static long canonicalKey(int card1, int card2, long board) {
+        long hole = (1L << card1) | (1L << card2);
+
+        // Tag every suit pattern with its suit and sort descending (5 compare-swaps)
+        int a = (descriptor(hole, board, 0) << 2);
+        int b = (descriptor(hole, board, 1) << 2) | 1;
+        int c = (descriptor(hole, board, 2) << 2) | 2;
+        int d = (descriptor(hole, board, 3) << 2) | 3;
+        int t;
+        if (a < b) { t = a; a = b; b = t; }
+        if (c < d) { t = c; c = d; d = t; }
+        if (a < c) { t = a; a = c; c = t; }
+        if (b < d) { t = b; b = d; d = t; }
+        if (b < c) { t = b; b = c; c = t; }
+
+        // Position in the sorted order becomes the new suit
+        int[] renamed = new int[4];
+        renamed[a & 3] = 0;
+        renamed[b & 3] = 1;
+        renamed[c & 3] = 2;
+        renamed[d & 3] = 3;
+
+        long renamedBoard = 0L;
+        for (int suit = 0; suit < 4; suit++) {
+            long ranks = (board >>> (13 * suit)) & RANK_MASK;
+            renamedBoard |= ranks << (13 * renamed[suit]);
+        }
+        int renamed1 = renamed[card1 / 13] * 13 + card1 % 13;
+        int renamed2 = renamed[card2 / 13] * 13 + card2 % 13;
+        return key(Math.min(renamed1, renamed2), Math.max(renamed1, renamed2), renamedBoard);
+    }
+
+    /**
+     * Checks whether a hand is the representative of its isomorphism class, that is,
+     * whether its canonical key describes exactly these cards.
+     *
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @param board A mask of the board cards
+     * @return true if the hand is already in canonical form
+     */
+    public static boolean isCanonical(int card1, int card2, long board) {
+        long hole = (1L << card1) | (1L << card2);
+        int d0 = descriptor(hole, board, 0);
+        int d1 = descriptor(hole, board, 1);
+        int d2 = descriptor(hole, board, 2);
+        int d3 = descriptor(hole, board, 3);
+        return d0 >= d1 && d1 >= d2 && d2 >= d3;
+    }
+
+    /**
+     * Packs already-renamed cards into a key.
+     */
+    private static long key(int low, int high, long board) {
+        return board | ((long) low << 52) | ((long) high << 58);
+    }
+
+    /**
+     * Gets a suit's pattern: its hole card ranks above its board ranks.
+     */
+    private static int descriptor(long hole, long board, int suit) {
+        int holeRanks = (int) ((hole >>> (13 * suit)) & RANK_MASK);
+        int boardRanks = (int) ((board >>> (13 * suit)) & RANK_MASK);
+        return (holeRanks << 13) | boardRanks;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.eval;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hand strength and hand potential of two hole cards against one random opponent hand.
+ *
+ * <ul>
+ *   <li>Hand strength (HS) is the share of opponent hands we currently beat, ties counting half.</li>
+ *   <li>Positive potential (PPOT) is the chance that the next card lifts us over a hand
+ *       that is currently ahead of or tied with us.</li>
+ *   <li>Negative potential (NPOT) is the chance that the next card drops us behind a hand
+ *       we currently beat or tie.</li>
+ * </ul>
+ * Effective hand strength combines them as {@code HS * (1 - NPOT) + (1 - HS) * PPOT},
+ * so a flush draw counts for more than its current high card.
+ *
+ * Everything is enumerated exactly with a one-card lookahead. The inner loop only compares
+ * precomputed scores: those of the shared {@link BoardRanking} of the board, and the
+ * scores of every combo on each board with one more card. The latter are kept per board
+ * for the most recent boards, so later calls on the same board skip the evaluator
+ * entirely. They are plain score arrays rather than rankings, because sorting a ranking
+ * for every possible next card would cost several times as much as evaluating the hands,
+ * and would crowd the shared ranking cache with boards that are rarely asked for again.
+ */
+public final class HandPotential {
+    private static final int AHEAD = 0;
+    private static final int TIED = 1;
+    private static final int BEHIND = 2;
+    private static final int CACHED_BOARDS = 16;
+
+    // Next-card scores of recent boards, about 250 KB each
+    private static final Map<Long, int[][]> LOOKAHEAD = new LinkedHashMap<Long, int[][]>(CACHED_BOARDS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, int[][]> eldest) {
+            return size() > CACHED_BOARDS;
+        }
+    };
+
+    private final double strength;
+    private final double positive;
+    private final double negative;
+
+    private HandPotential(double strength, double positive, double negative) {
+        this.strength = strength;
+        this.positive = positive;
+        this.negative = negative;
+    }
+
+    /**
+     * Computes the hand strength and potential of two hole cards on a flop, turn or river.
+     * On the river both potentials are zero.
+     *
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @param board A mask of the three to five board cards
+     * @return The hand strength and potential
+     */
+    public static HandPotential compute(int card1, int card2, long board) {
+        long hero = (1L << card1) | (1L << card2);
+        long dead = board | hero;
+        int heroCombo = Combos.index(card1, card2);
+        int[] now = BoardRanking.of(board).scores();
+        boolean lookahead = Long.bitCount(board) < 5;
+        int[][] next = lookahead ? nextScores(board) : null;
+
+        int ours = now[heroCombo];
+        long[] current = new long[3];
+        long[][] transitions = new long[3][3];
+        for (int combo = 0; combo < Combos.COUNT; combo++) {
+            long opponent = Combos.mask(combo);
+            if ((opponent & dead) != 0) {
+                continue;
+            }
+            int before = compare(ours, now[combo]);
+            current[before]++;
+            if (!lookahead) {
+                continue;
+            }
+            long unseen = ~(dead | opponent) & ((1L << 52) - 1);
+            while (unseen != 0) {
+                int card = Long.numberOfTrailingZeros(unseen);
+                unseen &= unseen - 1;
+                int[] after = next[card];
+                transitions[before][compare(after[heroCombo], after[combo])]++;
+            }
+        }
+
+        long total = current[AHEAD] + current[TIED] + current[BEHIND];
+        double strength = total > 0 ? (current[AHEAD] + current[TIED] / 2.0) / total : 0;
+
+        double fromBehind = sum(transitions[BEHIND]) + sum(transitions[TIED]) / 2.0;
+        double fromAhead = sum(transitions[AHEAD]) + sum(transitions[TIED]) / 2.0;
+        double positive = fromBehind > 0 ? (transitions[BEHIND][AHEAD] + transitions[BEHIND][TIED] / 2.0
+                + transitions[TIED][AHEAD] / 2.0) / fromBehind : 0;
+        double negative = fromAhead > 0 ? (transitions[AHEAD][BEHIND] + transitions[TIED][BEHIND] / 2.0
+                + transitions[AHEAD][TIED] / 2.0) / fromAhead : 0;
+        return new HandPotential(strength, positive, negative);
+    }
+
+    /**
+     * Gets the score of every combo on the board plus each card that could come next,
+     * indexed by that card, computing them on first use.
+     */
+    private static int[][] nextScores(long board) {
+        int[][] next;
+        synchronized (LOOKAHEAD) {
+            next = LOOKAHEAD.get(board);
+        }
+        if (next != null) {
+            return next;
+        }
+        // Built outside the lock; a concurrent duplicate is harmless
+        next = new int[52][];
+        for (int card = 0; card < 52; card++) {
+            long nextBoard = board | (1L << card);
+            if (nextBoard == board) {
+                continue;
+            }
+            BoardRanking cached = BoardRanking.cached(nextBoard);
+            if (cached != null) {
+                next[card] = cached.scores();
+                continue;
+            }
+            int[] scores = new int[Combos.COUNT];
+            for (int combo = 0; combo < Combos.COUNT; combo++) {
+                long cards = Combos.mask(combo);
+                if ((cards & nextBoard) == 0) {
+                    scores[combo] = HandEvaluator.evaluate(nextBoard | cards);
+                }
+            }
+            next[card] = scores;
+        }
+        synchronized (LOOKAHEAD) {
+            LOOKAHEAD.put(board, next);
+        }
+        return next;
+    }
+
+    public double getStrength() {
+        return strength;
+    }
+
+    public double getPositivePotential() {
+        return positive;
+    }
+
+    public double getNegativePotential() {
+        return negative;
+    }
+
+    /**
+     * Gets the effective hand strength, {@code HS * (1 - NPOT) + (1 - HS) * PPOT}.
+     *
+     * @return The effective hand strength, from 0 to 1
+     */
+    public double getEffectiveStrength() {
+        return strength * (1 - negative) + (1 - strength) * positive;
+    }
+
+    private static int compare(int ours, int theirs) {
+        return ours > theirs ? AHEAD : ours == theirs ? TIED : BEHIND;
+    }
+
+    private static long sum(long[] counts) {
+        return counts[AHEAD] + counts[TIED] + counts[BEHIND];
+    }
+}
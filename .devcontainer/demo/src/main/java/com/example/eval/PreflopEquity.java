@@ -0,0 +1,127 @@
+package com.example.eval;
+
+import com.example.Card;
+
+import java.util.Random;
+
+/**
+ * Equity of every starting hand against one random opponent hand.
+ *
+ * The 1326 starting hands collapse into 169 classes (13 pairs, 78 suited and
+ * 78 offsuit hands). The table is estimated once by Monte Carlo with a fixed seed,
+ * so every run of the program sees the same values.
+ */
+public final class PreflopEquity {
+    /** Number of distinct starting hand classes. */
+    public static final int CLASS_COUNT = 169;
+
+    private static final int TRIALS_PER_CLASS = 4000;
+    private static final long SEED = 169L;
+
+    private static volatile double[] equities;
+
+    private PreflopEquity() {
+    }
+
+    /**
+     * Gets the starting hand class of two hole cards. Pairs sit on the diagonal of a
+     * 13x13 grid, suited hands above it and offsuit hands below it.
+     *
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @return A class index from 0 to 168
+     */
+    public static int classIndex(int card1, int card2) {
+        int rank1 = card1 % 13;
+        int rank2 = card2 % 13;
+        int high = Math.max(rank1, rank2);
+        int low = Math.min(rank1, rank2);
+        boolean suited = card1 / 13 == card2 / 13;
+        return suited ? high * 13 + low : low * 13 + high;
+    }
+
+    /**
+     * Gets the equity of two hole cards against a random hand, with ties counted as half.
+     *
+     * @param card1 The first hole card index
+     * @param card2 The second hole card index
+     * @return The equity, from 0 to 1
+     */
+    public static double equity(int card1, int card2) {
+        return table()[classIndex(card1, card2)];
+    }
+
+    /**
+     * Gets the equity of a starting hand class against a random hand.
+     *
+     * @param classIndex A class index as returned by {@link #classIndex(int, int)}
+     * @return The equity, from 0 to 1
+     */
+    public static double classEquity(int classIndex) {
+        return table()[classIndex];
+    }
+
+    private static double[] table() {
+        double[] result = equities;
+        if (result == null) {
+            synchronized (PreflopEquity.class) {
+                result = equities;
+                if (result == null) {
+                    result = simulate();
+                    equities = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double[] simulate() {
+        double[] table = new double[CLASS_COUNT];
+        Random random = new Random(SEED);
+        int[] deck = new int[Card.DECK_SIZE];
+
+        for (int high = 0; high < 13; high++) {
+            for (int low = 0; low <= high; low++) {
+                // Suited (or paired) representative, then offsuit representative
+                fill(table, random, deck, high, low + (high == low ? 13 : 0));
+                if (high != low) {
+                    fill(table, random, deck, high, low + 13);
+                }
+            }
+        }
+        return table;
+    }
+
+    private static void fill(double[] table, Random random, int[] deck, int card1, int card2) {
+        long dead = (1L << card1) | (1L << card2);
+        int deckSize = 0;
+        for (int card = 0; card < Card.DECK_SIZE; card++) {
+            if ((dead & (1L << card)) == 0) {
+                deck[deckSize++] = card;
+            }
+        }
+
+        double points = 0;
+        for (int trial = 0; trial < TRIALS_PER_CLASS; trial++) {
+            // Partial shuffle: opponent's two cards and five board cards
+            for (int i = 0; i < 7; i++) {
+                int j = i + random.nextInt(deckSize - i);
+                int tmp = deck[i];
+                deck[i] = deck[j];
+                deck[j] = tmp;
+            }
+            long board = 0L;
+            for (int i = 2; i < 7; i++) {
+                board |= 1L << deck[i];
+            }
+            int ours = HandEvaluator.evaluate(card1, card2, board);
+            int theirs = HandEvaluator.evaluate(deck[0], deck[1], board);
+            if (ours > theirs) {
+                points += 1.0;
+            } else if (ours == theirs) {
+                points += 0.5;
+            }
+        }
+        table[classIndex(card1, card2)] = points / TRIALS_PER_CLASS;
+    }
+}
@@ -21,6 +21,7 @@ public class PokerGUI extends JFrame {
     private static final int CARD_HEIGHT = 120;
     private static final int WINDOW_WIDTH = 1024;
     private static final int WINDOW_HEIGHT = 768;
+    private static final long AI_DECISION_MILLIS = 1000;
     
     private GameEngine gameEngine;
     private Player humanPlayer;
@@ -68,7 +69,13 @@ public class PokerGUI extends JFrame {
     private void initializeGame() {
         gameEngine = new GameEngine();
         humanPlayer = new GUIPlayer("Player", 1000);
-        aiPlayer = new AIPlayer("Computer", 1000);
+        AIParameters params = AIParameters.defaults();
+        try {
+            params = AIParameters.configured();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not read AI parameters, using the defaults: " + e.getMessage());
+        }
+        aiPlayer = new AIPlayer("Computer", 1000, params);
         
         gameEngine.addPlayer(humanPlayer);
         gameEngine.addPlayer(aiPlayer);
@@ -396,65 +403,60 @@ public class PokerGUI extends JFrame {
         // Display player's action
         statusLabel.setText("You chose to " + action.toString());
         
-        // Get AI's action
+        // Get AI's action on a separate thread to avoid UI freezing; the deadline
+        // bounds how long the player waits whichever AI is seated
         List<Card> aiHand = gameEngine.getPlayerHand(aiPlayer);
         List<Card> communityCards = gameEngine.getCommunityCards();
-        PlayerAction aiAction = aiPlayer.getAction(aiHand, communityCards, currentBet, gameEngine.getPotAmount());
-        
-        // Process AI's action using a separate thread to avoid UI freezing
+        int betToCall = currentBet;
+        int pot = gameEngine.getPotAmount();
         Thread aiActionThread = new Thread(() -> {
-            try {
-                // Delay to show player action
-                Thread.sleep(1000);
+            long deadline = System.nanoTime() + AI_DECISION_MILLIS * 1_000_000L;
+            PlayerAction aiAction = aiPlayer.getAction(aiHand, communityCards, betToCall, pot, deadline);
+            
+            // Update UI from EDT
+            SwingUtilities.invokeLater(() -> {
+                statusLabel.setText("Computer chose to " + aiAction.toString());
                 
-                // Update UI from EDT
-                SwingUtilities.invokeLater(() -> {
-                    statusLabel.setText("Computer chose to " + aiAction.toString());
-                    
-                    // Process AI's action
-                    switch (aiAction) {
-                        case FOLD:
-                            handleAIFold();
-                            return;
-                        case CHECK:
-                            advanceGameStage();
-                            break;
-                        case CALL:
-                            if (currentBet > 0) {
-                                aiPlayer.removeChips(currentBet);
-                                gameEngine.addToPot(currentBet);
-                                updateLabels();
-                            }
-                            advanceGameStage();
-                            break;
-                        case RAISE:
-                            int aiRaiseAmount = currentBet + 20;
-                            aiPlayer.removeChips(aiRaiseAmount);
-                            gameEngine.addToPot(aiRaiseAmount);
-                            currentBet = aiRaiseAmount;
+                // Process AI's action
+                switch (aiAction) {
+                    case FOLD:
+                        handleAIFold();
+                        return;
+                    case CHECK:
+                        advanceGameStage();
+                        break;
+                    case CALL:
+                        if (currentBet > 0) {
+                            aiPlayer.removeChips(currentBet);
+                            gameEngine.addToPot(currentBet);
                             updateLabels();
-                            statusLabel.setText("Computer raised to $" + currentBet);
-                            // Give player chance to respond to raise
-                            addGameActionControls();
-                            return; // Don't advance game yet
-                        case ALL_IN:
-                            int allInAmount = aiPlayer.getChipCount();
-                            aiPlayer.removeChips(allInAmount);
-                            gameEngine.addToPot(allInAmount);
-                            if (allInAmount > currentBet) {
-                                currentBet = allInAmount;
-                            }
-                            updateLabels();
-                            statusLabel.setText("Computer goes ALL IN with $" + allInAmount);
-                            // Give player chance to respond to all-in
-                            addGameActionControls();
-                            return; // Don't advance game yet
-                    }
-                });
-                
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+                        }
+                        advanceGameStage();
+                        break;
+                    case RAISE:
+                        int aiRaiseAmount = currentBet + 20;
+                        aiPlayer.removeChips(aiRaiseAmount);
+                        gameEngine.addToPot(aiRaiseAmount);
+                        currentBet = aiRaiseAmount;
+                        updateLabels();
+                        statusLabel.setText("Computer raised to $" + currentBet);
+                        // Give player chance to respond to raise
+                        addGameActionControls();
+                        return; // Don't advance game yet
+                    case ALL_IN:
+                        int allInAmount = aiPlayer.getChipCount();
+                        aiPlayer.removeChips(allInAmount);
+                        gameEngine.addToPot(allInAmount);
+                        if (allInAmount > currentBet) {
+                            currentBet = allInAmount;
+                        }
+                        updateLabels();
+                        statusLabel.setText("Computer goes ALL IN with $" + allInAmount);
+                        // Give player chance to respond to all-in
+                        addGameActionControls();
+                        return; // Don't advance game yet
+                }
+            });
         });
         
         aiActionThread.start();
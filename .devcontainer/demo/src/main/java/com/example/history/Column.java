@@ -0,0 +1,368 @@
+package com.example.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One column of a {@link ColumnStore}: a file of fixed-width values, one per row,
+ * memory-mapped for reading.
+ *
+ * A column stores 1, 2 or 4 bytes per row. Each value is kept either as its difference
+ * from a base value fixed when the column is created, or, for columns with few distinct
+ * values, as a code into a dictionary kept at the end of the file. Scans read raw codes a
+ * block of rows at a time with a {@link Scanner}; {@link #decode} turns a code back into
+ * its value.
+ *
+ * File layout: a 32-byte header (magic, width, row count, base, dictionary size), the
+ * rows, then the dictionary values as ints. Everything is big-endian, like the hand log,
+ * so a store can be copied between machines.
+ */
+public final class Column {
+    static final int MAGIC = 0x50434F4C; // "PCOL"
+    static final int HEADER_BYTES = 32;
+
+    // Rows per mapping; a multiple of the scan block so that no block spans two mappings
+    static final int PART_SHIFT = 26;
+    static final int PART_ROWS = 1 << PART_SHIFT;
+
+    private final String name;
+    private final int width;
+    private final long rows;
+    private final long base;
+    private final int[] dictionary;
+    private final MappedByteBuffer[] parts;
+
+    private Column(String name, int width, long rows, long base, int[] dictionary, MappedByteBuffer[] parts) {
+        this.name = name;
+        this.width = width;
+        this.rows = rows;
+        this.base = base;
+        this.dictionary = dictionary;
+        this.parts = parts;
+    }
+
+    /**
+     * Maps a column file.
+     *
+     * @param name The column's name
+     * @param file The column file
+     * @return The column
+     * @throws IOException If the file cannot be mapped or is not a column file
+     */
+    static Column open(String name, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.limit() >= HEADER_BYTES && header.getInt(0) == Integer.reverseBytes(MAGIC)) {
+                throw new IOException("Column file in little-endian order, rebuild the store: " + file);
+            }
+            if (header.limit() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a column file: " + file);
+            }
+            int width = header.getInt(4);
+            long rows = header.getLong(8);
+            long base = header.getLong(16);
+            int[] dictionary = null;
+            int dictionarySize = header.getInt(24);
+            long dataBytes = rows * width;
+            if (dictionarySize > 0) {
+                ByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + dataBytes,
+                                                dictionarySize * 4L).order(ByteOrder.BIG_ENDIAN);
+                dictionary = new int[dictionarySize];
+                values.asIntBuffer().get(dictionary);
+            }
+            MappedByteBuffer[] parts = new MappedByteBuffer[(int) ((rows + PART_ROWS - 1) >>> PART_SHIFT)];
+            for (int i = 0; i < parts.length; i++) {
+                long first = (long) i << PART_SHIFT;
+                long count = Math.min(PART_ROWS, rows - first);
+                parts[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * width, count * width);
+                parts[i].order(ByteOrder.BIG_ENDIAN);
+            }
+            return new Column(name, width, rows, base, dictionary, parts);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /** The bytes stored per row: 1, 2 or 4. */
+    public int getWidth() {
+        return width;
+    }
+
+    public boolean isDictionary() {
+        return dictionary != null;
+    }
+
+    /**
+     * Gets the number of distinct codes a row can hold, for a column that is dictionary-encoded
+     * or narrower than 4 bytes.
+     *
+     * @return The dictionary size, 256 for other 1-byte columns and 65536 for 2-byte ones
+     */
+    int getCodeCount() {
+        return dictionary != null ? dictionary.length : 1 << (8 * width);
+    }
+
+    /**
+     * Gets what is added to a raw code to index the groups of a grouped query: nothing
+     * for dictionary codes, and enough to make other codes start at zero.
+     */
+    int groupOffset() {
+        return dictionary != null ? 0 : 1 << (8 * width - 1);
+    }
+
+    /** The value stored as raw code zero, for columns that are not dictionary-encoded. */
+    long getBase() {
+        return base;
+    }
+
+    /** The values of the dictionary codes, or null; not copied, so not to be modified. */
+    int[] getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Turns a raw code read by a {@link Scanner} back into the value that was stored.
+     *
+     * @param raw The raw code
+     * @return The value
+     */
+    public long decode(int raw) {
+        return dictionary != null ? dictionary[raw] : base + raw;
+    }
+
+    /**
+     * Gets one row's value.
+     *
+     * @param row The row
+     * @return The value
+     */
+    public long get(long row) {
+        ByteBuffer part = parts[(int) (row >>> PART_SHIFT)];
+        int index = (int) (row & (PART_ROWS - 1)) * width;
+        int raw = width == 1 ? part.get(index) : width == 2 ? part.getShort(index) : part.getInt(index);
+        return decode(raw);
+    }
+
+    /**
+     * Marks with a 1 each raw code of the column that holds a value in a range, for
+     * filtering a dictionary column, whose codes are not in value order.
+     */
+    int[] matchingCodes(long min, long max) {
+        int[] matches = new int[dictionary.length];
+        for (int code = 0; code < dictionary.length; code++) {
+            matches[code] = dictionary[code] >= min && dictionary[code] <= max ? 1 : 0;
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the smallest value a column that is not dictionary-encoded can hold.
+     */
+    long minValue() {
+        return base - (1L << (8 * width - 1));
+    }
+
+    /**
+     * Gets the largest value a column that is not dictionary-encoded can hold.
+     */
+    long maxValue() {
+        return base + (1L << (8 * width - 1)) - 1;
+    }
+
+    /**
+     * Converts a value to the raw code that stores it, clamped to the values the column
+     * can hold, for filtering a column that is not dictionary-encoded.
+     */
+    int clampRaw(long value) {
+        return (int) (Math.max(minValue(), Math.min(maxValue(), value)) - base);
+    }
+
+    /**
+     * Reads blocks of raw codes. Each thread scanning a column needs its own scanner.
+     */
+    final class Scanner {
+        private final ByteBuffer[] bytes = new ByteBuffer[parts.length];
+        private final ShortBuffer[] shorts = new ShortBuffer[parts.length];
+        private final IntBuffer[] ints = new IntBuffer[parts.length];
+        private byte[] byteBlock = new byte[0];
+        private short[] shortBlock = new short[0];
+
+        Scanner() {
+            for (int i = 0; i < parts.length; i++) {
+                ByteBuffer part = parts[i].duplicate().order(ByteOrder.BIG_ENDIAN);
+                if (width == 1) {
+                    bytes[i] = part;
+                } else if (width == 2) {
+                    shorts[i] = part.asShortBuffer();
+                } else {
+                    ints[i] = part.asIntBuffer();
+                }
+            }
+        }
+
+        /**
+         * Reads the raw codes of consecutive rows, which must not cross a
+         * {@link #PART_ROWS} boundary.
+         *
+         * @param row The first row
+         * @param count The number of rows
+         * @param codes Receives the codes
+         */
+        void read(long row, int count, int[] codes) {
+            int part = (int) (row >>> PART_SHIFT);
+            int index = (int) (row & (PART_ROWS - 1));
+            if (width == 4) {
+                ints[part].position(index);
+                ints[part].get(codes, 0, count);
+            } else if (width == 2) {
+                if (shortBlock.length < count) {
+                    shortBlock = new short[count];
+                }
+                shorts[part].position(index);
+                shorts[part].get(shortBlock, 0, count);
+                for (int i = 0; i < count; i++) {
+                    codes[i] = shortBlock[i];
+                }
+            } else {
+                if (byteBlock.length < count) {
+                    byteBlock = new byte[count];
+                }
+                bytes[part].position(index);
+                bytes[part].get(byteBlock, 0, count);
+                for (int i = 0; i < count; i++) {
+                    codes[i] = byteBlock[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends values to a new column file.
+     */
+    static final class Writer implements Closeable {
+        private static final int BUFFER_BYTES = 1 << 20;
+
+        private final FileChannel channel;
+        private final int width;
+        private final long base;
+        private final Map<Integer, Integer> codes;
+        private int[] values = new int[16];
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.BIG_ENDIAN);
+        private long rows;
+
+        /**
+         * Creates a column file.
+         *
+         * @param file The file, replaced if it exists
+         * @param width The bytes per row: 1, 2 or 4
+         * @param base The value stored as zero, ignored for dictionary columns
+         * @param dictionary Whether to store values as dictionary codes
+         */
+        Writer(Path file, int width, long base, boolean dictionary) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING);
+            this.width = width;
+            this.base = dictionary ? 0 : base;
+            this.codes = dictionary ? new HashMap<>() : null;
+            channel.position(HEADER_BYTES);
+        }
+
+        /**
+         * Appends a row's value.
+         *
+         * @throws IllegalArgumentException If the value does not fit the column
+         */
+        void add(long value) throws IOException {
+            long raw;
+            if (codes != null) {
+                Integer code = codes.get((int) value);
+                if (code == null) {
+                    code = codes.size();
+                    codes.put((int) value, code);
+                    if (code == values.length) {
+                        values = Arrays.copyOf(values, code * 2);
+                    }
+                    values[code] = (int) value;
+                }
+                raw = code;
+            } else {
+                raw = value - base;
+            }
+            long limit = 1L << (8 * width - 1);
+            if (raw < -limit || raw >= limit) {
+                throw new IllegalArgumentException("Value " + value + " does not fit in " + width + " bytes");
+            }
+            if (!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+            if (width == 1) {
+                buffer.put((byte) raw);
+            } else if (width == 2) {
+                buffer.putShort((short) raw);
+            } else {
+                buffer.putInt((int) raw);
+            }
+            rows++;
+        }
+
+        private void writeBuffer() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        long getRows() {
+            return rows;
+        }
+
+        /**
+         * Writes the dictionary and the header.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                writeBuffer();
+                int dictionarySize = codes != null ? codes.size() : 0;
+                for (int code = 0; code < dictionarySize; code++) {
+                    if (buffer.remaining() < 4) {
+                        writeBuffer();
+                    }
+                    buffer.putInt(values[code]);
+                }
+                writeBuffer();
+                buffer.putInt(MAGIC).putInt(width).putLong(rows).putLong(base).putInt(dictionarySize).putInt(0);
+                buffer.flip();
+                long position = 0;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                buffer.clear();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
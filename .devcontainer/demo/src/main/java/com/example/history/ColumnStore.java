@@ -0,0 +1,456 @@
+package com.example.history;
+
+import com.example.Player.PlayerAction;
+import com.example.eval.BoardTexture;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A column-oriented copy of a {@link HandLog} for analytics: one file per column, mapped
+ * into memory and scanned with {@link ColumnQuery}.
+ *
+ * The store has two tables. {@link #hands()} has a row per hand; {@link #seats()} has a
+ * row per seat dealt into a hand, so statistics such as VPIP by position are a filter
+ * and a group over one table. Rows are in log order. Small-valued columns take one or
+ * two bytes a row; hand numbers are stored as offsets from the first hand, and columns
+ * with few distinct values, such as the big blind and the flop texture, as dictionary
+ * codes.
+ *
+ * The log records seats rather than player names, so a player is identified by seat,
+ * which is fixed for a table in {@link com.example.sim.TableSimulator}.
+ */
+public class ColumnStore {
+    public static final String HANDS = "hands";
+    public static final String SEATS = "seats";
+
+    // Columns of both tables
+    /** The hand number. */
+    public static final String HAND = "hand";
+    /** The number of seats dealt into the hand. */
+    public static final String PLAYERS = "players";
+    /** The big blind amount. */
+    public static final String BIG_BLIND = "bigBlind";
+    /** 1 if the hand, or for the seats table the seat, went to showdown. */
+    public static final String SHOWDOWN = "showdown";
+
+    // Columns of the hands table
+    /** The chips won from the pot, not counting uncalled bets returned. */
+    public static final String POT = "pot";
+    /** The last street dealt: 0 for none, 1 for the flop, 2 the turn, 3 the river. */
+    public static final String STREET = "street";
+    /** The {@link BoardTexture} of the flop, or 0 if there was no flop. */
+    public static final String TEXTURE = "texture";
+
+    // Columns of the seats table
+    public static final String SEAT = "seat";
+    /** Seats dealt in after the button: 0 is the button, 1 the small blind, and so on. */
+    public static final String POSITION = "position";
+    /** The stack before the blinds. */
+    public static final String STACK = "stack";
+    /** 1 if the seat put chips in preflop beyond its blind. */
+    public static final String VPIP = "vpip";
+    /** 1 if the seat raised preflop. */
+    public static final String PFR = "pfr";
+    /** 1 if the seat had not folded when the flop was dealt. */
+    public static final String SAW_FLOP = "sawFlop";
+    /** The chips the seat won or lost. */
+    public static final String NET = "net";
+
+    private static final String SUFFIX = ".col";
+
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+
+    private ColumnStore() {
+    }
+
+    /**
+     * Opens a store.
+     *
+     * @param directory The store directory
+     * @return The store with its columns mapped
+     * @throws IOException If a column cannot be mapped
+     */
+    public static ColumnStore open(Path directory) throws IOException {
+        ColumnStore store = new ColumnStore();
+        for (String name : new String[] {HANDS, SEATS}) {
+            Path tableDirectory = directory.resolve(name);
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(tableDirectory, "*" + SUFFIX)) {
+                for (Path file : stream) {
+                    files.add(file);
+                }
+            }
+            Collections.sort(files);
+            Map<String, Column> columns = new LinkedHashMap<>();
+            for (Path file : files) {
+                String column = file.getFileName().toString();
+                column = column.substring(0, column.length() - SUFFIX.length());
+                columns.put(column, Column.open(column, file));
+            }
+            store.tables.put(name, new Table(name, columns));
+        }
+        return store;
+    }
+
+    /**
+     * Builds a store from every hand of a log, replacing any store in the directory.
+     *
+     * @param log The log directory
+     * @param directory The store directory
+     * @return The new store, opened
+     * @throws IOException If the log cannot be read or the store cannot be written
+     */
+    public static ColumnStore build(Path log, Path directory) throws IOException {
+        List<Path> segments = HandLog.segments(log);
+        long firstHand = segments.isEmpty() ? 0 : HandLog.firstHand(segments.get(0));
+        try (Builder builder = new Builder(directory, firstHand)) {
+            for (Path segment : segments) {
+                try (HandLogReader reader = new HandLogReader(segment)) {
+                    while (reader.nextHand()) {
+                        builder.add(reader);
+                    }
+                }
+            }
+        }
+        return open(directory);
+    }
+
+    /** A row per hand. */
+    public Table hands() {
+        return tables.get(HANDS);
+    }
+
+    /** A row per seat dealt into a hand. */
+    public Table seats() {
+        return tables.get(SEATS);
+    }
+
+    /**
+     * The columns of one table, all with the same number of rows.
+     */
+    public static final class Table {
+        private final String name;
+        private final Map<String, Column> columns;
+        private final long rows;
+
+        private Table(String name, Map<String, Column> columns) {
+            this.name = name;
+            this.columns = columns;
+            this.rows = columns.isEmpty() ? 0 : columns.values().iterator().next().getRows();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Gets a column by name.
+         *
+         * @param name The column name
+         * @return The column
+         * @throws IllegalArgumentException If the table has no such column
+         */
+        public Column column(String name) {
+            Column column = columns.get(name);
+            if (column == null) {
+                throw new IllegalArgumentException("No column " + name + " in table " + this.name);
+            }
+            return column;
+        }
+
+        /**
+         * Starts a query over every row of the table.
+         *
+         * @return The query
+         */
+        public ColumnQuery query() {
+            return new ColumnQuery(this);
+        }
+    }
+
+    /**
+     * Turns logged hands into rows, one hand at a time.
+     */
+    private static final class Builder implements AutoCloseable {
+        private final List<Column.Writer> writers = new ArrayList<>();
+        private final Column.Writer handHand;
+        private final Column.Writer handPlayers;
+        private final Column.Writer handBigBlind;
+        private final Column.Writer handShowdown;
+        private final Column.Writer handPot;
+        private final Column.Writer handStreet;
+        private final Column.Writer handTexture;
+        private final Column.Writer seatHand;
+        private final Column.Writer seatPlayers;
+        private final Column.Writer seatBigBlind;
+        private final Column.Writer seatShowdown;
+        private final Column.Writer seatSeat;
+        private final Column.Writer seatPosition;
+        private final Column.Writer seatStack;
+        private final Column.Writer seatVpip;
+        private final Column.Writer seatPfr;
+        private final Column.Writer seatSawFlop;
+        private final Column.Writer seatNet;
+
+        // The hand being read
+        private int seats;
+        private int[] stacks = new int[10];
+        private boolean[] dealt = new boolean[10];
+        private boolean[] folded = new boolean[10];
+        private boolean[] vpip = new boolean[10];
+        private boolean[] pfr = new boolean[10];
+        private boolean[] sawFlop = new boolean[10];
+        private boolean[] showdown = new boolean[10];
+        private int[] committed = new int[10];
+        private int[] street = new int[10];
+        private int[] payout = new int[10];
+
+        Builder(Path directory, long firstHand) throws IOException {
+            Path hands = Files.createDirectories(directory.resolve(HANDS));
+            Path seatRows = Files.createDirectories(directory.resolve(SEATS));
+            handHand = writer(hands, HAND, 4, firstHand, false);
+            handPlayers = writer(hands, PLAYERS, 1, 0, false);
+            handBigBlind = writer(hands, BIG_BLIND, 1, 0, true);
+            handShowdown = writer(hands, SHOWDOWN, 1, 0, false);
+            handPot = writer(hands, POT, 4, 0, false);
+            handStreet = writer(hands, STREET, 1, 0, false);
+            handTexture = writer(hands, TEXTURE, 2, 0, true);
+            seatHand = writer(seatRows, HAND, 4, firstHand, false);
+            seatPlayers = writer(seatRows, PLAYERS, 1, 0, false);
+            seatBigBlind = writer(seatRows, BIG_BLIND, 1, 0, true);
+            seatShowdown = writer(seatRows, SHOWDOWN, 1, 0, false);
+            seatSeat = writer(seatRows, SEAT, 1, 0, false);
+            seatPosition = writer(seatRows, POSITION, 1, 0, false);
+            seatStack = writer(seatRows, STACK, 4, 0, false);
+            seatVpip = writer(seatRows, VPIP, 1, 0, false);
+            seatPfr = writer(seatRows, PFR, 1, 0, false);
+            seatSawFlop = writer(seatRows, SAW_FLOP, 1, 0, false);
+            seatNet = writer(seatRows, NET, 4, 0, false);
+        }
+
+        private Column.Writer writer(Path table, String name, int width, long base, boolean dictionary)
+                throws IOException {
+            Column.Writer writer = new Column.Writer(table.resolve(name + SUFFIX), width, base, dictionary);
+            writers.add(writer);
+            return writer;
+        }
+
+        void add(HandLogReader reader) throws IOException {
+            int dealer = 0;
+            int bigBlind = 0;
+            int streetBet = 0;
+            int boardCount = 0;
+            long board = 0L;
+            for (int type = reader.nextEvent(); type != 0; type = reader.nextEvent()) {
+                switch (type) {
+                    case HandEvent.HAND_START:
+                        dealer = reader.getDealer();
+                        bigBlind = reader.getBigBlind();
+                        start(reader);
+                        break;
+                    case HandEvent.HOLE_CARDS:
+                        dealt[reader.getSeat()] = true;
+                        break;
+                    case HandEvent.BLIND:
+                        committed[reader.getSeat()] += reader.getAmount();
+                        street[reader.getSeat()] += reader.getAmount();
+                        streetBet = Math.max(streetBet, street[reader.getSeat()]);
+                        break;
+                    case HandEvent.ACTION: {
+                        int seat = reader.getSeat();
+                        int chips = reader.getAmount();
+                        if (reader.getAction() == PlayerAction.FOLD) {
+                            folded[seat] = true;
+                            break;
+                        }
+                        committed[seat] += chips;
+                        street[seat] += chips;
+                        if (boardCount == 0 && chips > 0) {
+                            vpip[seat] = true;
+                            pfr[seat] |= street[seat] > streetBet;
+                        }
+                        streetBet = Math.max(streetBet, street[seat]);
+                        break;
+                    }
+                    case HandEvent.STREET:
+                        if (boardCount == 0) {
+                            for (int seat = 0; seat < seats; seat++) {
+                                sawFlop[seat] = dealt[seat] && !folded[seat];
+                            }
+                        }
+                        for (int i = 0; i < reader.getCardCount(); i++) {
+                            board |= 1L << reader.getCard(i);
+                            boardCount++;
+                        }
+                        if (boardCount == 3) {
+                            handTexture.add(BoardTexture.analyze(board));
+                        }
+                        Arrays.fill(street, 0, seats, 0);
+                        streetBet = 0;
+                        break;
+                    case HandEvent.SHOWDOWN:
+                        showdown[reader.getSeat()] = true;
+                        break;
+                    case HandEvent.PAYOUT:
+                        payout[reader.getSeat()] += reader.getAmount();
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (boardCount < 3) {
+                handTexture.add(0);
+            }
+            finish(reader.getHand(), dealer, bigBlind, boardCount);
+        }
+
+        private void start(HandLogReader reader) {
+            seats = reader.getSeatCount();
+            if (stacks.length < seats) {
+                stacks = new int[seats];
+                dealt = new boolean[seats];
+                folded = new boolean[seats];
+                vpip = new boolean[seats];
+                pfr = new boolean[seats];
+                sawFlop = new boolean[seats];
+                showdown = new boolean[seats];
+                committed = new int[seats];
+                street = new int[seats];
+                payout = new int[seats];
+            }
+            for (int seat = 0; seat < seats; seat++) {
+                stacks[seat] = reader.getStack(seat);
+                dealt[seat] = false;
+                folded[seat] = false;
+                vpip[seat] = false;
+                pfr[seat] = false;
+                sawFlop[seat] = false;
+                showdown[seat] = false;
+                committed[seat] = 0;
+                street[seat] = 0;
+                payout[seat] = 0;
+            }
+        }
+
+        private void finish(long hand, int dealer, int bigBlind, int boardCount) throws IOException {
+            int players = 0;
+            long total = 0;
+            int top = 0;
+            boolean anyShowdown = false;
+            for (int seat = 0; seat < seats; seat++) {
+                if (dealt[seat]) {
+                    players++;
+                }
+                total += committed[seat];
+                if (committed[seat] > committed[top]) {
+                    top = seat;
+                }
+                anyShowdown |= showdown[seat];
+            }
+            // The part of the biggest bet that nobody called went back, and was never in the pot
+            int called = 0;
+            for (int seat = 0; seat < seats; seat++) {
+                if (seat != top) {
+                    called = Math.max(called, committed[seat]);
+                }
+            }
+            handHand.add(hand);
+            handPlayers.add(players);
+            handBigBlind.add(bigBlind);
+            handShowdown.add(anyShowdown ? 1 : 0);
+            handPot.add(total - (committed[top] - called));
+            handStreet.add(boardCount == 0 ? 0 : boardCount - 2);
+
+            int position = 0;
+            for (int i = 0; i < seats; i++) {
+                int seat = (dealer + i) % seats;
+                if (!dealt[seat]) {
+                    continue;
+                }
+                seatHand.add(hand);
+                seatPlayers.add(players);
+                seatBigBlind.add(bigBlind);
+                seatShowdown.add(showdown[seat] ? 1 : 0);
+                seatSeat.add(seat);
+                seatPosition.add(position++);
+                seatStack.add(stacks[seat]);
+                seatVpip.add(vpip[seat] ? 1 : 0);
+                seatPfr.add(pfr[seat] ? 1 : 0);
+                seatSawFlop.add(sawFlop[seat] ? 1 : 0);
+                seatNet.add(payout[seat] - committed[seat]);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (Column.Writer writer : writers) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Builds a store from a log, or runs sample queries over one.
+     * Usage: ColumnStore build logDirectory storeDirectory | ColumnStore query storeDirectory [seat]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args[0].equals("build")) {
+            long start = System.nanoTime();
+            ColumnStore store = build(Paths.get(args[1]), Paths.get(args[2]));
+            System.out.printf("%d hands, %d seat rows built in %.1fs%n", store.hands().getRows(),
+                              store.seats().getRows(), (System.nanoTime() - start) / 1e9);
+            return;
+        }
+        ColumnStore store = open(Paths.get(args[1]));
+        int seat = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+        long start = System.nanoTime();
+        ColumnQuery.Result vpip = store.seats().query().where(SEAT, seat).groupBy(POSITION).aggregate(VPIP);
+        long vpipNanos = System.nanoTime() - start;
+        System.out.printf("VPIP by position for seat %d (%.1f ms over %d rows):%n", seat, vpipNanos / 1e6,
+                          store.seats().getRows());
+        for (int i = 0; i < vpip.size(); i++) {
+            System.out.printf("  position %d: %.1f%% of %d hands%n", vpip.getKey(i), 100 * vpip.getAverage(i),
+                              vpip.getCount(i));
+        }
+
+        start = System.nanoTime();
+        ColumnQuery.Result pots = store.hands().query().where(STREET, 1, 3).groupBy(TEXTURE).aggregate(POT);
+        long potNanos = System.nanoTime() - start;
+        long[] counts = new long[2];
+        long[] sums = new long[2];
+        for (int i = 0; i < pots.size(); i++) {
+            int wet = BoardTexture.isWet((int) pots.getKey(i)) ? 1 : 0;
+            counts[wet] += pots.getCount(i);
+            sums[wet] += pots.getSum(i);
+        }
+        System.out.printf("Average pot by flop texture (%d textures, %.1f ms over %d rows):%n", pots.size(),
+                          potNanos / 1e6, store.hands().getRows());
+        System.out.printf("  dry: %.1f chips over %d hands%n", counts[0] > 0 ? (double) sums[0] / counts[0] : 0,
+                          counts[0]);
+        System.out.printf("  wet: %.1f chips over %d hands%n", counts[1] > 0 ? (double) sums[1] / counts[1] : 0,
+                          counts[1]);
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.history;
+
+import com.example.AIParameters;
+import com.example.AIPlayer;
+import com.example.Card;
+import com.example.GameEngine.GameState;
+import com.example.Player;
+import com.example.Player.PlayerAction;
+import com.example.sim.TableListener;
+import com.example.sim.TableState;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * Re-plays logged hands with one seat taken over by a candidate player, to measure how
+ * much better or worse it would have done with the same cards.
+ *
+ * Every hand is dealt exactly as logged. The other seats repeat their logged actions for
+ * as long as the hand follows its logged course; once the candidate does something else,
+ * the rest of the hand no longer has a logged answer, and stand-in players act for the
+ * other seats from then on. The candidate's result is compared with the logged seat's
+ * result in the same hand, and both are valued by equity when the hand ends in an all-in
+ * runout, as in {@link com.example.sim.TableSimulator#setAllInAdjusted}.
+ *
+ * The log is streamed one segment per task: each task maps its segment and keeps a
+ * single hand in memory, so archives of any size run in bounded heap.
+ */
+public class Counterfactual {
+    private static final int MAX_RUNOUTS = 5000;
+    private static final long SEED_STRIDE = 0x9E3779B97F4A7C15L;
+    private static final PlayerAction[] ACTIONS = PlayerAction.values();
+
+    private final int seat;
+    private final LongFunction<Player> candidate;
+    private final LongFunction<Player> standIn;
+    private final long seed;
+
+    /**
+     * Creates a re-simulation.
+     *
+     * @param seat The seat the candidate takes over
+     * @param candidate Builds the candidate from a seed; called once per task
+     * @param standIn Builds a player for the other seats once the hand leaves its logged
+     *                course; called once per seat and task
+     * @param seed The seed the players' seeds are derived from
+     */
+    public Counterfactual(int seat, LongFunction<Player> candidate, LongFunction<Player> standIn, long seed) {
+        this.seat = seat;
+        this.candidate = candidate;
+        this.standIn = standIn;
+        this.seed = seed;
+    }
+
+    /**
+     * Re-plays every hand of a log, one task per segment.
+     *
+     * @param directory The log directory
+     * @param threads The number of segments re-played at once
+     * @return The candidate's result against the logged play
+     * @throws IOException If a segment cannot be read
+     */
+    public Summary run(Path directory, int threads) throws IOException {
+        List<Path> segments = HandLog.segments(directory);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Summary>> results = new ArrayList<>();
+            for (int i = 0; i < segments.size(); i++) {
+                Path segment = segments.get(i);
+                long taskSeed = seed + i * SEED_STRIDE;
+                results.add(pool.submit(() -> new Worker(taskSeed).run(segment)));
+            }
+            Summary total = new Summary();
+            for (Future<Summary> result : results) {
+                total.add(result.get());
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Re-simulation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Re-simulation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Re-plays the hands of one segment with its own players and tables.
+     */
+    private final class Worker implements TableListener {
+        private final HandReplayer replayer = new HandReplayer();
+        private final Player hero;
+        private final long playerSeed;
+        private final Random equityRandom;
+        private final List<Player> standIns = new ArrayList<>();
+        private final List<List<Card>> hands = new ArrayList<>();
+        private final List<List<Card>> handViews = new ArrayList<>();
+        private final List<Card> board = new ArrayList<>(5);
+        private final List<Card> boardView = Collections.unmodifiableList(board);
+        private final double[] expected = new double[16];
+        private final int[] payouts = new int[16];
+        private TableState table;
+
+        // The logged actions of the hand being re-played
+        private int[] actionSeats = new int[64];
+        private int[] actions = new int[64];
+        private int[] amounts = new int[64];
+        private int actionCount;
+        private int[] stacks = new int[16];
+
+        // Board cards showing before the last logged action, and after it
+        private int knownBoard;
+        private int boardNow;
+
+        Worker(long taskSeed) {
+            this.hero = candidate.apply(taskSeed);
+            this.playerSeed = taskSeed;
+            this.equityRandom = new Random(~taskSeed);
+        }
+
+        Summary run(Path segment) throws IOException {
+            Summary summary = new Summary();
+            try (HandLogReader reader = new HandLogReader(segment)) {
+                while (reader.nextHand()) {
+                    knownBoard = 0;
+                    boardNow = 0;
+                    if (!replayer.replay(reader, this) || seat >= reader.getSeatCount() || reader.getStack(seat) <= 0) {
+                        summary.skipped++;
+                        continue;
+                    }
+                    TableState logged = replayer.getState();
+                    double before = result(logged, knownBoard, reader.getStack(seat));
+                    boolean diverged = resimulate(reader);
+                    double after = result(table, knownBoard, reader.getStack(seat));
+                    summary.add(after - before, diverged, reader.getBigBlind());
+                }
+            }
+            return summary;
+        }
+
+        @Override
+        public void actionTaken(TableState state, int actor, PlayerAction action, int toCall, int pot) {
+            knownBoard = boardNow;
+            boardNow = state.getBoardCount();
+        }
+
+        /**
+         * Plays the reader's hand again with the candidate in the seat.
+         *
+         * @return true if the hand left its logged course
+         */
+        private boolean resimulate(HandLogReader reader) {
+            int seats = reader.getSeatCount();
+            loadActions(reader, seats);
+            if (table == null || table.getSeatCount() != seats || table.getSmallBlind() != reader.getSmallBlind()
+                    || table.getBigBlind() != reader.getBigBlind()) {
+                table = new TableState(seats, reader.getSmallBlind(), reader.getBigBlind(), reader.getBigBlind() * 2);
+            }
+            table.startHand(reader.getDealer(), stacks, replayer.getDeck());
+            while (hands.size() < seats) {
+                List<Card> hand = new ArrayList<>(2);
+                hands.add(hand);
+                handViews.add(Collections.unmodifiableList(hand));
+            }
+            for (int s = 0; s < seats; s++) {
+                List<Card> hand = hands.get(s);
+                hand.clear();
+                if (table.getHoleCard(s, 0) != TableState.NO_CARD) {
+                    hand.add(Card.fromIndex(table.getHoleCard(s, 0)));
+                    hand.add(Card.fromIndex(table.getHoleCard(s, 1)));
+                }
+            }
+            board.clear();
+
+            int next = 0;
+            boolean onCourse = true;
+            knownBoard = 0;
+            while (!table.isHandOver()) {
+                int actor = table.getToAct();
+                int toCall = table.getToCall(actor);
+                knownBoard = table.getBoardCount();
+                boolean logged = onCourse && next < actionCount && actionSeats[next] == actor;
+                if (actor != seat && logged) {
+                    table.apply(ACTIONS[actions[next]], Math.max(0, amounts[next] - toCall));
+                    next++;
+                    continue;
+                }
+
+                Player player = actor == seat ? hero : standIn(actor);
+                PlayerAction action = decide(player, actor, toCall);
+                int stack = table.getStack(actor);
+                table.apply(action);
+                if (actor == seat && logged && sameOutcome(next, toCall, stack - table.getStack(actor), actor)) {
+                    next++;
+                } else {
+                    onCourse = false;
+                }
+            }
+            return !onCourse;
+        }
+
+        /**
+         * Checks whether the candidate's action did what the logged one did: the same
+         * chips in, and folded or not alike.
+         */
+        private boolean sameOutcome(int index, int toCall, int committed, int actor) {
+            PlayerAction loggedAction = ACTIONS[actions[index]];
+            boolean loggedFold = loggedAction == PlayerAction.FOLD || (loggedAction == PlayerAction.CHECK && toCall > 0);
+            boolean folded = table.getStatus(actor) == TableState.FOLDED;
+            return committed == amounts[index] && loggedFold == folded;
+        }
+
+        private PlayerAction decide(Player player, int actor, int toCall) {
+            while (board.size() < table.getBoardCount()) {
+                board.add(Card.fromIndex(table.getBoardCard(board.size())));
+            }
+            int difference = table.getStack(actor) - player.getChipCount();
+            if (difference > 0) {
+                player.addChips(difference);
+            } else if (difference < 0) {
+                player.removeChips(-difference);
+            }
+            PlayerAction action = player.getAction(handViews.get(actor), boardView, toCall, table.getPot());
+            return action != null ? action : PlayerAction.FOLD;
+        }
+
+        private Player standIn(int actor) {
+            while (standIns.size() <= actor) {
+                standIns.add(standIn.apply(playerSeed + (standIns.size() + 1) * SEED_STRIDE));
+            }
+            return standIns.get(actor);
+        }
+
+        private void loadActions(HandLogReader reader, int seats) {
+            if (stacks.length < seats) {
+                stacks = new int[seats];
+            }
+            for (int s = 0; s < seats; s++) {
+                stacks[s] = reader.getStack(s);
+            }
+            actionCount = 0;
+            reader.rewindHand();
+            for (int type = reader.nextEvent(); type != 0; type = reader.nextEvent()) {
+                if (type != HandEvent.ACTION) {
+                    continue;
+                }
+                if (actionCount == actions.length) {
+                    actionSeats = Arrays.copyOf(actionSeats, actionCount * 2);
+                    actions = Arrays.copyOf(actions, actionCount * 2);
+                    amounts = Arrays.copyOf(amounts, actionCount * 2);
+                }
+                actionSeats[actionCount] = reader.getSeat();
+                actions[actionCount] = reader.getAction().ordinal();
+                amounts[actionCount] = reader.getAmount();
+                actionCount++;
+            }
+        }
+
+        /**
+         * Gets the seat's result in a finished hand, by equity after an all-in runout.
+         */
+        private double result(TableState state, int boardAtAllIn, int startStack) {
+            if (state.getStreet() == GameState.SHOWDOWN && state.getBoardCount() > boardAtAllIn) {
+                double[] shares = state.getSeatCount() <= expected.length ? expected : new double[state.getSeatCount()];
+                state.expectedPayouts(boardAtAllIn, MAX_RUNOUTS, equityRandom, shares);
+                return state.getStack(seat) + shares[seat] - startStack;
+            }
+            int[] paid = state.getSeatCount() <= payouts.length ? payouts : new int[state.getSeatCount()];
+            state.settle(paid);
+            return state.getStack(seat) + paid[seat] - startStack;
+        }
+    }
+
+    /**
+     * The candidate's gain over the logged play, per hand re-played.
+     */
+    public static final class Summary {
+        private long hands;
+        private long diverged;
+        private long skipped;
+        private double sum;
+        private double sumSquares;
+        private double bigBlinds;
+
+        private void add(double gain, boolean left, int bigBlind) {
+            hands++;
+            if (left) {
+                diverged++;
+            }
+            sum += gain;
+            sumSquares += gain * gain;
+            bigBlinds += bigBlind;
+        }
+
+        private void add(Summary other) {
+            hands += other.hands;
+            diverged += other.diverged;
+            skipped += other.skipped;
+            sum += other.sum;
+            sumSquares += other.sumSquares;
+            bigBlinds += other.bigBlinds;
+        }
+
+        public long getHands() {
+            return hands;
+        }
+
+        /** Hands where the candidate left the logged course. */
+        public long getDivergedHands() {
+            return diverged;
+        }
+
+        /** Hands not re-played: the seat sat out, or the log did not replay cleanly. */
+        public long getSkippedHands() {
+            return skipped;
+        }
+
+        /**
+         * Gets the candidate's mean gain over the logged play.
+         *
+         * @return The gain in milli-big-blinds per hand
+         */
+        public double getGain() {
+            return hands > 0 ? sum * 1000.0 / bigBlinds : 0;
+        }
+
+        /**
+         * Gets the half-width of the 95% confidence interval around the gain.
+         *
+         * @return The half-width in milli-big-blinds per hand
+         */
+        public double getConfidence() {
+            if (hands < 2) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double mean = sum / hands;
+            double variance = Math.max(0, (sumSquares - hands * mean * mean) / (hands - 1));
+            return 1.96 * Math.sqrt(variance / hands) * 1000.0 / (bigBlinds / hands);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%+.0f +/- %.0f mbb/hand over %d hands (%d diverged, %d skipped)", getGain(),
+                                 getConfidence(), hands, diverged, skipped);
+        }
+    }
+
+    /**
+     * Re-plays a log with an AIPlayer in one seat and default AIPlayers standing in.
+     * Usage: Counterfactual directory seat [parameterFile] [threads]
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args[0]);
+        int seat = Integer.parseInt(args[1]);
+        AIParameters params = args.length > 2 ? AIParameters.load(Paths.get(args[2])) : AIParameters.defaults();
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        Counterfactual counterfactual = new Counterfactual(seat,
+                taskSeed -> new AIPlayer("Candidate", 0, taskSeed, params),
+                taskSeed -> new AIPlayer("Stand-in", 0, taskSeed), 46);
+        long start = System.nanoTime();
+        Summary summary = counterfactual.run(directory, threads);
+        System.out.printf("Seat %d: %s in %.1fs%n", seat, summary, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,464 @@
+package com.example.history;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of hand numbers, split into containers in the manner of a Roaring
+ * bitmap.
+ *
+ * Numbers are grouped by their upper 16 bits, and each group's lower 16 bits are kept in
+ * a container: a sorted array while the group holds at most 4096 numbers, otherwise a
+ * 65536-bit bitmap. Sparse attributes therefore cost two bytes a hand and dense ones at
+ * most one bit a hand, and intersections work container by container, skipping every
+ * group that only one side has. Adding numbers in increasing order, as an index built
+ * from a log does, only ever appends.
+ *
+ * Hand numbers must be from 0 to {@link Integer#MAX_VALUE}.
+ */
+public final class HandBitmap {
+    // Largest array container; above this a bitmap is smaller
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    /**
+     * Adds a hand number.
+     *
+     * @param hand The hand number
+     * @throws IllegalArgumentException If the number is negative or too large
+     */
+    public void add(long hand) {
+        if (hand < 0 || hand > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Hand number out of range: " + hand);
+        }
+        char key = (char) (hand >>> 16);
+        char low = (char) hand;
+        int index = size > 0 && keys[size - 1] == key ? size - 1 : find(key);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, key, new ArrayContainer());
+        }
+        containers[index] = containers[index].add(low);
+    }
+
+    /**
+     * Checks whether a hand number is in the set.
+     *
+     * @param hand The hand number
+     * @return true if the hand is in the set
+     */
+    public boolean contains(long hand) {
+        if (hand < 0 || hand > Integer.MAX_VALUE) {
+            return false;
+        }
+        int index = find((char) (hand >>> 16));
+        return index >= 0 && containers[index].contains((char) hand);
+    }
+
+    /**
+     * Counts the hand numbers in the set.
+     *
+     * @return The number of hands
+     */
+    public long getCardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Computes the hands in both this set and another.
+     *
+     * @param other The other set
+     * @return A new set
+     */
+    public HandBitmap and(HandBitmap other) {
+        HandBitmap result = new HandBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container both = containers[i].and(other.containers[j]);
+                if (both.cardinality > 0) {
+                    result.insert(result.size, keys[i], both);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the hands in either this set or another.
+     *
+     * @param other The other set
+     * @return A new set
+     */
+    public HandBitmap or(HandBitmap other) {
+        HandBitmap result = new HandBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.insert(result.size, keys[i], containers[i].copy());
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.insert(result.size, other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.insert(result.size, keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calls an action for each hand number in increasing order.
+     *
+     * @param action The action
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Lists the hand numbers in increasing order.
+     *
+     * @return The hand numbers
+     */
+    public int[] toArray() {
+        int[] hands = new int[(int) getCardinality()];
+        int[] next = new int[1];
+        forEach(hand -> hands[next[0]++] = hand);
+        return hands;
+    }
+
+    /**
+     * Writes the set in a form {@link #read} restores.
+     *
+     * @param out The output
+     * @throws IOException If the output cannot be written
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeChar(keys[i]);
+            containers[i].write(out);
+        }
+    }
+
+    /**
+     * Reads a set written by {@link #write}.
+     *
+     * @param in The input
+     * @return The set
+     * @throws IOException If the input cannot be read
+     */
+    public static HandBitmap read(DataInput in) throws IOException {
+        HandBitmap bitmap = new HandBitmap();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            char key = in.readChar();
+            int cardinality = in.readInt();
+            Container container;
+            if (cardinality > ARRAY_MAX) {
+                BitmapContainer bits = new BitmapContainer();
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    bits.words[w] = in.readLong();
+                }
+                container = bits;
+            } else {
+                ArrayContainer values = new ArrayContainer();
+                values.values = new char[Math.max(4, cardinality)];
+                for (int v = 0; v < cardinality; v++) {
+                    values.values[v] = in.readChar();
+                }
+                container = values;
+            }
+            container.cardinality = cardinality;
+            bitmap.insert(bitmap.size, key, container);
+        }
+        return bitmap;
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    @Override
+    public String toString() {
+        return "HandBitmap[" + getCardinality() + " hands in " + size + " containers]";
+    }
+
+    /**
+     * The lower 16 bits of the numbers that share their upper 16 bits.
+     */
+    private abstract static class Container {
+        int cardinality;
+
+        /** Adds a value, returning the container that now holds the group. */
+        abstract Container add(char value);
+
+        abstract boolean contains(char value);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container copy();
+
+        abstract void forEach(int high, IntConsumer action);
+
+        abstract void write(DataOutput out) throws IOException;
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] values = new char[4];
+
+        @Override
+        Container add(char value) {
+            int index;
+            if (cardinality == 0 || values[cardinality - 1] < value) {
+                index = cardinality;
+            } else {
+                index = Arrays.binarySearch(values, 0, cardinality, value);
+                if (index >= 0) {
+                    return this;
+                }
+                index = -index - 1;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            ArrayContainer result = new ArrayContainer();
+            if (other instanceof BitmapContainer) {
+                long[] words = ((BitmapContainer) other).words;
+                result.values = new char[Math.max(4, cardinality)];
+                for (int i = 0; i < cardinality; i++) {
+                    char value = values[i];
+                    result.values[result.cardinality] = value;
+                    result.cardinality += (int) (words[value >>> 6] >>> value) & 1;
+                }
+                return result;
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            result.values = new char[Math.max(4, Math.min(cardinality, array.cardinality))];
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < array.cardinality) {
+                if (values[i] < array.values[j]) {
+                    i++;
+                } else if (values[i] > array.values[j]) {
+                    j++;
+                } else {
+                    result.values[result.cardinality++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > ARRAY_MAX) {
+                // Shared values can leave the union small enough for an array, which read() expects
+                BitmapContainer union = (BitmapContainer) toBitmap().or(array);
+                return union.cardinality > ARRAY_MAX ? union : union.toArray();
+            }
+            ArrayContainer result = new ArrayContainer();
+            result.values = new char[Math.max(4, cardinality + array.cardinality)];
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                char value;
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    value = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    value = array.values[j++];
+                } else {
+                    value = values[i++];
+                    j++;
+                }
+                result.values[result.cardinality++] = value;
+            }
+            return result;
+        }
+
+        @Override
+        Container copy() {
+            ArrayContainer copy = new ArrayContainer();
+            copy.values = Arrays.copyOf(values, Math.max(4, cardinality));
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeInt(cardinality);
+            for (int i = 0; i < cardinality; i++) {
+                out.writeChar(values[i]);
+            }
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] words = new long[BITMAP_WORDS];
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+            int word = value >>> 6;
+            if ((words[word] & bit) == 0) {
+                words[word] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            BitmapContainer result = new BitmapContainer();
+            int cardinality = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                result.words[w] = words[w] & otherWords[w];
+                cardinality += Long.bitCount(result.words[w]);
+            }
+            result.cardinality = cardinality;
+            return cardinality > ARRAY_MAX ? result : result.toArray();
+        }
+
+        @Override
+        Container or(Container other) {
+            BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    result.add(array.values[i]);
+                }
+                return result;
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int cardinality = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                result.words[w] |= otherWords[w];
+                cardinality += Long.bitCount(result.words[w]);
+            }
+            result.cardinality = cardinality;
+            return result;
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, BITMAP_WORDS);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        private ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[Math.max(4, cardinality)];
+            forEach(0, value -> array.values[array.cardinality++] = (char) value);
+            return array;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeInt(cardinality);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+    }
+}
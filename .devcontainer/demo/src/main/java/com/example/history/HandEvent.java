@@ -0,0 +1,33 @@
+package com.example.history;
+
+/**
+ * The event types of the binary hand log and their encodings.
+ *
+ * A hand is stored as one record: its length, its hand number, then its events. Each
+ * event is a type byte followed by its fields. Seats, amounts and counts are unsigned
+ * varints (7 bits per byte, low bits first); cards, streets and actions are single bytes.
+ * <pre>
+ * HAND_START  dealer, small blind, big blind, seat count, stack before the blinds per seat,
+ *             start time in epoch milliseconds (not in version 1 segments)
+ * HOLE_CARDS  seat, card, card
+ * BLIND       seat, amount
+ * ACTION      seat, action ordinal, chips put in
+ * STREET      street ordinal, card count, cards
+ * SHOWDOWN    seat, card, card
+ * PAYOUT      seat, amount
+ * HAND_END    (no fields)
+ * </pre>
+ */
+public final class HandEvent {
+    public static final int HAND_START = 1;
+    public static final int HOLE_CARDS = 2;
+    public static final int BLIND = 3;
+    public static final int ACTION = 4;
+    public static final int STREET = 5;
+    public static final int SHOWDOWN = 6;
+    public static final int PAYOUT = 7;
+    public static final int HAND_END = 8;
+
+    private HandEvent() {
+    }
+}
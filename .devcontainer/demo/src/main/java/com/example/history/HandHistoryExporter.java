@@ -0,0 +1,563 @@
+package com.example.history;
+
+import com.example.Card;
+import com.example.Player.PlayerAction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports a {@link HandLog} as PokerStars-style text hand histories, which most poker
+ * tools can import.
+ *
+ * The log is cut into chunks of consecutive hands that are formatted in parallel and
+ * written out in log order, with only a few chunks in memory at a time. Every piece of
+ * text is pre-encoded — card tokens such as "Ah", player and table names — and each
+ * thread formats into one reusable byte buffer, so no strings are built per hand. When
+ * the output file name ends in ".gz", each chunk is compressed by the thread that
+ * formatted it into its own gzip member; the concatenated members are one valid gzip file.
+ *
+ * The log records no player or table names, so seats are named "Player 1", "Player 2"
+ * and so on unless names are given. Each hand is stamped with the start time logged with
+ * it; hands from version 1 segments, which have no times, get the segment file's
+ * modification time instead.
+ */
+public class HandHistoryExporter {
+    // Hands per chunk: large enough to amortise a task, small enough to keep chunks in cache
+    private static final int CHUNK_HANDS = 2048;
+    private static final byte[][] CARDS = new byte[Card.DECK_SIZE][];
+    private static final DateTimeFormatter DATE =
+            DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss 'UTC'").withZone(ZoneOffset.UTC);
+
+    static {
+        String ranks = "23456789TJQKA";
+        String suits = "cdhs";
+        for (int index = 0; index < Card.DECK_SIZE; index++) {
+            CARDS[index] = new byte[] {(byte) ranks.charAt(index % 13), (byte) suits.charAt(index / 13)};
+        }
+    }
+
+    private final byte[] table;
+    private final String[] names;
+
+    /**
+     * Creates an exporter with default table and player names.
+     */
+    public HandHistoryExporter() {
+        this("pokerclone", new String[0]);
+    }
+
+    /**
+     * Creates an exporter.
+     *
+     * @param table The table name written into every hand
+     * @param names The player name of each seat; seats past the end are named by number
+     */
+    public HandHistoryExporter(String table, String[] names) {
+        this.table = table.getBytes(StandardCharsets.UTF_8);
+        this.names = names.clone();
+    }
+
+    /**
+     * Exports every hand of a log, compressing the output if its name ends in ".gz".
+     *
+     * @param directory The log directory
+     * @param output The text file to write
+     * @param threads The number of chunks formatted at once
+     * @return The number of hands exported
+     * @throws IOException If the log cannot be read or the output cannot be written
+     */
+    public long export(Path directory, Path output, int threads) throws IOException {
+        boolean compress = output.getFileName().toString().endsWith(".gz");
+        int window = Math.max(1, threads) * 2;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        ThreadLocal<Formatter> formatters = ThreadLocal.withInitial(Formatter::new);
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        long hands = 0;
+        try (OutputStream out = Files.newOutputStream(output)) {
+            for (Path segment : HandLog.segments(directory)) {
+                // Find the chunk boundaries; this only skips from record to record
+                try (HandLogReader scan = new HandLogReader(segment)) {
+                    byte[] date = scan.getVersion() < 2
+                            ? DATE.format(Files.getLastModifiedTime(segment).toInstant()).getBytes(StandardCharsets.US_ASCII)
+                            : null;
+                    int count;
+                    do {
+                        int offset = 0;
+                        for (count = 0; count < CHUNK_HANDS && scan.nextHand(); count++) {
+                            if (count == 0) {
+                                offset = scan.getHandOffset();
+                            }
+                        }
+                        if (count > 0) {
+                            int chunkOffset = offset;
+                            int chunkHands = count;
+                            pending.add(pool.submit(() -> formatters.get().chunk(segment, chunkOffset, chunkHands,
+                                                                               date, compress)));
+                            hands += count;
+                        }
+                        while (pending.size() >= window) {
+                            out.write(pending.poll().get());
+                        }
+                    } while (count == CHUNK_HANDS);
+                }
+            }
+            while (!pending.isEmpty()) {
+                out.write(pending.poll().get());
+            }
+            return hands;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Export interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Export failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Formats hands into a reusable buffer. Each thread has its own.
+     */
+    private final class Formatter {
+        private byte[] out = new byte[1 << 16];
+        private int size;
+        private byte[][] seatNames = new byte[0][];
+        // The last hand's start time, to the second, and its text
+        private long stampSecond = Long.MIN_VALUE;
+        private byte[] stamp;
+
+        // The hand being formatted
+        private long hand;
+        private int seats;
+        private int dealer;
+        private int smallBlindSeat;
+        private int bigBlind;
+        private int[] stacks = new int[10];
+        private int[] holeCards = new int[20];
+        private int[] committed = new int[10];
+        private int[] street = new int[10];
+        private int[] returned = new int[10];
+        private int[] won = new int[10];
+        private int[] foldedAt = new int[10];
+        private boolean[] shown = new boolean[10];
+        private final int[] board = new int[5];
+        private int boardCount;
+        private int streetBet;
+        private boolean seatsListed;
+        private boolean dealt;
+        private boolean settled;
+        private boolean showdown;
+
+        /**
+         * Formats a chunk of hands and returns its bytes, compressed if asked. The date is
+         * used for hands logged without a start time.
+         */
+        byte[] chunk(Path segment, int offset, int hands, byte[] date, boolean compress) throws IOException {
+            size = 0;
+            try (HandLogReader reader = new HandLogReader(segment)) {
+                reader.seek(offset);
+                for (int i = 0; i < hands && reader.nextHand(); i++) {
+                    format(reader, date);
+                }
+            }
+            if (!compress) {
+                return Arrays.copyOf(out, size);
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(size / 4);
+            // The fastest level: text this repetitive compresses well anyway
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 1 << 16) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            }) {
+                gzip.write(out, 0, size);
+            }
+            return compressed.toByteArray();
+        }
+
+        private void format(HandLogReader reader, byte[] date) {
+            hand = reader.getHand();
+            for (int type = reader.nextEvent(); type != 0; type = reader.nextEvent()) {
+                switch (type) {
+                    case HandEvent.HAND_START:
+                        start(reader, date);
+                        break;
+                    case HandEvent.HOLE_CARDS:
+                        holeCards[2 * reader.getSeat()] = reader.getCard(0);
+                        holeCards[2 * reader.getSeat() + 1] = reader.getCard(1);
+                        break;
+                    case HandEvent.BLIND:
+                        blind(reader.getSeat(), reader.getAmount());
+                        break;
+                    case HandEvent.ACTION:
+                        action(reader.getSeat(), reader.getAction(), reader.getAmount());
+                        break;
+                    case HandEvent.STREET:
+                        street(reader);
+                        break;
+                    case HandEvent.SHOWDOWN:
+                        settle();
+                        if (!showdown) {
+                            text("*** SHOW DOWN ***\n");
+                            showdown = true;
+                        }
+                        int seat = reader.getSeat();
+                        shown[seat] = true;
+                        name(seat).text(": shows [").cards(holeCards, 2 * seat, 2).text("]\n");
+                        break;
+                    case HandEvent.PAYOUT:
+                        settle();
+                        payout(reader.getSeat(), reader.getAmount());
+                        break;
+                    case HandEvent.HAND_END:
+                        settle();
+                        summary();
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private void start(HandLogReader reader, byte[] date) {
+            seats = reader.getSeatCount();
+            dealer = reader.getDealer();
+            bigBlind = reader.getBigBlind();
+            if (stacks.length < seats) {
+                stacks = new int[seats];
+                holeCards = new int[2 * seats];
+                committed = new int[seats];
+                street = new int[seats];
+                returned = new int[seats];
+                won = new int[seats];
+                foldedAt = new int[seats];
+                shown = new boolean[seats];
+            }
+            for (int seat = 0; seat < seats; seat++) {
+                stacks[seat] = reader.getStack(seat);
+                holeCards[2 * seat] = -1;
+                committed[seat] = 0;
+                street[seat] = 0;
+                returned[seat] = 0;
+                won[seat] = 0;
+                foldedAt[seat] = -1;
+                shown[seat] = false;
+            }
+            // The table posts the small blind from the first seat with chips after the dealer
+            smallBlindSeat = dealer;
+            for (int i = 1; i <= seats; i++) {
+                smallBlindSeat = (dealer + i) % seats;
+                if (stacks[smallBlindSeat] > 0) {
+                    break;
+                }
+            }
+            boardCount = 0;
+            streetBet = 0;
+            seatsListed = false;
+            dealt = false;
+            settled = false;
+            showdown = false;
+
+            long time = reader.getTime();
+            text("PokerStars Hand #").number(hand).text(": Hold'em No Limit (").number(reader.getSmallBlind())
+                    .put('/').number(bigBlind).text(") - ").put(time >= 0 ? date(time) : date).newLine();
+            text("Table '").put(table).put('\'').put(' ').number(seats).text("-max Seat #").number(dealer + 1)
+                    .text(" is the button\n");
+        }
+
+        /**
+         * Gets the text of a start time. Hands logged in quick succession share a second,
+         * so the last one is kept.
+         */
+        private byte[] date(long millis) {
+            long second = Math.floorDiv(millis, 1000L);
+            if (second != stampSecond) {
+                stampSecond = second;
+                stamp = DATE.format(Instant.ofEpochSecond(second)).getBytes(StandardCharsets.US_ASCII);
+            }
+            return stamp;
+        }
+
+        /**
+         * Lists the seats dealt in; done at the first blind, once the hole cards are known.
+         */
+        private void listSeats() {
+            if (seatsListed) {
+                return;
+            }
+            seatsListed = true;
+            for (int seat = 0; seat < seats; seat++) {
+                if (holeCards[2 * seat] >= 0) {
+                    text("Seat ").number(seat + 1).text(": ").name(seat).text(" (").number(stacks[seat])
+                            .text(" in chips)\n");
+                }
+            }
+        }
+
+        private void blind(int seat, int amount) {
+            listSeats();
+            commit(seat, amount);
+            streetBet = Math.max(streetBet, street[seat]);
+            name(seat).text(seat == smallBlindSeat ? ": posts small blind " : ": posts big blind ").number(amount);
+            allIn(seat).newLine();
+        }
+
+        /**
+         * Shows the hole cards before the first thing that follows the blinds.
+         */
+        private void deal() {
+            listSeats();
+            if (dealt) {
+                return;
+            }
+            dealt = true;
+            text("*** HOLE CARDS ***\n");
+            for (int seat = 0; seat < seats; seat++) {
+                if (holeCards[2 * seat] >= 0) {
+                    text("Dealt to ").name(seat).text(" [").cards(holeCards, 2 * seat, 2).text("]\n");
+                }
+            }
+        }
+
+        private void action(int seat, PlayerAction action, int chips) {
+            deal();
+            if (action == PlayerAction.FOLD) {
+                foldedAt[seat] = boardCount;
+                name(seat).text(": folds\n");
+                return;
+            }
+            if (chips == 0) {
+                name(seat).text(": checks\n");
+                return;
+            }
+            commit(seat, chips);
+            int total = street[seat];
+            if (total <= streetBet) {
+                name(seat).text(": calls ").number(chips);
+            } else if (streetBet == 0) {
+                name(seat).text(": bets ").number(chips);
+            } else {
+                name(seat).text(": raises ").number(total - streetBet).text(" to ").number(total);
+            }
+            streetBet = Math.max(streetBet, total);
+            allIn(seat).newLine();
+        }
+
+        private void street(HandLogReader reader) {
+            deal();
+            int from = boardCount;
+            for (int i = 0; i < reader.getCardCount(); i++) {
+                board[boardCount++] = reader.getCard(i);
+            }
+            Arrays.fill(street, 0, seats, 0);
+            streetBet = 0;
+            // The turn and river show the earlier board first, then the new card
+            text("*** ").text(streetName(from)).text(" *** [").cards(board, 0, from == 0 ? boardCount : from);
+            if (from > 0) {
+                text("] [").cards(board, from, boardCount - from);
+            }
+            text("]\n");
+        }
+
+        /**
+         * Returns the part of the biggest bet nobody called, before the pot is awarded.
+         */
+        private void settle() {
+            deal();
+            if (settled) {
+                return;
+            }
+            settled = true;
+            int top = 0;
+            for (int seat = 1; seat < seats; seat++) {
+                if (committed[seat] > committed[top]) {
+                    top = seat;
+                }
+            }
+            int called = 0;
+            for (int seat = 0; seat < seats; seat++) {
+                if (seat != top) {
+                    called = Math.max(called, committed[seat]);
+                }
+            }
+            if (committed[top] > called) {
+                returned[top] = committed[top] - called;
+                text("Uncalled bet (").number(returned[top]).text(") returned to ").name(top).newLine();
+            }
+        }
+
+        private void payout(int seat, int amount) {
+            // The logged payout includes any uncalled chips, which were not won
+            int pot = amount - returned[seat];
+            if (pot > 0) {
+                won[seat] += pot;
+                name(seat).text(" collected ").number(pot).text(" from pot\n");
+            }
+        }
+
+        private void summary() {
+            long pot = 0;
+            for (int seat = 0; seat < seats; seat++) {
+                pot += committed[seat] - returned[seat];
+            }
+            text("*** SUMMARY ***\nTotal pot ").number(pot).text(" | Rake 0\n");
+            if (boardCount > 0) {
+                text("Board [").cards(board, 0, boardCount).text("]\n");
+            }
+            for (int seat = 0; seat < seats; seat++) {
+                if (holeCards[2 * seat] < 0) {
+                    continue;
+                }
+                text("Seat ").number(seat + 1).text(": ").name(seat);
+                if (seat == dealer) {
+                    text(" (button)");
+                }
+                if (foldedAt[seat] == 0) {
+                    text(" folded before Flop");
+                } else if (foldedAt[seat] > 0) {
+                    text(" folded on the ").text(foldedAt[seat] == 3 ? "Flop" : foldedAt[seat] == 4 ? "Turn" : "River");
+                } else if (shown[seat]) {
+                    text(" showed [").cards(holeCards, 2 * seat, 2).put(']');
+                    if (won[seat] > 0) {
+                        text(" and won (").number(won[seat]).put(')');
+                    } else {
+                        text(" and lost");
+                    }
+                } else if (won[seat] > 0) {
+                    text(" collected (").number(won[seat]).put(')');
+                }
+                newLine();
+            }
+            text("\n\n");
+        }
+
+        private void commit(int seat, int chips) {
+            committed[seat] += chips;
+            street[seat] += chips;
+            stacks[seat] -= chips;
+        }
+
+        private Formatter allIn(int seat) {
+            return stacks[seat] == 0 ? text(" and is all-in") : this;
+        }
+
+        private String streetName(int from) {
+            return from == 0 ? "FLOP" : from == 3 ? "TURN" : "RIVER";
+        }
+
+        private Formatter name(int seat) {
+            if (seat >= seatNames.length) {
+                seatNames = Arrays.copyOf(seatNames, seat + 1);
+            }
+            if (seatNames[seat] == null) {
+                String name = seat < names.length ? names[seat] : "Player " + (seat + 1);
+                seatNames[seat] = name.getBytes(StandardCharsets.UTF_8);
+            }
+            return put(seatNames[seat]);
+        }
+
+        private Formatter cards(int[] cards, int from, int count) {
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    put(' ');
+                }
+                put(CARDS[cards[from + i]]);
+            }
+            return this;
+        }
+
+        private Formatter number(long value) {
+            ensure(20);
+            if (value < 0) {
+                out[size++] = '-';
+                value = -value;
+            }
+            int end = size + digits(value);
+            for (int i = end - 1; i >= size; i--) {
+                out[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            size = end;
+            return this;
+        }
+
+        private int digits(long value) {
+            int digits = 1;
+            while (value >= 10) {
+                value /= 10;
+                digits++;
+            }
+            return digits;
+        }
+
+        /**
+         * Appends ASCII text.
+         */
+        private Formatter text(String text) {
+            int length = text.length();
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                out[size++] = (byte) text.charAt(i);
+            }
+            return this;
+        }
+
+        private Formatter put(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, out, size, bytes.length);
+            size += bytes.length;
+            return this;
+        }
+
+        private Formatter put(char c) {
+            ensure(1);
+            out[size++] = (byte) c;
+            return this;
+        }
+
+        private Formatter newLine() {
+            return put('\n');
+        }
+
+        private void ensure(int bytes) {
+            if (size + bytes > out.length) {
+                out = Arrays.copyOf(out, Math.max(out.length * 2, size + bytes));
+            }
+        }
+    }
+
+    /**
+     * Exports a log to a text file, compressed if its name ends in ".gz".
+     * Usage: HandHistoryExporter directory output [threads]
+     */
+    public static void main(String[] args) throws IOException {
+        Path output = Paths.get(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        long hands = new HandHistoryExporter().export(Paths.get(args[0]), output, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d hands exported to %s (%.1f MB) in %.1fs (%.0f hands/s)%n", hands, output,
+                          Files.size(output) / 1e6, seconds, hands / seconds);
+    }
+}
@@ -0,0 +1,441 @@
+package com.example.history;
+
+import com.example.GameEngine.HandType;
+import com.example.Player.PlayerAction;
+import com.example.eval.HandEvaluator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inverted index from hand attributes to the {@link HandBitmap} of hands that have
+ * them, for finding hands in a {@link HandLog} without scanning it.
+ *
+ * Each attribute is a key such as {@code seat=2} or {@code seat=2&type=THREE_OF_A_KIND};
+ * the key methods of this class build them. Indexed attributes:
+ * <ul>
+ *   <li>the seats dealt in;</li>
+ *   <li>the {@link HandType} shown at showdown, for the hand and for the seat showing it;</li>
+ *   <li>each seat's win or loss, and the pot, in big blinds, bucketed by
+ *       {@link #BUCKETS};</li>
+ *   <li>the UTC day the hand started, from the start time in the log; hands from
+ *       version 1 segments have no start time and no day.</li>
+ * </ul>
+ * The log records seats rather than players or tables, so seats are the only identity
+ * available. A query intersects the bitmaps of its keys, smallest first.
+ *
+ * {@link #update} indexes only the hands logged since the last update, so the index can
+ * follow a growing log, and {@link #save} writes it to a file {@link #open} loads.
+ */
+public class HandIndex {
+    /** Lower edges of the big-blind buckets for wins, losses and pots. */
+    public static final int[] BUCKETS = {0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000};
+
+    private static final int MAGIC = 0x50484958; // "PHIX"
+    // Version 2 takes days from the hands' start times rather than the segment files
+    private static final int VERSION = 2;
+
+    private final Map<String, HandBitmap> bitmaps = new HashMap<>();
+    private long nextHand;
+
+    // The hand being indexed
+    private int seats;
+    private boolean[] dealt = new boolean[10];
+    private boolean[] shown = new boolean[10];
+    private int[] holeCards = new int[20];
+    private int[] committed = new int[10];
+    private int[] payout = new int[10];
+
+    /**
+     * Loads an index saved by {@link #save}, or creates an empty one if the file does not
+     * exist.
+     *
+     * @param file The index file
+     * @return The index
+     * @throws IOException If the file cannot be read or is not an index
+     */
+    public static HandIndex open(Path file) throws IOException {
+        HandIndex index = new HandIndex();
+        if (!Files.exists(file)) {
+            return index;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a hand index: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Hand index version " + version + " is out of date, delete it to rebuild: " + file);
+            }
+            index.nextHand = in.readLong();
+            int keys = in.readInt();
+            for (int i = 0; i < keys; i++) {
+                index.bitmaps.put(in.readUTF(), HandBitmap.read(in));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Writes the index to a file, replacing it only once the new file is complete.
+     *
+     * @param file The index file
+     * @throws IOException If the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary),
+                                                                                  1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(nextHand);
+            out.writeInt(bitmaps.size());
+            for (Map.Entry<String, HandBitmap> entry : bitmaps.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Indexes the hands of a log that are not yet in the index.
+     *
+     * @param log The log directory
+     * @return The number of hands added
+     * @throws IOException If the log cannot be read
+     */
+    public long update(Path log) throws IOException {
+        List<Path> segments = HandLog.segments(log);
+        long added = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            // Skip segments whose hands were all indexed by an earlier update
+            if (i + 1 < segments.size() && HandLog.firstHand(segments.get(i + 1)) <= nextHand) {
+                continue;
+            }
+            try (HandLogReader reader = new HandLogReader(segments.get(i))) {
+                while (reader.nextHand()) {
+                    if (reader.getHand() >= nextHand) {
+                        index(reader);
+                        nextHand = reader.getHand() + 1;
+                        added++;
+                    }
+                }
+            }
+        }
+        return added;
+    }
+
+    private void index(HandLogReader reader) {
+        long hand = reader.getHand();
+        long time = -1;
+        int bigBlind = 1;
+        long board = 0L;
+        for (int type = reader.nextEvent(); type != 0; type = reader.nextEvent()) {
+            switch (type) {
+                case HandEvent.HAND_START:
+                    bigBlind = Math.max(1, reader.getBigBlind());
+                    time = reader.getTime();
+                    start(reader.getSeatCount());
+                    break;
+                case HandEvent.HOLE_CARDS:
+                    dealt[reader.getSeat()] = true;
+                    holeCards[2 * reader.getSeat()] = reader.getCard(0);
+                    holeCards[2 * reader.getSeat() + 1] = reader.getCard(1);
+                    break;
+                case HandEvent.BLIND:
+                    committed[reader.getSeat()] += reader.getAmount();
+                    break;
+                case HandEvent.ACTION:
+                    if (reader.getAction() != PlayerAction.FOLD) {
+                        committed[reader.getSeat()] += reader.getAmount();
+                    }
+                    break;
+                case HandEvent.STREET:
+                    for (int i = 0; i < reader.getCardCount(); i++) {
+                        board |= 1L << reader.getCard(i);
+                    }
+                    break;
+                case HandEvent.SHOWDOWN:
+                    shown[reader.getSeat()] = true;
+                    break;
+                case HandEvent.PAYOUT:
+                    payout[reader.getSeat()] += reader.getAmount();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (time >= 0) {
+            add(date(Instant.ofEpochMilli(time).atZone(ZoneOffset.UTC).toLocalDate()), hand);
+        }
+        long pot = 0;
+        for (int seat = 0; seat < seats; seat++) {
+            pot += committed[seat];
+            if (!dealt[seat]) {
+                continue;
+            }
+            add(seat(seat), hand);
+            int net = payout[seat] - committed[seat];
+            if (net > 0) {
+                add(won(seat, bucket(net / bigBlind)), hand);
+            } else if (net < 0) {
+                add(lost(seat, bucket(-net / bigBlind)), hand);
+            }
+            if (shown[seat] && Long.bitCount(board) == 5) {
+                HandType shownType = HandEvaluator.handType(
+                        HandEvaluator.evaluate(holeCards[2 * seat], holeCards[2 * seat + 1], board));
+                add(showdown(shownType), hand);
+                add(showdown(seat, shownType), hand);
+            }
+        }
+        add(pot(bucket((pot - returned()) / bigBlind)), hand);
+    }
+
+    private void start(int seatCount) {
+        seats = seatCount;
+        if (dealt.length < seats) {
+            dealt = new boolean[seats];
+            shown = new boolean[seats];
+            holeCards = new int[2 * seats];
+            committed = new int[seats];
+            payout = new int[seats];
+        }
+        Arrays.fill(dealt, 0, seats, false);
+        Arrays.fill(shown, 0, seats, false);
+        Arrays.fill(committed, 0, seats, 0);
+        Arrays.fill(payout, 0, seats, 0);
+    }
+
+    /**
+     * Gets the part of the biggest bet that nobody called, which went back to its bettor.
+     */
+    private int returned() {
+        int top = 0;
+        for (int seat = 1; seat < seats; seat++) {
+            if (committed[seat] > committed[top]) {
+                top = seat;
+            }
+        }
+        int called = 0;
+        for (int seat = 0; seat < seats; seat++) {
+            if (seat != top) {
+                called = Math.max(called, committed[seat]);
+            }
+        }
+        return committed[top] - called;
+    }
+
+    private void add(String key, long hand) {
+        HandBitmap bitmap = bitmaps.get(key);
+        if (bitmap == null) {
+            bitmap = new HandBitmap();
+            bitmaps.put(key, bitmap);
+        }
+        bitmap.add(hand);
+    }
+
+    /**
+     * Gets the bucket a number of big blinds falls in.
+     *
+     * @param bigBlinds The number of big blinds
+     * @return The largest lower edge in {@link #BUCKETS} that is not above it
+     */
+    public static int bucket(long bigBlinds) {
+        int bucket = 0;
+        for (int edge : BUCKETS) {
+            if (edge <= bigBlinds) {
+                bucket = edge;
+            }
+        }
+        return bucket;
+    }
+
+    public static String seat(int seat) {
+        return "seat=" + seat;
+    }
+
+    public static String showdown(HandType type) {
+        return "type=" + type.name();
+    }
+
+    public static String showdown(int seat, HandType type) {
+        return seat(seat) + "&" + showdown(type);
+    }
+
+    /** A seat winning a bucket of big blinds; the bucket is an edge from {@link #BUCKETS}. */
+    public static String won(int seat, int bucket) {
+        return seat(seat) + "&won=" + bucket;
+    }
+
+    /** A seat losing a bucket of big blinds; the bucket is an edge from {@link #BUCKETS}. */
+    public static String lost(int seat, int bucket) {
+        return seat(seat) + "&lost=" + bucket;
+    }
+
+    /** A pot of a bucket of big blinds; the bucket is an edge from {@link #BUCKETS}. */
+    public static String pot(int bucket) {
+        return "pot=" + bucket;
+    }
+
+    /** Hands started on a UTC day. */
+    public static String date(LocalDate date) {
+        return "date=" + date;
+    }
+
+    /**
+     * Gets the hands with an attribute.
+     *
+     * @param key The attribute's key
+     * @return The hands, empty if none has it; not to be modified
+     */
+    public HandBitmap get(String key) {
+        HandBitmap bitmap = bitmaps.get(key);
+        return bitmap != null ? bitmap : new HandBitmap();
+    }
+
+    /**
+     * Gets the hands with every one of some attributes.
+     *
+     * @param keys The attributes' keys
+     * @return The hands, as a new set
+     */
+    public HandBitmap all(String... keys) {
+        HandBitmap[] sets = new HandBitmap[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sets[i] = get(keys[i]);
+        }
+        return all(sets);
+    }
+
+    /**
+     * Intersects sets of hands, smallest first so that every step is as cheap as it can be.
+     *
+     * @param sets The sets
+     * @return The hands in all of them, as a new set
+     */
+    public static HandBitmap all(HandBitmap... sets) {
+        if (sets.length == 0) {
+            return new HandBitmap();
+        }
+        HandBitmap[] ordered = sets.clone();
+        Arrays.sort(ordered, Comparator.comparingLong(HandBitmap::getCardinality));
+        if (ordered.length == 1) {
+            return ordered[0].or(new HandBitmap());
+        }
+        HandBitmap result = ordered[0].and(ordered[1]);
+        for (int i = 2; i < ordered.length && !result.isEmpty(); i++) {
+            result = result.and(ordered[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the hands with any of some attributes.
+     *
+     * @param keys The attributes' keys
+     * @return The hands, as a new set
+     */
+    public HandBitmap any(String... keys) {
+        HandBitmap result = new HandBitmap();
+        for (String key : keys) {
+            result = result.or(get(key));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the hands a seat lost at least a number of big blinds in, counted by bucket:
+     * the amount is rounded down to a bucket edge, so hands lost by slightly less can
+     * be included.
+     *
+     * @param seat The seat
+     * @param bigBlinds The smallest loss
+     * @return The hands, as a new set
+     */
+    public HandBitmap lostAtLeast(int seat, int bigBlinds) {
+        HandBitmap result = new HandBitmap();
+        for (int edge : BUCKETS) {
+            if (edge >= bucket(bigBlinds)) {
+                result = result.or(get(lost(seat, edge)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the hands with a pot of at least a number of big blinds, counted by bucket as
+     * in {@link #lostAtLeast}.
+     *
+     * @param bigBlinds The smallest pot
+     * @return The hands, as a new set
+     */
+    public HandBitmap potAtLeast(int bigBlinds) {
+        HandBitmap result = new HandBitmap();
+        for (int edge : BUCKETS) {
+            if (edge >= bucket(bigBlinds)) {
+                result = result.or(get(pot(edge)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number the next hand indexed will have.
+     *
+     * @return One past the last hand indexed
+     */
+    public long getNextHand() {
+        return nextHand;
+    }
+
+    /**
+     * Gets the number of distinct attribute keys.
+     *
+     * @return The number of keys
+     */
+    public int getKeyCount() {
+        return bitmaps.size();
+    }
+
+    /**
+     * Brings an index up to date with a log, then finds the hands with every key given.
+     * Usage: HandIndex logDirectory indexFile [key ...], with keys such as seat=2,
+     * type=ROYAL_FLUSH, seat=2&amp;type=THREE_OF_A_KIND, seat=2&amp;lost=100, pot=50 or
+     * date=2024-05-01
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args[1]);
+        long start = System.nanoTime();
+        HandIndex index = open(file);
+        long added = index.update(Paths.get(args[0]));
+        index.save(file);
+        System.out.printf("%d hands added, %d indexed under %d keys in %.1fs%n", added, index.getNextHand(),
+                          index.getKeyCount(), (System.nanoTime() - start) / 1e9);
+        if (args.length < 3) {
+            return;
+        }
+        start = System.nanoTime();
+        HandBitmap hands = index.all(Arrays.copyOfRange(args, 2, args.length));
+        double millis = (System.nanoTime() - start) / 1e6;
+        int[] found = hands.toArray();
+        System.out.printf("%d hands in %.2f ms: %s%n", found.length, millis,
+                          Arrays.toString(Arrays.copyOf(found, Math.min(found.length, 20))));
+    }
+}
@@ -0,0 +1,414 @@
+package com.example.history;
+
+import com.example.GameEngine.GameState;
+import com.example.Player.PlayerAction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An append-only log of every hand played, stored as compact binary {@link HandEvent}s in
+ * a directory of segment files.
+ *
+ * Each table encodes its hand into a private {@link Writer} as it is played; when the hand
+ * ends the whole record is appended to the log at once, so hands from many tables never
+ * interleave and a hand is either in the log or not. Appends are gathered in a buffer
+ * and written to the current segment in large batches. A new segment is started once
+ * the current one reaches its size limit, always at a hand boundary, so segments can be
+ * read independently. Segment files are named after the number of their first hand.
+ *
+ * How often the log is forced to disk is set by its {@link SyncPolicy}. Whatever the
+ * policy, a crash can leave a partial record at the end of the last segment, which
+ * readers treat as the end of that segment. A reopened log always starts a new segment.
+ */
+public class HandLog implements Closeable {
+    /**
+     * When the log is forced to disk.
+     */
+    public enum SyncPolicy {
+        /** Never; the operating system writes the data when it chooses. */
+        NONE,
+        /** When a segment is complete and when the log is flushed or closed. */
+        SEGMENT,
+        /** After every batch written. */
+        BATCH,
+        /** After every hand; slow, but a finished hand always survives a crash. */
+        HAND
+    }
+
+    static final int MAGIC = 0x50484C47; // "PHLG"
+    // Version 2 added the start time to HAND_START; version 1 segments are still read
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 8;
+    static final String PREFIX = "hands-";
+    static final String SUFFIX = ".log";
+
+    /** The default segment size limit: 64 MB. */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+
+    private static final int BATCH_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final SyncPolicy sync;
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BYTES);
+    private final byte[] prefix = new byte[20];
+    private FileChannel segment;
+    private long segmentSize;
+    private long nextHand;
+    private boolean closed;
+
+    /**
+     * Opens a log with 64 MB segments that syncs once per segment.
+     *
+     * @param directory The log directory, created if needed
+     * @throws IOException If the directory cannot be read
+     */
+    public HandLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, SyncPolicy.SEGMENT);
+    }
+
+    /**
+     * Opens a log, continuing the hand numbering of any segments already in the directory.
+     *
+     * @param directory The log directory, created if needed
+     * @param segmentBytes The size at which a new segment is started
+     * @param sync When the log is forced to disk
+     * @throws IOException If the directory or its last segment cannot be read
+     */
+    public HandLog(Path directory, long segmentBytes, SyncPolicy sync) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentBytes = Math.max(segmentBytes, HEADER_BYTES + 1024);
+        this.sync = sync;
+        List<Path> segments = segments(directory);
+        if (!segments.isEmpty()) {
+            nextHand = lastHand(segments.get(segments.size() - 1)) + 1;
+        }
+    }
+
+    /**
+     * Lists the segment files of a log directory in order.
+     *
+     * @param directory The log directory
+     * @return The segment files, oldest first
+     * @throws IOException If the directory cannot be read
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        // Names hold zero-padded hand numbers, so name order is hand order
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Gets the number of a segment's first hand from its file name.
+     */
+    static long firstHand(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Finds the number of the last complete hand in a segment, or one before its first hand.
+     */
+    private static long lastHand(Path file) throws IOException {
+        long last = firstHand(file) - 1;
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        data.position(Math.min(HEADER_BYTES, data.limit()));
+        while (data.hasRemaining()) {
+            long length = readVarint(data);
+            if (length < 0 || length > data.remaining()) {
+                break;
+            }
+            int end = data.position() + (int) length;
+            last = readVarint(data);
+            data.position(end);
+        }
+        return last;
+    }
+
+    /**
+     * Reads an unsigned varint, or returns -1 if the buffer ends inside it.
+     */
+    static long readVarint(ByteBuffer data) {
+        long value = 0;
+        for (int shift = 0; shift < 64 && data.hasRemaining(); shift += 7) {
+            int b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a writer for one table. A writer must only be used by one thread at a time.
+     *
+     * @return The writer
+     */
+    public Writer writer() {
+        return new Writer();
+    }
+
+    /**
+     * Appends a hand's events as one record and assigns the hand its number.
+     */
+    private synchronized long append(byte[] events, int length) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Hand log is closed");
+        }
+        long hand = nextHand++;
+        int header = putVarint(prefix, putVarint(prefix, 0, varintSize(hand) + length), hand);
+        int recordBytes = header + length;
+        if (segment == null || (segmentSize + recordBytes > segmentBytes && segmentSize > HEADER_BYTES)) {
+            roll(hand);
+        }
+        if (batch.remaining() < recordBytes) {
+            writeBatch();
+        }
+        if (recordBytes > batch.capacity()) {
+            write(ByteBuffer.wrap(prefix, 0, header));
+            write(ByteBuffer.wrap(events, 0, length));
+        } else {
+            batch.put(prefix, 0, header).put(events, 0, length);
+        }
+        segmentSize += recordBytes;
+        if (sync == SyncPolicy.HAND) {
+            writeBatch();
+            segment.force(false);
+        }
+        return hand;
+    }
+
+    /**
+     * Closes the current segment and starts a new one.
+     */
+    private void roll(long firstHand) throws IOException {
+        if (segment != null) {
+            writeBatch();
+            if (sync != SyncPolicy.NONE) {
+                segment.force(false);
+            }
+            segment.close();
+        }
+        Path file = directory.resolve(String.format("%s%020d%s", PREFIX, firstHand, SUFFIX));
+        segment = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        batch.putInt(MAGIC).putInt(VERSION);
+        segmentSize = HEADER_BYTES;
+    }
+
+    private void writeBatch() throws IOException {
+        batch.flip();
+        write(batch);
+        batch.clear();
+        if (sync == SyncPolicy.BATCH) {
+            segment.force(false);
+        }
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            segment.write(data);
+        }
+    }
+
+    /**
+     * Writes out every hand appended so far, forcing it to disk unless the policy is
+     * {@link SyncPolicy#NONE}.
+     *
+     * @throws IOException If the segment cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (segment == null || closed) {
+            return;
+        }
+        writeBatch();
+        if (sync != SyncPolicy.NONE) {
+            segment.force(false);
+        }
+    }
+
+    /**
+     * Gets the number the next hand appended will get.
+     *
+     * @return The next hand number
+     */
+    public synchronized long getNextHand() {
+        return nextHand;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    static int varintSize(long value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    static int putVarint(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Encodes the events of one table's hands. Events must come between
+     * {@link #startHand} and {@link #endHand}; starting a hand discards any hand that was
+     * never ended.
+     */
+    public final class Writer {
+        // Room for any event but a hand start, whose size depends on the seat count
+        private static final int MAX_EVENT_BYTES = 16;
+
+        private byte[] buffer = new byte[512];
+        private int size;
+        private boolean inHand;
+
+        private Writer() {
+        }
+
+        /**
+         * Starts a hand, recording the current time as its start time.
+         *
+         * @param dealer The dealer seat
+         * @param smallBlind The small blind amount
+         * @param bigBlind The big blind amount
+         * @param stacks Every seat's stack before the blinds
+         */
+        public void startHand(int dealer, int smallBlind, int bigBlind, int[] stacks) {
+            size = 0;
+            inHand = true;
+            ensure(MAX_EVENT_BYTES + stacks.length * 5 + 10);
+            buffer[size++] = HandEvent.HAND_START;
+            size = putVarint(buffer, size, dealer);
+            size = putVarint(buffer, size, smallBlind);
+            size = putVarint(buffer, size, bigBlind);
+            size = putVarint(buffer, size, stacks.length);
+            for (int stack : stacks) {
+                size = putVarint(buffer, size, stack);
+            }
+            size = putVarint(buffer, size, System.currentTimeMillis());
+        }
+
+        public void holeCards(int seat, int card1, int card2) {
+            begin(HandEvent.HOLE_CARDS);
+            size = putVarint(buffer, size, seat);
+            buffer[size++] = (byte) card1;
+            buffer[size++] = (byte) card2;
+        }
+
+        public void blind(int seat, int amount) {
+            begin(HandEvent.BLIND);
+            size = putVarint(buffer, size, seat);
+            size = putVarint(buffer, size, amount);
+        }
+
+        /**
+         * Records a player's action.
+         *
+         * @param seat The seat that acted
+         * @param action The action the player chose
+         * @param chips The chips the action put into the pot
+         */
+        public void action(int seat, PlayerAction action, int chips) {
+            begin(HandEvent.ACTION);
+            size = putVarint(buffer, size, seat);
+            buffer[size++] = (byte) action.ordinal();
+            size = putVarint(buffer, size, chips);
+        }
+
+        /**
+         * Records board cards being turned over.
+         *
+         * @param street The street the cards start
+         * @param cards The card indices
+         * @param from The index of the first new card
+         * @param to The index after the last new card
+         */
+        public void street(GameState street, int[] cards, int from, int to) {
+            begin(HandEvent.STREET);
+            buffer[size++] = (byte) street.ordinal();
+            buffer[size++] = (byte) (to - from);
+            for (int i = from; i < to; i++) {
+                buffer[size++] = (byte) cards[i];
+            }
+        }
+
+        public void showdown(int seat, int card1, int card2) {
+            begin(HandEvent.SHOWDOWN);
+            size = putVarint(buffer, size, seat);
+            buffer[size++] = (byte) card1;
+            buffer[size++] = (byte) card2;
+        }
+
+        public void payout(int seat, int amount) {
+            begin(HandEvent.PAYOUT);
+            size = putVarint(buffer, size, seat);
+            size = putVarint(buffer, size, amount);
+        }
+
+        /**
+         * Ends the hand and appends it to the log.
+         *
+         * @return The hand's number in the log
+         * @throws IOException If the log cannot be written
+         */
+        public long endHand() throws IOException {
+            begin(HandEvent.HAND_END);
+            inHand = false;
+            return append(buffer, size);
+        }
+
+        public boolean isInHand() {
+            return inHand;
+        }
+
+        private void begin(int type) {
+            if (!inHand) {
+                throw new IllegalStateException("No hand in progress");
+            }
+            ensure(MAX_EVENT_BYTES);
+            buffer[size++] = (byte) type;
+        }
+
+        private void ensure(int bytes) {
+            if (size + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+            }
+        }
+    }
+}
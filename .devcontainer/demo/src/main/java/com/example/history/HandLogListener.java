@@ -0,0 +1,105 @@
+package com.example.history;
+
+import com.example.GameEngine.GameState;
+import com.example.Player.PlayerAction;
+import com.example.sim.TableListener;
+import com.example.sim.TableSimulator;
+import com.example.sim.TableState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the hands played by a {@link TableSimulator} to a {@link HandLog}.
+ *
+ * Each simulator needs its own listener, since a listener holds the hand in progress.
+ */
+public class HandLogListener implements TableListener {
+    private final HandLog.Writer writer;
+    private final int[] board = new int[5];
+    private int[] stacks = new int[0];
+    private int boardCount;
+
+    /**
+     * Creates a listener that writes to a log.
+     *
+     * @param log The log
+     */
+    public HandLogListener(HandLog log) {
+        this.writer = log.writer();
+    }
+
+    @Override
+    public void handStarted(TableState state) {
+        int seats = state.getSeatCount();
+        if (stacks.length != seats) {
+            stacks = new int[seats];
+        }
+        // The blinds are already posted, so add them back to get the starting stacks
+        for (int seat = 0; seat < seats; seat++) {
+            stacks[seat] = state.getStack(seat) + state.getContributed(seat);
+        }
+        writer.startHand(state.getDealer(), state.getSmallBlind(), state.getBigBlind(), stacks);
+        for (int seat = 0; seat < seats; seat++) {
+            if (state.getHoleCard(seat, 0) != TableState.NO_CARD) {
+                writer.holeCards(seat, state.getHoleCard(seat, 0), state.getHoleCard(seat, 1));
+            }
+        }
+        // Blinds in posting order: the small blind is the first seat after the dealer to post
+        for (int i = 1; i <= seats; i++) {
+            int seat = (state.getDealer() + i) % seats;
+            int posted = state.getContributed(seat);
+            if (posted > 0) {
+                writer.blind(seat, posted);
+            }
+            stacks[seat] = state.getStack(seat);
+        }
+        boardCount = 0;
+    }
+
+    @Override
+    public void boardDealt(TableState state, long boardMask) {
+        int from = boardCount;
+        while (boardCount < state.getBoardCount()) {
+            board[boardCount] = state.getBoardCard(boardCount);
+            boardCount++;
+        }
+        // Name the street by the cards showing; an all-in runout can deal several at once
+        for (int start = from; start < boardCount; ) {
+            int end = start == 0 ? 3 : start + 1;
+            writer.street(start == 0 ? GameState.FLOP : start == 3 ? GameState.TURN : GameState.RIVER,
+                          board, start, end);
+            start = end;
+        }
+    }
+
+    @Override
+    public void actionTaken(TableState state, int seat, PlayerAction action, int toCall, int pot) {
+        int stack = state.getStack(seat);
+        writer.action(seat, action, stacks[seat] - stack);
+        stacks[seat] = stack;
+    }
+
+    @Override
+    public void handEnded(TableState state, int[] deltas) {
+        int seats = state.getSeatCount();
+        if (state.getStreet() == GameState.SHOWDOWN) {
+            for (int seat = 0; seat < seats; seat++) {
+                if (state.getStatus(seat) != TableState.FOLDED) {
+                    writer.showdown(seat, state.getHoleCard(seat, 0), state.getHoleCard(seat, 1));
+                }
+            }
+        }
+        for (int seat = 0; seat < seats; seat++) {
+            int payout = deltas[seat] + state.getContributed(seat);
+            if (payout > 0) {
+                writer.payout(seat, payout);
+            }
+        }
+        try {
+            writer.endHand();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write hand", e);
+        }
+    }
+}
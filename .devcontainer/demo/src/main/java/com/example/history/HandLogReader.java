@@ -0,0 +1,264 @@
+package com.example.history;
+
+import com.example.GameEngine.GameState;
+import com.example.Player.PlayerAction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the hands of one {@link HandLog} segment, mapping the file into memory.
+ *
+ * The reader is a cursor: {@link #nextHand()} moves to the next hand and
+ * {@link #nextEvent()} to the next event within it, after which the accessors return
+ * the event's fields. Nothing is allocated per hand or event, so the values are only
+ * valid until the cursor moves. A partial record at the end of the segment, left by a
+ * crash, ends the segment.
+ */
+public class HandLogReader implements Closeable {
+    private static final PlayerAction[] ACTIONS = PlayerAction.values();
+    private static final GameState[] STREETS = GameState.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final int version;
+    private int position;
+    private int handOffset;
+    private int handStart;
+    private int handEnd;
+    private long hand = -1;
+
+    // Fields of the current event
+    private int seat;
+    private int amount;
+    private int action;
+    private int street;
+    private int cardCount;
+    private final int[] cards = new int[5];
+    private int dealer;
+    private int smallBlind;
+    private int bigBlind;
+    private int seatCount;
+    private int[] stacks = new int[10];
+    private long time = -1;
+
+    /**
+     * Opens a segment file.
+     *
+     * @param segment The segment file
+     * @throws IOException If the file cannot be mapped or is not a hand log segment
+     */
+    public HandLogReader(Path segment) throws IOException {
+        this.channel = FileChannel.open(segment, StandardOpenOption.READ);
+        this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (data.limit() < HandLog.HEADER_BYTES || data.getInt(0) != HandLog.MAGIC) {
+            channel.close();
+            throw new IOException("Not a hand log segment: " + segment);
+        }
+        this.version = data.getInt(4);
+        if (version < 1 || version > HandLog.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported hand log version " + version);
+        }
+        this.position = HandLog.HEADER_BYTES;
+        this.handEnd = position;
+    }
+
+    /**
+     * Moves to the next hand.
+     *
+     * @return false at the end of the segment
+     */
+    public boolean nextHand() {
+        position = handEnd;
+        if (position >= data.limit()) {
+            return false;
+        }
+        handOffset = position;
+        long length = varint();
+        if (length < 0 || length > data.limit() - position) {
+            handEnd = data.limit();
+            return false;
+        }
+        handEnd = position + (int) length;
+        hand = varint();
+        handStart = position;
+        return true;
+    }
+
+    /**
+     * Moves back to the first event of the current hand.
+     */
+    public void rewindHand() {
+        position = handStart;
+    }
+
+    /**
+     * Gets where the current hand's record starts in the segment, to return to it with
+     * {@link #seek}.
+     */
+    int getHandOffset() {
+        return handOffset;
+    }
+
+    /**
+     * Moves so that the next {@link #nextHand()} reads the record at an offset taken from
+     * {@link #getHandOffset()}.
+     */
+    void seek(int offset) {
+        handEnd = offset;
+    }
+
+    /**
+     * Moves to the next event of the current hand and decodes its fields.
+     *
+     * @return The {@link HandEvent} type, or 0 after the last event
+     * @throws IllegalStateException If the hand holds an unknown event
+     */
+    public int nextEvent() {
+        if (position >= handEnd) {
+            return 0;
+        }
+        int type = data.get(position++);
+        switch (type) {
+            case HandEvent.HAND_START:
+                dealer = (int) varint();
+                smallBlind = (int) varint();
+                bigBlind = (int) varint();
+                seatCount = (int) varint();
+                if (stacks.length < seatCount) {
+                    stacks = new int[seatCount];
+                }
+                for (int i = 0; i < seatCount; i++) {
+                    stacks[i] = (int) varint();
+                }
+                time = version >= 2 ? varint() : -1;
+                break;
+            case HandEvent.HOLE_CARDS:
+            case HandEvent.SHOWDOWN:
+                seat = (int) varint();
+                cardCount = 2;
+                cards[0] = data.get(position++);
+                cards[1] = data.get(position++);
+                break;
+            case HandEvent.BLIND:
+            case HandEvent.PAYOUT:
+                seat = (int) varint();
+                amount = (int) varint();
+                break;
+            case HandEvent.ACTION:
+                seat = (int) varint();
+                action = data.get(position++);
+                amount = (int) varint();
+                break;
+            case HandEvent.STREET:
+                street = data.get(position++);
+                cardCount = data.get(position++);
+                for (int i = 0; i < cardCount; i++) {
+                    cards[i] = data.get(position++);
+                }
+                break;
+            case HandEvent.HAND_END:
+                break;
+            default:
+                throw new IllegalStateException("Unknown event " + type + " in hand " + hand);
+        }
+        return type;
+    }
+
+    private long varint() {
+        long value = 0;
+        for (int shift = 0; shift < 64 && position < data.limit(); shift += 7) {
+            int b = data.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the format version the segment was written with.
+     *
+     * @return The version, from 1 to {@link HandLog#VERSION}
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the current hand's number in the log.
+     *
+     * @return The hand number
+     */
+    public long getHand() {
+        return hand;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    /** The chips of a blind, action or payout. */
+    public int getAmount() {
+        return amount;
+    }
+
+    public PlayerAction getAction() {
+        return ACTIONS[action];
+    }
+
+    public GameState getStreet() {
+        return STREETS[street];
+    }
+
+    /** The number of cards of a street, or 2 for hole and showdown cards. */
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    public int getCard(int index) {
+        return cards[index];
+    }
+
+    public int getDealer() {
+        return dealer;
+    }
+
+    public int getSmallBlind() {
+        return smallBlind;
+    }
+
+    public int getBigBlind() {
+        return bigBlind;
+    }
+
+    public int getSeatCount() {
+        return seatCount;
+    }
+
+    /** A seat's stack before the blinds. */
+    public int getStack(int seat) {
+        return stacks[seat];
+    }
+
+    /**
+     * Gets when the current hand started.
+     *
+     * @return Milliseconds since the epoch, or -1 for a hand from a version 1 segment
+     */
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.history;
+
+import com.example.Card;
+import com.example.Player.PlayerAction;
+import com.example.sim.TableListener;
+import com.example.sim.TableState;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays logged hands through {@link TableState}, action by action, and checks that the
+ * table rules reproduce what the log says happened.
+ *
+ * For each hand the deck is rebuilt from the logged hole and board cards, the hand is
+ * started with the logged stacks, and every logged action is applied in turn. A hand
+ * matches if the blinds, the seat to act, the chips each action committed and the
+ * payouts all agree with the log. Replaying an archive after changing the table
+ * rules therefore finds every hand the change would have played differently. A
+ * {@link TableListener} can follow the replay to inspect or re-analyse hands.
+ *
+ * A replayer is not thread-safe; {@link #replayAll} gives each segment its own.
+ */
+public class HandReplayer {
+    // Mismatch reasons kept per replay, beyond which only the count grows
+    private static final int MAX_REPORTED = 20;
+
+    private final int[] deck = new int[Card.DECK_SIZE];
+    private final int[] board = new int[5];
+    private int[] holeCards = new int[20];
+    private int[] stacks = new int[10];
+    private int[] payouts = new int[10];
+    private int[] loggedPayouts = new int[10];
+    private int[] deltas = new int[10];
+    private TableState state;
+    private String mismatch;
+
+    /**
+     * Replays the reader's current hand.
+     *
+     * @param reader A reader positioned on a hand
+     * @param listener Notified of the replayed hand's events, or null
+     * @return true if the replay matches the log
+     */
+    public boolean replay(HandLogReader reader, TableListener listener) {
+        mismatch = null;
+        try {
+            return replayEvents(reader, listener);
+        } catch (RuntimeException e) {
+            // A damaged record can name impossible seats, cards or events; skip just that hand
+            return fail(reader, "corrupt record (" + e + ")");
+        }
+    }
+
+    private boolean replayEvents(HandLogReader reader, TableListener listener) {
+        if (!prepare(reader)) {
+            return false;
+        }
+        int seats = state.getSeatCount();
+        state.startHand(reader.getDealer(), stacks, deck);
+        for (int seat = 0; seat < seats; seat++) {
+            stacks[seat] = state.getStack(seat);
+        }
+        if (listener != null) {
+            listener.handStarted(state);
+        }
+
+        int boardSeen = 0;
+        Arrays.fill(loggedPayouts, 0, seats, 0);
+        reader.rewindHand();
+        for (int type = reader.nextEvent(); type != 0; type = reader.nextEvent()) {
+            switch (type) {
+                case HandEvent.BLIND:
+                    if (state.getContributed(reader.getSeat()) != reader.getAmount()) {
+                        return fail(reader, "blind of seat " + reader.getSeat() + " is "
+                                + state.getContributed(reader.getSeat()) + ", logged " + reader.getAmount());
+                    }
+                    break;
+                case HandEvent.ACTION: {
+                    int seat = reader.getSeat();
+                    if (state.isHandOver() || state.getToAct() != seat) {
+                        return fail(reader, "seat " + seat + " acted, but " + (state.isHandOver()
+                                ? "the hand was over" : "seat " + state.getToAct() + " was to act"));
+                    }
+                    PlayerAction action = reader.getAction();
+                    int toCall = state.getToCall(seat);
+                    int pot = state.getPot();
+                    state.apply(action, Math.max(0, reader.getAmount() - toCall));
+                    int committed = stacks[seat] - state.getStack(seat);
+                    if (committed != reader.getAmount()) {
+                        return fail(reader, "seat " + seat + " " + action + " committed " + committed
+                                + ", logged " + reader.getAmount());
+                    }
+                    stacks[seat] = state.getStack(seat);
+                    if (listener != null) {
+                        listener.actionTaken(state, seat, action, toCall, pot);
+                        boardSeen = notifyBoard(listener, boardSeen);
+                    }
+                    break;
+                }
+                case HandEvent.PAYOUT:
+                    loggedPayouts[reader.getSeat()] += reader.getAmount();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (!state.isHandOver()) {
+            return fail(reader, "the log ends before the hand is over");
+        }
+        if (listener != null) {
+            notifyBoard(listener, boardSeen);
+        }
+        state.settle(payouts);
+        for (int seat = 0; seat < seats; seat++) {
+            if (payouts[seat] != loggedPayouts[seat]) {
+                return fail(reader, "seat " + seat + " collects " + payouts[seat] + ", logged " + loggedPayouts[seat]);
+            }
+            deltas[seat] = state.getStack(seat) + payouts[seat] - reader.getStack(seat);
+        }
+        if (listener != null) {
+            listener.handEnded(state, deltas);
+        }
+        return true;
+    }
+
+    /**
+     * Reads the hand's setup and cards, and rebuilds the deck it was dealt from.
+     */
+    private boolean prepare(HandLogReader reader) {
+        reader.rewindHand();
+        if (reader.nextEvent() != HandEvent.HAND_START) {
+            return fail(reader, "the hand does not start with a hand start event");
+        }
+        int seats = reader.getSeatCount();
+        if (state == null || state.getSeatCount() != seats || state.getSmallBlind() != reader.getSmallBlind()
+                || state.getBigBlind() != reader.getBigBlind()) {
+            state = new TableState(seats, reader.getSmallBlind(), reader.getBigBlind(), reader.getBigBlind() * 2);
+        }
+        if (stacks.length < seats) {
+            stacks = new int[seats];
+            payouts = new int[seats];
+            loggedPayouts = new int[seats];
+            deltas = new int[seats];
+            holeCards = new int[seats * 2];
+        }
+        Arrays.fill(holeCards, 0, seats * 2, TableState.NO_CARD);
+        for (int seat = 0; seat < seats; seat++) {
+            stacks[seat] = reader.getStack(seat);
+        }
+
+        int boardCount = 0;
+        for (int type = reader.nextEvent(); type != 0; type = reader.nextEvent()) {
+            if (type == HandEvent.HOLE_CARDS) {
+                holeCards[reader.getSeat() * 2] = reader.getCard(0);
+                holeCards[reader.getSeat() * 2 + 1] = reader.getCard(1);
+            } else if (type == HandEvent.STREET) {
+                for (int i = 0; i < reader.getCardCount() && boardCount < board.length; i++) {
+                    board[boardCount++] = reader.getCard(i);
+                }
+            }
+        }
+
+        // The table deals two cards to each seat with chips, then the board, from the front
+        long used = 0L;
+        int size = 0;
+        for (int seat = 0; seat < seats; seat++) {
+            if (stacks[seat] <= 0) {
+                continue;
+            }
+            for (int c = 0; c < 2; c++) {
+                int card = holeCards[seat * 2 + c];
+                if (card == TableState.NO_CARD) {
+                    return fail(reader, "seat " + seat + " has no logged hole cards");
+                }
+                deck[size++] = card;
+                used |= 1L << card;
+            }
+        }
+        for (int i = 0; i < boardCount; i++) {
+            deck[size++] = board[i];
+            used |= 1L << board[i];
+        }
+        if (Long.bitCount(used) != size) {
+            return fail(reader, "a card is dealt twice");
+        }
+        for (int card = 0; card < Card.DECK_SIZE; card++) {
+            if ((used & (1L << card)) == 0) {
+                deck[size++] = card;
+            }
+        }
+        return true;
+    }
+
+    private int notifyBoard(TableListener listener, int boardSeen) {
+        if (state.getBoardCount() <= boardSeen) {
+            return boardSeen;
+        }
+        long mask = 0L;
+        for (int i = 0; i < state.getBoardCount(); i++) {
+            mask |= 1L << state.getBoardCard(i);
+        }
+        listener.boardDealt(state, mask);
+        return state.getBoardCount();
+    }
+
+    private boolean fail(HandLogReader reader, String reason) {
+        mismatch = "hand " + reader.getHand() + ": " + reason;
+        return false;
+    }
+
+    /**
+     * Gets why the last replayed hand did not match its log.
+     *
+     * @return The reason, or null if it matched
+     */
+    public String getMismatch() {
+        return mismatch;
+    }
+
+    /**
+     * Gets the deck order the last replayed hand was dealt from.
+     */
+    int[] getDeck() {
+        return deck;
+    }
+
+    /**
+     * Gets the table state of the last replayed hand.
+     *
+     * @return The table state, or null before the first replay
+     */
+    public TableState getState() {
+        return state;
+    }
+
+    /**
+     * Replays one segment.
+     *
+     * @param segment The segment file
+     * @return The segment's summary
+     * @throws IOException If the segment cannot be read
+     */
+    public Summary replaySegment(Path segment) throws IOException {
+        Summary summary = new Summary();
+        try (HandLogReader reader = new HandLogReader(segment)) {
+            while (reader.nextHand()) {
+                summary.hands++;
+                if (!replay(reader, null)) {
+                    summary.mismatched++;
+                    if (summary.mismatches.size() < MAX_REPORTED) {
+                        summary.mismatches.add(mismatch);
+                    }
+                }
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Replays every segment of a log directory, one task per segment.
+     *
+     * @param directory The log directory
+     * @param threads The number of segments replayed at once
+     * @return The summary of the whole log
+     * @throws IOException If a segment cannot be read
+     */
+    public static Summary replayAll(Path directory, int threads) throws IOException {
+        List<Path> segments = HandLog.segments(directory);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Summary>> results = new ArrayList<>();
+            for (Path segment : segments) {
+                results.add(pool.submit(() -> new HandReplayer().replaySegment(segment)));
+            }
+            Summary total = new Summary();
+            for (Future<Summary> result : results) {
+                total.add(result.get());
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Replay interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Replay failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds a hand in a log directory and replays it.
+     *
+     * @param directory The log directory
+     * @param hand The hand number
+     * @param listener Notified of the replayed hand's events
+     * @return true if the hand was found and matches its log
+     * @throws IOException If the hand's segment cannot be read
+     */
+    public boolean replayHand(Path directory, long hand, TableListener listener) throws IOException {
+        mismatch = null;
+        Path found = null;
+        for (Path segment : HandLog.segments(directory)) {
+            if (HandLog.firstHand(segment) <= hand) {
+                found = segment;
+            }
+        }
+        if (found != null) {
+            try (HandLogReader reader = new HandLogReader(found)) {
+                while (reader.nextHand()) {
+                    if (reader.getHand() == hand) {
+                        return replay(reader, listener);
+                    }
+                }
+            }
+        }
+        mismatch = "hand " + hand + " is not in the log";
+        return false;
+    }
+
+    /**
+     * Counts of the hands replayed and of those that did not match the log.
+     */
+    public static final class Summary {
+        private long hands;
+        private long mismatched;
+        private final List<String> mismatches = new ArrayList<>();
+
+        private void add(Summary other) {
+            hands += other.hands;
+            mismatched += other.mismatched;
+            for (String reason : other.mismatches) {
+                if (mismatches.size() < MAX_REPORTED) {
+                    mismatches.add(reason);
+                }
+            }
+        }
+
+        public long getHands() {
+            return hands;
+        }
+
+        public long getMismatched() {
+            return mismatched;
+        }
+
+        /**
+         * Gets the reasons for the first mismatches found.
+         *
+         * @return Up to 20 mismatch reasons
+         */
+        public List<String> getMismatches() {
+            return mismatches;
+        }
+
+        @Override
+        public String toString() {
+            return hands + " hands replayed, " + mismatched + " mismatched";
+        }
+    }
+
+    /**
+     * Replays a log and reports mismatches, or prints one hand action by action.
+     * Usage: HandReplayer directory [threads] | HandReplayer directory --hand number
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args[0]);
+        if (args.length > 2 && args[1].equals("--hand")) {
+            HandReplayer replayer = new HandReplayer();
+            boolean matched = replayer.replayHand(directory, Long.parseLong(args[2]), new TableListener() {
+                @Override
+                public void boardDealt(TableState state, long board) {
+                    StringBuilder cards = new StringBuilder("Board:");
+                    for (int i = 0; i < state.getBoardCount(); i++) {
+                        cards.append(' ').append(Card.fromIndex(state.getBoardCard(i)));
+                    }
+                    System.out.println(cards);
+                }
+
+                @Override
+                public void actionTaken(TableState state, int seat, PlayerAction action, int toCall, int pot) {
+                    System.out.printf("Seat %d %s (to call %d, pot %d) -> stack %d%n", seat, action, toCall, pot,
+                                      state.getStack(seat));
+                }
+
+                @Override
+                public void handEnded(TableState state, int[] deltas) {
+                    for (int seat = 0; seat < state.getSeatCount(); seat++) {
+                        System.out.printf("Seat %d: %+d%n", seat, deltas[seat]);
+                    }
+                }
+            });
+            System.out.println(matched ? "Replay matches the log" : "Mismatch: " + replayer.getMismatch());
+            return;
+        }
+
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        Summary summary = replayAll(directory, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s in %.1fs (%.0f hands/minute)%n", summary, seconds, summary.getHands() * 60 / seconds);
+        for (String reason : summary.getMismatches()) {
+            System.out.println("  " + reason);
+        }
+    }
+}
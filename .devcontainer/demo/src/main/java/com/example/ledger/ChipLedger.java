@@ -0,0 +1,547 @@
+package com.example.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * A durable record of every player's chips: each chip movement is appended to a
+ * write-ahead log before it counts as done, so balances survive a crash.
+ *
+ * Movements from any number of threads are applied to the balances in memory at once and
+ * queued in a shared buffer. A single writer thread writes out whatever has queued and
+ * forces it to disk with one sync, then wakes every thread waiting on a movement in that
+ * batch. While it syncs, the next batch gathers, so the number of syncs tracks the disk's
+ * speed, not the number of movements. A movement is durable once {@link #awaitDurable}
+ * returns for its sequence number; {@link #move} does both steps.
+ *
+ * The ledger directory holds a snapshot of all balances and the log files written since.
+ * Opening a ledger loads the snapshot and replays the logs. Each log record carries a
+ * checksum, and a torn record at the end of a log, left by a crash, ends it. A reopened
+ * ledger always starts a new log file. {@link #checkpoint} writes a new snapshot and
+ * deletes the logs it covers.
+ */
+public class ChipLedger implements Closeable {
+    /**
+     * Why chips moved.
+     */
+    public enum Reason {
+        /** Chips brought to the table. */
+        BUY_IN,
+        /** Chips taken away from the table. */
+        CASH_OUT,
+        /** Chips put into a pot, blinds included. */
+        BET,
+        /** Chips won from a pot, or an uncalled bet returned. */
+        PAYOUT
+    }
+
+    static final int LOG_MAGIC = 0x504C574C; // "PLWL"
+    static final int SNAPSHOT_MAGIC = 0x504C534E; // "PLSN"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final String LOG_PREFIX = "ledger-";
+    static final String LOG_SUFFIX = ".wal";
+    static final String SNAPSHOT = "snapshot";
+
+    private static final byte MOVE = 1;
+    private static final byte OPEN = 2;
+    // Length and checksum before each record's payload
+    private static final int RECORD_HEADER = 8;
+    private static final int MOVE_BYTES = RECORD_HEADER + 14;
+
+    private final Path directory;
+    private final Thread writer;
+    private final Map<String, Integer> accounts = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+    private final AtomicLong syncs = new AtomicLong();
+    private long[] balances = new long[16];
+    private FileChannel log;
+
+    // The batch being gathered, swapped with the one being written
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer writing = ByteBuffer.allocate(1 << 16);
+    private long nextSequence;
+    private long durable;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Opens a ledger, recovering its balances from the snapshot and logs in a directory.
+     *
+     * @param directory The ledger directory, created if needed
+     * @throws IOException If the ledger cannot be read or a new log cannot be started
+     */
+    public ChipLedger(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        recover();
+        durable = nextSequence;
+        startLog();
+        this.writer = new Thread(this::write, "chip-ledger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Loads the snapshot, then applies every logged record after it.
+     */
+    private void recover() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+                if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Not a ledger snapshot: " + snapshot);
+                }
+                nextSequence = in.readLong();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    int account = create(in.readUTF());
+                    balances[account] = in.readLong();
+                }
+            }
+        }
+        for (Path file : logs()) {
+            long sequence = firstSequence(file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (data.limit() < HEADER_BYTES || data.getInt(0) != LOG_MAGIC) {
+                    throw new IOException("Not a ledger log: " + file);
+                }
+                data.position(HEADER_BYTES);
+                while (data.remaining() >= RECORD_HEADER) {
+                    int length = data.getInt();
+                    int checksum = data.getInt();
+                    if (length <= 0 || length > data.remaining() || checksum != checksum(data, length)) {
+                        break;
+                    }
+                    // Records the snapshot already holds are skipped
+                    if (sequence >= nextSequence) {
+                        apply(data);
+                        nextSequence = sequence + 1;
+                    } else {
+                        data.position(data.position() + length);
+                    }
+                    sequence++;
+                }
+            }
+        }
+    }
+
+    private int checksum(ByteBuffer data, int length) {
+        ByteBuffer payload = data.duplicate();
+        payload.limit(data.position() + length);
+        crc.reset();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private void apply(ByteBuffer record) {
+        byte type = record.get();
+        int account = record.getInt();
+        if (type == OPEN) {
+            byte[] name = new byte[record.getShort()];
+            record.get(name);
+            create(new String(name, StandardCharsets.UTF_8));
+        } else {
+            record.get();
+            balances[account] += record.getLong();
+        }
+    }
+
+    private int create(String name) {
+        int account = names.size();
+        names.add(name);
+        accounts.put(name, account);
+        if (account == balances.length) {
+            balances = Arrays.copyOf(balances, account * 2);
+        }
+        return account;
+    }
+
+    /**
+     * Lists the log files in order.
+     */
+    private List<Path> logs() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        // Names hold zero-padded sequence numbers, so name order is log order
+        Collections.sort(files);
+        return files;
+    }
+
+    private static long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+    }
+
+    /**
+     * Starts a new log file whose first record will have the next sequence number.
+     */
+    private void startLog() throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", LOG_PREFIX, nextSequence, LOG_SUFFIX));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(LOG_MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+        if (log != null) {
+            log.close();
+        }
+        log = channel;
+    }
+
+    /**
+     * Gets a player's account, opening one with no chips if the player has none.
+     *
+     * @param name The player's name
+     * @return The account number
+     */
+    public synchronized int open(String name) {
+        Integer account = accounts.get(name);
+        if (account != null) {
+            return account;
+        }
+        checkOpen();
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int created = create(name);
+        ByteBuffer record = reserve(RECORD_HEADER + 7 + bytes.length);
+        int start = record.position();
+        record.position(start + RECORD_HEADER);
+        record.put(OPEN).putInt(created).putShort((short) bytes.length).put(bytes);
+        seal(record, start);
+        return created;
+    }
+
+    /**
+     * Finds a player's account.
+     *
+     * @param name The player's name
+     * @return The account number, or -1 if the player has none
+     */
+    public synchronized int find(String name) {
+        Integer account = accounts.get(name);
+        return account != null ? account : -1;
+    }
+
+    public synchronized long getBalance(int account) {
+        checkAccount(account);
+        return balances[account];
+    }
+
+    /**
+     * Moves chips into or out of an account and logs the movement, without waiting for
+     * it to reach the disk.
+     *
+     * @param account The account number
+     * @param reason Why the chips moved
+     * @param chips The chips added, or removed if negative
+     * @return The movement's sequence number, for {@link #awaitDurable}
+     * @throws IllegalStateException If the account would go below zero, or the ledger is
+     *                               closed or has failed
+     */
+    public synchronized long record(int account, Reason reason, long chips) {
+        checkAccount(account);
+        checkOpen();
+        if (balances[account] + chips < 0) {
+            throw new IllegalStateException(names.get(account) + " has only " + balances[account] + " chips");
+        }
+        balances[account] += chips;
+        ByteBuffer record = reserve(MOVE_BYTES);
+        int start = record.position();
+        record.position(start + RECORD_HEADER);
+        record.put(MOVE).putInt(account).put((byte) reason.ordinal()).putLong(chips);
+        return seal(record, start);
+    }
+
+    /**
+     * Moves chips and waits until the movement is on disk.
+     *
+     * @param account The account number
+     * @param reason Why the chips moved
+     * @param chips The chips added, or removed if negative
+     * @throws IOException If the log cannot be written or the wait is interrupted
+     */
+    public void move(int account, Reason reason, long chips) throws IOException {
+        awaitDurable(record(account, reason, chips));
+    }
+
+    /**
+     * Waits until a movement, and every one before it, is on disk.
+     *
+     * @param sequence The movement's sequence number
+     * @throws IOException If the log could not be written, or the wait is interrupted
+     */
+    public synchronized void awaitDurable(long sequence) throws IOException {
+        while (durable <= sequence && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the ledger");
+            }
+        }
+        if (durable <= sequence) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Makes room for a record in the batch being gathered.
+     */
+    private ByteBuffer reserve(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        return pending;
+    }
+
+    /**
+     * Writes a record's length and checksum in front of its payload and queues it.
+     */
+    private long seal(ByteBuffer record, int start) {
+        int length = record.position() - start - RECORD_HEADER;
+        crc.reset();
+        crc.update(record.array(), start + RECORD_HEADER, length);
+        record.putInt(start, length).putInt(start + 4, (int) crc.getValue());
+        if (start == 0) {
+            // The batch was empty, so the writer may be asleep
+            notifyAll();
+        }
+        return nextSequence++;
+    }
+
+    private void checkAccount(int account) {
+        if (account < 0 || account >= names.size()) {
+            throw new IllegalArgumentException("No account " + account);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Ledger is closed");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Ledger failed", failure);
+        }
+    }
+
+    /**
+     * Writes batches and syncs them, one sync per batch, until the ledger closes.
+     */
+    private void write() {
+        while (true) {
+            long batchEnd;
+            FileChannel channel;
+            synchronized (this) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                batchEnd = nextSequence;
+                channel = log;
+            }
+            try {
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                writing.clear();
+                channel.force(false);
+                syncs.incrementAndGet();
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            synchronized (this) {
+                durable = batchEnd;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes every balance to a new snapshot and deletes the logs it covers, so that
+     * reopening replays only what was logged after it.
+     *
+     * @throws IOException If the snapshot cannot be written
+     */
+    public void checkpoint() throws IOException {
+        long covered;
+        String[] snapshotNames;
+        long[] snapshotBalances;
+        synchronized (this) {
+            checkOpen();
+            // Once everything is durable the writer is idle, and stays so while this holds the lock
+            while (durable < nextSequence && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for the ledger");
+                }
+            }
+            checkOpen();
+            covered = nextSequence;
+            snapshotNames = names.toArray(new String[0]);
+            snapshotBalances = Arrays.copyOf(balances, names.size());
+            // Later movements go to a new log, which the snapshot does not cover
+            startLog();
+        }
+        Path snapshot = directory.resolve(SNAPSHOT);
+        Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     Channels.newOutputStream(channel)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(covered);
+            out.writeInt(snapshotNames.length);
+            for (int i = 0; i < snapshotNames.length; i++) {
+                out.writeUTF(snapshotNames[i]);
+                out.writeLong(snapshotBalances[i]);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (Path file : logs()) {
+            if (firstSequence(file) < covered) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of syncs done so far; with the number of movements, this shows how
+     * many movements each sync committed.
+     *
+     * @return The sync count
+     */
+    public long getSyncCount() {
+        return syncs.get();
+    }
+
+    /**
+     * Gets the number of records logged so far, including those replayed on opening.
+     *
+     * @return The next sequence number
+     */
+    public synchronized long getSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Writes out every queued movement and closes the log.
+     *
+     * @throws IOException If the last batch could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            log.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Measures group commit: many threads each moving chips in and out of their own
+     * account, every movement waited on.
+     * Usage: ChipLedger directory [threads] [movesPerThread]
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int moves = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        try (ChipLedger ledger = new ChipLedger(Paths.get(args[0]))) {
+            System.out.printf("Recovered %d records%n", ledger.getSequence());
+            Thread[] tables = new Thread[threads];
+            IOException[] failed = new IOException[1];
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int account = ledger.open("table-" + t);
+                tables[t] = new Thread(() -> {
+                    try {
+                        ledger.move(account, Reason.BUY_IN, 1000);
+                        for (int i = 1; i < moves; i++) {
+                            ledger.move(account, i % 2 == 0 ? Reason.PAYOUT : Reason.BET, i % 2 == 0 ? 10 : -10);
+                        }
+                    } catch (IOException e) {
+                        failed[0] = e;
+                    }
+                });
+                tables[t].start();
+            }
+            for (Thread table : tables) {
+                table.join();
+            }
+            if (failed[0] != null) {
+                throw failed[0];
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long total = (long) threads * moves;
+            System.out.printf("%d durable moves from %d threads in %.2fs: %.0f moves/s, %d syncs (%.1f moves each)%n",
+                              total, threads, seconds, total / seconds, ledger.getSyncCount(),
+                              (double) total / ledger.getSyncCount());
+            ledger.checkpoint();
+        }
+    }
+}
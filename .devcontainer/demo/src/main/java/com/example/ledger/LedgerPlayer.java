@@ -0,0 +1,113 @@
+package com.example.ledger;
+
+import com.example.Card;
+import com.example.Player;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * A player whose chips are kept in a {@link ChipLedger}. Every chip the wrapped player
+ * gains or loses is recorded, and the call returns only once the movement is durable.
+ * The movement is recorded before the wrapped player's chips change, so one the ledger
+ * rejects leaves the player as it was.
+ *
+ * A player new to the ledger buys in with the chips it was created with; a player the
+ * ledger already knows has its chips set to its recorded balance, so it picks up where
+ * the last session, or crash, left it. The game only adds and removes chips, so removals
+ * are recorded as bets, blinds included, and additions as payouts.
+ */
+public class LedgerPlayer implements Player {
+    private final Player player;
+    private final ChipLedger ledger;
+    private final int account;
+
+    /**
+     * Wraps a player, opening its account or restoring its balance.
+     *
+     * @param player The player
+     * @param ledger The ledger, whose account for the player is found by name
+     * @throws IOException If the buy-in cannot be written
+     */
+    public LedgerPlayer(Player player, ChipLedger ledger) throws IOException {
+        this.player = player;
+        this.ledger = ledger;
+        int known = ledger.find(player.getName());
+        if (known < 0) {
+            this.account = ledger.open(player.getName());
+            ledger.move(account, ChipLedger.Reason.BUY_IN, player.getChipCount());
+        } else {
+            this.account = known;
+            long difference = ledger.getBalance(account) - player.getChipCount();
+            if (difference > 0) {
+                player.addChips((int) difference);
+            } else if (difference < 0) {
+                player.removeChips((int) -difference);
+            }
+        }
+    }
+
+    /**
+     * Gets the player this one records the chips of.
+     *
+     * @return The wrapped player
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    @Override
+    public String getName() {
+        return player.getName();
+    }
+
+    @Override
+    public int getChipCount() {
+        return player.getChipCount();
+    }
+
+    @Override
+    public void addChips(int amount) {
+        if (amount <= 0) {
+            return;
+        }
+        long sequence = ledger.record(account, ChipLedger.Reason.PAYOUT, amount);
+        player.addChips(amount);
+        commit(sequence);
+    }
+
+    @Override
+    public boolean removeChips(int amount) {
+        if (amount <= 0 || amount > player.getChipCount()) {
+            return false;
+        }
+        long sequence = ledger.record(account, ChipLedger.Reason.BET, -amount);
+        if (!player.removeChips(amount)) {
+            // The wrapped player refused after all, so give the chips back in the ledger
+            commit(ledger.record(account, ChipLedger.Reason.PAYOUT, amount));
+            return false;
+        }
+        commit(sequence);
+        return true;
+    }
+
+    private void commit(long sequence) {
+        try {
+            ledger.awaitDurable(sequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not record chips for " + player.getName(), e);
+        }
+    }
+
+    @Override
+    public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount) {
+        return player.getAction(hand, communityCards, currentBet, potAmount);
+    }
+
+    @Override
+    public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount,
+                                  long deadlineNanos) {
+        return player.getAction(hand, communityCards, currentBet, potAmount, deadlineNanos);
+    }
+}
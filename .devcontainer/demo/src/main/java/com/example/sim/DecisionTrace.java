@@ -0,0 +1,334 @@
+package com.example.sim;
+
+import com.example.Player.PlayerAction;
+import com.example.eval.BoardTexture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records every decision made at simulated tables to a columnar binary file, for training
+ * and auditing players offline.
+ *
+ * Each table gets its own {@link Recorder}, a {@link TableListener} that collects the
+ * decisions of a hand in column arrays on the table's thread and fills in each decision's
+ * outcome once the hand is settled. When enough rows have built up the recorder encodes
+ * them as a block and queues it for the trace's writer thread, which appends it to the
+ * file. Tables therefore never wait on the disk unless the writer falls a whole queue
+ * behind.
+ *
+ * The file starts with a magic number and version, followed by blocks. A block holds
+ * its row count and byte length, then each column's values for all its rows in turn, in
+ * the order of {@link DecisionTraceReader}'s accessors. All values are big-endian.
+ */
+public class DecisionTrace implements Closeable {
+    static final int MAGIC = 0x50445452; // "PDTR"
+    static final int VERSION = 1;
+
+    /** Bytes per row: hand, board, texture, pot, to-call, stack, outcome and seven byte columns. */
+    static final int ROW_BYTES = 8 + 8 + 4 * 5 + 7;
+
+    private static final int BLOCK_ROWS = 4096;
+    private static final int QUEUE_BLOCKS = 16;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> queue = new ArrayBlockingQueue<>(QUEUE_BLOCKS);
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextRecorder = new AtomicInteger();
+    private final Thread writer;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    /**
+     * Opens a trace file for appending, creating it if needed.
+     *
+     * @param file The trace file
+     * @throws IOException If the file cannot be opened
+     */
+    public DecisionTrace(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                        StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+        this.writer = new Thread(this::write, "decision-trace");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Creates a recorder for one table, or for one thread that plays hands at several tables
+     * in turn. A recorder must only be used by that thread, but recorders can be created
+     * from any thread.
+     *
+     * @return The recorder, to be added as a listener to the table
+     */
+    public Recorder recorder() {
+        if (closed) {
+            throw new IllegalStateException("Trace is closed");
+        }
+        Recorder recorder = new Recorder(nextRecorder.getAndIncrement());
+        recorders.add(recorder);
+        return recorder;
+    }
+
+    /**
+     * Writes out what every recorder has collected and closes the file. The tables must
+     * have stopped playing.
+     *
+     * @throws IOException If a block could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        for (Recorder recorder : recorders) {
+            recorder.flush();
+        }
+        closed = true;
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                ByteBuffer block = queue.take();
+                if (block == END) {
+                    return;
+                }
+                if (failure == null) {
+                    try {
+                        while (block.hasRemaining()) {
+                            channel.write(block);
+                        }
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                free.offer(block);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(ByteBuffer block) {
+        if (failure != null) {
+            throw new IllegalStateException("Trace write failed", failure);
+        }
+        try {
+            queue.put(block);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing trace block", e);
+        }
+    }
+
+    private ByteBuffer buffer(int bytes) {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null || buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocate(Math.max(bytes, 8 + BLOCK_ROWS * ROW_BYTES));
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Collects the decisions at one table into column arrays.
+     */
+    public final class Recorder implements TableListener {
+        private final long handBase;
+        private long hands;
+        private int rows;
+        private int handStart;
+
+        private long[] hand = new long[BLOCK_ROWS];
+        private byte[] seat = new byte[BLOCK_ROWS];
+        private byte[] position = new byte[BLOCK_ROWS];
+        private byte[] players = new byte[BLOCK_ROWS];
+        private byte[] street = new byte[BLOCK_ROWS];
+        private byte[] card1 = new byte[BLOCK_ROWS];
+        private byte[] card2 = new byte[BLOCK_ROWS];
+        private long[] board = new long[BLOCK_ROWS];
+        private int[] texture = new int[BLOCK_ROWS];
+        private int[] pot = new int[BLOCK_ROWS];
+        private int[] toCall = new int[BLOCK_ROWS];
+        private int[] stack = new int[BLOCK_ROWS];
+        private byte[] action = new byte[BLOCK_ROWS];
+        private int[] outcome = new int[BLOCK_ROWS];
+
+        // Stacks before the next action, and the board as the players see it
+        private int[] stacks = new int[0];
+        private long boardMask;
+        private int boardTexture;
+
+        private Recorder(int id) {
+            // Hand numbers are unique across the recorders of a trace
+            this.handBase = (long) id << 40;
+        }
+
+        @Override
+        public void handStarted(TableState state) {
+            int seats = state.getSeatCount();
+            if (stacks.length != seats) {
+                stacks = new int[seats];
+            }
+            for (int s = 0; s < seats; s++) {
+                stacks[s] = state.getStack(s);
+            }
+            boardMask = 0L;
+            boardTexture = 0;
+            handStart = rows;
+            hands++;
+        }
+
+        @Override
+        public void boardDealt(TableState state, long board) {
+            boardMask = board;
+            boardTexture = BoardTexture.analyze(board);
+        }
+
+        @Override
+        public void actionTaken(TableState state, int seatIndex, PlayerAction chosen, int amountToCall, int potBefore) {
+            if (rows == hand.length) {
+                grow();
+            }
+            int seats = state.getSeatCount();
+            int r = rows++;
+            hand[r] = handBase + hands;
+            seat[r] = (byte) seatIndex;
+            position[r] = (byte) ((seatIndex - state.getDealer() + seats) % seats);
+            players[r] = (byte) seats;
+            street[r] = (byte) Long.bitCount(boardMask);
+            card1[r] = (byte) state.getHoleCard(seatIndex, 0);
+            card2[r] = (byte) state.getHoleCard(seatIndex, 1);
+            board[r] = boardMask;
+            texture[r] = boardTexture;
+            pot[r] = potBefore;
+            toCall[r] = amountToCall;
+            stack[r] = stacks[seatIndex];
+            action[r] = (byte) chosen.ordinal();
+            stacks[seatIndex] = state.getStack(seatIndex);
+        }
+
+        @Override
+        public void handEnded(TableState state, int[] deltas) {
+            for (int r = handStart; r < rows; r++) {
+                outcome[r] = deltas[seat[r]];
+            }
+            handStart = rows;
+            if (rows >= BLOCK_ROWS) {
+                flush();
+            }
+        }
+
+        /**
+         * Queues the decisions of the hands finished so far for writing.
+         */
+        public void flush() {
+            int count = handStart;
+            if (count == 0) {
+                return;
+            }
+            ByteBuffer block = buffer(8 + count * ROW_BYTES);
+            block.putInt(count).putInt(count * ROW_BYTES);
+            putLongs(block, hand, count);
+            block.put(seat, 0, count).put(position, 0, count).put(players, 0, count).put(street, 0, count)
+                 .put(card1, 0, count).put(card2, 0, count);
+            putLongs(block, board, count);
+            putInts(block, texture, count);
+            putInts(block, pot, count);
+            putInts(block, toCall, count);
+            putInts(block, stack, count);
+            block.put(action, 0, count);
+            putInts(block, outcome, count);
+            block.flip();
+            submit(block);
+
+            // Keep the rows of a hand still in progress
+            int left = rows - count;
+            if (left > 0) {
+                shift(count, left);
+            }
+            rows = left;
+            handStart = 0;
+        }
+
+        // Bulk copies through view buffers, much cheaper than a put per value
+        private void putInts(ByteBuffer block, int[] values, int count) {
+            block.asIntBuffer().put(values, 0, count);
+            block.position(block.position() + count * 4);
+        }
+
+        private void putLongs(ByteBuffer block, long[] values, int count) {
+            block.asLongBuffer().put(values, 0, count);
+            block.position(block.position() + count * 8);
+        }
+
+        private void shift(int from, int count) {
+            System.arraycopy(hand, from, hand, 0, count);
+            System.arraycopy(seat, from, seat, 0, count);
+            System.arraycopy(position, from, position, 0, count);
+            System.arraycopy(players, from, players, 0, count);
+            System.arraycopy(street, from, street, 0, count);
+            System.arraycopy(card1, from, card1, 0, count);
+            System.arraycopy(card2, from, card2, 0, count);
+            System.arraycopy(board, from, board, 0, count);
+            System.arraycopy(texture, from, texture, 0, count);
+            System.arraycopy(pot, from, pot, 0, count);
+            System.arraycopy(toCall, from, toCall, 0, count);
+            System.arraycopy(stack, from, stack, 0, count);
+            System.arraycopy(action, from, action, 0, count);
+            System.arraycopy(outcome, from, outcome, 0, count);
+        }
+
+        /**
+         * Makes room for a hand with more decisions than fit in the current block.
+         */
+        private void grow() {
+            int size = hand.length * 2;
+            hand = Arrays.copyOf(hand, size);
+            seat = Arrays.copyOf(seat, size);
+            position = Arrays.copyOf(position, size);
+            players = Arrays.copyOf(players, size);
+            street = Arrays.copyOf(street, size);
+            card1 = Arrays.copyOf(card1, size);
+            card2 = Arrays.copyOf(card2, size);
+            board = Arrays.copyOf(board, size);
+            texture = Arrays.copyOf(texture, size);
+            pot = Arrays.copyOf(pot, size);
+            toCall = Arrays.copyOf(toCall, size);
+            stack = Arrays.copyOf(stack, size);
+            action = Arrays.copyOf(action, size);
+            outcome = Arrays.copyOf(outcome, size);
+        }
+    }
+}
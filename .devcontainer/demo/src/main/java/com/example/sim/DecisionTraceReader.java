@@ -0,0 +1,224 @@
+package com.example.sim;
+
+import com.example.Player.PlayerAction;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file written by {@link DecisionTrace} one block at a time.
+ *
+ * After {@link #next()} the accessors return the current block's columns, valid for the
+ * first {@link #getRowCount()} entries. The arrays are reused for the following block.
+ */
+public class DecisionTraceReader implements Closeable {
+    private static final PlayerAction[] ACTIONS = PlayerAction.values();
+
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(8);
+    private ByteBuffer block = ByteBuffer.allocate(0);
+    private int rows;
+
+    private long[] hand = new long[0];
+    private byte[] seat = new byte[0];
+    private byte[] position = new byte[0];
+    private byte[] players = new byte[0];
+    private byte[] boardCount = new byte[0];
+    private byte[] card1 = new byte[0];
+    private byte[] card2 = new byte[0];
+    private long[] board = new long[0];
+    private int[] texture = new int[0];
+    private int[] pot = new int[0];
+    private int[] toCall = new int[0];
+    private int[] stack = new int[0];
+    private byte[] action = new byte[0];
+    private int[] outcome = new int[0];
+
+    /**
+     * Opens a trace file.
+     *
+     * @param file The trace file
+     * @throws IOException If the file cannot be read or is not a decision trace
+     */
+    public DecisionTraceReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (!fill(header) || header.getInt() != DecisionTrace.MAGIC) {
+            channel.close();
+            throw new IOException("Not a decision trace: " + file);
+        }
+        int version = header.getInt();
+        if (version != DecisionTrace.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported decision trace version " + version);
+        }
+    }
+
+    /**
+     * Reads the next block.
+     *
+     * @return false at the end of the file
+     * @throws IOException If the file cannot be read or ends inside a block
+     */
+    public boolean next() throws IOException {
+        header.clear();
+        if (!fill(header)) {
+            return false;
+        }
+        rows = header.getInt();
+        int bytes = header.getInt();
+        if (rows < 0 || bytes != rows * DecisionTrace.ROW_BYTES) {
+            throw new IOException("Corrupt block header");
+        }
+        if (block.capacity() < bytes) {
+            block = ByteBuffer.allocate(bytes);
+        }
+        block.clear().limit(bytes);
+        if (!fill(block)) {
+            throw new EOFException("Truncated block");
+        }
+        if (hand.length < rows) {
+            allocate(rows);
+        }
+        getLongs(hand);
+        block.get(seat, 0, rows).get(position, 0, rows).get(players, 0, rows).get(boardCount, 0, rows)
+             .get(card1, 0, rows).get(card2, 0, rows);
+        getLongs(board);
+        getInts(texture);
+        getInts(pot);
+        getInts(toCall);
+        getInts(stack);
+        block.get(action, 0, rows);
+        getInts(outcome);
+        return true;
+    }
+
+    /**
+     * Reads until the buffer, already cleared and limited, is full.
+     *
+     * @return false if the file ended before the first byte
+     */
+    private boolean fill(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("Truncated decision trace");
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private void getInts(int[] values) {
+        block.asIntBuffer().get(values, 0, rows);
+        block.position(block.position() + rows * 4);
+    }
+
+    private void getLongs(long[] values) {
+        block.asLongBuffer().get(values, 0, rows);
+        block.position(block.position() + rows * 8);
+    }
+
+    private void allocate(int size) {
+        hand = new long[size];
+        seat = new byte[size];
+        position = new byte[size];
+        players = new byte[size];
+        boardCount = new byte[size];
+        card1 = new byte[size];
+        card2 = new byte[size];
+        board = new long[size];
+        texture = new int[size];
+        pot = new int[size];
+        toCall = new int[size];
+        stack = new int[size];
+        action = new byte[size];
+        outcome = new int[size];
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    /** Hand numbers, shared by the decisions of one hand. */
+    public long[] getHands() {
+        return hand;
+    }
+
+    public byte[] getSeats() {
+        return seat;
+    }
+
+    /** Seats after the dealer button, 0 being the dealer. */
+    public byte[] getPositions() {
+        return position;
+    }
+
+    /** Seats at the table. */
+    public byte[] getPlayerCounts() {
+        return players;
+    }
+
+    /** Board cards showing when the decision was made: 0, 3, 4 or 5. */
+    public byte[] getBoardCounts() {
+        return boardCount;
+    }
+
+    /** First hole card indices, or {@link TableState#NO_CARD}. */
+    public byte[] getFirstCards() {
+        return card1;
+    }
+
+    public byte[] getSecondCards() {
+        return card2;
+    }
+
+    /** Board card masks. */
+    public long[] getBoards() {
+        return board;
+    }
+
+    /** Packed {@link com.example.eval.BoardTexture} values, 0 before the flop. */
+    public int[] getTextures() {
+        return texture;
+    }
+
+    /** Pots before the decision. */
+    public int[] getPots() {
+        return pot;
+    }
+
+    public int[] getToCalls() {
+        return toCall;
+    }
+
+    /** Stacks before the decision. */
+    public int[] getStacks() {
+        return stack;
+    }
+
+    /** Action ordinals; see {@link #getAction(int)}. */
+    public byte[] getActions() {
+        return action;
+    }
+
+    public PlayerAction getAction(int row) {
+        return ACTIONS[action[row]];
+    }
+
+    /** Chips the deciding seat won or lost over the whole hand. */
+    public int[] getOutcomes() {
+        return outcome;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
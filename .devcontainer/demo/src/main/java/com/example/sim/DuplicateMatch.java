@@ -0,0 +1,331 @@
+package com.example.sim;
+
+import com.example.AIPlayer;
+import com.example.Card;
+import com.example.Player;
+import com.example.ai.MCTSPlayer;
+import com.example.ai.OpponentStats;
+import com.example.ai.RiverSolverPlayer;
+import com.example.ai.StatsCollector;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * Compares two players heads-up with duplicate poker, which cancels most of the card luck.
+ *
+ * Every deal is played four times: with each player in each seat, and with the button on
+ * each seat, always from the same deck order. A hand where one player is dealt aces is
+ * therefore matched by one where the other player gets them. Stacks are reset before every
+ * hand, so deals are independent samples, and hands that end in an all-in are scored by
+ * equity rather than by the cards that came. Each player is built for a deal from the deal's
+ * seed, so a seeded bot makes the same random choices in both seatings.
+ *
+ * Deals run in parallel, one task per deal, in rounds. After each round the mean result
+ * and its confidence interval are updated, and the match stops early once the interval
+ * excludes zero at a stricter level than the one reported, which keeps repeated looks at
+ * the data from inflating the error rate.
+ *
+ * With opponent modelling on, every table feeds a {@link StatsCollector} and each
+ * {@link AIPlayer} reads its opponent's statistics from the match. Deals in a round only
+ * see the statistics of earlier rounds; their own counts are added once the round is
+ * over, in deal order, so the result does not depend on how deals were scheduled.
+ *
+ * Given a {@link DecisionTrace}, every decision of the match is recorded to it, through
+ * one recorder per worker thread.
+ */
+public class DuplicateMatch {
+    private static final int HANDS_PER_DEAL = 4;
+    private static final double REPORT_Z = 1.96;
+    private static final double STOP_Z = 3.0;
+    private static final long SEED_STRIDE = 0x9E3779B97F4A7C15L;
+    private static final int MAX_PLAYER_NAMES = 16;
+
+    private final LongFunction<Player> first;
+    private final LongFunction<Player> second;
+    private final int smallBlind;
+    private final int bigBlind;
+    private final int stack;
+    private final long seed;
+    private final int threads;
+    private final OpponentStats stats = new OpponentStats(MAX_PLAYER_NAMES);
+    private boolean opponentModelling;
+    private DecisionTrace trace;
+
+    /**
+     * Creates a match.
+     *
+     * @param first Builds the first player from a deal seed
+     * @param second Builds the second player from a deal seed
+     * @param smallBlind The small blind amount
+     * @param bigBlind The big blind amount
+     * @param stack The stack both players start every hand with
+     * @param seed The match seed, from which every deal is derived
+     * @param threads The number of deals played at once
+     */
+    public DuplicateMatch(LongFunction<Player> first, LongFunction<Player> second, int smallBlind, int bigBlind,
+                          int stack, long seed, int threads) {
+        this.first = first;
+        this.second = second;
+        this.smallBlind = smallBlind;
+        this.bigBlind = bigBlind;
+        this.stack = stack;
+        this.seed = seed;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Lets AI players adapt to their opponent's statistics, collected over the match.
+     * The two players need different names.
+     *
+     * @param enabled Whether to collect statistics and hand them to the players
+     */
+    public void setOpponentModelling(boolean enabled) {
+        this.opponentModelling = enabled;
+    }
+
+    /**
+     * Records the decisions of every hand played from now on. The trace is not closed
+     * by the match.
+     *
+     * @param trace The trace, or null to stop recording
+     */
+    public void setDecisionTrace(DecisionTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Gets the statistics collected over the rounds played so far.
+     *
+     * @return The statistics, empty unless opponent modelling is on
+     */
+    public OpponentStats getOpponentStats() {
+        return stats;
+    }
+
+    /**
+     * Plays deals until the result is significant or the deal limit is reached.
+     *
+     * @param minDeals Deals always played before stopping early
+     * @param maxDeals The most deals to play
+     * @return The first player's result
+     */
+    public Result run(int minDeals, int maxDeals) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        // Recorders belong to the thread that fills them; each worker plays its deals in turn
+        final DecisionTrace recorded = trace;
+        ThreadLocal<DecisionTrace.Recorder> recorders =
+                ThreadLocal.withInitial(() -> recorded != null ? recorded.recorder() : null);
+        try {
+            int round = Math.max(threads, 64);
+            double sum = 0;
+            double sumSquares = 0;
+            int deals = 0;
+            boolean significant = false;
+            while (deals < maxDeals && !significant) {
+                List<Future<Double>> results = new ArrayList<>();
+                List<OpponentStats> collected = new ArrayList<>();
+                int end = Math.min(maxDeals, deals + round);
+                for (int deal = deals; deal < end; deal++) {
+                    final long dealSeed = seed + deal * SEED_STRIDE;
+                    final OpponentStats dealStats = opponentModelling ? new OpponentStats(MAX_PLAYER_NAMES) : null;
+                    collected.add(dealStats);
+                    results.add(pool.submit(() -> playDeal(dealSeed, dealStats, recorders.get())));
+                }
+                for (Future<Double> result : results) {
+                    double chips = result.get();
+                    sum += chips;
+                    sumSquares += chips * chips;
+                }
+                for (OpponentStats dealStats : collected) {
+                    if (dealStats != null) {
+                        stats.add(dealStats);
+                    }
+                }
+                deals = end;
+                significant = deals >= minDeals && Math.abs(mean(sum, deals)) > STOP_Z * standardError(sum, sumSquares, deals);
+            }
+            return new Result(deals, mean(sum, deals), standardError(sum, sumSquares, deals), bigBlind, deals < maxDeals);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Match interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Deal failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one deal four ways and returns the first player's total winnings, with all-in
+     * runouts valued by equity.
+     */
+    double playDeal(long dealSeed) {
+        return playDeal(dealSeed, null, null);
+    }
+
+    /**
+     * Plays one deal, counting the players' actions into the given statistics if there
+     * are any and handing the match statistics to the AI players, and recording the
+     * decisions if there is a recorder.
+     */
+    private double playDeal(long dealSeed, OpponentStats collected, DecisionTrace.Recorder recorder) {
+        int[] deck = new int[Card.DECK_SIZE];
+        TableState.shuffleDeck(deck, new Random(dealSeed));
+        double total = 0;
+        for (int swapped = 0; swapped < 2; swapped++) {
+            Player a = first.apply(dealSeed);
+            Player b = second.apply(dealSeed);
+            List<Player> seats = swapped == 0 ? Arrays.asList(a, b) : Arrays.asList(b, a);
+            TableSimulator table = new TableSimulator(seats, smallBlind, bigBlind, dealSeed);
+            table.setAllInAdjusted(true);
+            if (collected != null) {
+                table.addListener(new StatsCollector(collected, seats));
+                watch(a, b);
+                watch(b, a);
+            }
+            if (recorder != null) {
+                table.addListener(recorder);
+            }
+            // The button starts on seat 0 and moves to seat 1 for the second hand
+            for (int hand = 0; hand < 2; hand++) {
+                resetChips(a);
+                resetChips(b);
+                table.playHand(deck);
+                total += table.getAdjustedDeltas()[swapped];
+            }
+        }
+        return total;
+    }
+
+    private void watch(Player player, Player opponent) {
+        if (player instanceof AIPlayer) {
+            ((AIPlayer) player).setOpponentStats(stats, opponent.getName());
+        }
+    }
+
+    private void resetChips(Player player) {
+        int difference = stack - player.getChipCount();
+        if (difference > 0) {
+            player.addChips(difference);
+        } else if (difference < 0) {
+            player.removeChips(-difference);
+        }
+    }
+
+    private static double mean(double sum, int count) {
+        return count > 0 ? sum / count : 0;
+    }
+
+    private static double standardError(double sum, double sumSquares, int count) {
+        if (count < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double mean = sum / count;
+        double variance = (sumSquares - count * mean * mean) / (count - 1);
+        return Math.sqrt(Math.max(0, variance) / count);
+    }
+
+    /**
+     * The first player's result over a match, per hand played.
+     */
+    public static final class Result {
+        private final int deals;
+        private final double meanPerDeal;
+        private final double errorPerDeal;
+        private final int bigBlind;
+        private final boolean stoppedEarly;
+
+        Result(int deals, double meanPerDeal, double errorPerDeal, int bigBlind, boolean stoppedEarly) {
+            this.deals = deals;
+            this.meanPerDeal = meanPerDeal;
+            this.errorPerDeal = errorPerDeal;
+            this.bigBlind = bigBlind;
+            this.stoppedEarly = stoppedEarly;
+        }
+
+        public int getDeals() {
+            return deals;
+        }
+
+        public long getHands() {
+            return (long) deals * HANDS_PER_DEAL;
+        }
+
+        /**
+         * Gets the first player's win rate.
+         *
+         * @return The win rate in milli-big-blinds per hand
+         */
+        public double getWinRate() {
+            return meanPerDeal * 1000.0 / (HANDS_PER_DEAL * bigBlind);
+        }
+
+        /**
+         * Gets the half-width of the 95% confidence interval around the win rate.
+         *
+         * @return The half-width in milli-big-blinds per hand
+         */
+        public double getConfidence() {
+            return REPORT_Z * errorPerDeal * 1000.0 / (HANDS_PER_DEAL * bigBlind);
+        }
+
+        /**
+         * Checks whether the 95% confidence interval excludes zero.
+         *
+         * @return true if one player is significantly better
+         */
+        public boolean isSignificant() {
+            return Math.abs(getWinRate()) > getConfidence();
+        }
+
+        public boolean isStoppedEarly() {
+            return stoppedEarly;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f +/- %.0f mbb/hand over %d hands%s", getWinRate(), getConfidence(), getHands(),
+                                 stoppedEarly ? " (stopped early)" : "");
+        }
+    }
+
+    /**
+     * Plays {@link AIPlayer} against {@link MCTSPlayer} with 100 big blind stacks. Given a
+     * river time, the AI solves heads-up rivers with a {@link RiverSolverPlayer}; given a
+     * trace file, every decision is recorded to it.
+     * Usage: DuplicateMatch [maxDeals] [mctsMillis] [threads] [riverMillis] [traceFile]
+     */
+    public static void main(String[] args) throws IOException {
+        int maxDeals = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 5;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long riverMillis = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        DuplicateMatch match = new DuplicateMatch(
+                dealSeed -> riverMillis > 0
+                        ? new RiverSolverPlayer(new AIPlayer("AI", 1000, dealSeed), riverMillis, dealSeed)
+                        : new AIPlayer("AI", 1000, dealSeed),
+                dealSeed -> new MCTSPlayer("MCTS", 1000, millis, 1),
+                5, 10, 1000, 40, threads);
+        match.setOpponentModelling(true);
+        DecisionTrace trace = args.length > 4 ? new DecisionTrace(Paths.get(args[4])) : null;
+        match.setDecisionTrace(trace);
+        String first = riverMillis > 0 ? "AIPlayer with river solver" : "AIPlayer";
+        try {
+            System.out.println(first + " vs MCTSPlayer: " + match.run(100, maxDeals));
+        } finally {
+            if (trace != null) {
+                trace.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.sim;
+
+import com.example.AIParameters;
+import com.example.AIPlayer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tunes {@link AIParameters} by playing candidate parameter sets against the defaults.
+ *
+ * The search is an evolution strategy in the style of separable CMA-ES: each generation
+ * samples candidates from a normal distribution with a diagonal covariance around the
+ * current mean, scores them, and moves the mean towards the best half with weights that
+ * favour the better candidates. The step size adapts from the length of the search path,
+ * and each parameter's variance from how far the winners strayed along it. Candidates
+ * are clamped to the unit cube before they play.
+ *
+ * A candidate's fitness is its duplicate win against a default {@link AIPlayer} over the
+ * generation's deals. Every candidate in a generation plays the same deals with the same
+ * seeds, so the candidates are ranked on common random numbers and the card luck that
+ * remains cancels out of the comparison. Each generation deals afresh so the search
+ * does not fit one sample of deals. Candidates and blocks of deals are played in
+ * parallel.
+ */
+public class ParameterSearch {
+    private static final int SMALL_BLIND = 5;
+    private static final int BIG_BLIND = 10;
+    private static final int STACK = 1000;
+    private static final int DEALS_PER_TASK = 16;
+    private static final long SEED_STRIDE = 0x9E3779B97F4A7C15L;
+
+    private final int lambda;
+    private final int mu;
+    private final double[] weights;
+    private final double muEff;
+    private final double cSigma;
+    private final double dSigma;
+    private final double cMu;
+    private final double chiN;
+    private final int deals;
+    private final int threads;
+    private final long seed;
+    private final Random random;
+
+    private final double[] mean;
+    private final double[] variance;
+    private final double[] path;
+    private double sigma;
+    private int generation;
+    private double bestFitness = Double.NEGATIVE_INFINITY;
+    private AIParameters best = AIParameters.defaults();
+
+    /**
+     * Creates a search that starts from the default parameters.
+     *
+     * @param lambda The number of candidates per generation
+     * @param deals The number of deals each candidate plays per generation
+     * @param sigma The initial step size, as a fraction of the unit range
+     * @param seed The search seed
+     * @param threads The number of threads games are played on
+     */
+    public ParameterSearch(int lambda, int deals, double sigma, long seed, int threads) {
+        int n = AIParameters.COUNT;
+        this.lambda = Math.max(4, lambda);
+        this.mu = this.lambda / 2;
+        this.deals = Math.max(1, deals);
+        this.threads = Math.max(1, threads);
+        this.seed = seed;
+        this.random = new Random(seed);
+
+        weights = new double[mu];
+        double sum = 0;
+        for (int i = 0; i < mu; i++) {
+            weights[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+            sum += weights[i];
+        }
+        double sumSquares = 0;
+        for (int i = 0; i < mu; i++) {
+            weights[i] /= sum;
+            sumSquares += weights[i] * weights[i];
+        }
+        muEff = 1 / sumSquares;
+        cSigma = (muEff + 2) / (n + muEff + 5);
+        dSigma = 1 + 2 * Math.max(0, Math.sqrt((muEff - 1) / (n + 1)) - 1) + cSigma;
+        // The rank-mu learning rate, raised by (n + 2) / 3 since only the diagonal is learned
+        cMu = Math.min(1, (n + 2) / 3.0 * 2 * (muEff - 2 + 1 / muEff) / ((n + 2) * (n + 2) + muEff));
+        chiN = Math.sqrt(n) * (1 - 1.0 / (4 * n) + 1.0 / (21.0 * n * n));
+
+        this.mean = AIParameters.defaults().toArray();
+        this.variance = new double[n];
+        Arrays.fill(variance, 1);
+        this.path = new double[n];
+        this.sigma = sigma;
+    }
+
+    /**
+     * Runs one generation: samples, plays and ranks the candidates and updates the
+     * distribution.
+     *
+     * @param pool The executor the games are played on
+     * @return The best fitness this generation, in chips per deal
+     */
+    public double step(ExecutorService pool) throws InterruptedException, ExecutionException {
+        int n = AIParameters.COUNT;
+        double[][] steps = new double[lambda][n];
+        AIParameters[] candidates = new AIParameters[lambda];
+        for (int k = 0; k < lambda; k++) {
+            double[] x = new double[n];
+            for (int j = 0; j < n; j++) {
+                x[j] = mean[j] + sigma * Math.sqrt(variance[j]) * random.nextGaussian();
+            }
+            candidates[k] = AIParameters.of(x);
+            // Step to the clamped point, so the update learns from what was actually played
+            double[] played = candidates[k].toArray();
+            for (int j = 0; j < n; j++) {
+                steps[k][j] = (played[j] - mean[j]) / sigma;
+            }
+        }
+
+        double[] fitness = evaluate(pool, candidates);
+        Integer[] order = new Integer[lambda];
+        for (int k = 0; k < lambda; k++) {
+            order[k] = k;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(fitness[b], fitness[a]));
+        if (fitness[order[0]] > bestFitness) {
+            bestFitness = fitness[order[0]];
+            best = candidates[order[0]];
+        }
+
+        double[] meanStep = new double[n];
+        for (int i = 0; i < mu; i++) {
+            for (int j = 0; j < n; j++) {
+                meanStep[j] += weights[i] * steps[order[i]][j];
+            }
+        }
+        double pathLength = 0;
+        for (int j = 0; j < n; j++) {
+            mean[j] = Math.max(0, Math.min(1, mean[j] + sigma * meanStep[j]));
+            path[j] = (1 - cSigma) * path[j]
+                    + Math.sqrt(cSigma * (2 - cSigma) * muEff) * meanStep[j] / Math.sqrt(variance[j]);
+            pathLength += path[j] * path[j];
+
+            double rankMu = 0;
+            for (int i = 0; i < mu; i++) {
+                double y = steps[order[i]][j];
+                rankMu += weights[i] * y * y;
+            }
+            variance[j] = (1 - cMu) * variance[j] + cMu * rankMu;
+        }
+        sigma *= Math.exp(cSigma / dSigma * (Math.sqrt(pathLength) / chiN - 1));
+        generation++;
+        return fitness[order[0]];
+    }
+
+    /**
+     * Plays every candidate against the defaults on this generation's deals, in blocks of
+     * deals so the work spreads over all threads even with few candidates.
+     */
+    private double[] evaluate(ExecutorService pool, AIParameters[] candidates)
+            throws InterruptedException, ExecutionException {
+        long generationSeed = seed + (generation + 1) * SEED_STRIDE * 31;
+        List<List<Future<Double>>> results = new ArrayList<>();
+        for (AIParameters candidate : candidates) {
+            DuplicateMatch match = new DuplicateMatch(
+                    dealSeed -> new AIPlayer("Candidate", STACK, dealSeed, candidate),
+                    dealSeed -> new AIPlayer("Default", STACK, dealSeed),
+                    SMALL_BLIND, BIG_BLIND, STACK, generationSeed, 1);
+            List<Future<Double>> blocks = new ArrayList<>();
+            for (int start = 0; start < deals; start += DEALS_PER_TASK) {
+                final int from = start;
+                final int to = Math.min(deals, start + DEALS_PER_TASK);
+                blocks.add(pool.submit(() -> {
+                    double total = 0;
+                    for (int deal = from; deal < to; deal++) {
+                        total += match.playDeal(generationSeed + deal * SEED_STRIDE);
+                    }
+                    return total;
+                }));
+            }
+            results.add(blocks);
+        }
+
+        double[] fitness = new double[candidates.length];
+        for (int k = 0; k < candidates.length; k++) {
+            double total = 0;
+            for (Future<Double> block : results.get(k)) {
+                total += block.get();
+            }
+            fitness[k] = total / deals;
+        }
+        return fitness;
+    }
+
+    /**
+     * Gets the centre of the search distribution, the search's current estimate of the
+     * best parameters. Unlike the best candidate, it is not picked for a lucky sample.
+     *
+     * @return The mean parameters
+     */
+    public AIParameters getMean() {
+        return AIParameters.of(mean);
+    }
+
+    /**
+     * Gets the candidate with the highest fitness seen in any generation.
+     *
+     * @return The best candidate
+     */
+    public AIParameters getBest() {
+        return best;
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    public double getSigma() {
+        return sigma;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Runs the search and writes the mean parameters after every generation, then checks
+     * the result against the defaults on deals the search never saw.
+     * Usage: ParameterSearch [generations] [lambda] [deals] [threads] [output]
+     */
+    public static void main(String[] args) throws Exception {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int lambda = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int deals = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        Path output = Paths.get(args.length > 4 ? args[4] : "ai-parameters.properties");
+
+        ParameterSearch search = new ParameterSearch(lambda, deals, 0.1, 42, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < generations; i++) {
+                long start = System.nanoTime();
+                double fitness = search.step(pool);
+                search.getMean().save(output, String.format(Locale.ROOT, "generation %d, sigma %.4f",
+                        search.getGeneration(), search.getSigma()));
+                System.out.printf("Generation %d: best %.1f chips/deal, sigma %.4f, %.1fs%n",
+                        search.getGeneration(), fitness, search.getSigma(), (System.nanoTime() - start) / 1e9);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        AIParameters tuned = search.getMean();
+        DuplicateMatch check = new DuplicateMatch(
+                dealSeed -> new AIPlayer("Tuned", STACK, dealSeed, tuned),
+                dealSeed -> new AIPlayer("Default", STACK, dealSeed),
+                SMALL_BLIND, BIG_BLIND, STACK, ~42L, threads);
+        System.out.println("Tuned vs default: " + check.run(200, 4 * deals));
+        for (int i = 0; i < AIParameters.COUNT; i++) {
+            System.out.printf("%-32s %.4f -> %.4f%n", AIParameters.getName(i),
+                    AIParameters.defaults().get(i), tuned.get(i));
+        }
+        System.out.println("Wrote " + output + "; play with it using -D" + AIParameters.FILE_PROPERTY + "=" + output);
+    }
+}
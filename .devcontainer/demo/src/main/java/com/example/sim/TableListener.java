@@ -0,0 +1,51 @@
+package com.example.sim;
+
+import com.example.Player.PlayerAction;
+
+/**
+ * Observes the public events of hands played by a {@link TableSimulator} or a
+ * {@link com.example.GameEngine}.
+ *
+ * Every method receives the live table state, which must only be read, and has an empty
+ * default so listeners implement just the events they need. Events arrive on the thread
+ * playing the hand.
+ */
+public interface TableListener {
+    /**
+     * Called once the cards are dealt and the blinds are posted.
+     *
+     * @param state The table state
+     */
+    default void handStarted(TableState state) {
+    }
+
+    /**
+     * Called when new board cards are turned over.
+     *
+     * @param state The table state
+     * @param board A mask of all the board cards so far
+     */
+    default void boardDealt(TableState state, long board) {
+    }
+
+    /**
+     * Called after a seat acts.
+     *
+     * @param state The table state after the action
+     * @param seat The seat that acted
+     * @param action The action taken
+     * @param toCall The amount the seat had to call
+     * @param pot The pot before the action
+     */
+    default void actionTaken(TableState state, int seat, PlayerAction action, int toCall, int pot) {
+    }
+
+    /**
+     * Called after the pot is settled.
+     *
+     * @param state The table state
+     * @param deltas The chips each seat won (positive) or lost (negative)
+     */
+    default void handEnded(TableState state, int[] deltas) {
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.sim;
+
+import com.example.Card;
+import com.example.GameEngine.GameState;
+import com.example.Player;
+import com.example.Player.PlayerAction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plays hands between {@link Player} implementations without any console or GUI output.
+ *
+ * The table rules are those of {@link TableState}. Player chip counts are kept in step
+ * with the table as the hand is played, so players see the same stacks they would in
+ * the console game. Players that are also {@link TableListener}s are registered as
+ * listeners when the simulator is created, so they can follow the hands they play.
+ */
+public class TableSimulator {
+    // Runouts enumerated before an all-in is valued by sampling instead; this covers every flop and turn
+    private static final int MAX_RUNOUTS = 5000;
+
+    private final List<Player> players;
+    private final TableState state;
+    private final Random random;
+    private final int[] deck = new int[Card.DECK_SIZE];
+    private final int[] stacks;
+    private final int[] payouts;
+
+    // Reused card lists handed to players, one per seat plus the board
+    private final List<List<Card>> hands = new ArrayList<>();
+    private final List<List<Card>> handViews = new ArrayList<>();
+    private final List<Card> board = new ArrayList<>(5);
+    private final List<Card> boardView = Collections.unmodifiableList(board);
+    private final List<TableListener> listeners = new ArrayList<>();
+
+    private long boardMask;
+    private long decisionNanos;
+    private boolean allInAdjusted;
+    private final Random equityRandom;
+    private final double[] expected;
+    private final double[] adjustedDeltas;
+    private long allInHands;
+    private int dealer = -1;
+    private long handsPlayed;
+
+    /**
+     * Creates a simulator with the default 5/10 blinds.
+     *
+     * @param players The players, in seat order
+     */
+    public TableSimulator(List<Player> players) {
+        this(players, 5, 10, new Random().nextLong());
+    }
+
+    /**
+     * Creates a simulator.
+     *
+     * @param players The players, in seat order
+     * @param smallBlind The small blind amount
+     * @param bigBlind The big blind amount
+     * @param seed Seed for shuffling the deck
+     */
+    public TableSimulator(List<Player> players, int smallBlind, int bigBlind, long seed) {
+        this.players = new ArrayList<>(players);
+        this.state = new TableState(players.size(), smallBlind, bigBlind, bigBlind * 2);
+        this.random = new Random(seed);
+        this.stacks = new int[players.size()];
+        this.payouts = new int[players.size()];
+        this.equityRandom = new Random(~seed);
+        this.expected = new double[players.size()];
+        this.adjustedDeltas = new double[players.size()];
+        for (int i = 0; i < players.size(); i++) {
+            List<Card> hand = new ArrayList<>(2);
+            hands.add(hand);
+            handViews.add(Collections.unmodifiableList(hand));
+        }
+        for (Player player : players) {
+            if (player instanceof TableListener) {
+                listeners.add((TableListener) player);
+            }
+        }
+    }
+
+    /**
+     * Checks whether at least two players still have chips.
+     *
+     * @return true if another hand can be played
+     */
+    public boolean canPlay() {
+        int withChips = 0;
+        for (Player player : players) {
+            if (player.getChipCount() > 0) {
+                withChips++;
+            }
+        }
+        return withChips >= 2;
+    }
+
+    /**
+     * Shuffles the deck and plays one hand, moving the dealer button first.
+     *
+     * @return The chips each seat won (positive) or lost (negative) in the hand
+     */
+    public int[] playHand() {
+        TableState.shuffleDeck(deck, random);
+        return playHand(deck);
+    }
+
+    /**
+     * Plays one hand dealt from the given deck order, moving the dealer button first.
+     *
+     * @param deckOrder A permutation of the 52 card indices
+     * @return The chips each seat won (positive) or lost (negative) in the hand
+     */
+    public int[] playHand(int[] deckOrder) {
+        if (!canPlay()) {
+            throw new IllegalStateException("Need at least 2 players with chips");
+        }
+        int seats = players.size();
+        do {
+            dealer = (dealer + 1) % seats;
+        } while (players.get(dealer).getChipCount() == 0);
+
+        for (int seat = 0; seat < seats; seat++) {
+            stacks[seat] = players.get(seat).getChipCount();
+        }
+        state.startHand(dealer, stacks, deckOrder);
+        for (int seat = 0; seat < seats; seat++) {
+            syncChips(seat, stacks[seat]);
+            List<Card> hand = hands.get(seat);
+            hand.clear();
+            if (state.getHoleCard(seat, 0) != TableState.NO_CARD) {
+                hand.add(Card.fromIndex(state.getHoleCard(seat, 0)));
+                hand.add(Card.fromIndex(state.getHoleCard(seat, 1)));
+            }
+        }
+        board.clear();
+        boardMask = 0L;
+        for (TableListener listener : listeners) {
+            listener.handStarted(state);
+        }
+
+        // Board cards known when the betting ended; anything after that is an all-in runout
+        int knownBoard = 0;
+        while (!state.isHandOver()) {
+            dealBoard();
+            knownBoard = state.getBoardCount();
+            int seat = state.getToAct();
+            Player player = players.get(seat);
+            int before = state.getStack(seat);
+            int toCall = state.getToCall(seat);
+            int pot = state.getPot();
+            PlayerAction action = decisionNanos > 0
+                    ? player.getAction(handViews.get(seat), boardView, toCall, pot, System.nanoTime() + decisionNanos)
+                    : player.getAction(handViews.get(seat), boardView, toCall, pot);
+            if (action == null) {
+                action = PlayerAction.FOLD;
+            }
+            state.apply(action);
+            syncChips(seat, before);
+            for (TableListener listener : listeners) {
+                listener.actionTaken(state, seat, action, toCall, pot);
+            }
+        }
+        dealBoard();
+
+        state.settle(payouts);
+        int[] deltas = new int[seats];
+        for (int seat = 0; seat < seats; seat++) {
+            players.get(seat).addChips(payouts[seat]);
+            deltas[seat] = state.getStack(seat) + payouts[seat] - stacks[seat];
+            adjustedDeltas[seat] = deltas[seat];
+        }
+        if (allInAdjusted && state.getStreet() == GameState.SHOWDOWN && state.getBoardCount() > knownBoard) {
+            state.expectedPayouts(knownBoard, MAX_RUNOUTS, equityRandom, expected);
+            for (int seat = 0; seat < seats; seat++) {
+                adjustedDeltas[seat] = state.getStack(seat) + expected[seat] - stacks[seat];
+            }
+            allInHands++;
+        }
+        handsPlayed++;
+        for (TableListener listener : listeners) {
+            listener.handEnded(state, deltas);
+        }
+        return deltas;
+    }
+
+    /**
+     * Shows players any board cards the table has turned over since the last call.
+     */
+    private void dealBoard() {
+        if (board.size() >= state.getBoardCount()) {
+            return;
+        }
+        while (board.size() < state.getBoardCount()) {
+            int card = state.getBoardCard(board.size());
+            board.add(Card.fromIndex(card));
+            boardMask |= 1L << card;
+        }
+        for (TableListener listener : listeners) {
+            listener.boardDealt(state, boardMask);
+        }
+    }
+
+    /**
+     * Gives every decision a deadline, so players that support one answer in bounded time.
+     *
+     * @param millis The time allowed per decision, or 0 for no deadline
+     */
+    public void setDecisionTime(long millis) {
+        this.decisionNanos = millis * 1_000_000L;
+    }
+
+    /**
+     * Values hands that end in an all-in runout by the pot equity at the time of the
+     * all-in as well. Chips still move by the cards actually dealt; the all-in adjusted
+     * result of each hand is available from {@link #getAdjustedDeltas()}.
+     *
+     * @param enabled Whether to compute all-in adjusted results
+     */
+    public void setAllInAdjusted(boolean enabled) {
+        this.allInAdjusted = enabled;
+    }
+
+    /**
+     * Gets the result of the last hand with all-in runouts valued by equity. Without an
+     * all-in runout, or with the adjustment off, these are the actual results.
+     *
+     * @return The chips each seat won or lost, in expectation after an all-in
+     */
+    public double[] getAdjustedDeltas() {
+        return adjustedDeltas.clone();
+    }
+
+    /**
+     * Gets the number of hands whose result was adjusted for an all-in.
+     *
+     * @return The count of all-in runouts valued by equity
+     */
+    public long getAllInHands() {
+        return allInHands;
+    }
+
+    /**
+     * Registers a listener for the events of every hand played from now on.
+     *
+     * @param listener The listener
+     */
+    public void addListener(TableListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(TableListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Removes the chips a seat has just put into the pot from its player.
+     */
+    private void syncChips(int seat, int stackBefore) {
+        int spent = stackBefore - state.getStack(seat);
+        if (spent > 0) {
+            players.get(seat).removeChips(spent);
+        }
+    }
+
+    /**
+     * Gets the table state of the hand in progress or the last hand played.
+     *
+     * @return The table state
+     */
+    public TableState getState() {
+        return state;
+    }
+
+    public List<Player> getPlayers() {
+        return Collections.unmodifiableList(players);
+    }
+
+    public long getHandsPlayed() {
+        return handsPlayed;
+    }
+}
@@ -0,0 +1,927 @@
+package com.example.sim;
+
+import com.example.Card;
+import com.example.GameEngine.GameState;
+import com.example.Player.PlayerAction;
+import com.example.eval.HandEvaluator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compact, copyable representation of a poker table for search and simulation.
+ *
+ * All mutable state (pot, bets, stacks, seat status, hole cards, board and the deck)
+ * lives in a single int array, so forking a table is one array copy and restoring a
+ * snapshot into an existing buffer allocates nothing. Every change made by
+ * {@link #apply(PlayerAction, int)} is journaled, which makes {@link #undo()} and
+ * {@link #redo()} allocation-free as well.
+ *
+ * Seating and blind conventions follow {@link com.example.GameEngine}: the small blind
+ * sits left of the dealer, the big blind left of the small blind, and a raise puts in
+ * the amount to call plus a raise increment.
+ */
+public final class TableState {
+    // Header slots
+    private static final int POT = 0;
+    private static final int CURRENT_BET = 1;
+    private static final int STREET = 2;
+    private static final int TO_ACT = 3;
+    private static final int DEALER = 4;
+    private static final int DECK_POS = 5;
+    private static final int BOARD_COUNT = 6;
+    private static final int PENDING = 7;
+    private static final int RAISES = 8;
+    private static final int HEADER_SIZE = 9;
+
+    // Per-seat slots, relative to the start of the seat's block
+    private static final int STACK = 0;
+    private static final int STREET_BET = 1;
+    private static final int CONTRIBUTED = 2;
+    private static final int STATUS = 3;
+    private static final int HOLE = 4;
+    private static final int SEAT_SIZE = 6;
+
+    /** Seat status: still in the hand and able to act. */
+    public static final int ACTIVE = 0;
+    /** Seat status: folded, or sat out with no chips. */
+    public static final int FOLDED = 1;
+    /** Seat status: in the hand with no chips left to bet. */
+    public static final int ALL_IN = 2;
+
+    /** Marker for a card slot that has not been dealt or is unknown. */
+    public static final int NO_CARD = -1;
+
+    private static final GameState[] STATES = GameState.values();
+    private static final PlayerAction[] ACTIONS = PlayerAction.values();
+    private static final int INITIAL_JOURNAL = 1024;
+    private static final int INITIAL_HISTORY = 64;
+
+    private final int seatCount;
+    private final int smallBlind;
+    private final int bigBlind;
+    private final int raiseIncrement;
+    private final int boardBase;
+    private final int deckBase;
+
+    private int[] slots;
+
+    // Undo journal: (slot, previous value) pairs, grouped into one frame per action
+    private int[] journal;
+    private int journalSize;
+    private int[] frames;
+
+    // Applied actions as (action ordinal, amount) pairs; entries past cursor can be redone
+    private int[] history;
+    private int historyCursor;
+    private int historyLength;
+
+    // Scratch space for settling the pot
+    private final int[] scores;
+
+    /**
+     * Creates an empty table with the default blinds and raise increment used by the
+     * console game (5/10 blinds, raises of 20 over the call).
+     *
+     * @param seatCount The number of seats at the table
+     */
+    public TableState(int seatCount) {
+        this(seatCount, 5, 10, 20);
+    }
+
+    /**
+     * Creates an empty table.
+     *
+     * @param seatCount The number of seats at the table
+     * @param smallBlind The small blind amount
+     * @param bigBlind The big blind amount
+     * @param raiseIncrement The default amount a raise adds on top of the call
+     */
+    public TableState(int seatCount, int smallBlind, int bigBlind, int raiseIncrement) {
+        if (seatCount < 2) {
+            throw new IllegalArgumentException("A table needs at least 2 seats");
+        }
+        this.seatCount = seatCount;
+        this.smallBlind = smallBlind;
+        this.bigBlind = bigBlind;
+        this.raiseIncrement = raiseIncrement;
+        this.boardBase = HEADER_SIZE + seatCount * SEAT_SIZE;
+        this.deckBase = boardBase + 5;
+        this.slots = new int[deckBase + Card.DECK_SIZE];
+        this.journal = new int[INITIAL_JOURNAL];
+        this.frames = new int[INITIAL_HISTORY];
+        this.history = new int[INITIAL_HISTORY * 2];
+        this.scores = new int[seatCount];
+        clear();
+    }
+
+    private TableState(TableState other) {
+        this.seatCount = other.seatCount;
+        this.smallBlind = other.smallBlind;
+        this.bigBlind = other.bigBlind;
+        this.raiseIncrement = other.raiseIncrement;
+        this.boardBase = other.boardBase;
+        this.deckBase = other.deckBase;
+        this.slots = other.slots.clone();
+        this.journal = new int[INITIAL_JOURNAL];
+        this.frames = new int[INITIAL_HISTORY];
+        this.history = new int[INITIAL_HISTORY * 2];
+        this.scores = new int[seatCount];
+    }
+
+    /**
+     * Creates an independent copy of this table's current state.
+     * The copy starts with an empty undo/redo history.
+     *
+     * @return The forked table
+     */
+    public TableState fork() {
+        return new TableState(this);
+    }
+
+    /**
+     * Overwrites this table with the state of another table of the same shape.
+     * This is the allocation-free counterpart of {@link #fork()}: search code keeps one
+     * buffer per thread and restores the root snapshot into it before every rollout.
+     * The undo/redo history of this table is discarded.
+     *
+     * @param snapshot The table to copy from
+     */
+    public void restore(TableState snapshot) {
+        if (snapshot.slots.length != slots.length) {
+            throw new IllegalArgumentException("Snapshot has a different table shape");
+        }
+        System.arraycopy(snapshot.slots, 0, slots, 0, slots.length);
+        clearHistory();
+    }
+
+    /**
+     * Starts a new hand: deals two hole cards to every seat from the given deck order,
+     * posts the blinds and sets the first player to act.
+     * Seats with an empty stack sit the hand out.
+     *
+     * @param dealer The dealer seat
+     * @param stacks The chip count of every seat before the blinds
+     * @param deck A permutation of the 52 card indices; cards are dealt from the front
+     */
+    public void startHand(int dealer, int[] stacks, int[] deck) {
+        clear();
+        System.arraycopy(deck, 0, slots, deckBase, Card.DECK_SIZE);
+        slots[DEALER] = dealer;
+        slots[STREET] = GameState.PRE_FLOP.ordinal();
+
+        for (int seat = 0; seat < seatCount; seat++) {
+            int base = seatBase(seat);
+            slots[base + STACK] = stacks[seat];
+            slots[base + STATUS] = stacks[seat] > 0 ? ACTIVE : FOLDED;
+        }
+
+        // Deal 2 cards to each seat in the hand
+        for (int seat = 0; seat < seatCount; seat++) {
+            int base = seatBase(seat);
+            if (slots[base + STATUS] == FOLDED) {
+                continue;
+            }
+            slots[base + HOLE] = slots[deckBase + slots[DECK_POS]++];
+            slots[base + HOLE + 1] = slots[deckBase + slots[DECK_POS]++];
+        }
+
+        // Post blinds
+        int smallBlindSeat = nextSeatInHand(dealer);
+        int bigBlindSeat = nextSeatInHand(smallBlindSeat);
+        postBlind(smallBlindSeat, smallBlind);
+        postBlind(bigBlindSeat, bigBlind);
+
+        slots[PENDING] = countWithStatus(ACTIVE);
+        slots[TO_ACT] = nextActiveSeat(bigBlindSeat);
+        advanceIfRoundClosed();
+        clearHistory();
+    }
+
+    /**
+     * Fills an array with a shuffled deck of card indices.
+     *
+     * @param deck The array to fill, of length 52
+     * @param random The source of randomness
+     */
+    public static void shuffleDeck(int[] deck, Random random) {
+        for (int i = 0; i < Card.DECK_SIZE; i++) {
+            deck[i] = i;
+        }
+        for (int i = Card.DECK_SIZE - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = tmp;
+        }
+    }
+
+    /**
+     * Replaces every unknown card with a random card from the undealt part of the deck.
+     * Search code calls this after restoring a snapshot taken from one player's point of
+     * view, to sample opponent hole cards and the rest of the board (a determinization).
+     * The undo/redo history is discarded.
+     *
+     * @param random The source of randomness
+     */
+    public void redealUnknown(Random random) {
+        int position = slots[DECK_POS];
+        for (int i = Card.DECK_SIZE - 1; i > position; i--) {
+            int j = position + random.nextInt(i - position + 1);
+            int tmp = slots[deckBase + i];
+            slots[deckBase + i] = slots[deckBase + j];
+            slots[deckBase + j] = tmp;
+        }
+        for (int seat = 0; seat < seatCount; seat++) {
+            int base = seatBase(seat);
+            for (int c = 0; c < 2; c++) {
+                if (slots[base + HOLE + c] == NO_CARD && slots[base + STATUS] != FOLDED) {
+                    slots[base + HOLE + c] = slots[deckBase + slots[DECK_POS]++];
+                }
+            }
+        }
+        clearHistory();
+    }
+
+    /**
+     * Works out how the pot is paid out once the hand is over, including side pots.
+     * Chips that cannot be split evenly go to the first winner left of the dealer.
+     *
+     * @param payouts Receives the chips each seat collects from the pot
+     */
+    public void settle(int[] payouts) {
+        Arrays.fill(payouts, 0, seatCount, 0);
+        if (!isHandOver()) {
+            throw new IllegalStateException("Hand is still in progress");
+        }
+
+        if (slots[STREET] == GameState.GAME_OVER.ordinal()) {
+            for (int seat = 0; seat < seatCount; seat++) {
+                if (getStatus(seat) != FOLDED) {
+                    payouts[seat] = slots[POT];
+                    return;
+                }
+            }
+            return;
+        }
+
+        long board = 0L;
+        for (int i = 0; i < slots[BOARD_COUNT]; i++) {
+            board |= 1L << slots[boardBase + i];
+        }
+        int contributed = 0;
+        for (int seat = 0; seat < seatCount; seat++) {
+            int base = seatBase(seat);
+            contributed += slots[base + CONTRIBUTED];
+            if (slots[base + STATUS] == FOLDED) {
+                scores[seat] = -1;
+            } else {
+                int card1 = slots[base + HOLE];
+                int card2 = slots[base + HOLE + 1];
+                if (card1 == NO_CARD || card2 == NO_CARD) {
+                    throw new IllegalStateException("Seat " + seat + " has unknown hole cards");
+                }
+                scores[seat] = HandEvaluator.evaluate(card1, card2, board);
+            }
+        }
+
+        // Chips in the pot that nobody is recorded as contributing go to the main pot
+        int deadMoney = slots[POT] - contributed;
+
+        // Peel the pot into layers at each distinct contribution level of a live seat
+        int previousLevel = 0;
+        while (true) {
+            int level = Integer.MAX_VALUE;
+            for (int seat = 0; seat < seatCount; seat++) {
+                int amount = getContributed(seat);
+                if (scores[seat] >= 0 && amount > previousLevel && amount < level) {
+                    level = amount;
+                }
+            }
+            if (level == Integer.MAX_VALUE) {
+                break;
+            }
+
+            int layer = deadMoney;
+            deadMoney = 0;
+            int best = -1;
+            int winners = 0;
+            for (int seat = 0; seat < seatCount; seat++) {
+                int amount = getContributed(seat);
+                layer += Math.max(0, Math.min(amount, level) - previousLevel);
+                if (scores[seat] >= 0 && amount >= level) {
+                    if (scores[seat] > best) {
+                        best = scores[seat];
+                        winners = 1;
+                    } else if (scores[seat] == best) {
+                        winners++;
+                    }
+                }
+            }
+
+            int share = layer / winners;
+            int oddChips = layer - share * winners;
+            for (int i = 1; i <= seatCount; i++) {
+                int seat = (slots[DEALER] + i) % seatCount;
+                if (scores[seat] == best && getContributed(seat) >= level) {
+                    payouts[seat] += share + oddChips;
+                    oddChips = 0;
+                }
+            }
+            previousLevel = level;
+        }
+
+        // Money above the highest live contribution (from folded seats) goes to the best hand
+        int paid = 0;
+        for (int seat = 0; seat < seatCount; seat++) {
+            paid += payouts[seat];
+        }
+        if (paid < slots[POT]) {
+            int bestSeat = 0;
+            for (int seat = 1; seat < seatCount; seat++) {
+                if (scores[seat] > scores[bestSeat]) {
+                    bestSeat = seat;
+                }
+            }
+            payouts[bestSeat] += slots[POT] - paid;
+        }
+    }
+
+    /**
+     * Works out what each seat would collect from the pot on average if the board were run
+     * out from its first cards, as for an all-in that has been called. Every possible rest of
+     * the board is settled in turn, with the live seats' hole cards and the known board
+     * cards out of the deck, unless there are more runouts than the limit; then that many
+     * are sampled. Pre-flop all-ins are sampled with any practical limit.
+     *
+     * @param boardCards How many board cards were known when the betting ended
+     * @param maxRunouts The most runouts to enumerate before sampling instead
+     * @param random The source of randomness for sampling
+     * @param expected Receives each seat's expected payout
+     */
+    public void expectedPayouts(int boardCards, int maxRunouts, Random random, double[] expected) {
+        Arrays.fill(expected, 0, seatCount, 0);
+        TableState runout = fork();
+        runout.slots[STREET] = GameState.SHOWDOWN.ordinal();
+        runout.slots[BOARD_COUNT] = 5;
+
+        long dead = 0L;
+        for (int i = 0; i < boardCards; i++) {
+            dead |= 1L << slots[boardBase + i];
+        }
+        for (int seat = 0; seat < seatCount; seat++) {
+            if (getStatus(seat) != FOLDED) {
+                dead |= (1L << getHoleCard(seat, 0)) | (1L << getHoleCard(seat, 1));
+            }
+        }
+        int[] live = new int[Card.DECK_SIZE];
+        int liveCount = 0;
+        for (int card = 0; card < Card.DECK_SIZE; card++) {
+            if ((dead & (1L << card)) == 0) {
+                live[liveCount++] = card;
+            }
+        }
+
+        int missing = 5 - boardCards;
+        long runouts = 1;
+        for (int i = 0; i < missing; i++) {
+            runouts = runouts * (liveCount - i) / (i + 1);
+        }
+        int[] payouts = new int[seatCount];
+        long settled = 0;
+        if (runouts <= maxRunouts) {
+            int[] chosen = new int[missing];
+            for (int i = 0; i < missing; i++) {
+                chosen[i] = i;
+            }
+            do {
+                for (int i = 0; i < missing; i++) {
+                    runout.slots[boardBase + boardCards + i] = live[chosen[i]];
+                }
+                runout.settle(payouts);
+                for (int seat = 0; seat < seatCount; seat++) {
+                    expected[seat] += payouts[seat];
+                }
+                settled++;
+            } while (nextCombination(chosen, liveCount));
+        } else {
+            for (; settled < maxRunouts; settled++) {
+                // Partial shuffle of the live cards picks the missing board cards
+                for (int i = 0; i < missing; i++) {
+                    int j = i + random.nextInt(liveCount - i);
+                    int tmp = live[i];
+                    live[i] = live[j];
+                    live[j] = tmp;
+                    runout.slots[boardBase + boardCards + i] = live[i];
+                }
+                runout.settle(payouts);
+                for (int seat = 0; seat < seatCount; seat++) {
+                    expected[seat] += payouts[seat];
+                }
+            }
+        }
+        for (int seat = 0; seat < seatCount; seat++) {
+            expected[seat] /= settled;
+        }
+    }
+
+    /**
+     * Steps a sorted k-subset of {0, ..., n-1} to the next one in lexicographic order.
+     */
+    private static boolean nextCombination(int[] chosen, int n) {
+        int k = chosen.length;
+        int i = k - 1;
+        while (i >= 0 && chosen[i] == n - k + i) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        chosen[i]++;
+        for (int j = i + 1; j < k; j++) {
+            chosen[j] = chosen[j - 1] + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Applies an action for the player to act, using the table's default raise increment.
+     *
+     * @param action The action to apply
+     * @return true if the action was applied
+     */
+    public boolean apply(PlayerAction action) {
+        return apply(action, raiseIncrement);
+    }
+
+    /**
+     * Applies an action for the player to act. The same normalisation as the console
+     * game is used: checking into a bet folds, calling nothing checks, and a call or raise
+     * the player cannot cover becomes all-in.
+     *
+     * @param action The action to apply
+     * @param raiseAmount For a raise, the chips added on top of the call
+     * @return true if the action was applied, false if the hand is already over
+     */
+    public boolean apply(PlayerAction action, int raiseAmount) {
+        if (isHandOver()) {
+            return false;
+        }
+        beginFrame();
+        applyAction(action, raiseAmount);
+
+        // Record the action and drop anything that could have been redone
+        if (historyCursor * 2 + 2 > history.length) {
+            history = Arrays.copyOf(history, history.length * 2);
+        }
+        history[historyCursor * 2] = action.ordinal();
+        history[historyCursor * 2 + 1] = raiseAmount;
+        historyCursor++;
+        historyLength = historyCursor;
+        return true;
+    }
+
+    /**
+     * Reverts the most recently applied action.
+     *
+     * @return true if an action was undone
+     */
+    public boolean undo() {
+        if (historyCursor == 0) {
+            return false;
+        }
+        historyCursor--;
+        int start = frames[historyCursor];
+        for (int i = journalSize - 2; i >= start; i -= 2) {
+            slots[journal[i]] = journal[i + 1];
+        }
+        journalSize = start;
+        return true;
+    }
+
+    /**
+     * Re-applies the most recently undone action.
+     *
+     * @return true if an action was redone
+     */
+    public boolean redo() {
+        if (historyCursor == historyLength) {
+            return false;
+        }
+        int action = history[historyCursor * 2];
+        int amount = history[historyCursor * 2 + 1];
+        beginFrame();
+        applyAction(ACTIONS[action], amount);
+        historyCursor++;
+        return true;
+    }
+
+    /**
+     * Gets the number of applied actions that can be undone.
+     *
+     * @return The undo depth
+     */
+    public int getUndoDepth() {
+        return historyCursor;
+    }
+
+    private void applyAction(PlayerAction action, int raiseAmount) {
+        int seat = slots[TO_ACT];
+        int base = seatBase(seat);
+        int toCall = slots[CURRENT_BET] - slots[base + STREET_BET];
+        int stack = slots[base + STACK];
+
+        switch (action) {
+            case FOLD:
+                fold(seat);
+                break;
+
+            case CHECK:
+                if (toCall > 0) {
+                    fold(seat); // Checking into a bet is treated as a fold
+                } else {
+                    set(PENDING, slots[PENDING] - 1);
+                }
+                break;
+
+            case CALL:
+                if (toCall >= stack) {
+                    commitChips(seat, stack);
+                    set(PENDING, slots[PENDING] - 1);
+                } else {
+                    commitChips(seat, toCall);
+                    set(PENDING, slots[PENDING] - 1);
+                }
+                break;
+
+            case RAISE:
+                if (toCall + raiseAmount >= stack) {
+                    allIn(seat);
+                } else {
+                    commitChips(seat, toCall + raiseAmount);
+                    reopenBetting(seat);
+                }
+                break;
+
+            case ALL_IN:
+                allIn(seat);
+                break;
+        }
+
+        if (!advanceIfRoundClosed()) {
+            set(TO_ACT, nextActiveSeat(seat));
+        }
+    }
+
+    private void fold(int seat) {
+        set(seatBase(seat) + STATUS, FOLDED);
+        set(PENDING, slots[PENDING] - 1);
+    }
+
+    private void allIn(int seat) {
+        int base = seatBase(seat);
+        int previousBet = slots[CURRENT_BET];
+        commitChips(seat, slots[base + STACK]);
+        if (slots[base + STREET_BET] > previousBet) {
+            reopenBetting(seat);
+        } else {
+            set(PENDING, slots[PENDING] - 1);
+        }
+    }
+
+    /**
+     * After a bet or raise every other player still able to act must act again.
+     */
+    private void reopenBetting(int raiser) {
+        int others = countWithStatus(ACTIVE);
+        if (slots[seatBase(raiser) + STATUS] == ACTIVE) {
+            others--;
+        }
+        set(PENDING, others);
+        set(RAISES, slots[RAISES] + 1);
+    }
+
+    /**
+     * Moves chips from a seat's stack into the pot, updating the bet to match.
+     */
+    private void commitChips(int seat, int amount) {
+        int base = seatBase(seat);
+        set(base + STACK, slots[base + STACK] - amount);
+        set(base + STREET_BET, slots[base + STREET_BET] + amount);
+        set(base + CONTRIBUTED, slots[base + CONTRIBUTED] + amount);
+        set(POT, slots[POT] + amount);
+        if (slots[base + STREET_BET] > slots[CURRENT_BET]) {
+            set(CURRENT_BET, slots[base + STREET_BET]);
+        }
+        if (slots[base + STACK] == 0) {
+            set(base + STATUS, ALL_IN);
+        }
+    }
+
+    private void postBlind(int seat, int amount) {
+        int base = seatBase(seat);
+        int actual = Math.min(amount, slots[base + STACK]);
+        slots[base + STACK] -= actual;
+        slots[base + STREET_BET] += actual;
+        slots[base + CONTRIBUTED] += actual;
+        slots[POT] += actual;
+        if (slots[base + STREET_BET] > slots[CURRENT_BET]) {
+            slots[CURRENT_BET] = slots[base + STREET_BET];
+        }
+        if (slots[base + STACK] == 0) {
+            slots[base + STATUS] = ALL_IN;
+        }
+    }
+
+    /**
+     * Ends the hand or the betting round if nobody else needs to act.
+     *
+     * @return true if the round (or the hand) was closed
+     */
+    private boolean advanceIfRoundClosed() {
+        int live = seatCount - countWithStatus(FOLDED);
+        if (live <= 1) {
+            set(STREET, GameState.GAME_OVER.ordinal());
+            return true;
+        }
+
+        int active = countWithStatus(ACTIVE);
+        boolean closed = slots[PENDING] <= 0 || active == 0;
+        if (!closed && active == 1) {
+            // A lone player with chips left only has to act when facing a bet
+            int seat = nextActiveSeat(slots[TO_ACT] - 1);
+            closed = slots[seatBase(seat) + STREET_BET] >= slots[CURRENT_BET];
+        }
+        if (!closed) {
+            return false;
+        }
+
+        // Betting round is over: clear street bets and move to the next street
+        for (int seat = 0; seat < seatCount; seat++) {
+            set(seatBase(seat) + STREET_BET, 0);
+        }
+        set(CURRENT_BET, 0);
+        set(RAISES, 0);
+
+        if (active <= 1) {
+            // Nobody left to bet against: run the board out to the showdown
+            while (slots[BOARD_COUNT] < 5) {
+                dealBoardCard();
+            }
+            set(STREET, GameState.SHOWDOWN.ordinal());
+            return true;
+        }
+
+        GameState street = STATES[slots[STREET]];
+        switch (street) {
+            case PRE_FLOP:
+                dealBoardCard();
+                dealBoardCard();
+                dealBoardCard();
+                set(STREET, GameState.FLOP.ordinal());
+                break;
+            case FLOP:
+                dealBoardCard();
+                set(STREET, GameState.TURN.ordinal());
+                break;
+            case TURN:
+                dealBoardCard();
+                set(STREET, GameState.RIVER.ordinal());
+                break;
+            default:
+                set(STREET, GameState.SHOWDOWN.ordinal());
+                return true;
+        }
+
+        set(PENDING, active);
+        set(TO_ACT, nextActiveSeat(slots[DEALER]));
+        return true;
+    }
+
+    private void dealBoardCard() {
+        int count = slots[BOARD_COUNT];
+        int position = slots[DECK_POS];
+        set(boardBase + count, slots[deckBase + position]);
+        set(DECK_POS, position + 1);
+        set(BOARD_COUNT, count + 1);
+    }
+
+    private int nextActiveSeat(int from) {
+        for (int i = 1; i <= seatCount; i++) {
+            int seat = Math.floorMod(from + i, seatCount);
+            if (slots[seatBase(seat) + STATUS] == ACTIVE) {
+                return seat;
+            }
+        }
+        return Math.floorMod(from + 1, seatCount);
+    }
+
+    private int nextSeatInHand(int from) {
+        for (int i = 1; i <= seatCount; i++) {
+            int seat = Math.floorMod(from + i, seatCount);
+            if (slots[seatBase(seat) + STATUS] != FOLDED) {
+                return seat;
+            }
+        }
+        return Math.floorMod(from + 1, seatCount);
+    }
+
+    private int countWithStatus(int status) {
+        int count = 0;
+        for (int seat = 0; seat < seatCount; seat++) {
+            if (slots[seatBase(seat) + STATUS] == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int seatBase(int seat) {
+        return HEADER_SIZE + seat * SEAT_SIZE;
+    }
+
+    private void set(int slot, int value) {
+        int old = slots[slot];
+        if (old == value) {
+            return;
+        }
+        if (journalSize + 2 > journal.length) {
+            journal = Arrays.copyOf(journal, journal.length * 2);
+        }
+        journal[journalSize++] = slot;
+        journal[journalSize++] = old;
+        slots[slot] = value;
+    }
+
+    private void beginFrame() {
+        if (historyCursor >= frames.length) {
+            frames = Arrays.copyOf(frames, frames.length * 2);
+        }
+        frames[historyCursor] = journalSize;
+    }
+
+    private void clear() {
+        Arrays.fill(slots, 0);
+        Arrays.fill(slots, boardBase, boardBase + 5, NO_CARD);
+        for (int seat = 0; seat < seatCount; seat++) {
+            slots[seatBase(seat) + HOLE] = NO_CARD;
+            slots[seatBase(seat) + HOLE + 1] = NO_CARD;
+        }
+        slots[STREET] = GameState.WAITING_FOR_PLAYERS.ordinal();
+        clearHistory();
+    }
+
+    private void clearHistory() {
+        journalSize = 0;
+        historyCursor = 0;
+        historyLength = 0;
+    }
+
+    /**
+     * Loads raw state copied from a {@link com.example.GameEngine}. Used by
+     * {@link com.example.GameEngine#snapshot()}; hole and board cards are card indices
+     * or {@link #NO_CARD}, and the deck holds the undealt cards in dealing order.
+     * {@code bets} holds each seat's chips in on the current street and {@code contributed}
+     * its chips in over the whole hand; {@code pending} is the number of players who still
+     * have to act this betting round, and {@code raises} the bets and raises made in it.
+     */
+    public void load(int dealer, int toAct, int pot, int currentBet, GameState street,
+                     int[] stacks, int[] bets, int[] contributed, int[] statuses, int[] holeCards,
+                     int[] board, int boardCount, int[] undealt, int undealtCount, int pending, int raises) {
+        clear();
+        slots[DEALER] = dealer;
+        slots[TO_ACT] = toAct;
+        slots[POT] = pot;
+        slots[CURRENT_BET] = currentBet;
+        slots[STREET] = street.ordinal();
+        for (int seat = 0; seat < seatCount; seat++) {
+            int base = seatBase(seat);
+            slots[base + STACK] = stacks[seat];
+            slots[base + STREET_BET] = bets[seat];
+            slots[base + CONTRIBUTED] = contributed[seat];
+            slots[base + STATUS] = statuses[seat];
+            slots[base + HOLE] = holeCards[seat * 2];
+            slots[base + HOLE + 1] = holeCards[seat * 2 + 1];
+        }
+        for (int i = 0; i < boardCount; i++) {
+            slots[boardBase + i] = board[i];
+        }
+        slots[BOARD_COUNT] = boardCount;
+
+        // Cards already out of the deck occupy the front so the cursor points at the rest
+        int position = Card.DECK_SIZE - undealtCount;
+        for (int i = 0; i < undealtCount; i++) {
+            slots[deckBase + position + i] = undealt[i];
+        }
+        slots[DECK_POS] = position;
+        slots[PENDING] = pending;
+        slots[RAISES] = raises;
+    }
+
+    public int getSeatCount() {
+        return seatCount;
+    }
+
+    public int getBigBlind() {
+        return bigBlind;
+    }
+
+    public int getSmallBlind() {
+        return smallBlind;
+    }
+
+    public int getRaiseIncrement() {
+        return raiseIncrement;
+    }
+
+    public int getPot() {
+        return slots[POT];
+    }
+
+    public int getCurrentBet() {
+        return slots[CURRENT_BET];
+    }
+
+    public GameState getStreet() {
+        return STATES[slots[STREET]];
+    }
+
+    public int getToAct() {
+        return slots[TO_ACT];
+    }
+
+    public int getDealer() {
+        return slots[DEALER];
+    }
+
+    /**
+     * Gets the number of raises made in the current betting round.
+     *
+     * @return The raise count, not counting the blinds
+     */
+    public int getRaiseCount() {
+        return slots[RAISES];
+    }
+
+    public int getStack(int seat) {
+        return slots[seatBase(seat) + STACK];
+    }
+
+    public int getStreetBet(int seat) {
+        return slots[seatBase(seat) + STREET_BET];
+    }
+
+    /**
+     * Gets the total chips a seat has put into the pot this hand.
+     *
+     * @param seat The seat
+     * @return The seat's contribution to the pot
+     */
+    public int getContributed(int seat) {
+        return slots[seatBase(seat) + CONTRIBUTED];
+    }
+
+    /**
+     * Gets the seat status: {@link #ACTIVE}, {@link #FOLDED} or {@link #ALL_IN}.
+     *
+     * @param seat The seat
+     * @return The seat status
+     */
+    public int getStatus(int seat) {
+        return slots[seatBase(seat) + STATUS];
+    }
+
+    /**
+     * Gets the amount the given seat must add to call the current bet.
+     *
+     * @param seat The seat
+     * @return The amount to call, capped at the seat's stack
+     */
+    public int getToCall(int seat) {
+        int toCall = slots[CURRENT_BET] - getStreetBet(seat);
+        return Math.min(toCall, getStack(seat));
+    }
+
+    public int getHoleCard(int seat, int index) {
+        return slots[seatBase(seat) + HOLE + index];
+    }
+
+    public int getBoardCount() {
+        return slots[BOARD_COUNT];
+    }
+
+    public int getBoardCard(int index) {
+        return slots[boardBase + index];
+    }
+
+    /**
+     * Checks whether the hand has finished, either at showdown or because
+     * everybody else folded.
+     *
+     * @return true if no more actions can be applied
+     */
+    public boolean isHandOver() {
+        int street = slots[STREET];
+        return street == GameState.SHOWDOWN.ordinal() || street == GameState.GAME_OVER.ordinal();
+    }
+}
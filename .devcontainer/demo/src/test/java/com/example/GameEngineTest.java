@@ -0,0 +1,151 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.Player.PlayerAction;
+import com.example.history.HandLog;
+import com.example.history.HandReplayer;
+import com.example.sim.TableState;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the game engine's betting bookkeeping and all-in equity.
+ */
+public class GameEngineTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Takes the chips from the player, as the console game does, and records the action. */
+    private static void act(GameEngine engine, Player player, PlayerAction action, int chips)
+    {
+        player.removeChips(chips);
+        engine.recordAction(player, action, chips);
+    }
+
+    @Test
+    public void calledAllInShowsEquityOverTheWholeHand()
+    {
+        // Seat 0 deals, seat 1 posts the small blind and seat 2, the short stack, the big blind
+        GameEngine engine = new GameEngine();
+        Player first = new AIPlayer("First", 1000);
+        Player second = new AIPlayer("Second", 1000);
+        Player shortStack = new AIPlayer("Short", 100);
+        engine.addPlayer(first);
+        engine.addPlayer(second);
+        engine.addPlayer(shortStack);
+        assertTrue(engine.startNewRound());
+
+        act(engine, first, PlayerAction.RAISE, 300);
+        act(engine, second, PlayerAction.CALL, 295);
+        act(engine, shortStack, PlayerAction.ALL_IN, 90);
+        assertFalse(engine.isAllInAndCalled());
+
+        engine.dealCommunityCards();
+        act(engine, first, PlayerAction.ALL_IN, 700);
+        act(engine, second, PlayerAction.CALL, 700);
+        assertTrue(engine.isAllInAndCalled());
+
+        // The short stack's pre-flop chips still make it eligible for the main pot
+        TableState state = engine.snapshot();
+        assertEquals(1000, state.getContributed(0));
+        assertEquals(1000, state.getContributed(1));
+        assertEquals(100, state.getContributed(2));
+        assertEquals(TableState.ALL_IN, state.getStatus(2));
+
+        Map<Player, Double> equity = engine.getAllInEquity();
+        double total = 0;
+        for (double expected : equity.values()) {
+            total += expected;
+        }
+        assertEquals(2100, total, 1e-6);
+        assertTrue(equity.get(shortStack) <= 300 + 1e-6);
+
+        PrintStream console = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+        try {
+            Main.showAllInEquity(engine);
+        } finally {
+            System.setOut(console);
+        }
+        String shown = output.toString();
+        assertTrue(shown.contains("All in!"));
+        for (Player player : engine.getPlayers()) {
+            assertTrue(shown.contains("  " + player.getName() + ": "));
+        }
+    }
+
+    @Test
+    public void blindLeavingChipsBehindIsNotAllIn()
+    {
+        GameEngine engine = new GameEngine();
+        Player dealer = new AIPlayer("Dealer", 1000);
+        Player smallBlind = new AIPlayer("Small", 10);
+        engine.addPlayer(dealer);
+        engine.addPlayer(smallBlind);
+        assertTrue(engine.startNewRound());
+
+        // Heads-up the dealer posts the big blind here; the small blind keeps 5 chips
+        TableState state = engine.snapshot();
+        assertEquals(TableState.ACTIVE, state.getStatus(1));
+        assertFalse(engine.isAllInAndCalled());
+    }
+
+    @Test
+    public void loggedHandsReplayWithoutMismatches() throws IOException
+    {
+        Path directory = folder.getRoot().toPath();
+        Random random = new Random(7);
+        int hands = 0;
+        try (HandLog log = new HandLog(directory)) {
+            GameEngine engine = new GameEngine();
+            for (int i = 0; i < 4; i++) {
+                engine.addPlayer(new AIPlayer("Player " + i, 100 + 50 * i));
+            }
+            engine.setHandLog(log);
+
+            // Play random actions, taking the chips as the console game does, until one player is left
+            while (hands < 200 && engine.startNewRound()) {
+                hands++;
+                while (!engine.isHandOver()) {
+                    while (!engine.isBettingRoundOver()) {
+                        Player player = engine.getPlayerToAct();
+                        int toCall = engine.getCurrentBetAmount() - engine.getPlayerBet(player);
+                        int chips = player.getChipCount();
+                        int roll = random.nextInt(10);
+                        if (roll == 0) {
+                            act(engine, player, PlayerAction.ALL_IN, chips);
+                        } else if (roll < 3) {
+                            act(engine, player, PlayerAction.RAISE, Math.min(toCall + 20, chips));
+                        } else if (roll < 5 && toCall > 0) {
+                            act(engine, player, PlayerAction.FOLD, 0);
+                        } else {
+                            act(engine, player, toCall > 0 ? PlayerAction.CALL : PlayerAction.CHECK,
+                                Math.min(toCall, chips));
+                        }
+                    }
+                    if (!engine.isHandOver()) {
+                        engine.dealCommunityCards();
+                    }
+                }
+                engine.evaluateWinner();
+            }
+        }
+
+        HandReplayer.Summary summary = HandReplayer.replayAll(directory, 2);
+        assertTrue(hands > 1);
+        assertEquals(hands, summary.getHands());
+        assertEquals(summary.getMismatches().toString(), 0, summary.getMismatched());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.ai;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.Card;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Unit tests for mapping real betting onto the trainer's betting sequences,
+ * with blinds of 5 and 10.
+ */
+public class BettingHistoryTrackerTest
+{
+    private static final List<Card> HAND = Arrays.asList(Card.fromIndex(12), Card.fromIndex(25));
+    private static final List<Card> PRE_FLOP = new ArrayList<>();
+    private static final List<Card> FLOP = Arrays.asList(Card.fromIndex(0), Card.fromIndex(14), Card.fromIndex(28));
+
+    private static int after(int... actions)
+    {
+        int sequence = BettingSequences.ROOT;
+        for (int action : actions) {
+            sequence = BettingSequences.child(sequence, action);
+        }
+        return sequence;
+    }
+
+    @Test
+    public void smallBlindStartsAtRootAndActsFirstAfterTheFlop()
+    {
+        BettingHistoryTracker tracker = new BettingHistoryTracker(10);
+        assertEquals(BettingSequences.ROOT, tracker.observe(HAND, PRE_FLOP, 5, 995));
+        tracker.record(BettingSequences.CALL);
+
+        // The big blind checked behind pre-flop; we open the flop
+        assertEquals(BettingSequences.ROOT, tracker.observe(HAND, FLOP, 0, 990));
+        tracker.record(BettingSequences.RAISE);
+        // ...and the big blind raised our bet
+        assertEquals(after(BettingSequences.RAISE, BettingSequences.RAISE), tracker.observe(HAND, FLOP, 40, 970));
+    }
+
+    @Test
+    public void bigBlindSeesTheLimpAndActsSecondAfterTheFlop()
+    {
+        BettingHistoryTracker tracker = new BettingHistoryTracker(10);
+        assertEquals(after(BettingSequences.CALL), tracker.observe(HAND, PRE_FLOP, 0, 990));
+        tracker.record(BettingSequences.CALL);
+
+        // The small blind checked the flop to us
+        assertEquals(after(BettingSequences.CALL), tracker.observe(HAND, FLOP, 0, 990));
+        tracker.record(BettingSequences.RAISE);
+        // ...and raised our bet
+        assertEquals(after(BettingSequences.CALL, BettingSequences.RAISE, BettingSequences.RAISE),
+                     tracker.observe(HAND, FLOP, 40, 970));
+    }
+
+    @Test
+    public void bigBlindFacingARaiseOrAllIn()
+    {
+        BettingHistoryTracker tracker = new BettingHistoryTracker(10);
+        assertEquals(after(BettingSequences.RAISE), tracker.observe(HAND, PRE_FLOP, 20, 990));
+
+        List<Card> otherHand = Arrays.asList(Card.fromIndex(3), Card.fromIndex(40));
+        assertEquals(after(BettingSequences.ALL_IN), tracker.observe(otherHand, PRE_FLOP, 990, 990));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.eval.HandIsomorphism;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for generated bucket tables and the suit isomorphism they are keyed by.
+ */
+public class BucketTableTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Maps a card through a permutation of the four suits. */
+    private static int permute(int card, int[] suits)
+    {
+        return suits[card / 13] * 13 + card % 13;
+    }
+
+    private static long permute(long board, int[] suits)
+    {
+        long permuted = 0L;
+        for (int card = 0; card < 52; card++) {
+            if ((board & (1L << card)) != 0) {
+                permuted |= 1L << permute(card, suits);
+            }
+        }
+        return permuted;
+    }
+
+    private static int[] randomSuits(Random random)
+    {
+        int[] suits = { 0, 1, 2, 3 };
+        for (int i = 3; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = suits[i];
+            suits[i] = suits[j];
+            suits[j] = tmp;
+        }
+        return suits;
+    }
+
+    @Test
+    public void suitIsomorphicHandsShareACanonicalKey()
+    {
+        Random random = new Random(29);
+        for (int trial = 0; trial < 2000; trial++) {
+            long board = 0L;
+            int boardSize = new int[] { 0, 3, 4, 5 }[random.nextInt(4)];
+            while (Long.bitCount(board) < boardSize) {
+                board |= 1L << random.nextInt(52);
+            }
+            int card1;
+            int card2;
+            do {
+                card1 = random.nextInt(52);
+                card2 = random.nextInt(52);
+            } while (card1 == card2 || (board & ((1L << card1) | (1L << card2))) != 0);
+
+            int[] suits = randomSuits(random);
+            assertEquals(HandIsomorphism.canonicalKey(card1, card2, board),
+                         HandIsomorphism.canonicalKey(permute(card2, suits), permute(card1, suits),
+                                                      permute(board, suits)));
+        }
+    }
+
+    @Test
+    public void generatedTableMapsIsomorphicHandsToOneBucket() throws Exception
+    {
+        Path file = folder.getRoot().toPath().resolve(BucketGenerator.fileName(0));
+        BucketGenerator generator = new BucketGenerator(0, 8, BucketGenerator.Metric.EMD, 500, 8, 2, 29L);
+        assertEquals(169, generator.generate(file));
+
+        BucketTable table = BucketTable.open(file);
+        assertEquals(0, table.getStreet());
+        assertEquals(8, table.getBucketCount());
+        Random random = new Random(30);
+        for (int card1 = 0; card1 < 52; card1++) {
+            for (int card2 = card1 + 1; card2 < 52; card2++) {
+                int bucket = table.bucket(card1, card2, 0L);
+                assertTrue(bucket >= 0 && bucket < 8);
+                int[] suits = randomSuits(random);
+                assertEquals(bucket, table.bucket(permute(card1, suits), permute(card2, suits), 0L));
+            }
+        }
+    }
+
+    @Test
+    public void riverStrengthMatchesTheSharedRanking()
+    {
+        Random random = new Random(31);
+        for (int trial = 0; trial < 100; trial++) {
+            long board = 0L;
+            while (Long.bitCount(board) < 5) {
+                board |= 1L << random.nextInt(52);
+            }
+            int card1;
+            int card2;
+            do {
+                card1 = random.nextInt(52);
+                card2 = random.nextInt(52);
+            } while (card1 == card2 || (board & ((1L << card1) | (1L << card2))) != 0);
+            assertEquals(HandStrengthAbstraction.handStrength(card1, card2, board),
+                         BucketGenerator.riverStrength(card1, card2, board), 1e-9);
+        }
+    }
+
+    @Test
+    public void partitionedTableKeepsConcurrentPuts() throws Exception
+    {
+        Path file = folder.getRoot().toPath().resolve("large.bkt");
+        int threads = 4;
+        int perThread = 50000;
+        BucketTable table = BucketTable.create(file, 2, 1000, (long) threads * perThread);
+
+        // Every thread writes its own keys, then rewrites some with a new bucket
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            writers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < perThread; i++) {
+                    long key = random.nextLong() | 1L;
+                    table.put(key, (int) ((key >>> 1) % 999));
+                    if (i % 10 == 0) {
+                        table.put(key, 999);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int t = 0; t < threads; t++) {
+            writers[t].join();
+            Random random = new Random(t);
+            for (int i = 0; i < perThread; i++) {
+                long key = random.nextLong() | 1L;
+                expected.put(key, i % 10 == 0 ? 999 : (int) ((key >>> 1) % 999));
+            }
+        }
+        table.finish(file);
+        assertEquals(expected.size(), table.getEntryCount());
+
+        BucketTable reopened = BucketTable.open(file);
+        assertEquals(expected.size(), reopened.getEntryCount());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().intValue(), reopened.bucket(entry.getKey()));
+        }
+        assertEquals(-1, reopened.bucket(2L));
+    }
+}
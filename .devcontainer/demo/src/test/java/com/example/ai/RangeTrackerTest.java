@@ -0,0 +1,38 @@
+package com.example.ai;
+
+import static org.junit.Assert.assertTrue;
+
+import com.example.Player.PlayerAction;
+import com.example.eval.Combos;
+import org.junit.Test;
+
+/**
+ * Unit tests for the per-seat range tracker.
+ */
+public class RangeTrackerTest
+{
+    @Test
+    public void overbetCallsKeepEveryWeightNonNegative()
+    {
+        RangeTracker tracker = new RangeTracker(2);
+        tracker.observe(0, PlayerAction.CALL, 200, 100);
+        // Two cards of each suit on the flop: 2c 7d Kh
+        tracker.setBoard((1L << 0) | (1L << 18) | (1L << 37));
+        tracker.observe(0, PlayerAction.CALL, 200, 100);
+        tracker.observe(0, PlayerAction.CALL, 1000, 10);
+
+        float[] weights = tracker.getWeights(0);
+        float total = 0f;
+        for (float weight : weights) {
+            assertTrue(weight >= 0f);
+            total += weight;
+        }
+        assertTrue(total > 0f);
+
+        float[] strengths = new float[Combos.COUNT];
+        tracker.strengths(0, strengths);
+        for (float strength : strengths) {
+            assertTrue(strength >= 0f && strength <= 1.0001f);
+        }
+    }
+}
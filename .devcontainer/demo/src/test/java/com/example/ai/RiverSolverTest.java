@@ -0,0 +1,59 @@
+package com.example.ai;
+
+import static org.junit.Assert.assertTrue;
+
+import com.example.eval.Combos;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Unit tests for the river solver's convergence and time budget.
+ */
+public class RiverSolverTest
+{
+    // Kc 9d 5h 3s 2c
+    private static final long BOARD = (1L << 11) | (1L << 20) | (1L << 29) | (1L << 40) | (1L << 0);
+    private static final int POT = 100;
+
+    @Test
+    public void smallSpotConvergesBelowTarget()
+    {
+        // Out of position: aces or a busted spade draw; in position: a king or a pair of jacks
+        float[] oop = range(new int[][] { { 12, 25 }, { 12, 38 }, { 25, 38 }, { 51, 49 }, { 50, 49 } });
+        float[] ip = range(new int[][] { { 24, 36 }, { 37, 36 }, { 9, 22 }, { 9, 35 }, { 22, 35 } });
+        RiverSolver solver = new RiverSolver(BOARD, POT, 200, oop, ip);
+
+        double exploitability = solver.solve(10000, 0.005);
+
+        assertTrue("exploitability " + exploitability, exploitability <= 0.005 * POT);
+        assertTrue(exploitability >= 0);
+    }
+
+    @Test
+    public void solveKeepsToItsTimeBudget()
+    {
+        float[] uniform = new float[Combos.COUNT];
+        Arrays.fill(uniform, 1f);
+        RiverSolver solver = new RiverSolver(BOARD, POT, 1000, uniform, uniform);
+        // Warm up, so the budget measures solving rather than class loading and compilation
+        solver.solve(100, 0);
+
+        long started = System.nanoTime();
+        solver.solve(200, 0);
+        long elapsedMillis = (System.nanoTime() - started) / 1000000L;
+
+        assertTrue(solver.getIterations() > 0);
+        // A tenth over for timer and scheduling noise; an unreserved final check overran by more
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis <= 220);
+    }
+
+    private static float[] range(int[][] hands)
+    {
+        float[] weights = new float[Combos.COUNT];
+        for (int[] hand : hands) {
+            weights[Combos.index(hand[0], hand[1])] = 1f;
+        }
+        return weights;
+    }
+}
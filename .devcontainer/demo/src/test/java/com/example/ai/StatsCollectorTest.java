@@ -0,0 +1,125 @@
+package com.example.ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.Card;
+import com.example.Player;
+import com.example.Player.PlayerAction;
+import com.example.sim.TableSimulator;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Unit tests for the statistics collected from scripted hands at a simulated table.
+ */
+public class StatsCollectorTest
+{
+    @Test
+    public void scriptedHandsFillEveryCounter()
+    {
+        // Seat 0 has the button in the first and third hands, so seat 1 posts the small
+        // blind there and acts first on every street
+        ScriptedPlayer a = new ScriptedPlayer("A",
+                // Hand 1: 3-bets the open, then c-bets the flop and checks down
+                PlayerAction.RAISE, PlayerAction.RAISE, PlayerAction.CHECK, PlayerAction.CHECK,
+                // Hand 2: limps, calls the raise, then folds to the c-bet
+                PlayerAction.CALL, PlayerAction.CALL, PlayerAction.CHECK, PlayerAction.FOLD);
+        ScriptedPlayer b = new ScriptedPlayer("B",
+                // Hand 1: opens, calls the 3-bet, check-calls the c-bet and checks down
+                PlayerAction.RAISE, PlayerAction.CALL, PlayerAction.CHECK, PlayerAction.CALL,
+                PlayerAction.CHECK, PlayerAction.CHECK,
+                // Hand 2: raises the limp and c-bets
+                PlayerAction.RAISE, PlayerAction.RAISE,
+                // Hand 3: folds the small blind
+                PlayerAction.FOLD);
+        List<Player> players = Arrays.<Player>asList(a, b);
+        OpponentStats stats = new OpponentStats(2);
+        TableSimulator table = new TableSimulator(players, 5, 10, 1);
+        table.addListener(new StatsCollector(stats, players));
+
+        for (int hand = 0; hand < 3; hand++) {
+            table.playHand();
+        }
+        assertTrue(a.script.isEmpty());
+        assertTrue(b.script.isEmpty());
+
+        OpponentStats.Snapshot first = stats.snapshot(stats.getId("A"));
+        assertEquals(3, first.get(OpponentStats.HANDS));
+        assertEquals(2, first.get(OpponentStats.VPIP));
+        assertEquals(1, first.get(OpponentStats.PFR));
+        assertEquals(2, first.get(OpponentStats.THREE_BET_CHANCES));
+        assertEquals(1, first.get(OpponentStats.THREE_BETS));
+        assertEquals(1, first.get(OpponentStats.AGGRESSIVE));
+        assertEquals(0, first.get(OpponentStats.CALLS));
+        assertEquals(1, first.get(OpponentStats.CBETS_FACED));
+        assertEquals(1, first.get(OpponentStats.CBET_FOLDS));
+        assertEquals(2, first.get(OpponentStats.SAW_FLOP));
+        assertEquals(1, first.get(OpponentStats.SHOWDOWNS));
+
+        OpponentStats.Snapshot second = stats.snapshot(stats.getId("B"));
+        assertEquals(3, second.get(OpponentStats.HANDS));
+        assertEquals(2, second.get(OpponentStats.VPIP));
+        assertEquals(2, second.get(OpponentStats.PFR));
+        assertEquals(0, second.get(OpponentStats.THREE_BET_CHANCES));
+        assertEquals(0, second.get(OpponentStats.THREE_BETS));
+        assertEquals(1, second.get(OpponentStats.AGGRESSIVE));
+        assertEquals(1, second.get(OpponentStats.CALLS));
+        assertEquals(1, second.get(OpponentStats.CBETS_FACED));
+        assertEquals(0, second.get(OpponentStats.CBET_FOLDS));
+        assertEquals(2, second.get(OpponentStats.SAW_FLOP));
+        assertEquals(1, second.get(OpponentStats.SHOWDOWNS));
+        assertEquals(0.5, second.getWentToShowdown(), 1e-9);
+    }
+
+    /**
+     * A player that takes the actions it is given, in order, and folds once they run out.
+     */
+    private static final class ScriptedPlayer implements Player
+    {
+        private final String name;
+        private final Deque<PlayerAction> script;
+        private int chips = 1000;
+
+        ScriptedPlayer(String name, PlayerAction... actions)
+        {
+            this.name = name;
+            this.script = new ArrayDeque<>(Arrays.asList(actions));
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public int getChipCount()
+        {
+            return chips;
+        }
+
+        @Override
+        public void addChips(int amount)
+        {
+            chips += amount;
+        }
+
+        @Override
+        public boolean removeChips(int amount)
+        {
+            chips -= amount;
+            return true;
+        }
+
+        @Override
+        public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount)
+        {
+            return script.isEmpty() ? PlayerAction.FOLD : script.poll();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.ai;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.Card;
+import com.example.Player.PlayerAction;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for quantized strategy files and hot-swapping them.
+ */
+public class StrategyTableTest
+{
+    private static final int ALL_ACTIONS = (1 << BettingSequences.ACTION_COUNT) - 1;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Three buckets on every street, chosen by the first card's rank. */
+    private static final CardAbstraction ABSTRACTION = new CardAbstraction() {
+        @Override
+        public int bucketCount(int street)
+        {
+            return 3;
+        }
+
+        @Override
+        public int bucket(int street, int card1, int card2, long board)
+        {
+            return (card1 % 13) % 3;
+        }
+    };
+
+    /** A strategy whose probabilities differ in every row, shifted by a seed. */
+    private static AbstractStrategy strategy(final int seed)
+    {
+        return new AbstractStrategy() {
+            @Override
+            public CardAbstraction getAbstraction()
+            {
+                return ABSTRACTION;
+            }
+
+            @Override
+            public int getRaiseIncrement()
+            {
+                return 20;
+            }
+
+            @Override
+            public void getStrategy(int street, int sequence, int bucket, int legalMask, double[] probabilities)
+            {
+                double total = 0;
+                for (int a = 0; a < probabilities.length; a++) {
+                    int weight = 1 + (street * 7 + sequence * 3 + bucket + a * seed) % 5;
+                    probabilities[a] = (legalMask & (1 << a)) != 0 ? weight : 0;
+                    total += probabilities[a];
+                }
+                for (int a = 0; a < probabilities.length; a++) {
+                    probabilities[a] /= total;
+                }
+            }
+        };
+    }
+
+    private static void assertSameStrategy(AbstractStrategy expected, AbstractStrategy actual)
+    {
+        double[] want = new double[BettingSequences.ACTION_COUNT];
+        double[] got = new double[BettingSequences.ACTION_COUNT];
+        int[] masks = { ALL_ACTIONS, (1 << BettingSequences.CALL) | (1 << BettingSequences.RAISE) };
+        for (int street = 0; street < 4; street++) {
+            for (int sequence = 0; sequence < BettingSequences.count(); sequence++) {
+                for (int bucket = 0; bucket < 3; bucket++) {
+                    for (int mask : masks) {
+                        expected.getStrategy(street, sequence, bucket, mask, want);
+                        actual.getStrategy(street, sequence, bucket, mask, got);
+                        for (int a = 0; a < want.length; a++) {
+                            assertEquals(want[a], got[a], 0.01);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void exportedTableKeepsEveryRow() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("strategy.u8");
+        StrategyTable.write(file, strategy(1));
+        StrategyTable table = StrategyTable.open(file, ABSTRACTION);
+        assertEquals(20, table.getRaiseIncrement());
+        assertSameStrategy(strategy(1), table);
+    }
+
+    @Test
+    public void storeSwapsInANewTable() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("strategy.u8");
+        StrategyTable.write(file, strategy(1));
+        StrategyStore store = new StrategyStore(file, ABSTRACTION);
+        assertSameStrategy(strategy(1), store);
+
+        StrategyTable.write(file, strategy(2));
+        assertSameStrategy(strategy(1), store);
+        store.reload();
+        assertSameStrategy(strategy(2), store);
+    }
+
+    @Test
+    public void smallBlindPlaysTheRootRow() throws IOException
+    {
+        // Shove from the pre-flop root, check or call everywhere else
+        AbstractStrategy shoveFromRoot = new AbstractStrategy() {
+            @Override
+            public CardAbstraction getAbstraction()
+            {
+                return ABSTRACTION;
+            }
+
+            @Override
+            public int getRaiseIncrement()
+            {
+                return 20;
+            }
+
+            @Override
+            public void getStrategy(int street, int sequence, int bucket, int legalMask, double[] probabilities)
+            {
+                Arrays.fill(probabilities, 0);
+                boolean root = street == 0 && sequence == BettingSequences.ROOT;
+                probabilities[root ? BettingSequences.ALL_IN : BettingSequences.CALL] = 1;
+            }
+        };
+        Path file = folder.getRoot().toPath().resolve("strategy.u8");
+        StrategyTable.write(file, shoveFromRoot);
+        StrategyPlayer player = new StrategyPlayer("Bot", 995, StrategyTable.open(file, ABSTRACTION), 10);
+
+        assertEquals(PlayerAction.ALL_IN, player.getAction(
+                Arrays.asList(Card.fromIndex(12), Card.fromIndex(25)), new ArrayList<Card>(), 5, 15));
+        assertEquals(PlayerAction.CHECK, player.getAction(
+                Arrays.asList(Card.fromIndex(3), Card.fromIndex(40)), new ArrayList<Card>(), 0, 20));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.eval;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Unit tests for the per-board combo ranking.
+ */
+public class BoardRankingTest
+{
+    @Test
+    public void strengthAndNutRankMatchEnumeration()
+    {
+        Random random = new Random(34);
+        for (int trial = 0; trial < 50; trial++) {
+            int boardSize = 3 + random.nextInt(3);
+            long board = 0L;
+            while (Long.bitCount(board) < boardSize) {
+                board |= 1L << random.nextInt(52);
+            }
+            int card1;
+            int card2;
+            do {
+                card1 = random.nextInt(52);
+                card2 = random.nextInt(52);
+            } while (card1 == card2 || (board & ((1L << card1) | (1L << card2))) != 0);
+
+            long dead = board | (1L << card1) | (1L << card2);
+            int ours = HandEvaluator.evaluate(card1, card2, board);
+            int ahead = 0;
+            int tied = 0;
+            int behind = 0;
+            for (int combo = 0; combo < Combos.COUNT; combo++) {
+                if ((Combos.mask(combo) & dead) != 0) {
+                    continue;
+                }
+                int theirs = HandEvaluator.evaluate(board | Combos.mask(combo));
+                if (ours > theirs) {
+                    ahead++;
+                } else if (ours == theirs) {
+                    tied++;
+                } else {
+                    behind++;
+                }
+            }
+
+            BoardRanking ranking = BoardRanking.of(board);
+            double expected = (ahead + tied / 2.0) / (ahead + tied + behind);
+            assertEquals(expected, ranking.strength(card1, card2), 1e-12);
+            assertEquals(behind, ranking.nutRank(card1, card2));
+        }
+    }
+
+    @Test
+    public void rankingsAreSharedPerBoard()
+    {
+        long board = (1L << 3) | (1L << 17) | (1L << 40);
+        assertSame(BoardRanking.of(board), BoardRanking.of(board));
+        assertEquals(49 * 48 / 2, BoardRanking.of(board).getComboCount());
+    }
+}
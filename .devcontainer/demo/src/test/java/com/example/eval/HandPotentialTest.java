@@ -0,0 +1,136 @@
+package com.example.eval;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Unit tests for hand strength and potential.
+ */
+public class HandPotentialTest
+{
+    // Card indices: suit * 13 + rank, deuce = 0; hearts are suit 2
+    private static final int KC = 11;
+    private static final int TWO_H = 26;
+    private static final int SEVEN_H = 31;
+    private static final int TEN_H = 34;
+    private static final int JACK_H = 35;
+    private static final int ACE_H = 38;
+    private static final int THREE_S = 40;
+
+    @Test
+    public void flushDrawOnTheFlop()
+    {
+        long board = (1L << TWO_H) | (1L << SEVEN_H) | (1L << KC);
+        HandPotential potential = HandPotential.compute(JACK_H, TEN_H, board);
+        double[] expected = enumerate(JACK_H, TEN_H, board);
+
+        assertEquals(expected[0], potential.getStrength(), 1e-12);
+        assertEquals(expected[1], potential.getPositivePotential(), 1e-12);
+        assertEquals(expected[2], potential.getNegativePotential(), 1e-12);
+
+        // Jack high is behind most hands, but nine hearts in 45 cards make the flush
+        assertTrue(potential.getStrength() < 0.5);
+        assertTrue(potential.getPositivePotential() > 9 / 45.0);
+        assertTrue(potential.getPositivePotential() < 0.35);
+        assertTrue(potential.getNegativePotential() < potential.getPositivePotential());
+        assertTrue(potential.getEffectiveStrength() > potential.getStrength());
+    }
+
+    @Test
+    public void flushDrawOnTheTurnAndRiver()
+    {
+        long turn = (1L << TWO_H) | (1L << SEVEN_H) | (1L << KC) | (1L << THREE_S);
+        HandPotential potential = HandPotential.compute(JACK_H, TEN_H, turn);
+        double[] expected = enumerate(JACK_H, TEN_H, turn);
+        assertEquals(expected[0], potential.getStrength(), 1e-12);
+        assertEquals(expected[1], potential.getPositivePotential(), 1e-12);
+        assertEquals(expected[2], potential.getNegativePotential(), 1e-12);
+
+        // The flush got there: no next card, so no potential either way
+        long river = turn | (1L << ACE_H);
+        HandPotential made = HandPotential.compute(JACK_H, TEN_H, river);
+        assertEquals(enumerate(JACK_H, TEN_H, river)[0], made.getStrength(), 1e-12);
+        assertTrue(made.getStrength() > 0.95);
+        assertEquals(0, made.getPositivePotential(), 0);
+        assertEquals(0, made.getNegativePotential(), 0);
+    }
+
+    @Test
+    public void randomSpotsMatchEnumeration()
+    {
+        Random random = new Random(33);
+        for (int trial = 0; trial < 10; trial++) {
+            int boardSize = 3 + trial % 2;
+            long board = 0L;
+            while (Long.bitCount(board) < boardSize) {
+                board |= 1L << random.nextInt(52);
+            }
+            int card1;
+            int card2;
+            do {
+                card1 = random.nextInt(52);
+                card2 = random.nextInt(52);
+            } while (card1 == card2 || (board & ((1L << card1) | (1L << card2))) != 0);
+
+            // Twice, so the second call reads the stored next-card scores
+            for (int pass = 0; pass < 2; pass++) {
+                HandPotential potential = HandPotential.compute(card1, card2, board);
+                double[] expected = enumerate(card1, card2, board);
+                assertEquals(expected[0], potential.getStrength(), 1e-12);
+                assertEquals(expected[1], potential.getPositivePotential(), 1e-12);
+                assertEquals(expected[2], potential.getNegativePotential(), 1e-12);
+            }
+        }
+    }
+
+    /**
+     * Computes HS, PPOT and NPOT straight from the hand evaluator, following their
+     * definitions: every opponent hand, and every next card for each of them.
+     */
+    private static double[] enumerate(int card1, int card2, long board)
+    {
+        long hero = (1L << card1) | (1L << card2);
+        double[] current = new double[3];
+        double[][] transitions = new double[3][3];
+        for (int o1 = 0; o1 < 52; o1++) {
+            for (int o2 = o1 + 1; o2 < 52; o2++) {
+                long opponent = (1L << o1) | (1L << o2);
+                if ((opponent & (board | hero)) != 0) {
+                    continue;
+                }
+                int before = standing(HandEvaluator.evaluate(board | hero), HandEvaluator.evaluate(board | opponent));
+                current[before]++;
+                if (Long.bitCount(board) == 5) {
+                    continue;
+                }
+                for (int card = 0; card < 52; card++) {
+                    long next = board | (1L << card);
+                    if (((board | hero | opponent) & (1L << card)) != 0) {
+                        continue;
+                    }
+                    int after = standing(HandEvaluator.evaluate(next | hero), HandEvaluator.evaluate(next | opponent));
+                    transitions[before][after]++;
+                }
+            }
+        }
+
+        double strength = (current[0] + current[1] / 2) / (current[0] + current[1] + current[2]);
+        double behind = transitions[2][0] + transitions[2][1] + transitions[2][2];
+        double tied = transitions[1][0] + transitions[1][1] + transitions[1][2];
+        double ahead = transitions[0][0] + transitions[0][1] + transitions[0][2];
+        double positive = behind + tied == 0 ? 0
+                : (transitions[2][0] + transitions[2][1] / 2 + transitions[1][0] / 2) / (behind + tied / 2);
+        double negative = ahead + tied == 0 ? 0
+                : (transitions[0][2] + transitions[1][2] / 2 + transitions[0][1] / 2) / (ahead + tied / 2);
+        return new double[] { strength, positive, negative };
+    }
+
+    /** 0 ahead, 1 tied, 2 behind. */
+    private static int standing(int ours, int theirs)
+    {
+        return ours > theirs ? 0 : ours == theirs ? 1 : 2;
+    }
+}
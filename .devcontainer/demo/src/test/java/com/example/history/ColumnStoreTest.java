@@ -0,0 +1,329 @@
+package com.example.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.Card;
+import com.example.Player;
+import com.example.Player.PlayerAction;
+import com.example.eval.BoardTexture;
+import com.example.sim.TableSimulator;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for column store queries, checked against plain loops over the hand log.
+ */
+public class ColumnStoreTest
+{
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static Path log;
+    private static ColumnStore store;
+
+    /**
+     * Logs random hands at a 10/20 three-handed table and a 5/10 four-handed one, into
+     * several segments and with enough seat rows for several scan blocks.
+     */
+    @BeforeClass
+    public static void buildStore() throws Exception
+    {
+        log = folder.newFolder("log").toPath();
+        try (HandLog handLog = new HandLog(log, 256 << 10, HandLog.SyncPolicy.NONE)) {
+            play(handLog, 3, 10, 20, 1500, 1);
+            play(handLog, 4, 5, 10, 1000, 2);
+        }
+        assertTrue(HandLog.segments(log).size() > 1);
+        store = ColumnStore.build(log, folder.newFolder("store").toPath());
+    }
+
+    private static void play(HandLog handLog, int seats, int smallBlind, int bigBlind, int hands, long seed)
+    {
+        Random stacks = new Random(seed);
+        List<Player> players = new ArrayList<>();
+        for (int seat = 0; seat < seats; seat++) {
+            players.add(new RandomPlayer("P" + seat, seed * 7 + seat));
+        }
+        TableSimulator table = new TableSimulator(players, smallBlind, bigBlind, seed);
+        table.addListener(new HandLogListener(handLog));
+        for (int hand = 0; hand < hands; hand++) {
+            for (Player player : players) {
+                ((RandomPlayer) player).chips = 200 + stacks.nextInt(1800);
+            }
+            table.playHand();
+        }
+    }
+
+    @Test
+    public void vpipByPositionForOneSeat() throws Exception
+    {
+        ColumnQuery.Result result = store.seats().query().where(ColumnStore.SEAT, 1)
+                                         .groupBy(ColumnStore.POSITION).aggregate(ColumnStore.VPIP);
+
+        Map<Long, long[]> expected = new TreeMap<>();
+        for (Hand hand : hands()) {
+            if (hand.dealt[1]) {
+                add(expected, hand.position(1), hand.vpip[1] ? 1 : 0);
+            }
+        }
+        assertMatches(expected, result);
+        assertEquals(4, result.size());
+    }
+
+    @Test
+    public void potByStreetAtOneBlindLevel() throws Exception
+    {
+        ColumnQuery.Result result = store.hands().query().where(ColumnStore.BIG_BLIND, 20)
+                                         .groupBy(ColumnStore.STREET).aggregate(ColumnStore.POT);
+
+        Map<Long, long[]> expected = new TreeMap<>();
+        for (Hand hand : hands()) {
+            if (hand.bigBlind == 20) {
+                add(expected, hand.street(), hand.pot());
+            }
+        }
+        assertMatches(expected, result);
+    }
+
+    @Test
+    public void netByBlindLevelOfDeepStacksThatSawTheFlop() throws Exception
+    {
+        ColumnQuery.Result result = store.seats().query().where(ColumnStore.STACK, 800, 1200)
+                                         .where(ColumnStore.SAW_FLOP, 1).groupBy(ColumnStore.BIG_BLIND)
+                                         .aggregate(ColumnStore.NET);
+
+        Map<Long, long[]> expected = new TreeMap<>();
+        for (Hand hand : hands()) {
+            for (int seat = 0; seat < hand.seats; seat++) {
+                if (hand.dealt[seat] && hand.sawFlop[seat] && hand.stacks[seat] >= 800 && hand.stacks[seat] <= 1200) {
+                    add(expected, hand.bigBlind, hand.payout[seat] - hand.committed[seat]);
+                }
+            }
+        }
+        assertMatches(expected, result);
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    public void flopTextureSumOverShowdowns() throws Exception
+    {
+        ColumnQuery.Result result = store.hands().query().where(ColumnStore.SHOWDOWN, 1)
+                                         .where(ColumnStore.STREET, 1, 3).aggregate(ColumnStore.TEXTURE);
+
+        Map<Long, long[]> expected = new TreeMap<>();
+        for (Hand hand : hands()) {
+            if (hand.showdown && hand.flop != 0L) {
+                add(expected, 0L, BoardTexture.analyze(hand.flop));
+            }
+        }
+        assertMatches(expected, result);
+        assertEquals(2500, store.hands().getRows());
+    }
+
+    private static void add(Map<Long, long[]> groups, long key, long value)
+    {
+        long[] entry = groups.computeIfAbsent(key, k -> new long[2]);
+        entry[0]++;
+        entry[1] += value;
+    }
+
+    private static void assertMatches(Map<Long, long[]> expected, ColumnQuery.Result result)
+    {
+        assertEquals(expected.size(), result.size());
+        int index = 0;
+        for (Map.Entry<Long, long[]> entry : expected.entrySet()) {
+            assertEquals(entry.getKey().longValue(), result.getKey(index));
+            assertEquals("count for " + entry.getKey(), entry.getValue()[0], result.getCount(index));
+            assertEquals("sum for " + entry.getKey(), entry.getValue()[1], result.getSum(index));
+            index++;
+        }
+    }
+
+    /**
+     * Reads every hand of the log with a plain event loop.
+     */
+    private static List<Hand> hands() throws Exception
+    {
+        List<Hand> hands = new ArrayList<>();
+        for (Path segment : HandLog.segments(log)) {
+            try (HandLogReader reader = new HandLogReader(segment)) {
+                while (reader.nextHand()) {
+                    Hand hand = null;
+                    int boardCards = 0;
+                    for (int type = reader.nextEvent(); type != 0; type = reader.nextEvent()) {
+                        if (type == HandEvent.HAND_START) {
+                            hand = new Hand(reader);
+                        } else if (type == HandEvent.HOLE_CARDS) {
+                            hand.dealt[reader.getSeat()] = true;
+                        } else if (type == HandEvent.BLIND) {
+                            hand.committed[reader.getSeat()] += reader.getAmount();
+                        } else if (type == HandEvent.ACTION) {
+                            int seat = reader.getSeat();
+                            if (reader.getAction() == PlayerAction.FOLD) {
+                                hand.folded[seat] = true;
+                            }
+                            hand.committed[seat] += reader.getAmount();
+                            if (boardCards == 0 && reader.getAmount() > 0) {
+                                hand.vpip[seat] = true;
+                            }
+                        } else if (type == HandEvent.STREET) {
+                            if (boardCards == 0) {
+                                for (int seat = 0; seat < hand.seats; seat++) {
+                                    hand.sawFlop[seat] = hand.dealt[seat] && !hand.folded[seat];
+                                }
+                            }
+                            for (int i = 0; i < reader.getCardCount(); i++) {
+                                if (boardCards++ < 3) {
+                                    hand.flop |= 1L << reader.getCard(i);
+                                }
+                            }
+                        } else if (type == HandEvent.SHOWDOWN) {
+                            hand.showdown = true;
+                        } else if (type == HandEvent.PAYOUT) {
+                            hand.payout[reader.getSeat()] += reader.getAmount();
+                        }
+                    }
+                    hand.boardCards = boardCards;
+                    hands.add(hand);
+                }
+            }
+        }
+        return hands;
+    }
+
+    /**
+     * One logged hand, as the plain loop sees it.
+     */
+    private static final class Hand
+    {
+        final int seats;
+        final int dealer;
+        final int bigBlind;
+        final int[] stacks;
+        final boolean[] dealt;
+        final boolean[] folded;
+        final boolean[] vpip;
+        final boolean[] sawFlop;
+        final int[] committed;
+        final int[] payout;
+        long flop;
+        int boardCards;
+        boolean showdown;
+
+        Hand(HandLogReader reader)
+        {
+            seats = reader.getSeatCount();
+            dealer = reader.getDealer();
+            bigBlind = reader.getBigBlind();
+            stacks = new int[seats];
+            for (int seat = 0; seat < seats; seat++) {
+                stacks[seat] = reader.getStack(seat);
+            }
+            dealt = new boolean[seats];
+            folded = new boolean[seats];
+            vpip = new boolean[seats];
+            sawFlop = new boolean[seats];
+            committed = new int[seats];
+            payout = new int[seats];
+        }
+
+        /** Seats dealt in between the button and a seat. */
+        long position(int seat)
+        {
+            int position = 0;
+            for (int other = dealer; other != seat; other = (other + 1) % seats) {
+                if (dealt[other]) {
+                    position++;
+                }
+            }
+            return position;
+        }
+
+        long street()
+        {
+            return boardCards == 0 ? 0 : boardCards - 2;
+        }
+
+        /** Chips paid out, less the uncalled part of the biggest bet, which went back. */
+        long pot()
+        {
+            long paid = 0;
+            int biggest = 0;
+            int second = 0;
+            for (int seat = 0; seat < seats; seat++) {
+                paid += payout[seat];
+                if (committed[seat] >= biggest) {
+                    second = biggest;
+                    biggest = committed[seat];
+                } else if (committed[seat] > second) {
+                    second = committed[seat];
+                }
+            }
+            return paid - (biggest - second);
+        }
+    }
+
+    /**
+     * A player that acts at random.
+     */
+    private static final class RandomPlayer implements Player
+    {
+        private final String name;
+        private final Random random;
+        private int chips;
+
+        RandomPlayer(String name, long seed)
+        {
+            this.name = name;
+            this.random = new Random(seed);
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public int getChipCount()
+        {
+            return chips;
+        }
+
+        @Override
+        public void addChips(int amount)
+        {
+            chips += amount;
+        }
+
+        @Override
+        public boolean removeChips(int amount)
+        {
+            chips -= amount;
+            return true;
+        }
+
+        @Override
+        public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount)
+        {
+            int pick = random.nextInt(20);
+            if (pick == 0) {
+                return PlayerAction.ALL_IN;
+            } else if (pick < 4) {
+                return PlayerAction.RAISE;
+            } else if (currentBet == 0) {
+                return PlayerAction.CHECK;
+            }
+            return pick < 9 ? PlayerAction.FOLD : PlayerAction.CALL;
+        }
+    }
+}
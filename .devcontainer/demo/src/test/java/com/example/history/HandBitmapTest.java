@@ -0,0 +1,125 @@
+package com.example.history;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+
+/**
+ * Unit tests for the compressed hand number set.
+ */
+public class HandBitmapTest
+{
+    private static HandBitmap bitmap(TreeSet<Integer> hands)
+    {
+        HandBitmap bitmap = new HandBitmap();
+        for (int hand : hands) {
+            bitmap.add(hand);
+        }
+        return bitmap;
+    }
+
+    private static int[] toArray(TreeSet<Integer> hands)
+    {
+        return hands.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Spreads hands over a few groups, some sparse enough for arrays and some dense enough for bitmaps. */
+    private static TreeSet<Integer> randomHands(Random random)
+    {
+        TreeSet<Integer> hands = new TreeSet<>();
+        for (int group = 0; group < 6; group++) {
+            int count = random.nextInt(3) == 0 ? 100 + random.nextInt(200) : 3000 + random.nextInt(3000);
+            int high = random.nextInt(8) << 16;
+            for (int i = 0; i < count; i++) {
+                hands.add(high | random.nextInt(1 << 13));
+            }
+        }
+        return hands;
+    }
+
+    private static HandBitmap roundTrip(HandBitmap bitmap) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bitmap.write(new DataOutputStream(bytes));
+        return HandBitmap.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    public void andAndOrMatchSortedSets() throws IOException
+    {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 20; trial++) {
+            TreeSet<Integer> left = randomHands(random);
+            TreeSet<Integer> right = randomHands(random);
+            TreeSet<Integer> both = new TreeSet<>(left);
+            both.retainAll(right);
+            TreeSet<Integer> either = new TreeSet<>(left);
+            either.addAll(right);
+
+            HandBitmap and = bitmap(left).and(bitmap(right));
+            HandBitmap or = bitmap(left).or(bitmap(right));
+            assertArrayEquals(toArray(both), and.toArray());
+            assertArrayEquals(toArray(either), or.toArray());
+            assertEquals(either.size(), or.getCardinality());
+            assertArrayEquals(toArray(both), roundTrip(and).toArray());
+            assertArrayEquals(toArray(either), roundTrip(or).toArray());
+        }
+    }
+
+    @Test
+    public void containerSwitchesBetween4096And4097Hands() throws IOException
+    {
+        HandBitmap bitmap = new HandBitmap();
+        for (int hand = 0; hand < 4096; hand++) {
+            bitmap.add(hand * 3L);
+        }
+        assertEquals(4096, bitmap.getCardinality());
+        assertEquals(4096, roundTrip(bitmap).getCardinality());
+
+        bitmap.add(1);
+        assertEquals(4097, bitmap.getCardinality());
+        HandBitmap read = roundTrip(bitmap);
+        assertArrayEquals(bitmap.toArray(), read.toArray());
+        assertTrue(read.contains(1));
+        assertTrue(read.contains(4095 * 3));
+        assertFalse(read.contains(2));
+    }
+
+    @Test
+    public void overlappingUnionOfArraysStaysReadable() throws IOException
+    {
+        // Together over 4096 hands, but the union is only 4000
+        HandBitmap left = new HandBitmap();
+        HandBitmap right = new HandBitmap();
+        for (int hand = 0; hand < 3000; hand++) {
+            left.add(hand);
+            right.add(hand + 1000);
+        }
+        HandBitmap union = left.or(right);
+        assertEquals(4000, union.getCardinality());
+        HandBitmap read = roundTrip(union);
+        assertEquals(4000, read.getCardinality());
+        assertArrayEquals(union.toArray(), read.toArray());
+    }
+
+    @Test
+    public void writeAndReadRoundTrip() throws IOException
+    {
+        TreeSet<Integer> hands = randomHands(new Random(11));
+        hands.add(Integer.MAX_VALUE);
+        HandBitmap read = roundTrip(bitmap(hands));
+        assertArrayEquals(toArray(hands), read.toArray());
+        assertEquals(hands.size(), read.getCardinality());
+        assertTrue(roundTrip(new HandBitmap()).isEmpty());
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.history;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.GameEngine.GameState;
+import com.example.Player.PlayerAction;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for exporting a hand log as PokerStars text.
+ */
+public class HandHistoryExporterTest
+{
+    private static final DateTimeFormatter DATE =
+            DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss 'UTC'").withZone(ZoneOffset.UTC);
+
+    // Card indices: suit * 13 + rank, deuce = 0; suits are clubs, diamonds, hearts, spades
+    private static final int TWO_C = 0;
+    private static final int FOUR_C = 2;
+    private static final int KC = 11;
+    private static final int THREE_D = 14;
+    private static final int SEVEN_D = 18;
+    private static final int QD = 23;
+    private static final int KD = 24;
+    private static final int AD = 25;
+    private static final int TWO_H = 26;
+    private static final int SEVEN_H = 31;
+    private static final int NINE_H = 33;
+    private static final int KH = 37;
+    private static final int AH = 38;
+    private static final int JS = 48;
+    private static final int QS = 49;
+    private static final int KS = 50;
+    private static final int AS = 51;
+
+    /** A raise, a reraise and a flop bet nobody called; Player 1 is on the button. */
+    private static final String RAISED_POT =
+            "PokerStars Hand #%d: Hold'em No Limit (5/10) - %s\n"
+            + "Table 'pokerclone' 3-max Seat #1 is the button\n"
+            + "Seat 1: Player 1 (1000 in chips)\n"
+            + "Seat 2: Player 2 (1000 in chips)\n"
+            + "Seat 3: Player 3 (1000 in chips)\n"
+            + "Player 2: posts small blind 5\n"
+            + "Player 3: posts big blind 10\n"
+            + "*** HOLE CARDS ***\n"
+            + "Dealt to Player 1 [Ah Kh]\n"
+            + "Dealt to Player 2 [2c 7d]\n"
+            + "Dealt to Player 3 [Qs Qd]\n"
+            + "Player 1: raises 20 to 30\n"
+            + "Player 2: folds\n"
+            + "Player 3: raises 70 to 100\n"
+            + "Player 1: calls 70\n"
+            + "*** FLOP *** [2h 7h Kc]\n"
+            + "Player 3: checks\n"
+            + "Player 1: bets 150\n"
+            + "Player 3: folds\n"
+            + "Uncalled bet (150) returned to Player 1\n"
+            + "Player 1 collected 205 from pot\n"
+            + "*** SUMMARY ***\n"
+            + "Total pot 205 | Rake 0\n"
+            + "Board [2h 7h Kc]\n"
+            + "Seat 1: Player 1 (button) collected (205)\n"
+            + "Seat 2: Player 2 folded before Flop\n"
+            + "Seat 3: Player 3 folded on the Flop\n"
+            + "\n\n";
+
+    /**
+     * An all-in called for less, shown down to the river. Seat 3 has no chips, so the
+     * small blind passes to the seat after it.
+     */
+    private static final String ALL_IN_POT =
+            "PokerStars Hand #%d: Hold'em No Limit (10/20) - %s\n"
+            + "Table 'pokerclone' 3-max Seat #2 is the button\n"
+            + "Seat 1: Player 1 (600 in chips)\n"
+            + "Seat 2: Player 2 (400 in chips)\n"
+            + "Player 1: posts small blind 10\n"
+            + "Player 2: posts big blind 20\n"
+            + "*** HOLE CARDS ***\n"
+            + "Dealt to Player 1 [As Ad]\n"
+            + "Dealt to Player 2 [Kd Ks]\n"
+            + "Player 1: raises 580 to 600 and is all-in\n"
+            + "Player 2: calls 380 and is all-in\n"
+            + "*** FLOP *** [2c 3d 9h]\n"
+            + "*** TURN *** [2c 3d 9h] [Js]\n"
+            + "*** RIVER *** [2c 3d 9h Js] [4c]\n"
+            + "Uncalled bet (200) returned to Player 1\n"
+            + "*** SHOW DOWN ***\n"
+            + "Player 1: shows [As Ad]\n"
+            + "Player 2: shows [Kd Ks]\n"
+            + "Player 1 collected 800 from pot\n"
+            + "*** SUMMARY ***\n"
+            + "Total pot 800 | Rake 0\n"
+            + "Board [2c 3d 9h Js 4c]\n"
+            + "Seat 1: Player 1 showed [As Ad] and won (800)\n"
+            + "Seat 2: Player 2 (button) showed [Kd Ks] and lost\n"
+            + "\n\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void scriptedHandsExportAsPokerStarsText() throws Exception
+    {
+        Path log = folder.newFolder("log").toPath();
+        try (HandLog handLog = new HandLog(log)) {
+            HandLog.Writer writer = handLog.writer();
+            raisedPot(writer);
+            allInPot(writer);
+        }
+        Path output = folder.getRoot().toPath().resolve("hands.txt");
+        assertEquals(2, new HandHistoryExporter().export(log, output, 1));
+        assertEquals(expected(log), new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void compressedExportIsOneGzipMemberPerChunk() throws Exception
+    {
+        Path log = folder.newFolder("log").toPath();
+        try (HandLog handLog = new HandLog(log)) {
+            HandLog.Writer writer = handLog.writer();
+            for (int hand = 0; hand < 2500; hand++) {
+                raisedPot(writer);
+                allInPot(writer);
+            }
+        }
+        Path text = folder.getRoot().toPath().resolve("hands.txt");
+        Path compressed = folder.getRoot().toPath().resolve("hands.txt.gz");
+        HandHistoryExporter exporter = new HandHistoryExporter();
+        assertEquals(5000, exporter.export(log, text, 4));
+        assertEquals(5000, exporter.export(log, compressed, 4));
+
+        // Chunks are 2048 hands, each compressed on its own; a reader takes them as one file
+        byte[] plain = Files.readAllBytes(text);
+        assertEquals(expected(log), new String(plain, StandardCharsets.UTF_8));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed))) {
+            assertArrayEquals(plain, readAll(in));
+        }
+        assertEquals(3, members(Files.readAllBytes(compressed)));
+    }
+
+    private static void raisedPot(HandLog.Writer writer) throws Exception
+    {
+        writer.startHand(0, 5, 10, new int[] { 1000, 1000, 1000 });
+        writer.holeCards(0, AH, KH);
+        writer.holeCards(1, TWO_C, SEVEN_D);
+        writer.holeCards(2, QS, QD);
+        writer.blind(1, 5);
+        writer.blind(2, 10);
+        writer.action(0, PlayerAction.RAISE, 30);
+        writer.action(1, PlayerAction.FOLD, 0);
+        writer.action(2, PlayerAction.RAISE, 90);
+        writer.action(0, PlayerAction.CALL, 70);
+        writer.street(GameState.FLOP, new int[] { TWO_H, SEVEN_H, KC }, 0, 3);
+        writer.action(2, PlayerAction.CHECK, 0);
+        writer.action(0, PlayerAction.RAISE, 150);
+        writer.action(2, PlayerAction.FOLD, 0);
+        // The payout includes the uncalled 150
+        writer.payout(0, 355);
+        writer.endHand();
+    }
+
+    private static void allInPot(HandLog.Writer writer) throws Exception
+    {
+        int[] board = { TWO_C, THREE_D, NINE_H, JS, FOUR_C };
+        writer.startHand(1, 10, 20, new int[] { 600, 400, 0 });
+        writer.holeCards(0, AS, AD);
+        writer.holeCards(1, KD, KS);
+        writer.blind(0, 10);
+        writer.blind(1, 20);
+        writer.action(0, PlayerAction.ALL_IN, 590);
+        writer.action(1, PlayerAction.CALL, 380);
+        writer.street(GameState.FLOP, board, 0, 3);
+        writer.street(GameState.TURN, board, 3, 4);
+        writer.street(GameState.RIVER, board, 4, 5);
+        writer.showdown(0, AS, AD);
+        writer.showdown(1, KD, KS);
+        writer.payout(0, 1000);
+        writer.endHand();
+    }
+
+    /**
+     * Fills in the scripted hands' text with the numbers and start times the log gave them.
+     */
+    private static String expected(Path log) throws Exception
+    {
+        StringBuilder text = new StringBuilder();
+        for (Path segment : HandLog.segments(log)) {
+            try (HandLogReader reader = new HandLogReader(segment)) {
+                while (reader.nextHand()) {
+                    reader.nextEvent();
+                    String hand = reader.getBigBlind() == 10 ? RAISED_POT : ALL_IN_POT;
+                    text.append(String.format(hand, reader.getHand(), DATE.format(
+                            Instant.ofEpochMilli(reader.getTime()))));
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Counts the gzip members of a file by inflating them one after another.
+     */
+    private static int members(byte[] file) throws Exception
+    {
+        int members = 0;
+        int offset = 0;
+        byte[] scratch = new byte[1 << 16];
+        while (offset < file.length) {
+            assertEquals(0x1f, file[offset] & 0xff);
+            assertEquals(0x8b, file[offset + 1] & 0xff);
+            // GZIPOutputStream writes a 10-byte header with no optional fields
+            Inflater inflater = new Inflater(true);
+            inflater.setInput(file, offset + 10, file.length - offset - 10);
+            while (!inflater.finished()) {
+                assertTrue(inflater.inflate(scratch) > 0 || inflater.finished());
+            }
+            // Then an 8-byte trailer of checksum and length
+            offset = file.length - inflater.getRemaining() + 8;
+            inflater.end();
+            members++;
+        }
+        return members;
+    }
+
+    private static byte[] readAll(InputStream in) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.ledger;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the chip ledger's logging and recovery.
+ */
+public class ChipLedgerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setUp()
+    {
+        directory = folder.getRoot().toPath();
+    }
+
+    private List<Path> logs() throws IOException
+    {
+        List<Path> logs = new ArrayList<>();
+        try (DirectoryStream<Path> files =
+                 Files.newDirectoryStream(directory, ChipLedger.LOG_PREFIX + "*" + ChipLedger.LOG_SUFFIX)) {
+            for (Path file : files) {
+                logs.add(file);
+            }
+        }
+        logs.sort(null);
+        return logs;
+    }
+
+    @Test
+    public void reopenAfterCloseRestoresBalances() throws IOException
+    {
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            int alice = ledger.open("Alice");
+            int bob = ledger.open("Bob");
+            ledger.move(alice, ChipLedger.Reason.BUY_IN, 1000);
+            ledger.move(bob, ChipLedger.Reason.BUY_IN, 500);
+            ledger.move(alice, ChipLedger.Reason.BET, -200);
+            ledger.move(bob, ChipLedger.Reason.PAYOUT, 200);
+        }
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            assertEquals(6, ledger.getSequence());
+            assertEquals(800, ledger.getBalance(ledger.find("Alice")));
+            assertEquals(700, ledger.getBalance(ledger.find("Bob")));
+            ledger.move(ledger.find("Alice"), ChipLedger.Reason.CASH_OUT, -800);
+        }
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            assertEquals(0, ledger.getBalance(ledger.find("Alice")));
+            assertEquals(700, ledger.getBalance(ledger.find("Bob")));
+        }
+    }
+
+    @Test
+    public void tornFinalRecordIsDropped() throws IOException
+    {
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            int alice = ledger.open("Alice");
+            ledger.move(alice, ChipLedger.Reason.BUY_IN, 1000);
+            ledger.move(alice, ChipLedger.Reason.BET, -100);
+            ledger.move(alice, ChipLedger.Reason.BET, -50);
+        }
+
+        // Cut the last record in half, as a crash in the middle of a write would
+        Path log = logs().get(logs().size() - 1);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 7);
+        }
+
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            int alice = ledger.find("Alice");
+            assertEquals(3, ledger.getSequence());
+            assertEquals(900, ledger.getBalance(alice));
+            ledger.move(alice, ChipLedger.Reason.PAYOUT, 25);
+        }
+        // The torn bytes stay in the old log, but the new log carries on after them
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            assertEquals(4, ledger.getSequence());
+            assertEquals(925, ledger.getBalance(ledger.find("Alice")));
+        }
+    }
+
+    @Test
+    public void crashDuringCheckpointLosesNothing() throws IOException
+    {
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            int alice = ledger.open("Alice");
+            ledger.move(alice, ChipLedger.Reason.BUY_IN, 1000);
+            ledger.checkpoint();
+            ledger.move(alice, ChipLedger.Reason.BET, -300);
+        }
+
+        // A second checkpoint, covering all 3 records, started its new log and wrote part
+        // of the snapshot, then died before moving the snapshot into place
+        Path started = directory.resolve(String.format("%s%020d%s", ChipLedger.LOG_PREFIX, 3,
+                                                       ChipLedger.LOG_SUFFIX));
+        ByteBuffer header = ByteBuffer.allocate(ChipLedger.HEADER_BYTES);
+        header.putInt(ChipLedger.LOG_MAGIC).putInt(ChipLedger.VERSION).flip();
+        try (FileChannel channel = FileChannel.open(started, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(header);
+        }
+        Files.write(directory.resolve(ChipLedger.SNAPSHOT + ".tmp"), new byte[] { 0x50, 0x4C });
+
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            assertEquals(700, ledger.getBalance(ledger.find("Alice")));
+            ledger.move(ledger.find("Alice"), ChipLedger.Reason.PAYOUT, 50);
+        }
+
+        // A checkpoint that completes afterwards covers everything and drops the old logs
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            assertEquals(750, ledger.getBalance(ledger.find("Alice")));
+            ledger.checkpoint();
+        }
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            assertEquals(750, ledger.getBalance(ledger.find("Alice")));
+        }
+        assertEquals(1, logs().size());
+    }
+
+    @Test
+    public void concurrentMovesSurviveReopening() throws Exception
+    {
+        int threads = 8;
+        int moves = 200;
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            int house = ledger.open("House");
+            Thread[] tables = new Thread[threads];
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            for (int t = 0; t < threads; t++) {
+                int account = ledger.open("Table " + t);
+                tables[t] = new Thread(() -> {
+                    try {
+                        ledger.move(account, ChipLedger.Reason.BUY_IN, 1000);
+                        for (int i = 0; i < moves; i++) {
+                            boolean bet = i % 2 == 0;
+                            ledger.move(account, bet ? ChipLedger.Reason.BET : ChipLedger.Reason.PAYOUT,
+                                        bet ? -10 : 15);
+                            ledger.move(house, ChipLedger.Reason.PAYOUT, 1);
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                });
+                tables[t].start();
+            }
+            for (Thread table : tables) {
+                table.join();
+            }
+            if (failure.get() != null) {
+                throw new AssertionError(failure.get());
+            }
+        }
+
+        try (ChipLedger ledger = new ChipLedger(directory)) {
+            // One open per account, then each thread's buy-in and moves
+            assertEquals(threads + 1 + threads * (1 + 2L * moves), ledger.getSequence());
+            assertEquals(threads * moves, ledger.getBalance(ledger.find("House")));
+            for (int t = 0; t < threads; t++) {
+                assertEquals(1000 + moves / 2 * 5, ledger.getBalance(ledger.find("Table " + t)));
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.ledger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import com.example.AIPlayer;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for players whose chips are kept in a ledger.
+ */
+public class LedgerPlayerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rejectedMovementLeavesChipsAlone() throws IOException
+    {
+        ChipLedger ledger = new ChipLedger(folder.getRoot().toPath());
+        LedgerPlayer player = new LedgerPlayer(new AIPlayer("Alice", 1000), ledger);
+        int account = ledger.find("Alice");
+        ledger.close();
+
+        try {
+            player.removeChips(100);
+            fail("A closed ledger should reject the bet");
+        } catch (IllegalStateException expected) {
+            assertEquals(1000, player.getChipCount());
+        }
+        try {
+            player.addChips(100);
+            fail("A closed ledger should reject the payout");
+        } catch (IllegalStateException expected) {
+            assertEquals(1000, player.getChipCount());
+        }
+        assertEquals(1000, ledger.getBalance(account));
+    }
+
+    @Test
+    public void balanceFollowsThePlayerAcrossSessions() throws IOException
+    {
+        try (ChipLedger ledger = new ChipLedger(folder.getRoot().toPath())) {
+            LedgerPlayer player = new LedgerPlayer(new AIPlayer("Bob", 500), ledger);
+            player.removeChips(120);
+            player.addChips(300);
+            assertFalse(player.removeChips(1000));
+            assertEquals(680, player.getChipCount());
+        }
+        try (ChipLedger ledger = new ChipLedger(folder.getRoot().toPath())) {
+            LedgerPlayer player = new LedgerPlayer(new AIPlayer("Bob", 500), ledger);
+            assertEquals(680, player.getChipCount());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.Card;
+import com.example.Player;
+import com.example.Player.PlayerAction;
+import com.example.eval.BoardTexture;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for writing decision traces and reading them back.
+ */
+public class DecisionTraceTest
+{
+    private static final int STACK = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void decisionsReadBackAsThePlayersSawThem() throws Exception
+    {
+        File file = folder.newFile("decisions.trace");
+        file.delete();
+        DecisionTrace trace = new DecisionTrace(file.toPath());
+
+        // Enough hands at the first table to fill several blocks, with hands split across them
+        List<List<long[]>> expected = new ArrayList<>();
+        expected.add(play(trace, 3, 2000, 1));
+        expected.add(play(trace, 2, 300, 2));
+        trace.close();
+
+        List<List<long[]>> actual = new ArrayList<>();
+        actual.add(new ArrayList<>());
+        actual.add(new ArrayList<>());
+        int blocks = 0;
+        try (DecisionTraceReader reader = new DecisionTraceReader(file.toPath())) {
+            while (reader.next()) {
+                blocks++;
+                for (int r = 0; r < reader.getRowCount(); r++) {
+                    long hand = reader.getHands()[r];
+                    actual.get((int) (hand >>> 40)).add(new long[] {
+                            hand & ((1L << 40) - 1), reader.getSeats()[r], reader.getPositions()[r],
+                            reader.getPlayerCounts()[r], reader.getBoardCounts()[r], reader.getFirstCards()[r],
+                            reader.getSecondCards()[r], reader.getBoards()[r], reader.getTextures()[r],
+                            reader.getPots()[r], reader.getToCalls()[r], reader.getStacks()[r],
+                            reader.getAction(r).ordinal(), reader.getOutcomes()[r] });
+                }
+            }
+        }
+        assertTrue(blocks > 2);
+        for (int table = 0; table < 2; table++) {
+            assertEquals(expected.get(table).size(), actual.get(table).size());
+            for (int row = 0; row < expected.get(table).size(); row++) {
+                assertEquals("table " + table + ", row " + row, Arrays.toString(expected.get(table).get(row)),
+                             Arrays.toString(actual.get(table).get(row)));
+            }
+        }
+    }
+
+    @Test
+    public void matchRecordsEveryHandOnce() throws Exception
+    {
+        File file = folder.newFile("match.trace");
+        file.delete();
+        DecisionTrace trace = new DecisionTrace(file.toPath());
+        DuplicateMatch match = new DuplicateMatch(seed -> new RandomPlayer("A", seed, -1, null),
+                                                  seed -> new RandomPlayer("B", ~seed, -1, null),
+                                                  5, 10, STACK, 7, 4);
+        match.setDecisionTrace(trace);
+        DuplicateMatch.Result result = match.run(64, 64);
+        trace.close();
+
+        // Recorders made at once by the worker threads must still number hands apart
+        Set<Long> hands = new HashSet<>();
+        try (DecisionTraceReader reader = new DecisionTraceReader(file.toPath())) {
+            while (reader.next()) {
+                for (int r = 0; r < reader.getRowCount(); r++) {
+                    hands.add(reader.getHands()[r]);
+                }
+            }
+        }
+        assertEquals(result.getHands(), hands.size());
+    }
+
+    /**
+     * Plays hands at a new table with a recorder from the trace, returning the rows the
+     * players saw in the trace's column order with the hand numbered from 1.
+     */
+    private List<long[]> play(DecisionTrace trace, int seats, int hands, long seed)
+    {
+        List<long[]> rows = new ArrayList<>();
+        List<Player> players = new ArrayList<>();
+        for (int seat = 0; seat < seats; seat++) {
+            players.add(new RandomPlayer("P" + seat, seed * 31 + seat, seat, rows));
+        }
+        TableSimulator table = new TableSimulator(players, 5, 10, seed);
+        table.addListener(trace.recorder());
+        for (int hand = 1; hand <= hands; hand++) {
+            for (Player player : players) {
+                ((RandomPlayer) player).chips = STACK;
+            }
+            int first = rows.size();
+            int[] deltas = table.playHand();
+            int dealer = (hand - 1) % seats;
+            for (int r = first; r < rows.size(); r++) {
+                long[] row = rows.get(r);
+                row[0] = hand;
+                row[2] = (row[1] - dealer + seats) % seats;
+                row[3] = seats;
+                row[13] = deltas[(int) row[1]];
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * A player that acts at random and notes every decision it is asked for.
+     */
+    private static final class RandomPlayer implements Player
+    {
+        private final String name;
+        private final Random random;
+        private final int seat;
+        private final List<long[]> rows;
+        private int chips = STACK;
+
+        RandomPlayer(String name, long seed, int seat, List<long[]> rows)
+        {
+            this.name = name;
+            this.random = new Random(seed);
+            this.seat = seat;
+            this.rows = rows;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public int getChipCount()
+        {
+            return chips;
+        }
+
+        @Override
+        public void addChips(int amount)
+        {
+            chips += amount;
+        }
+
+        @Override
+        public boolean removeChips(int amount)
+        {
+            chips -= amount;
+            return true;
+        }
+
+        @Override
+        public PlayerAction getAction(List<Card> hand, List<Card> communityCards, int currentBet, int potAmount)
+        {
+            int pick = random.nextInt(20);
+            PlayerAction action;
+            if (pick == 0) {
+                action = PlayerAction.ALL_IN;
+            } else if (pick < 5) {
+                action = PlayerAction.RAISE;
+            } else if (currentBet == 0) {
+                action = PlayerAction.CHECK;
+            } else {
+                action = pick < 9 ? PlayerAction.FOLD : PlayerAction.CALL;
+            }
+            if (rows != null) {
+                long board = 0L;
+                for (Card card : communityCards) {
+                    board |= 1L << card.getIndex();
+                }
+                rows.add(new long[] { 0, seat, 0, 0, communityCards.size(), hand.get(0).getIndex(),
+                                      hand.get(1).getIndex(), board, board == 0 ? 0 : BoardTexture.analyze(board),
+                                      potAmount, currentBet, chips, action.ordinal(), 0 });
+            }
+            return action;
+        }
+    }
+}
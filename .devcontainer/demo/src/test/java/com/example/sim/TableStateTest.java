@@ -0,0 +1,93 @@
+package com.example.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.GameEngine.GameState;
+import com.example.Player.PlayerAction;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Unit tests for the compact table state.
+ */
+public class TableStateTest
+{
+    private TableState newHeadsUpHand()
+    {
+        int[] deck = new int[52];
+        TableState.shuffleDeck(deck, new Random(42));
+        TableState state = new TableState(2);
+        state.startHand(0, new int[] { 1000, 1000 }, deck);
+        return state;
+    }
+
+    @Test
+    public void blindsArePostedAndSmallBlindActsFirst()
+    {
+        TableState state = newHeadsUpHand();
+        assertEquals(GameState.PRE_FLOP, state.getStreet());
+        assertEquals(15, state.getPot());
+        assertEquals(1, state.getToAct());
+        assertEquals(5, state.getToCall(1));
+    }
+
+    @Test
+    public void undoRestoresEveryStreet()
+    {
+        TableState state = newHeadsUpHand();
+        TableState start = state.fork();
+
+        state.apply(PlayerAction.CALL);
+        state.apply(PlayerAction.CHECK);
+        assertEquals(GameState.FLOP, state.getStreet());
+        assertEquals(3, state.getBoardCount());
+        state.apply(PlayerAction.RAISE);
+        state.apply(PlayerAction.CALL);
+        assertEquals(GameState.TURN, state.getStreet());
+
+        while (state.undo()) {
+            // Unwind everything
+        }
+        assertEquals(start.getPot(), state.getPot());
+        assertEquals(start.getStreet(), state.getStreet());
+        assertEquals(0, state.getBoardCount());
+        assertEquals(start.getStack(0), state.getStack(0));
+        assertEquals(start.getToAct(), state.getToAct());
+
+        // Redo replays the same deck, so the board comes back identical
+        state.redo();
+        state.redo();
+        assertEquals(3, state.getBoardCount());
+        assertTrue(state.redo());
+        assertTrue(state.redo());
+        assertFalse(state.redo());
+        assertEquals(GameState.TURN, state.getStreet());
+    }
+
+    @Test
+    public void restoreCopiesSnapshotIntoExistingBuffer()
+    {
+        TableState state = newHeadsUpHand();
+        TableState snapshot = state.fork();
+        state.apply(PlayerAction.ALL_IN);
+        state.apply(PlayerAction.CALL);
+        assertTrue(state.isHandOver());
+        assertEquals(5, state.getBoardCount());
+
+        state.restore(snapshot);
+        assertFalse(state.isHandOver());
+        assertEquals(15, state.getPot());
+        assertEquals(0, state.getUndoDepth());
+    }
+
+    @Test
+    public void foldEndsTheHand()
+    {
+        TableState state = newHeadsUpHand();
+        state.apply(PlayerAction.FOLD);
+        assertEquals(GameState.GAME_OVER, state.getStreet());
+        assertEquals(TableState.FOLDED, state.getStatus(1));
+    }
+}